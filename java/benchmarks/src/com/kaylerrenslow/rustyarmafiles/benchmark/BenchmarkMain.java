@@ -0,0 +1,29 @@
+package com.kaylerrenslow.rustyarmafiles.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ Runs the benchmarks of this package with the GC profiler, so the allocation rate (gc.alloc.rate.norm is bytes per
+ operation) is reported next to the throughput.
+ <p>
+ The arguments are regular JMH arguments. For example, to only run the query benchmarks on rapified files:
+ <pre>
+ QueryBenchmark -p format=Rapified
+ </pre>
+
+ @author K
+ @since 01/26/2019 */
+public class BenchmarkMain {
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		new Runner(new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build()
+		).run();
+	}
+}
@@ -0,0 +1,371 @@
+package com.kaylerrenslow.rustyarmafiles.benchmark;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ Generates synthetic configs for the benchmarks. The same shape, class count and seed always generate the same config,
+ so results of different runs and machines are comparable.
+ <p>
+ Every shape has a CfgVehicles class with classes named "Vehicle_0" to "Vehicle_n", and each of them has an armor field
+ and inherits the previous one, so the same queries and lookups work on every shape.
+
+ @author K
+ @since 01/26/2019 */
+public final class ConfigGenerator {
+	public static final long DEFAULT_SEED = 0x5EED;
+
+	public enum Shape {
+		/** many classes with a few fields each */
+		Wide,
+		/** classes nested 16 levels deep */
+		Deep,
+		/** few classes with big number, text and nested arrays */
+		BigArrays,
+		/** classes with text fields of up to 4096 characters */
+		LongStrings
+	}
+
+	private static final String WORDS = "abcdefghijklmnopqrstuvwxyz ABCDEFGHIJKLMNOPQRSTUVWXYZ_0123456789";
+
+	private final Random random;
+
+	private ConfigGenerator(long seed) {
+		this.random = new Random(seed);
+	}
+
+	/**
+	 @param shape      what the config mostly consists of
+	 @param classCount amount of classes in CfgVehicles for {@link Shape#Wide} and {@link Shape#LongStrings}.
+	 The other shapes have 1/16 as many, so that every shape has a similar amount of entries.
+	 @param seed       seed for the random names and values
+	 @return the root of the config
+	 */
+	@NotNull
+	public static Node generate(@NotNull Shape shape, int classCount, long seed) {
+		return new ConfigGenerator(seed).generateRoot(shape, classCount);
+	}
+
+	/** @return the name of the i'th class in CfgVehicles */
+	@NotNull
+	public static String vehicleName(int i) {
+		return "Vehicle_" + i;
+	}
+
+	/** @return amount of classes in CfgVehicles for the given shape and class count */
+	public static int vehicleCount(@NotNull Shape shape, int classCount) {
+		switch (shape) {
+			case Deep:
+			case BigArrays: {
+				return Math.max(1, classCount / 16);
+			}
+			default: {
+				return classCount;
+			}
+		}
+	}
+
+	@NotNull
+	private Node generateRoot(@NotNull Shape shape, int classCount) {
+		Node root = new Node("", null);
+		Node patches = root.addClass("CfgPatches", null).addClass("benchmark_addon", null);
+		patches.addField("requiredAddons", List.of("A3_Data_F"));
+		patches.addField("requiredVersion", 1.5);
+
+		Node vehicles = root.addClass("CfgVehicles", null);
+		int vehicleCount = vehicleCount(shape, classCount);
+		for (int i = 0; i < vehicleCount; i++) {
+			Node vehicle = vehicles.addClass(vehicleName(i), i == 0 ? null : vehicleName(i - 1));
+			vehicle.addField("scope", (double) random.nextInt(3));
+			vehicle.addField("armor", (double) random.nextInt(1000));
+			vehicle.addField("displayName", text(8 + random.nextInt(24)));
+			switch (shape) {
+				case Wide: {
+					for (int f = 0; f < 6; f++) {
+						vehicle.addField("value" + f, random.nextInt(4) == 0 ? random.nextDouble() : random.nextInt(10000));
+					}
+					vehicle.addField("model", "\\a3\\data_f\\" + text(12) + ".p3d");
+					vehicle.addField("hitpoints", List.of((double) random.nextInt(10), (double) random.nextInt(10), text(6)));
+					Node turret = vehicle.addClass("Turrets", null).addClass("MainTurret", null);
+					turret.addField("gunnerName", text(10));
+					turret.addField("weapons", List.of(text(8), text(8)));
+					break;
+				}
+				case Deep: {
+					Node level = vehicle;
+					for (int depth = 0; depth < 16; depth++) {
+						level = level.addClass("Level_" + depth, null);
+						level.addField("depth", depth);
+						level.addField("name", text(8));
+					}
+					break;
+				}
+				case BigArrays: {
+					List<Object> weights = new ArrayList<>(2048);
+					for (int e = 0; e < 2048; e++) {
+						weights.add(random.nextInt(2) == 0 ? (double) random.nextInt(100000) : random.nextDouble());
+					}
+					vehicle.addField("weights", weights);
+					List<Object> names = new ArrayList<>(256);
+					for (int e = 0; e < 256; e++) {
+						names.add(text(4 + random.nextInt(12)));
+					}
+					vehicle.addField("names", names);
+					List<Object> mixed = new ArrayList<>(128);
+					for (int e = 0; e < 128; e++) {
+						mixed.add(e % 3 == 0 ? text(6) : e % 3 == 1 ? (double) e : List.of((double) e, text(3)));
+					}
+					vehicle.addField("mixed", mixed);
+					break;
+				}
+				case LongStrings: {
+					for (int f = 0; f < 4; f++) {
+						vehicle.addField("description" + f, text(256 << random.nextInt(5)));
+					}
+					break;
+				}
+			}
+		}
+		return root;
+	}
+
+	@NotNull
+	private String text(int length) {
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = WORDS.charAt(random.nextInt(WORDS.length()));
+		}
+		return new String(chars);
+	}
+
+	/** A class of a generated config. Field values are {@link Double}s, {@link String}s or {@link List}s of them. */
+	public static final class Node {
+		private final String name;
+		private final String parentName;
+		private final List<String> fieldNames = new ArrayList<>();
+		private final List<Object> fieldValues = new ArrayList<>();
+		private final List<Node> classes = new ArrayList<>();
+
+		private Node(@NotNull String name, String parentName) {
+			this.name = name;
+			this.parentName = parentName;
+		}
+
+		@NotNull
+		private Node addClass(@NotNull String name, String parentName) {
+			Node node = new Node(name, parentName);
+			classes.add(node);
+			return node;
+		}
+
+		private void addField(@NotNull String name, @NotNull Object value) {
+			fieldNames.add(name);
+			fieldValues.add(value instanceof Integer ? (double) (Integer) value : value);
+		}
+
+		/** Writes the config as text (config.cpp) */
+		public void writeText(@NotNull File file) throws IOException {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < fieldNames.size(); i++) {
+				appendField(sb, i, 0);
+			}
+			for (Node node : classes) {
+				node.appendClass(sb, 0);
+			}
+			Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+		}
+
+		/** Writes the config rapified (config.bin) */
+		public void writeRapified(@NotNull File file) throws IOException {
+			RapWriter writer = new RapWriter();
+			writer.writeBodies(this);
+			Files.write(file.toPath(), writer.finish());
+		}
+
+		private void appendClass(@NotNull StringBuilder sb, int indent) {
+			indent(sb, indent).append("class ").append(name);
+			if (parentName != null) {
+				sb.append(": ").append(parentName);
+			}
+			sb.append(" {\n");
+			for (int i = 0; i < fieldNames.size(); i++) {
+				appendField(sb, i, indent + 1);
+			}
+			for (Node node : classes) {
+				node.appendClass(sb, indent + 1);
+			}
+			indent(sb, indent).append("};\n");
+		}
+
+		private void appendField(@NotNull StringBuilder sb, int i, int indent) {
+			Object value = fieldValues.get(i);
+			indent(sb, indent).append(fieldNames.get(i));
+			if (value instanceof List) {
+				sb.append("[]");
+			}
+			sb.append(" = ");
+			appendValue(sb, value);
+			sb.append(";\n");
+		}
+
+		private static void appendValue(@NotNull StringBuilder sb, @NotNull Object value) {
+			if (value instanceof String) {
+				sb.append('"').append(((String) value).replace("\"", "\"\"")).append('"');
+			} else if (value instanceof Double) {
+				double d = (Double) value;
+				if (d == (long) d) {
+					sb.append((long) d);
+				} else {
+					sb.append(d);
+				}
+			} else {
+				sb.append('{');
+				List<?> list = (List<?>) value;
+				for (int i = 0; i < list.size(); i++) {
+					if (i > 0) {
+						sb.append(", ");
+					}
+					appendValue(sb, list.get(i));
+				}
+				sb.append('}');
+			}
+		}
+
+		@NotNull
+		private static StringBuilder indent(@NotNull StringBuilder sb, int indent) {
+			for (int i = 0; i < indent; i++) {
+				sb.append('\t');
+			}
+			return sb;
+		}
+	}
+
+	/** Writes class bodies breadth first, patching the body offset of each class entry once the body is written. */
+	private static final class RapWriter {
+		private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		private final List<Integer> patchOffsets = new ArrayList<>();
+		private final List<Integer> patchValues = new ArrayList<>();
+
+		RapWriter() {
+			out.write(0);
+			out.writeBytes("raP".getBytes(StandardCharsets.US_ASCII));
+			writeInt(0);
+			writeInt(8);
+			writeInt(0); //offset to enums, patched in finish
+		}
+
+		void writeBodies(@NotNull Node root) {
+			List<Node> queue = new ArrayList<>();
+			List<Integer> queuePatches = new ArrayList<>();
+			queue.add(root);
+			queuePatches.add(-1);
+			for (int q = 0; q < queue.size(); q++) {
+				Node node = queue.get(q);
+				if (queuePatches.get(q) >= 0) {
+					patchOffsets.add(queuePatches.get(q));
+					patchValues.add(out.size());
+				}
+				writeAsciiz(node.parentName == null ? "" : node.parentName);
+				writeCompressedInt(node.fieldNames.size() + node.classes.size());
+				for (int i = 0; i < node.fieldNames.size(); i++) {
+					Object value = node.fieldValues.get(i);
+					if (value instanceof List) {
+						out.write(2);
+						writeAsciiz(node.fieldNames.get(i));
+						writeArray((List<?>) value);
+					} else {
+						out.write(1);
+						writeValueType(value);
+						writeAsciiz(node.fieldNames.get(i));
+						writeValue(value);
+					}
+				}
+				for (Node child : node.classes) {
+					out.write(0);
+					writeAsciiz(child.name);
+					queue.add(child);
+					queuePatches.add(out.size());
+					writeInt(0);
+				}
+			}
+		}
+
+		@NotNull
+		byte[] finish() {
+			int enumsOffset = out.size();
+			writeInt(0);
+			ByteBuffer bytes = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+			bytes.putInt(12, enumsOffset);
+			for (int i = 0; i < patchOffsets.size(); i++) {
+				bytes.putInt(patchOffsets.get(i), patchValues.get(i));
+			}
+			return bytes.array();
+		}
+
+		private void writeArray(@NotNull List<?> values) {
+			writeCompressedInt(values.size());
+			for (Object value : values) {
+				writeValueType(value);
+				if (value instanceof List) {
+					writeArray((List<?>) value);
+				} else {
+					writeValue(value);
+				}
+			}
+		}
+
+		private void writeValueType(@NotNull Object value) {
+			if (value instanceof String) {
+				out.write(0);
+			} else if (value instanceof Double) {
+				double d = (Double) value;
+				out.write(d == (int) d ? 2 : 1);
+			} else {
+				out.write(3);
+			}
+		}
+
+		private void writeValue(@NotNull Object value) {
+			if (value instanceof String) {
+				writeAsciiz((String) value);
+				return;
+			}
+			double d = (Double) value;
+			if (d == (int) d) {
+				writeInt((int) d);
+			} else {
+				writeInt(Float.floatToIntBits((float) d));
+			}
+		}
+
+		private void writeAsciiz(@NotNull String s) {
+			out.writeBytes(s.getBytes(StandardCharsets.UTF_8));
+			out.write(0);
+		}
+
+		private void writeCompressedInt(int value) {
+			do {
+				int b = value & 0x7F;
+				value >>>= 7;
+				out.write(value != 0 ? b | 0x80 : b);
+			} while (value != 0);
+		}
+
+		private void writeInt(int value) {
+			out.write(value);
+			out.write(value >>> 8);
+			out.write(value >>> 16);
+			out.write(value >>> 24);
+		}
+	}
+}
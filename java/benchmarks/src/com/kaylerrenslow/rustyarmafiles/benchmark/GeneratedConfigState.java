@@ -0,0 +1,108 @@
+package com.kaylerrenslow.rustyarmafiles.benchmark;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigFile;
+import com.kaylerrenslow.rustyarmafiles.impl.rapified.MappedRapifiedConfigFile;
+import com.kaylerrenslow.rustyarmafiles.impl.snapshot.SnapshotConfigFile;
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.text.ParseException;
+import java.util.List;
+
+/**
+ Generates a config with {@link ConfigGenerator} once per trial and writes it in the benchmarked format to a temporary
+ directory. The native {@link com.kaylerrenslow.rustyarmafiles.impl.rapified.RapifiedConfigFile} isn't covered,
+ since the benchmarks shouldn't depend on a built native library.
+
+ @author K
+ @since 01/26/2019 */
+@State(Scope.Benchmark)
+public class GeneratedConfigState {
+	public enum Format {
+		Text, Rapified, Snapshot
+	}
+
+	@Param({"Wide", "Deep", "BigArrays", "LongStrings"})
+	public ConfigGenerator.Shape shape;
+
+	@Param({"Text", "Rapified", "Snapshot"})
+	public Format format;
+
+	@Param({"2000"})
+	public int classCount;
+
+	private File directory;
+	private File file;
+	/** amount of classes in CfgVehicles */
+	protected int vehicleCount;
+
+	@Setup(Level.Trial)
+	public void generate() throws IOException, ParseException {
+		directory = Files.createTempDirectory("rustyarmafiles-benchmark").toFile();
+		ConfigGenerator.Node root = ConfigGenerator.generate(shape, classCount, ConfigGenerator.DEFAULT_SEED);
+		vehicleCount = ConfigGenerator.vehicleCount(shape, classCount);
+		switch (format) {
+			case Text: {
+				file = new File(directory, "config.cpp");
+				root.writeText(file);
+				break;
+			}
+			case Rapified: {
+				file = new File(directory, "config.bin");
+				root.writeRapified(file);
+				break;
+			}
+			case Snapshot: {
+				File bin = new File(directory, "config.bin");
+				root.writeRapified(bin);
+				MappedRapifiedConfigFile source = new MappedRapifiedConfigFile(bin);
+				source.parse();
+				file = new File(directory, "config.snapshot");
+				SnapshotConfigFile.write(source.getRoot(), List.of(bin), file);
+				break;
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void delete() {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File f : files) {
+				f.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	/** @return a new, unparsed {@link ConfigFile} for the generated file */
+	@NotNull
+	public ConfigFile newConfigFile() {
+		switch (format) {
+			case Text: {
+				return new TextConfigFile(file);
+			}
+			case Rapified: {
+				return new MappedRapifiedConfigFile(file);
+			}
+			case Snapshot: {
+				return new SnapshotConfigFile(file);
+			}
+			default: {
+				throw new IllegalStateException();
+			}
+		}
+	}
+
+	/** @return a new {@link ConfigFile} for the generated file that is already parsed */
+	@NotNull
+	public ConfigFile newParsedConfigFile() throws IOException, ParseException {
+		ConfigFile configFile = newConfigFile();
+		configFile.parse();
+		return configFile;
+	}
+}
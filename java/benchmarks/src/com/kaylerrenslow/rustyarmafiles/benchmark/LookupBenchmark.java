@@ -0,0 +1,94 @@
+package com.kaylerrenslow.rustyarmafiles.benchmark;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigClass;
+import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ Point lookups on a parsed file. Each invocation looks up the next class of CfgVehicles, so the lookups don't all hit
+ the same entry.
+
+ @author K
+ @since 01/26/2019 */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LookupBenchmark {
+	private ConfigClass vehicles;
+	private String[] names;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void parse(GeneratedConfigState state) throws IOException, ParseException {
+		vehicles = state.newParsedConfigFile().getRoot().getClass("CfgVehicles");
+		names = new String[state.vehicleCount];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = ConfigGenerator.vehicleName(i);
+		}
+	}
+
+	private String nextName() {
+		String name = names[next];
+		next = next + 1 == names.length ? 0 : next + 1;
+		return name;
+	}
+
+	@Benchmark
+	public ConfigClass getClassByName() {
+		return vehicles.getClass(nextName());
+	}
+
+	@Benchmark
+	public ConfigFieldValue getFieldValue() {
+		return vehicles.getClass(nextName()).getFieldValue("armor");
+	}
+
+	/** a field that no class has, so the lookup goes through every inherited class */
+	@Benchmark
+	public ConfigFieldValue resolveMissingField() {
+		return vehicles.getClass(nextName()).resolveFieldValue("missing");
+	}
+
+	/** sums every number of every array of a class, element by element */
+	@Benchmark
+	public void arrayElements(Blackhole blackhole) {
+		ConfigClass vehicle = vehicles.getClass(nextName());
+		for (String field : new String[]{"weights", "hitpoints"}) {
+			ConfigFieldValue value = vehicle.getFieldValue(field);
+			if (!(value instanceof ConfigFieldValue.Array)) {
+				continue;
+			}
+			ConfigFieldValue.Array array = (ConfigFieldValue.Array) value;
+			double sum = 0;
+			for (int i = 0; i < array.getLength(); i++) {
+				if (array.isScalar(i)) {
+					sum += array.getScalar(i);
+				}
+			}
+			blackhole.consume(sum);
+		}
+	}
+
+	/** like {@link #arrayElements}, with the bulk accessor */
+	@Benchmark
+	public void arrayBulk(Blackhole blackhole) {
+		ConfigClass vehicle = vehicles.getClass(nextName());
+		for (String field : new String[]{"weights", "hitpoints"}) {
+			ConfigFieldValue value = vehicle.getFieldValue(field);
+			if (!(value instanceof ConfigFieldValue.Array)) {
+				continue;
+			}
+			double[] sum = new double[1];
+			((ConfigFieldValue.Array) value).forEachScalar(d -> sum[0] += d);
+			blackhole.consume(sum[0]);
+		}
+	}
+}
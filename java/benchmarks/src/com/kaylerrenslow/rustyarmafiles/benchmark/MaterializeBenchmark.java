@@ -0,0 +1,41 @@
+package com.kaylerrenslow.rustyarmafiles.benchmark;
+
+import com.kaylerrenslow.rustyarmafiles.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ Parses a file and creates every class, field and value of it with {@link ConfigClass#getEntries()}.
+
+ @author K
+ @since 01/26/2019 */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MaterializeBenchmark {
+	@Benchmark
+	public ConfigClass parse(GeneratedConfigState state) throws IOException, ParseException {
+		return state.newParsedConfigFile().getRoot();
+	}
+
+	@Benchmark
+	public void parseAndMaterialize(GeneratedConfigState state, Blackhole blackhole) throws IOException, ParseException {
+		materialize(state.newParsedConfigFile().getRoot(), blackhole);
+	}
+
+	private static void materialize(ConfigClass configClass, Blackhole blackhole) {
+		for (ConfigEntry entry : configClass.getEntries()) {
+			if (entry.isClass()) {
+				materialize((ConfigClass) entry, blackhole);
+			} else {
+				blackhole.consume(((ConfigField) entry).getValue());
+			}
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.kaylerrenslow.rustyarmafiles.benchmark;
+
+import com.kaylerrenslow.rustyarmafiles.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.text.ParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ Throughput of {@link ConfigQuery} on unparsed files. The queries are compiled once per trial.
+
+ @author K
+ @since 01/26/2019 */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+	@State(Scope.Benchmark)
+	public static class Queries {
+		/** one class in the middle of CfgVehicles, so nearly everything else is skipped */
+		ConfigQuery singleClass;
+		/** CfgPatches only, so CfgVehicles is skipped as a whole */
+		ConfigQuery patches;
+		/** an incomplete name (Vehicle_1?) that matches about a tenth of the classes */
+		ConfigQuery incompleteName;
+		/** one field of every class in CfgVehicles */
+		ConfigQuery fieldOfEveryClass;
+
+		@Setup(Level.Trial)
+		public void compile(GeneratedConfigState state) throws ParseException {
+			String middle = ConfigGenerator.vehicleName(state.vehicleCount / 2);
+			singleClass = new ConfigQuery(ConfigQuery.parseQuery("CfgVehicles{" + middle + "{*;}}"));
+			patches = new ConfigQuery(ConfigQuery.parseArmaFormatQuery("CfgPatches>>benchmark_addon", false));
+			incompleteName = new ConfigQuery(ConfigQuery.parseArmaFormatQuery("CfgVehicles>>Vehicle_1?", true));
+			fieldOfEveryClass = new ConfigQuery(ConfigQuery.parseQuery("CfgVehicles{*{armor;}}"));
+		}
+	}
+
+	@Benchmark
+	public void singleClass(GeneratedConfigState state, Queries queries, Blackhole blackhole) throws ConfigStreamException {
+		consume(queries.singleClass.query(state.newConfigFile().newCursor()), blackhole);
+	}
+
+	@Benchmark
+	public void singleClassStream(GeneratedConfigState state, Queries queries, Blackhole blackhole) throws ConfigStreamException {
+		ConfigStream stream = queries.singleClass.query(state.newConfigFile().newStream());
+		ConfigStreamItem item;
+		while ((item = stream.next()).getType() != ConfigStreamItem.Type.EndStream) {
+			blackhole.consume(item);
+		}
+	}
+
+	@Benchmark
+	public void skipOuterClass(GeneratedConfigState state, Queries queries, Blackhole blackhole) throws ConfigStreamException {
+		consume(queries.patches.query(state.newConfigFile().newCursor()), blackhole);
+	}
+
+	@Benchmark
+	public void incompleteName(GeneratedConfigState state, Queries queries, Blackhole blackhole) throws ConfigStreamException {
+		consume(queries.incompleteName.query(state.newConfigFile().newCursor()), blackhole);
+	}
+
+	@Benchmark
+	public void fieldOfEveryClass(GeneratedConfigState state, Queries queries, Blackhole blackhole) throws ConfigStreamException {
+		consume(queries.fieldOfEveryClass.query(state.newConfigFile().newCursor()), blackhole);
+	}
+
+	private static void consume(ConfigCursor cursor, Blackhole blackhole) throws ConfigStreamException {
+		ConfigStreamItem.Type type;
+		while ((type = cursor.advance()) != ConfigStreamItem.Type.EndStream) {
+			if (type == ConfigStreamItem.Type.Field) {
+				blackhole.consume(cursor.value());
+			} else if (type == ConfigStreamItem.Type.Class) {
+				blackhole.consume(cursor.name().length());
+			}
+		}
+	}
+}
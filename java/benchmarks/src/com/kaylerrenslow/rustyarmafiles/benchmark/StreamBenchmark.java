@@ -0,0 +1,53 @@
+package com.kaylerrenslow.rustyarmafiles.benchmark;
+
+import com.kaylerrenslow.rustyarmafiles.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ Throughput of reading every entry of an unparsed file, with the {@link ConfigStream} (an item per entry) and with the
+ {@link ConfigCursor} (no item objects).
+
+ @author K
+ @since 01/26/2019 */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamBenchmark {
+	@Benchmark
+	public void stream(GeneratedConfigState state, Blackhole blackhole) throws ConfigStreamException {
+		ConfigStream stream = state.newConfigFile().newStream();
+		ConfigStreamItem item;
+		while ((item = stream.next()).getType() != ConfigStreamItem.Type.EndStream) {
+			blackhole.consume(item);
+		}
+	}
+
+	@Benchmark
+	public void cursor(GeneratedConfigState state, Blackhole blackhole) throws ConfigStreamException {
+		ConfigCursor cursor = state.newConfigFile().newCursor();
+		ConfigStreamItem.Type type;
+		while ((type = cursor.advance()) != ConfigStreamItem.Type.EndStream) {
+			if (type == ConfigStreamItem.Type.Field) {
+				blackhole.consume(cursor.name().length());
+				blackhole.consume(cursor.valueType());
+			}
+		}
+	}
+
+	/** Like {@link #cursor}, but also creates the value of every field */
+	@Benchmark
+	public void cursorValues(GeneratedConfigState state, Blackhole blackhole) throws ConfigStreamException {
+		ConfigCursor cursor = state.newConfigFile().newCursor();
+		ConfigStreamItem.Type type;
+		while ((type = cursor.advance()) != ConfigStreamItem.Type.EndStream) {
+			if (type == ConfigStreamItem.Type.Field) {
+				blackhole.consume(cursor.value());
+			}
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package com.kaylerrenslow.rustyarmafiles.benchmark;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigClass;
+import com.kaylerrenslow.rustyarmafiles.ConfigEntry;
+import com.kaylerrenslow.rustyarmafiles.ConfigField;
+import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import com.kaylerrenslow.rustyarmafiles.impl.rapified.MappedRapifiedConfigFile;
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class ConfigGeneratorTest {
+	private Path directory;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = Files.createTempDirectory("rustyarmafiles");
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Test
+	void theSameSeedGeneratesTheSameConfig() throws Exception {
+		for (ConfigGenerator.Shape shape : ConfigGenerator.Shape.values()) {
+			File a = file(shape + "_a.cpp");
+			File b = file(shape + "_b.cpp");
+			File c = file(shape + "_c.cpp");
+			ConfigGenerator.generate(shape, 64, ConfigGenerator.DEFAULT_SEED).writeText(a);
+			ConfigGenerator.generate(shape, 64, ConfigGenerator.DEFAULT_SEED).writeText(b);
+			ConfigGenerator.generate(shape, 64, ConfigGenerator.DEFAULT_SEED + 1).writeText(c);
+			assertArrayEquals(Files.readAllBytes(a.toPath()), Files.readAllBytes(b.toPath()), shape.toString());
+			assertFalse(new String(Files.readAllBytes(a.toPath())).equals(new String(Files.readAllBytes(c.toPath()))), shape.toString());
+		}
+	}
+
+	@Test
+	void textAndRapifiedConfigsAreTheSame() throws Exception {
+		for (ConfigGenerator.Shape shape : ConfigGenerator.Shape.values()) {
+			ConfigGenerator.Node root = ConfigGenerator.generate(shape, 64, ConfigGenerator.DEFAULT_SEED);
+			TextConfigFile text = new TextConfigFile(file(shape + ".cpp"));
+			root.writeText(text.getFile());
+			MappedRapifiedConfigFile rapified = new MappedRapifiedConfigFile(file(shape + ".bin"));
+			root.writeRapified(rapified.getFile());
+			text.parse();
+			rapified.parse();
+			assertEquals(describe(text.getRoot()), describe(rapified.getRoot()), shape.toString());
+		}
+	}
+
+	@Test
+	void everyShapeHasTheVehicleChain() throws Exception {
+		for (ConfigGenerator.Shape shape : ConfigGenerator.Shape.values()) {
+			int count = ConfigGenerator.vehicleCount(shape, 64);
+			assertEquals(shape == ConfigGenerator.Shape.Deep || shape == ConfigGenerator.Shape.BigArrays ? 4 : 64, count);
+			MappedRapifiedConfigFile file = new MappedRapifiedConfigFile(file(shape + ".bin"));
+			ConfigGenerator.generate(shape, 64, ConfigGenerator.DEFAULT_SEED).writeRapified(file.getFile());
+			file.parse();
+			ConfigClass vehicles = file.getRoot().getClass("CfgVehicles");
+			assertNotNull(vehicles);
+			assertEquals(count, vehicles.getEntries().size());
+			for (int i = 0; i < count; i++) {
+				ConfigClass vehicle = vehicles.getClass(ConfigGenerator.vehicleName(i));
+				assertNotNull(vehicle);
+				assertTrue(vehicle.getFieldValue("armor") instanceof ConfigFieldValue.Scalar);
+				assertEquals(i == 0 ? null : ConfigGenerator.vehicleName(i - 1), vehicle.getParentClassName());
+			}
+		}
+		assertEquals(1, ConfigGenerator.vehicleCount(ConfigGenerator.Shape.Deep, 1));
+	}
+
+	@NotNull
+	private File file(@NotNull String name) {
+		return directory.resolve(name).toFile();
+	}
+
+	/** @return the class with every entry in order, values as floats since rapified files store floats */
+	@NotNull
+	private static String describe(@NotNull ConfigClass configClass) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(configClass.getClassName()).append(':').append(configClass.getParentClassName()).append('{');
+		for (ConfigEntry entry : configClass.getEntries()) {
+			if (entry.isClass()) {
+				sb.append(describe((ConfigClass) entry));
+			} else {
+				sb.append(entry.getName()).append('=');
+				describe(sb, ((ConfigField) entry).getValue());
+				sb.append(';');
+			}
+		}
+		return sb.append('}').toString();
+	}
+
+	private static void describe(@NotNull StringBuilder sb, @NotNull ConfigFieldValue value) {
+		if (value instanceof ConfigFieldValue.Scalar) {
+			sb.append((float) ((ConfigFieldValue.Scalar) value).getValue());
+		} else if (value instanceof ConfigFieldValue.Text) {
+			sb.append('"').append(((ConfigFieldValue.Text) value).getText()).append('"');
+		} else {
+			ConfigFieldValue.Array array = (ConfigFieldValue.Array) value;
+			sb.append('{');
+			for (int i = 0; i < array.getLength(); i++) {
+				describe(sb, array.getValue(i));
+				sb.append(',');
+			}
+			sb.append('}');
+		}
+	}
+}
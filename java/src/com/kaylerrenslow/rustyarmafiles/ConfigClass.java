@@ -3,6 +3,11 @@ package com.kaylerrenslow.rustyarmafiles;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  @author K
  @since 01/08/2019 */
@@ -11,12 +16,112 @@ public interface ConfigClass extends ConfigEntry {
 
 	@NotNull ConfigStream newStream();
 
+	/** @return a new {@link ConfigCursor} over the same entries as {@link #newStream()} */
+	@NotNull
+	default ConfigCursor newCursor() {
+		return new ConfigStreamCursor(newStream());
+	}
+
 	@Nullable ConfigClass getClass(@NotNull String className);
 
 	@Nullable ConfigFieldValue getFieldValue(@NotNull String key);
 
 	@Nullable ConfigEntry getEntry(@NotNull String name);
 
+	/** @return the name of the class this class inherits (class B : A), or null if it doesn't inherit a class */
+	@Nullable
+	default String getParentClassName() {
+		return null;
+	}
+
+	/** @return the class this class is declared in, or null for the root (or if the implementation doesn't know it) */
+	@Nullable
+	default ConfigClass getOuterClass() {
+		return null;
+	}
+
+	/**
+	 Gets the entries declared in this class. Inherited entries aren't included (see {@link #getEffectiveEntries()}).
+	 The default implementation reads the names with {@link #newCursor()} and looks up each with {@link #getEntry(String)}.
+
+	 @return the entries
+	 @throws IllegalStateException when the class couldn't be read
+	 */
+	@NotNull
+	default List<ConfigEntry> getEntries() {
+		Set<String> names = new LinkedHashSet<>();
+		ConfigCursor cursor = newCursor();
+		try {
+			ConfigStreamItem.Type type;
+			while ((type = cursor.advance()) != ConfigStreamItem.Type.EndStream) {
+				if (type == ConfigStreamItem.Type.Class) {
+					names.add(cursor.name().toString());
+					cursor.skipCurrentClass();
+					cursor.advance();
+				} else if (type == ConfigStreamItem.Type.Field) {
+					names.add(cursor.name().toString());
+				}
+			}
+		} catch (ConfigStreamException e) {
+			throw new IllegalStateException(e);
+		}
+		List<ConfigEntry> entries = new ArrayList<>(names.size());
+		for (String name : names) {
+			ConfigEntry entry = getEntry(name);
+			if (entry != null) {
+				entries.add(entry);
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 @return the {@link ConfigClassHierarchy} that resolves and memoizes inheritance for this class.
+	 Implementations share one per file. The default implementation returns a new one each time, so nothing is memoized.
+	 */
+	@NotNull
+	default ConfigClassHierarchy getHierarchy() {
+		return new ConfigClassHierarchy();
+	}
+
+	/** @see ConfigClassHierarchy#getParentClass(ConfigClass) */
+	@Nullable
+	default ConfigClass getParentClass() {
+		return getHierarchy().getParentClass(this);
+	}
+
+	/** @see ConfigClassHierarchy#getAncestors(ConfigClass) */
+	@NotNull
+	default List<ConfigClass> getAncestors() {
+		return getHierarchy().getAncestors(this);
+	}
+
+	/**
+	 Gets the value of a field declared in this class or inherited from an ancestor.
+
+	 @see ConfigClassHierarchy#resolveFieldValue(ConfigClass, String)
+	 */
+	@Nullable
+	default ConfigFieldValue resolveFieldValue(@NotNull String key) {
+		return getHierarchy().resolveFieldValue(this, key);
+	}
+
+	/**
+	 Gets an embedded class declared in this class or inherited from an ancestor.
+
+	 @see ConfigClassHierarchy#resolveClass(ConfigClass, String)
+	 */
+	@Nullable
+	default ConfigClass resolveClass(@NotNull String className) {
+		return getHierarchy().resolveClass(this, className);
+	}
+
+	/** @see ConfigClassHierarchy#getEffectiveEntries(ConfigClass) */
+	@NotNull
+	default List<ConfigEntry> getEffectiveEntries() {
+		return getHierarchy().getEffectiveEntries(this);
+	}
+
 	@Override
 	default boolean isField() {
 		return false;
@@ -0,0 +1,168 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ A {@link ConfigCursor} that walks the tree of an already built {@link ConfigClass} with
+ {@link ConfigClass#getEntries()}, in the order the entries are returned. Used for classes that aren't backed by
+ a single file, so there is no file to stream from.
+ <p>
+ The entries of a class are only requested on the first {@link #advance()} into it, so a class that is skipped with
+ {@link #skipCurrentClass()} right after its {@link ConfigStreamItem.Type#Class} is never expanded.
+
+ @author K
+ @since 01/23/2019 */
+class ConfigClassCursor implements ConfigCursor {
+	private ConfigClass[] classes = new ConfigClass[8];
+	/** entries of each class, or null if they weren't requested yet */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private List<ConfigEntry>[] entries = new List[8];
+	private int[] nextIndex = new int[8];
+	private int depth;
+
+	private ConfigStreamItem.Type type;
+	private ConfigEntry entry;
+
+	ConfigClassCursor(@NotNull ConfigClass configClass) {
+		push(configClass);
+	}
+
+	@Override
+	@NotNull
+	public ConfigStreamItem.Type advance() {
+		entry = null;
+		while (depth > 0) {
+			int f = depth - 1;
+			if (entries[f] == null) {
+				entries[f] = classes[f].getEntries();
+			}
+			if (nextIndex[f] >= entries[f].size()) {
+				classes[f] = null;
+				entries[f] = null;
+				depth--;
+				if (depth == 0) {
+					//the class the cursor started on doesn't get a Class entry, so it doesn't get an EndClass either
+					break;
+				}
+				type = ConfigStreamItem.Type.EndClass;
+				return type;
+			}
+			entry = entries[f].get(nextIndex[f]++);
+			if (entry.isClass()) {
+				push((ConfigClass) entry);
+				type = ConfigStreamItem.Type.Class;
+			} else {
+				type = ConfigStreamItem.Type.Field;
+			}
+			return type;
+		}
+		type = ConfigStreamItem.Type.EndStream;
+		return type;
+	}
+
+	@Override
+	@Nullable
+	public ConfigStreamItem.Type type() {
+		return type;
+	}
+
+	@Override
+	@NotNull
+	public CharSequence name() {
+		if (entry == null) {
+			throw new IllegalStateException("not on a class or field");
+		}
+		return entry.getName();
+	}
+
+	@Override
+	@Nullable
+	public CharSequence parentClassName() {
+		if (type != ConfigStreamItem.Type.Class) {
+			throw new IllegalStateException("not on a class");
+		}
+		return ((ConfigClass) entry).getParentClassName();
+	}
+
+	@Override
+	@NotNull
+	public ByteBuffer nameBytes() {
+		return StandardCharsets.UTF_8.encode(name().toString());
+	}
+
+	@Override
+	@NotNull
+	public ValueType valueType() {
+		if (type != ConfigStreamItem.Type.Field) {
+			return ValueType.None;
+		}
+		ConfigFieldValue value = ((ConfigField) entry).getValue();
+		if (value instanceof ConfigFieldValue.Scalar) {
+			return ValueType.Scalar;
+		}
+		if (value instanceof ConfigFieldValue.Text) {
+			return ValueType.Text;
+		}
+		return ValueType.Array;
+	}
+
+	@Override
+	public double scalarValue() {
+		return ((ConfigFieldValue.Scalar) value(ValueType.Scalar)).getValue();
+	}
+
+	@Override
+	@NotNull
+	public CharSequence textValue() {
+		return ((ConfigFieldValue.Text) value(ValueType.Text)).getChars();
+	}
+
+	@Override
+	public int arrayLength() {
+		return ((ConfigFieldValue.Array) value(ValueType.Array)).getLength();
+	}
+
+	@Override
+	@NotNull
+	public ConfigFieldValue value() {
+		if (type != ConfigStreamItem.Type.Field) {
+			throw new IllegalStateException("not on a field");
+		}
+		return ((ConfigField) entry).getValue();
+	}
+
+	@Override
+	public void skipCurrentClass() {
+		if (depth > 0) {
+			entries[depth - 1] = Collections.emptyList();
+			nextIndex[depth - 1] = 0;
+		}
+	}
+
+	@NotNull
+	private ConfigFieldValue value(@NotNull ValueType expected) {
+		if (valueType() != expected) {
+			throw new IllegalStateException("value isn't " + expected);
+		}
+		return ((ConfigField) entry).getValue();
+	}
+
+	private void push(@NotNull ConfigClass configClass) {
+		if (depth == entries.length) {
+			classes = Arrays.copyOf(classes, depth * 2);
+			entries = Arrays.copyOf(entries, depth * 2);
+			nextIndex = Arrays.copyOf(nextIndex, depth * 2);
+		}
+		classes[depth] = configClass;
+		entries[depth] = null;
+		nextIndex[depth] = 0;
+		depth++;
+	}
+}
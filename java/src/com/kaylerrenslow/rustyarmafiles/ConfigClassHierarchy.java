@@ -0,0 +1,194 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.SoftReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ Resolves Arma class inheritance (class B : A) for the classes of one file, and memoizes the results.
+ <p>
+ The parent class name is looked up the way Arma does it: first in the class that declares the class
+ (including the classes that class inherits), then in the class around that, and so on up to the root.
+ A class never resolves to itself, so class Turrets : Turrets inside a derived class finds the inherited Turrets.
+ Parents that aren't declared in the file (for example extern class declarations that refer to another addon)
+ end the chain.
+ <p>
+ For each class, the ancestor chain, the effective entries and every resolved field/class name (including misses)
+ are kept, so resolving the same name again is a hash probe. A memo holds classes that can reach the class it
+ belongs to (its own embedded classes point back to it through {@link ConfigClass#getOuterClass()}), so the memos are
+ only referenced softly, and keyed weakly by class. Under memory pressure the memos are cleared and the classes in
+ them can be collected, the same way the entry caches of the readers drop classes. Otherwise a memo is kept as long
+ as its class is used.
+ All methods are thread safe.
+
+ @author K
+ @since 01/22/2019 */
+public class ConfigClassHierarchy {
+	private static final Object NOT_FOUND = new Object();
+	private static final ConfigClass[] NO_ANCESTORS = new ConfigClass[0];
+
+	private final Map<ConfigClass, SoftReference<Memo>> memos = new WeakHashMap<>();
+
+	public ConfigClassHierarchy() {
+	}
+
+	/** @return the resolved parent class, or null if the class has no parent or the parent isn't in the file */
+	@Nullable
+	public ConfigClass getParentClass(@NotNull ConfigClass configClass) {
+		ConfigClass[] ancestors = getAncestorArray(configClass);
+		return ancestors.length == 0 ? null : ancestors[0];
+	}
+
+	/** @return the resolved parent, the parent's parent and so on, nearest first */
+	@NotNull
+	public List<ConfigClass> getAncestors(@NotNull ConfigClass configClass) {
+		return Collections.unmodifiableList(Arrays.asList(getAncestorArray(configClass)));
+	}
+
+	/** @return the value of the field in the class, or else in the nearest ancestor that has it */
+	@Nullable
+	public ConfigFieldValue resolveFieldValue(@NotNull ConfigClass configClass, @NotNull String key) {
+		Memo memo = getMemo(configClass);
+		Object value = memo.fieldValues.get(key);
+		if (value == null) {
+			value = configClass.getFieldValue(key);
+			if (value == null) {
+				for (ConfigClass ancestor : getAncestorArray(configClass)) {
+					value = ancestor.getFieldValue(key);
+					if (value != null) {
+						break;
+					}
+				}
+			}
+			memo.fieldValues.put(key, value == null ? NOT_FOUND : value);
+		}
+		return value == NOT_FOUND ? null : (ConfigFieldValue) value;
+	}
+
+	/** @return the embedded class declared in the class, or else in the nearest ancestor that has it */
+	@Nullable
+	public ConfigClass resolveClass(@NotNull ConfigClass configClass, @NotNull String className) {
+		Memo memo = getMemo(configClass);
+		Object value = memo.classes.get(className);
+		if (value == null) {
+			value = configClass.getClass(className);
+			if (value == null) {
+				for (ConfigClass ancestor : getAncestorArray(configClass)) {
+					value = ancestor.getClass(className);
+					if (value != null) {
+						break;
+					}
+				}
+			}
+			memo.classes.put(className, value == null ? NOT_FOUND : value);
+		}
+		return value == NOT_FOUND ? null : (ConfigClass) value;
+	}
+
+	/**
+	 @return the entries of the class followed by the entries of each ancestor that aren't overridden by a nearer class,
+	 as an unmodifiable list
+	 */
+	@NotNull
+	public List<ConfigEntry> getEffectiveEntries(@NotNull ConfigClass configClass) {
+		Memo memo = getMemo(configClass);
+		List<ConfigEntry> entries = memo.effectiveEntries;
+		if (entries == null) {
+			Map<String, ConfigEntry> merged = new LinkedHashMap<>();
+			for (ConfigEntry entry : configClass.getEntries()) {
+				merged.putIfAbsent(entry.getName(), entry);
+			}
+			for (ConfigClass ancestor : getAncestorArray(configClass)) {
+				for (ConfigEntry entry : ancestor.getEntries()) {
+					merged.putIfAbsent(entry.getName(), entry);
+				}
+			}
+			entries = Collections.unmodifiableList(new ArrayList<>(merged.values()));
+			memo.effectiveEntries = entries;
+		}
+		return entries;
+	}
+
+	/** Forgets everything that was resolved. */
+	public void clear() {
+		synchronized (memos) {
+			memos.clear();
+		}
+	}
+
+	@NotNull
+	private ConfigClass[] getAncestorArray(@NotNull ConfigClass configClass) {
+		return getAncestorArray(configClass, Collections.newSetFromMap(new IdentityHashMap<>()));
+	}
+
+	/** @param resolving classes whose chain is being resolved, to stop at cyclic inheritance */
+	@NotNull
+	private ConfigClass[] getAncestorArray(@NotNull ConfigClass configClass, @NotNull Set<ConfigClass> resolving) {
+		Memo memo = getMemo(configClass);
+		ConfigClass[] ancestors = memo.ancestors;
+		if (ancestors != null) {
+			return ancestors;
+		}
+		if (!resolving.add(configClass)) {
+			return NO_ANCESTORS;
+		}
+		ConfigClass parent = findParent(configClass, resolving);
+		if (parent == null || resolving.contains(parent)) {
+			ancestors = NO_ANCESTORS;
+		} else {
+			ConfigClass[] parentAncestors = getAncestorArray(parent, resolving);
+			ancestors = new ConfigClass[parentAncestors.length + 1];
+			ancestors[0] = parent;
+			System.arraycopy(parentAncestors, 0, ancestors, 1, parentAncestors.length);
+		}
+		resolving.remove(configClass);
+		memo.ancestors = ancestors;
+		return ancestors;
+	}
+
+	@Nullable
+	private ConfigClass findParent(@NotNull ConfigClass configClass, @NotNull Set<ConfigClass> resolving) {
+		String parentName = configClass.getParentClassName();
+		if (parentName == null) {
+			return null;
+		}
+		for (ConfigClass scope = configClass.getOuterClass(); scope != null; scope = scope.getOuterClass()) {
+			ConfigClass found = scope.getClass(parentName);
+			if (found != null && found != configClass) {
+				return found;
+			}
+			for (ConfigClass ancestor : getAncestorArray(scope, resolving)) {
+				found = ancestor.getClass(parentName);
+				if (found != null && found != configClass) {
+					return found;
+				}
+			}
+		}
+		return null;
+	}
+
+	@NotNull
+	private Memo getMemo(@NotNull ConfigClass configClass) {
+		synchronized (memos) {
+			SoftReference<Memo> ref = memos.get(configClass);
+			Memo memo = ref == null ? null : ref.get();
+			if (memo == null) {
+				memo = new Memo();
+				memos.put(configClass, new SoftReference<>(memo));
+			}
+			return memo;
+		}
+	}
+
+	private static class Memo {
+		private volatile ConfigClass[] ancestors;
+		private volatile List<ConfigEntry> effectiveEntries;
+		/** field key to {@link ConfigFieldValue}, or {@link #NOT_FOUND} */
+		private final Map<String, Object> fieldValues = new ConcurrentHashMap<>();
+		/** class name to {@link ConfigClass}, or {@link #NOT_FOUND} */
+		private final Map<String, Object> classes = new ConcurrentHashMap<>();
+	}
+}
@@ -0,0 +1,90 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ A forward only view of the entries of a config, in the same order as a {@link ConfigStream}.
+ Unlike a {@link ConfigStream}, no object is created per entry. The cursor itself is the view of the current entry,
+ and everything it returns (names, text, byte buffers) is reused and only valid until the next {@link #advance()}.
+ Copy anything that needs to be kept (for example with {@link CharSequence#toString()}).
+ <p>
+ Values are read with the method matching {@link #valueType()}. {@link #value()} materializes the value as a
+ {@link ConfigFieldValue} and is the only method that is expected to allocate.
+ <p>
+ A {@link ConfigStream} over a cursor is a {@link ConfigCursorStream}.
+
+ @author K
+ @since 01/20/2019 */
+public interface ConfigCursor {
+	enum ValueType {
+		/** The cursor is not on a field */
+		None,
+		/** Read with {@link #scalarValue()} */
+		Scalar,
+		/** Read with {@link #textValue()} */
+		Text,
+		/** Read with {@link #arrayLength()} and {@link #value()} */
+		Array
+	}
+
+	/**
+	 Moves to the next entry. Once {@link ConfigStreamItem.Type#EndStream} is returned, every following invocation
+	 returns it as well.
+
+	 @return the type of the entry the cursor is now on
+	 @throws ConfigStreamException when the entry couldn't be read
+	 */
+	@NotNull ConfigStreamItem.Type advance() throws ConfigStreamException;
+
+	/** @return the type of the current entry, or null if {@link #advance()} hasn't been invoked yet */
+	@Nullable ConfigStreamItem.Type type();
+
+	/**
+	 @return the class name or field key of the current entry
+	 @throws IllegalStateException when the cursor isn't on a {@link ConfigStreamItem.Type#Class} or
+	 {@link ConfigStreamItem.Type#Field}
+	 */
+	@NotNull CharSequence name();
+
+	/**
+	 @return the name of the class the current class inherits (class B : A), or null if it doesn't inherit a class
+	 @throws IllegalStateException when the cursor isn't on a {@link ConfigStreamItem.Type#Class}
+	 */
+	@Nullable CharSequence parentClassName();
+
+	/**
+	 @return the UTF-8 bytes of {@link #name()} between the buffer's position and limit
+	 @throws IllegalStateException when the cursor isn't on a {@link ConfigStreamItem.Type#Class} or
+	 {@link ConfigStreamItem.Type#Field}
+	 */
+	@NotNull ByteBuffer nameBytes();
+
+	/** @return the type of the current field's value, or {@link ValueType#None} if the cursor isn't on a field */
+	@NotNull ValueType valueType();
+
+	/** @throws IllegalStateException when {@link #valueType()} isn't {@link ValueType#Scalar} */
+	double scalarValue();
+
+	/** @throws IllegalStateException when {@link #valueType()} isn't {@link ValueType#Text} */
+	@NotNull CharSequence textValue();
+
+	/** @throws IllegalStateException when {@link #valueType()} isn't {@link ValueType#Array} */
+	int arrayLength();
+
+	/**
+	 @return a new {@link ConfigFieldValue} for the current field
+	 @throws IllegalStateException when the cursor isn't on a field
+	 */
+	@NotNull ConfigFieldValue value();
+
+	/**
+	 Skips the remaining entries of the class that was most recently entered.
+	 The {@link ConfigStreamItem.Type#EndClass} of that class will still be returned by {@link #advance()}.
+
+	 @throws ConfigStreamException when the skipped entries couldn't be read
+	 */
+	void skipCurrentClass() throws ConfigStreamException;
+}
@@ -0,0 +1,83 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ A {@link ConfigStream} that creates a {@link ConfigStreamItem} for each entry of a {@link ConfigCursor}.
+ The stream has no state of its own, so the cursor and the stream can be used interchangeably.
+
+ @author K
+ @since 01/20/2019 */
+public class ConfigCursorStream implements ConfigStream {
+	private final ConfigCursor cursor;
+	/** amount of items not reported to {@link ConfigMetrics} yet */
+	private long itemsEmitted;
+
+	public ConfigCursorStream(@NotNull ConfigCursor cursor) {
+		this.cursor = cursor;
+	}
+
+	/** @return the cursor this stream reads from */
+	@NotNull
+	public ConfigCursor getCursor() {
+		return cursor;
+	}
+
+	@Override
+	@NotNull
+	public ConfigStreamItem next() throws ConfigStreamException {
+		ConfigStreamItem.Type type = cursor.advance();
+		if (type != ConfigStreamItem.Type.EndStream) {
+			itemsEmitted++;
+		}
+		if (type == ConfigStreamItem.Type.EndStream || itemsEmitted >= ConfigMetrics.REPORT_INTERVAL) {
+			ConfigMetrics.add(ConfigMetrics.Counter.ItemsEmitted, itemsEmitted);
+			itemsEmitted = 0;
+		}
+		return currentItem(type, cursor);
+	}
+
+	/** @return an item for the entry the cursor is on, which was reached by {@link ConfigCursor#advance()} returning type */
+	@NotNull
+	static ConfigStreamItem currentItem(@NotNull ConfigStreamItem.Type type, @NotNull ConfigCursor cursor) {
+		if (cursor instanceof ConfigStreamCursor) {
+			//the items already exist
+			return ((ConfigStreamCursor) cursor).currentItem();
+		}
+		switch (type) {
+			case Class: {
+				CharSequence parentClassName = cursor.parentClassName();
+				return new ConfigStreamItem.ClassItem(
+						ConfigStringPool.getShared().intern(cursor.name()),
+						parentClassName == null ? null : ConfigStringPool.getShared().intern(parentClassName)
+				);
+			}
+			case Field: {
+				return new ConfigStreamItem.FieldItem(ConfigStringPool.getShared().intern(cursor.name()), cursor.value());
+			}
+			case EndClass: {
+				return ConfigStreamItem.EndClassItem.INSTANCE;
+			}
+			case EndStream: {
+				return ConfigStreamItem.EndStreamItem.INSTANCE;
+			}
+			default: {
+				throw new IllegalStateException();
+			}
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		return cursor.type() != ConfigStreamItem.Type.EndStream;
+	}
+
+	@Override
+	public void skipCurrentClass() {
+		try {
+			cursor.skipCurrentClass();
+		} catch (ConfigStreamException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
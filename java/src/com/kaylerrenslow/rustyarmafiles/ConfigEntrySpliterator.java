@@ -0,0 +1,161 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ A {@link Spliterator} over the entries of a {@link ConfigClass}, so a config can be processed with (parallel)
+ {@link Stream}s. For example, stats over every class in CfgVehicles on every core:
+ <pre>
+ ConfigEntrySpliterator.classes(root.getClass("CfgVehicles"), false, true)
+ .mapToDouble(c -&gt; ((ConfigFieldValue.Scalar) c.resolveFieldValue("armor")).getValue())
+ .summaryStatistics();
+ </pre>
+ Entries are returned in declaration order. In recursive mode, each class is followed by the entries in it
+ (depth first, pre-order), like a {@link ConfigStream} without the end markers.
+ <p>
+ {@link #trySplit()} splits on entry boundaries of the outermost class that still has two or more entries left, so
+ every class (with everything in it) goes to exactly one half. Each half only reads the classes it was given.
+ <p>
+ A parallel stream reads the classes from many threads at once. The text, mapped rapified, snapshot and merged
+ classes allow that. {@link com.kaylerrenslow.rustyarmafiles.impl.rapified.RapifiedConfigClass} parses and indexes its
+ body once under a lock, but its field values are read by the native library, so it is only safe in parallel if the
+ native library allows concurrent reads of a file. Other {@link ConfigClass} implementations should be used
+ sequentially unless they say they are thread safe.
+
+ @author K
+ @since 01/30/2019 */
+public class ConfigEntrySpliterator implements Spliterator<ConfigEntry> {
+	private final boolean recursive;
+	/**
+	 The classes being walked, outermost first. The entries of frame i left to return are
+	 entries[i] from index[i] (inclusive) to end[i] (exclusive).
+	 */
+	private List<ConfigEntry>[] entries;
+	private int[] index;
+	private int[] end;
+	private int depth;
+
+	/**
+	 @param configClass the class whose entries are returned. The class itself isn't returned.
+	 @param recursive   true if the entries of the classes inside the class should be returned as well
+	 */
+	public ConfigEntrySpliterator(@NotNull ConfigClass configClass, boolean recursive) {
+		this(recursive, 8);
+		push(configClass.getEntries());
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private ConfigEntrySpliterator(boolean recursive, int capacity) {
+		this.recursive = recursive;
+		this.entries = new List[capacity];
+		this.index = new int[capacity];
+		this.end = new int[capacity];
+	}
+
+	/** @return a stream of the entries of the class, see {@link #ConfigEntrySpliterator(ConfigClass, boolean)} */
+	@NotNull
+	public static Stream<ConfigEntry> entries(@NotNull ConfigClass configClass, boolean recursive, boolean parallel) {
+		return StreamSupport.stream(new ConfigEntrySpliterator(configClass, recursive), parallel);
+	}
+
+	/** @return a stream of only the fields of {@link #entries(ConfigClass, boolean, boolean)} */
+	@NotNull
+	public static Stream<ConfigField> fields(@NotNull ConfigClass configClass, boolean recursive, boolean parallel) {
+		return entries(configClass, recursive, parallel).filter(ConfigEntry::isField).map(e -> (ConfigField) e);
+	}
+
+	/** @return a stream of only the classes of {@link #entries(ConfigClass, boolean, boolean)} */
+	@NotNull
+	public static Stream<ConfigClass> classes(@NotNull ConfigClass configClass, boolean recursive, boolean parallel) {
+		return entries(configClass, recursive, parallel).filter(ConfigEntry::isClass).map(e -> (ConfigClass) e);
+	}
+
+	@Override
+	public boolean tryAdvance(@NotNull Consumer<? super ConfigEntry> action) {
+		while (depth > 0) {
+			int top = depth - 1;
+			if (index[top] == end[top]) {
+				entries[--depth] = null;
+				continue;
+			}
+			ConfigEntry entry = entries[top].get(index[top]++);
+			if (recursive && entry.isClass()) {
+				push(((ConfigClass) entry).getEntries());
+			}
+			action.accept(entry);
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void forEachRemaining(@NotNull Consumer<? super ConfigEntry> action) {
+		while (tryAdvance(action)) {
+			//advanced
+		}
+	}
+
+	/**
+	 Splits the outermost frame with two or more entries left in half. The returned prefix gets the first half and
+	 everything nested below it (the entries still left in classes that were already returned); this spliterator
+	 keeps the second half and the frames outside of it.
+	 */
+	@Override
+	public Spliterator<ConfigEntry> trySplit() {
+		int frame = 0;
+		while (frame < depth && end[frame] - index[frame] < 2) {
+			frame++;
+		}
+		if (frame == depth) {
+			return null;
+		}
+		int mid = index[frame] + (end[frame] - index[frame]) / 2;
+		ConfigEntrySpliterator prefix = new ConfigEntrySpliterator(recursive, Math.max(8, depth - frame + 1));
+		prefix.push(entries[frame], index[frame], mid);
+		for (int i = frame + 1; i < depth; i++) {
+			prefix.push(entries[i], index[i], end[i]);
+			entries[i] = null;
+		}
+		index[frame] = mid;
+		depth = frame + 1;
+		return prefix;
+	}
+
+	/** @return the exact amount of entries left if not recursive, otherwise the entries left in the frames */
+	@Override
+	public long estimateSize() {
+		long size = 0;
+		for (int i = 0; i < depth; i++) {
+			size += end[i] - index[i];
+		}
+		return size;
+	}
+
+	@Override
+	public int characteristics() {
+		return recursive ? ORDERED | NONNULL : ORDERED | NONNULL | SIZED | SUBSIZED;
+	}
+
+	private void push(@NotNull List<ConfigEntry> list) {
+		push(list, 0, list.size());
+	}
+
+	private void push(@NotNull List<ConfigEntry> list, int from, int to) {
+		if (depth == entries.length) {
+			entries = Arrays.copyOf(entries, depth * 2);
+			index = Arrays.copyOf(index, depth * 2);
+			end = Arrays.copyOf(end, depth * 2);
+		}
+		entries[depth] = list;
+		index[depth] = from;
+		end[depth] = to;
+		depth++;
+	}
+}
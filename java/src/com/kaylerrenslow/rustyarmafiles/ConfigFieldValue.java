@@ -2,7 +2,9 @@ package com.kaylerrenslow.rustyarmafiles;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.ByteBuffer;
 import java.util.List;
+import java.util.function.DoubleConsumer;
 
 /**
  @author K
@@ -20,6 +22,12 @@ public interface ConfigFieldValue {
 		}
 	}
 
+	/**
+	 A string value. Two texts are equal if they have the same chars, whatever their representation.
+	 <p>
+	 Prefer {@link #getChars()}, {@link #contentEquals(CharSequence)} and {@link #startsWith(CharSequence)} over
+	 {@link #getText()}, since subclasses (like {@link Utf8Text}) may have to create the {@link String}.
+	 */
 	class Text implements ConfigFieldValue {
 		private final String text;
 
@@ -27,12 +35,241 @@ public interface ConfigFieldValue {
 			this.text = text;
 		}
 
+		/** For subclasses with their own representation. They must override {@link #getText()}. */
+		protected Text() {
+			this.text = null;
+		}
+
 		@NotNull
 		public String getText() {
 			return text;
 		}
+
+		/** @return the chars of the text, which may be a view that is only valid as long as the file is open */
+		@NotNull
+		public CharSequence getChars() {
+			return getText();
+		}
+
+		/** @return true if the text has exactly the given chars */
+		public boolean contentEquals(@NotNull CharSequence chars) {
+			return getText().contentEquals(chars);
+		}
+
+		public boolean startsWith(@NotNull CharSequence prefix) {
+			String text = getText();
+			int length = prefix.length();
+			if (length > text.length()) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (text.charAt(i) != prefix.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/** @return the {@link String#hashCode()} of the text */
+		@Override
+		public int hashCode() {
+			return getText().hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Text)) {
+				return false;
+			}
+			Text other = (Text) o;
+			return other.hashCode() == hashCode() && contentEquals(other.getChars());
+		}
+
+		@Override
+		public String toString() {
+			return getText();
+		}
 	}
 
+	/**
+	 A {@link Text} that reads its UTF-8 bytes from the buffer of a file (for example a mapped rapified file) and
+	 only creates a {@link String} in {@link #getText()}. {@link #hashCode()}, {@link #equals(Object)},
+	 {@link #contentEquals(CharSequence)} and {@link #startsWith(CharSequence)} read the bytes in place, and
+	 {@link #getChars()} returns a view of them if they are all ASCII.
+	 <p>
+	 Malformed UTF-8 is handled like {@link java.nio.charset.StandardCharsets#UTF_8} does, by decoding the text.
+	 */
+	class Utf8Text extends Text {
+		private final ByteBuffer bytes;
+		private final int offset;
+		private final int length;
+		/** the decoded text, or null if it wasn't needed yet */
+		private volatile String text;
+		/** the {@link Utf8#scan} result, or 0 if the bytes weren't scanned yet (a scan result is never 0) */
+		private volatile long scan;
+
+		/**
+		 @param bytes  buffer with the UTF-8 bytes. Its position and limit are ignored and the bytes must not change.
+		 @param offset absolute offset of the first byte
+		 @param length amount of bytes
+		 */
+		public Utf8Text(@NotNull ByteBuffer bytes, int offset, int length) {
+			this.bytes = bytes;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		/** @return the decoded text, from {@link ConfigStringPool#getShared()} if it is short */
+		@Override
+		@NotNull
+		public String getText() {
+			String text = this.text;
+			if (text == null) {
+				text = ConfigStringPool.getShared().intern(bytes, offset, length);
+				this.text = text;
+			}
+			return text;
+		}
+
+		/** @return a view of the bytes if they are all ASCII, otherwise {@link #getText()} */
+		@Override
+		@NotNull
+		public CharSequence getChars() {
+			String text = this.text;
+			if (text != null) {
+				return text;
+			}
+			if ((scan() & Utf8.ASCII) != 0) {
+				return new AsciiChars(offset, offset + length);
+			}
+			return getText();
+		}
+
+		/** @return a read only view of the UTF-8 bytes, without a null terminator */
+		@NotNull
+		public ByteBuffer getBytes() {
+			ByteBuffer view = bytes.duplicate();
+			view.clear();
+			view.position(offset);
+			view.limit(offset + length);
+			return view.slice().asReadOnlyBuffer();
+		}
+
+		public int getByteLength() {
+			return length;
+		}
+
+		@Override
+		public boolean contentEquals(@NotNull CharSequence chars) {
+			long scan = scan();
+			if ((scan & Utf8.MALFORMED) != 0) {
+				return super.contentEquals(chars);
+			}
+			return Utf8.charCount(scan) == chars.length() && Utf8.equals(bytes, offset, offset + length, chars, false);
+		}
+
+		@Override
+		public boolean startsWith(@NotNull CharSequence prefix) {
+			long scan = scan();
+			if ((scan & Utf8.MALFORMED) != 0) {
+				return super.startsWith(prefix);
+			}
+			return Utf8.charCount(scan) >= prefix.length() && Utf8.equals(bytes, offset, offset + length, prefix, true);
+		}
+
+		@Override
+		public int hashCode() {
+			long scan = scan();
+			if ((scan & Utf8.MALFORMED) != 0) {
+				return super.hashCode();
+			}
+			return Utf8.hash(scan);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Utf8Text)) {
+				return super.equals(o);
+			}
+			Utf8Text other = (Utf8Text) o;
+			if (((scan() | other.scan()) & Utf8.MALFORMED) != 0) {
+				return super.equals(o);
+			}
+			//valid UTF-8 has one encoding per string
+			if (other.length != length || other.scan != scan) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (bytes.get(offset + i) != other.bytes.get(other.offset + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private long scan() {
+			long scan = this.scan;
+			if (scan == 0) {
+				scan = Utf8.scan(bytes, offset, offset + length);
+				this.scan = scan;
+			}
+			return scan;
+		}
+
+		/** The chars of ASCII bytes, from start (inclusive) to end (exclusive) */
+		private final class AsciiChars implements CharSequence {
+			private final int start;
+			private final int end;
+
+			AsciiChars(int start, int end) {
+				this.start = start;
+				this.end = end;
+			}
+
+			@Override
+			public int length() {
+				return end - start;
+			}
+
+			@Override
+			public char charAt(int index) {
+				if (index < 0 || index >= end - start) {
+					throw new IndexOutOfBoundsException(index);
+				}
+				return (char) bytes.get(start + index);
+			}
+
+			@Override
+			@NotNull
+			public CharSequence subSequence(int from, int to) {
+				if (from < 0 || to > end - start || from > to) {
+					throw new IndexOutOfBoundsException("from " + from + ", to " + to + ", length " + (end - start));
+				}
+				return new AsciiChars(start + from, start + to);
+			}
+
+			@Override
+			@NotNull
+			public String toString() {
+				if (start == offset && end == offset + length) {
+					return getText();
+				}
+				return Utf8.decode(bytes, start, end - start);
+			}
+		}
+	}
+
+	/**
+	 An array of values. Elements may be {@link Scalar}s, {@link Text}s or nested {@link Array}s.
+	 <p>
+	 Subclasses keep their elements in a more compact representation ({@link ScalarArray}, {@link TextArray}, or a
+	 view over the bytes of a file) and only create element objects in {@link #getValue(int)}.
+	 Prefer {@link #getScalar(int)}, {@link #getText(int)}, {@link #toDoubleArray()}, {@link #toFloatArray()} and
+	 {@link #forEachScalar(DoubleConsumer)}, which don't create an object per element.
+	 */
 	class Array implements ConfigFieldValue {
 		private final Object[] values;
 
@@ -44,6 +281,40 @@ public interface ConfigFieldValue {
 			}
 		}
 
+		/** For subclasses with their own representation. They must override {@link #getLength()} and {@link #getValue(int)}. */
+		protected Array() {
+			this.values = null;
+		}
+
+		/**
+		 @return a {@link ScalarArray} if all values are {@link Scalar}s, a {@link TextArray} if all values are
+		 {@link Text}s, or an {@link Array} otherwise
+		 */
+		@NotNull
+		public static Array of(@NotNull List<ConfigFieldValue> values) {
+			boolean scalars = true;
+			boolean texts = true;
+			for (ConfigFieldValue v : values) {
+				scalars &= v instanceof Scalar;
+				texts &= v instanceof Text;
+			}
+			if (scalars) {
+				double[] numbers = new double[values.size()];
+				for (int i = 0; i < numbers.length; i++) {
+					numbers[i] = ((Scalar) values.get(i)).getValue();
+				}
+				return new ScalarArray(numbers);
+			}
+			if (texts) {
+				String[] strings = new String[values.size()];
+				for (int i = 0; i < strings.length; i++) {
+					strings[i] = ((Text) values.get(i)).getText();
+				}
+				return new TextArray(strings);
+			}
+			return new Array(values);
+		}
+
 		public int getLength() {
 			return values.length;
 		}
@@ -55,5 +326,180 @@ public interface ConfigFieldValue {
 			}
 			return (ConfigFieldValue) values[i];
 		}
+
+		public boolean isScalar(int i) {
+			return getValue(i) instanceof Scalar;
+		}
+
+		/** @throws IllegalStateException when the element isn't a {@link Scalar} */
+		public double getScalar(int i) {
+			ConfigFieldValue v = getValue(i);
+			if (!(v instanceof Scalar)) {
+				throw new IllegalStateException("element " + i + " isn't a scalar");
+			}
+			return ((Scalar) v).getValue();
+		}
+
+		/** @throws IllegalStateException when the element isn't a {@link Text} */
+		@NotNull
+		public String getText(int i) {
+			ConfigFieldValue v = getValue(i);
+			if (!(v instanceof Text)) {
+				throw new IllegalStateException("element " + i + " isn't text");
+			}
+			return ((Text) v).getText();
+		}
+
+		/**
+		 @return a new array with the value of each element
+		 @throws IllegalStateException when an element isn't a {@link Scalar}
+		 */
+		@NotNull
+		public double[] toDoubleArray() {
+			double[] numbers = new double[getLength()];
+			for (int i = 0; i < numbers.length; i++) {
+				numbers[i] = getScalar(i);
+			}
+			return numbers;
+		}
+
+		/**
+		 Like {@link #toDoubleArray()}, for code that stores numbers the way the game does, which is as 32 bit floats.
+
+		 @return a new array with the value of each element, narrowed to float
+		 @throws IllegalStateException when an element isn't a {@link Scalar}
+		 */
+		@NotNull
+		public float[] toFloatArray() {
+			float[] numbers = new float[getLength()];
+			for (int i = 0; i < numbers.length; i++) {
+				numbers[i] = (float) getScalar(i);
+			}
+			return numbers;
+		}
+
+		/** Invokes the action with the value of each element that is a {@link Scalar}, in order. Other elements are skipped. */
+		public void forEachScalar(@NotNull DoubleConsumer action) {
+			int length = getLength();
+			for (int i = 0; i < length; i++) {
+				ConfigFieldValue v = getValue(i);
+				if (v instanceof Scalar) {
+					action.accept(((Scalar) v).getValue());
+				}
+			}
+		}
+	}
+
+	/** An {@link Array} of only {@link Scalar}s, backed by a double[]. */
+	class ScalarArray extends Array {
+		private final double[] values;
+
+		/** @param values the values. The array is used as is, so it shouldn't be modified afterwards. */
+		public ScalarArray(@NotNull double[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public int getLength() {
+			return values.length;
+		}
+
+		@Override
+		@NotNull
+		public ConfigFieldValue getValue(int i) {
+			return new Scalar(getScalar(i));
+		}
+
+		@Override
+		public boolean isScalar(int i) {
+			if (i < 0 || i >= values.length) {
+				throw new IndexOutOfBoundsException(i);
+			}
+			return true;
+		}
+
+		@Override
+		public double getScalar(int i) {
+			if (i < 0 || i >= values.length) {
+				throw new IndexOutOfBoundsException(i);
+			}
+			return values[i];
+		}
+
+		@Override
+		@NotNull
+		public String getText(int i) {
+			throw new IllegalStateException("element " + i + " isn't text");
+		}
+
+		@Override
+		@NotNull
+		public double[] toDoubleArray() {
+			return values.clone();
+		}
+
+		@Override
+		@NotNull
+		public float[] toFloatArray() {
+			float[] numbers = new float[values.length];
+			for (int i = 0; i < numbers.length; i++) {
+				numbers[i] = (float) values[i];
+			}
+			return numbers;
+		}
+
+		@Override
+		public void forEachScalar(@NotNull DoubleConsumer action) {
+			for (double value : values) {
+				action.accept(value);
+			}
+		}
+	}
+
+	/** An {@link Array} of only {@link Text}s, backed by a String[]. */
+	class TextArray extends Array {
+		private final String[] values;
+
+		/** @param values the values. The array is used as is, so it shouldn't be modified afterwards. */
+		public TextArray(@NotNull String[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public int getLength() {
+			return values.length;
+		}
+
+		@Override
+		@NotNull
+		public ConfigFieldValue getValue(int i) {
+			return new Text(getText(i));
+		}
+
+		@Override
+		public boolean isScalar(int i) {
+			if (i < 0 || i >= values.length) {
+				throw new IndexOutOfBoundsException(i);
+			}
+			return false;
+		}
+
+		@Override
+		public double getScalar(int i) {
+			throw new IllegalStateException("element " + i + " isn't a scalar");
+		}
+
+		@Override
+		@NotNull
+		public String getText(int i) {
+			if (i < 0 || i >= values.length) {
+				throw new IndexOutOfBoundsException(i);
+			}
+			return values[i];
+		}
+
+		@Override
+		public void forEachScalar(@NotNull DoubleConsumer action) {
+		}
 	}
 }
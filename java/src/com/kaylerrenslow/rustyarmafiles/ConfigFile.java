@@ -46,6 +46,17 @@ public interface ConfigFile {
 	 */
 	@NotNull ConfigStream newStream();
 
+	/**
+	 Returns a {@link ConfigCursor} over the same entries as {@link #newStream()}.
+	 Like {@link #newStream()}, the file doesn't need to be parsed first.
+
+	 @return a new cursor
+	 */
+	@NotNull
+	default ConfigCursor newCursor() {
+		return new ConfigStreamCursor(newStream());
+	}
+
 	/** @return true if the config is binarized/rapified, false if it is plain text */
 	boolean isRapified();
 }
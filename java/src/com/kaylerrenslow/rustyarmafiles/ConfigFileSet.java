@@ -0,0 +1,242 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ A set of {@link ConfigFile}s (usually the config.bin of every addon of a mod set) merged into one config,
+ the way the game builds its global config.
+ <p>
+ {@link #load()} parses the files in parallel on a {@link ForkJoinPool}, then orders them so that every addon is
+ loaded after the addons in its CfgPatches requiredAddons[]. Files that don't depend on each other keep the order they
+ were given in, and files in a dependency cycle are loaded in the given order as well.
+ <p>
+ {@link #getRoot()} is a virtual root where each class path declared by several files is merged with class update
+ semantics (see {@link MergedConfigClass}). Nothing is copied out of the files, and inheritance is resolved across
+ files with one {@link ConfigClassHierarchy} for the whole set.
+
+ @author K
+ @since 01/23/2019 */
+public class ConfigFileSet {
+	/** files parsed by one task before the remaining range is split */
+	private static final int FILES_PER_TASK = 1;
+
+	private final List<ConfigFile> files;
+	private final ForkJoinPool pool;
+	private final ConfigClassHierarchy hierarchy = new ConfigClassHierarchy();
+	private volatile boolean isLoaded;
+	private List<ConfigFile> loadOrder;
+	private MergedConfigClass root;
+
+	/** Creates a set that is loaded on {@link ForkJoinPool#commonPool()}. */
+	public ConfigFileSet(@NotNull Collection<? extends ConfigFile> files) {
+		this(files, ForkJoinPool.commonPool());
+	}
+
+	public ConfigFileSet(@NotNull Collection<? extends ConfigFile> files, @NotNull ForkJoinPool pool) {
+		this.files = new ArrayList<>(files);
+		this.pool = pool;
+	}
+
+	/**
+	 Parses every file that isn't parsed yet, determines the load order and creates the merged root.
+
+	 @throws IOException    when a file couldn't be read. Failures of other files are added as suppressed exceptions.
+	 @throws ParseException when a file couldn't be parsed. Failures of other files are added as suppressed exceptions.
+	 */
+	public void load() throws IOException, ParseException {
+		int count = files.size();
+		Addon[] addons = new Addon[count];
+		Exception[] errors = new Exception[count];
+		pool.invoke(new LoadTask(0, count, addons, errors));
+
+		Exception first = null;
+		for (Exception error : errors) {
+			if (error == null) {
+				continue;
+			}
+			if (first == null) {
+				first = error;
+			} else {
+				first.addSuppressed(error);
+			}
+		}
+		if (first instanceof IOException) {
+			throw (IOException) first;
+		}
+		if (first instanceof ParseException) {
+			throw (ParseException) first;
+		}
+		if (first != null) {
+			throw (RuntimeException) first;
+		}
+
+		List<ConfigFile> order = sortByRequiredAddons(addons);
+		ConfigClass[] roots = new ConfigClass[order.size()];
+		for (int i = 0; i < roots.length; i++) {
+			roots[i] = order.get(i).getRoot();
+		}
+		loadOrder = Collections.unmodifiableList(order);
+		root = new MergedConfigClass(roots, "", null, hierarchy);
+		isLoaded = true;
+	}
+
+	public boolean isLoaded() {
+		return isLoaded;
+	}
+
+	/**
+	 @return the merged root of all files
+	 @throws IllegalStateException when {@link #load()} hasn't been invoked
+	 */
+	@NotNull
+	public ConfigClass getRoot() {
+		if (!isLoaded) {
+			throw new IllegalStateException();
+		}
+		return root;
+	}
+
+	/**
+	 @return the files in the order they are applied, earliest first
+	 @throws IllegalStateException when {@link #load()} hasn't been invoked
+	 */
+	@NotNull
+	public List<ConfigFile> getLoadOrder() {
+		if (!isLoaded) {
+			throw new IllegalStateException();
+		}
+		return loadOrder;
+	}
+
+	/** Orders the files so that each comes after the files providing its required addons (Kahn's algorithm). */
+	@NotNull
+	private List<ConfigFile> sortByRequiredAddons(@NotNull Addon[] addons) {
+		Map<String, Integer> providers = new HashMap<>();
+		for (int i = 0; i < addons.length; i++) {
+			for (String patch : addons[i].patches) {
+				providers.putIfAbsent(patch.toLowerCase(Locale.ROOT), i);
+			}
+		}
+		List<List<Integer>> dependents = new ArrayList<>(addons.length);
+		int[] requiredCount = new int[addons.length];
+		for (int i = 0; i < addons.length; i++) {
+			dependents.add(new ArrayList<>());
+		}
+		for (int i = 0; i < addons.length; i++) {
+			Set<Integer> required = new HashSet<>();
+			for (String requiredAddon : addons[i].requiredAddons) {
+				Integer provider = providers.get(requiredAddon.toLowerCase(Locale.ROOT));
+				//addons that aren't in the set (for example the base game) don't affect the order
+				if (provider != null && provider != i && required.add(provider)) {
+					dependents.get(provider).add(i);
+					requiredCount[i]++;
+				}
+			}
+		}
+
+		List<ConfigFile> order = new ArrayList<>(addons.length);
+		boolean[] added = new boolean[addons.length];
+		PriorityQueue<Integer> ready = new PriorityQueue<>();
+		for (int i = 0; i < addons.length; i++) {
+			if (requiredCount[i] == 0) {
+				ready.add(i);
+			}
+		}
+		int next = 0;
+		while (order.size() < addons.length) {
+			if (ready.isEmpty()) {
+				//a cycle, break it with the earliest file that isn't loaded yet
+				while (added[next]) {
+					next++;
+				}
+				ready.add(next);
+				requiredCount[next] = 0;
+			}
+			int i = ready.poll();
+			if (added[i]) {
+				continue;
+			}
+			added[i] = true;
+			order.add(files.get(i));
+			for (int dependent : dependents.get(i)) {
+				if (--requiredCount[dependent] == 0 && !added[dependent]) {
+					ready.add(dependent);
+				}
+			}
+		}
+		return order;
+	}
+
+	/** Patches a file provides and the addons it requires, read from its CfgPatches */
+	private static class Addon {
+		private final List<String> patches = new ArrayList<>();
+		private final List<String> requiredAddons = new ArrayList<>();
+
+		Addon(@NotNull ConfigClass root) {
+			ConfigClass cfgPatches = root.getClass("CfgPatches");
+			if (cfgPatches == null) {
+				return;
+			}
+			for (ConfigEntry entry : cfgPatches.getEntries()) {
+				if (!entry.isClass()) {
+					continue;
+				}
+				ConfigClass patch = (ConfigClass) entry;
+				patches.add(patch.getClassName());
+				ConfigFieldValue value = patch.getFieldValue("requiredAddons");
+				if (!(value instanceof ConfigFieldValue.Array)) {
+					continue;
+				}
+				ConfigFieldValue.Array array = (ConfigFieldValue.Array) value;
+				for (int i = 0; i < array.getLength(); i++) {
+					if (!array.isScalar(i) && array.getValue(i) instanceof ConfigFieldValue.Text) {
+						requiredAddons.add(array.getText(i));
+					}
+				}
+			}
+		}
+	}
+
+	/** Parses the files in [from, to) and reads their CfgPatches, splitting the range in half until it is small. */
+	private class LoadTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final Addon[] addons;
+		private final Exception[] errors;
+
+		LoadTask(int from, int to, @NotNull Addon[] addons, @NotNull Exception[] errors) {
+			this.from = from;
+			this.to = to;
+			this.addons = addons;
+			this.errors = errors;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > FILES_PER_TASK) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new LoadTask(from, middle, addons, errors), new LoadTask(middle, to, addons, errors));
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				ConfigFile file = files.get(i);
+				try {
+					if (!file.isParsed()) {
+						file.parse();
+					}
+					addons[i] = new Addon(file.getRoot());
+				} catch (IOException | ParseException | RuntimeException e) {
+					errors[i] = e;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import com.kaylerrenslow.rustyarmafiles.jfr.ParseEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ Counters of the work done by the readers, streams and queries, reported to a pluggable {@link Listener}.
+ <pre>
+ ConfigMetrics.Counters counters = new ConfigMetrics.Counters();
+ ConfigMetrics.setListener(counters);
+ ...
+ long probes = counters.get(ConfigMetrics.Counter.LookupProbes);
+ </pre>
+ No listener is set by default. Per item counts are kept in plain fields of the stream or cursor and reported when
+ the operation ends (for example when a stream ends), and every {@link #REPORT_INTERVAL} counts before that, so a
+ stream that is read for a long time or never read to the end still shows up. With no listener the cost is a field
+ increment per item and a null check per report.
+ <p>
+ Timings are recorded as JDK Flight Recorder events instead ({@link com.kaylerrenslow.rustyarmafiles.jfr.ParseEvent},
+ {@link com.kaylerrenslow.rustyarmafiles.jfr.QueryEvent} and {@link com.kaylerrenslow.rustyarmafiles.jfr.SkipEvent}).
+ They are disabled unless a recording enables them, and cost next to nothing while disabled.
+
+ @author K
+ @since 02/05/2019 */
+public final class ConfigMetrics {
+	public enum Counter {
+		/** Bytes of files mapped or read */
+		BytesRead,
+		/** Items returned by {@link ConfigStream#next()}, not counting {@link ConfigStreamItem.Type#EndStream} */
+		ItemsEmitted,
+		/** Classes skipped by queries, instead of being read */
+		ClassesSkipped,
+		/** Calls into the native library */
+		NativeCalls,
+		/** Slots probed by name lookups in class bodies */
+		LookupProbes,
+		/** Lookups answered by a cache (the entry cache of a file, or a {@link ConfigQueryCache}) */
+		CacheHits
+	}
+
+	/** Receives the counts. Must be thread safe, since it is invoked by every thread that reads a config. */
+	public interface Listener {
+		void add(@NotNull Counter counter, long amount);
+	}
+
+	/** A {@link Listener} that sums the counts */
+	public static class Counters implements Listener {
+		private final Map<Counter, LongAdder> counts = new EnumMap<>(Counter.class);
+
+		public Counters() {
+			for (Counter counter : Counter.values()) {
+				counts.put(counter, new LongAdder());
+			}
+		}
+
+		@Override
+		public void add(@NotNull Counter counter, long amount) {
+			counts.get(counter).add(amount);
+		}
+
+		public long get(@NotNull Counter counter) {
+			return counts.get(counter).sum();
+		}
+
+		public void reset() {
+			for (LongAdder count : counts.values()) {
+				count.reset();
+			}
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder("Counters{");
+			for (Counter counter : Counter.values()) {
+				if (counter.ordinal() > 0) {
+					sb.append(", ");
+				}
+				sb.append(counter).append('=').append(get(counter));
+			}
+			return sb.append('}').toString();
+		}
+	}
+
+	/** Max amount of items or calls a stream or cursor counts before it reports them, if it hasn't ended yet */
+	public static final int REPORT_INTERVAL = 4096;
+
+	private static volatile Listener listener;
+
+	private ConfigMetrics() {
+	}
+
+	/** @param listener receives the counts from now on, or null to stop counting */
+	public static void setListener(@Nullable Listener listener) {
+		ConfigMetrics.listener = listener;
+	}
+
+	@Nullable
+	public static Listener getListener() {
+		return listener;
+	}
+
+	public static boolean isEnabled() {
+		return listener != null;
+	}
+
+	/**
+	 Commits a parse event that was started with {@link ParseEvent#begin()}, if the event is enabled.
+
+	 @param format text, rapified or snapshot
+	 */
+	public static void commitParse(@NotNull ParseEvent event, @NotNull File file, @NotNull String format, long bytes) {
+		if (event.shouldCommit()) {
+			event.file = file.getPath();
+			event.format = format;
+			event.bytes = bytes;
+			event.commit();
+		}
+	}
+
+	/** Adds to a counter. Does nothing if no listener is set or the amount is 0. */
+	public static void add(@NotNull Counter counter, long amount) {
+		Listener l = listener;
+		if (l != null && amount != 0) {
+			l.add(counter, amount);
+		}
+	}
+}
@@ -0,0 +1,287 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import com.kaylerrenslow.rustyarmafiles.jfr.QueryEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ Runs many {@link ConfigQuery.CompiledQuery}s in one pass over a {@link ConfigStream} or {@link ConfigCursor}.
+ Each query has a {@link Sink} that receives the entries the query matches, in the same order (and with the same
+ {@link ConfigStreamItem.Type#EndClass} and {@link ConfigStreamItem.Type#EndStream} markers) as
+ {@link ConfigQuery#query(ConfigCursor)} would return them. A class is only skipped when none of the queries is
+ interested in it.
+ <p>
+ The query trees are merged as they are walked: a class is matched against the nodes of every query that is still
+ interested in its parent, and the resulting combination of nodes is kept so the next class with the same
+ combination reuses it.
+ <pre>
+ ConfigMultiQuery multiQuery = new ConfigMultiQuery();
+ multiQuery.add(ConfigQuery.parseQuery("CfgPatches{*{requiredAddons;}}"), item -&gt; ...);
+ multiQuery.add(ConfigQuery.parseArmaFormatQuery("CfgVehicles&gt;&gt;Car", false), (type, cursor) -&gt; ...);
+ multiQuery.run(configFile.newCursor());
+ </pre>
+
+ @author K
+ @since 01/29/2019 */
+public class ConfigMultiQuery {
+	/** Receives the entries matched by one query */
+	public interface Sink {
+		/**
+		 @param type   type of the matched entry
+		 @param cursor the cursor on the entry. It is only valid until this method returns, and must not be advanced
+		 or skipped.
+		 @throws ConfigStreamException to stop the whole pass
+		 */
+		void accept(@NotNull ConfigStreamItem.Type type, @NotNull ConfigCursor cursor) throws ConfigStreamException;
+	}
+
+	private final List<ConfigQuery.QueryNode> roots = new ArrayList<>();
+	private final List<Sink> sinks = new ArrayList<>();
+
+	public ConfigMultiQuery() {
+	}
+
+	/**
+	 Adds a query
+
+	 @return the index of the query, in the order queries were added
+	 */
+	public int add(@NotNull ConfigQuery.CompiledQuery query, @NotNull Sink sink) {
+		roots.add(query.getNode());
+		sinks.add(sink);
+		return roots.size() - 1;
+	}
+
+	/** Adds a query whose matched entries are created as {@link ConfigStreamItem}s */
+	public int add(@NotNull ConfigQuery.CompiledQuery query, @NotNull Consumer<ConfigStreamItem> sink) {
+		return add(query, (type, cursor) -> sink.accept(ConfigCursorStream.currentItem(type, cursor)));
+	}
+
+	/** @return the number of queries */
+	public int size() {
+		return roots.size();
+	}
+
+	/**
+	 Reads the rest of the stream once and passes the entries matched by each query to its sink
+
+	 @throws ConfigStreamException when the stream couldn't be read or a sink threw it
+	 */
+	public void run(@NotNull ConfigStream stream) throws ConfigStreamException {
+		if (stream instanceof ConfigCursorStream) {
+			run(((ConfigCursorStream) stream).getCursor());
+		} else {
+			run(new ConfigStreamCursor(stream));
+		}
+	}
+
+	/**
+	 Reads the rest of the cursor once and passes the entries matched by each query to its sink.
+	 Queries can be run from many threads at once, as long as no query is added meanwhile.
+
+	 @throws ConfigStreamException when the cursor couldn't be read or a sink threw it
+	 */
+	public void run(@NotNull ConfigCursor cursor) throws ConfigStreamException {
+		ConfigQuery.QueryNode[] rootNodes = roots.toArray(new ConfigQuery.QueryNode[0]);
+		new Pass(cursor, rootNodes, sinks.toArray(new Sink[0])).run();
+	}
+
+	/** The nodes of every query at one class. Immutable once created. */
+	private static final class CombinedNode {
+		/** node of each query, or null if the query isn't interested in the class */
+		final ConfigQuery.QueryNode[] nodes;
+		/** indexes of the non null {@link #nodes} */
+		final int[] active;
+
+		CombinedNode(@NotNull ConfigQuery.QueryNode[] nodes) {
+			this.nodes = nodes;
+			int count = 0;
+			for (ConfigQuery.QueryNode node : nodes) {
+				if (node != null) {
+					count++;
+				}
+			}
+			this.active = new int[count];
+			count = 0;
+			for (int i = 0; i < nodes.length; i++) {
+				if (nodes[i] != null) {
+					active[count++] = i;
+				}
+			}
+		}
+	}
+
+	/** Key of {@link CombinedNode}s. Nodes are compared by identity, since a node is shared by every class it matches. */
+	private static final class NodesKey {
+		private ConfigQuery.QueryNode[] nodes;
+		private int hash;
+
+		NodesKey(@NotNull ConfigQuery.QueryNode[] nodes) {
+			set(nodes);
+		}
+
+		void set(@NotNull ConfigQuery.QueryNode[] nodes) {
+			this.nodes = nodes;
+			int h = 1;
+			for (ConfigQuery.QueryNode node : nodes) {
+				h = 31 * h + System.identityHashCode(node);
+			}
+			this.hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof NodesKey)) {
+				return false;
+			}
+			ConfigQuery.QueryNode[] other = ((NodesKey) o).nodes;
+			for (int i = 0; i < nodes.length; i++) {
+				if (nodes[i] != other[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private static final class Pass {
+		private final ConfigCursor src;
+		private final Sink[] sinks;
+		private final Map<NodesKey, CombinedNode> combined = new HashMap<>();
+		/** nodes of the class being matched, reused until a new combination is found */
+		private ConfigQuery.QueryNode[] scratch;
+		private final NodesKey probe;
+		private CombinedNode[] stack = new CombinedNode[8];
+		private int depth;
+		/** true when the last class was skipped and its EndClass hasn't been read yet */
+		private boolean skipped;
+		private long entriesRead;
+		private long entriesMatched;
+		private long classesSkipped;
+
+		Pass(@NotNull ConfigCursor src, @NotNull ConfigQuery.QueryNode[] roots, @NotNull Sink[] sinks) {
+			this.src = src;
+			this.sinks = sinks;
+			this.scratch = new ConfigQuery.QueryNode[roots.length];
+			this.probe = new NodesKey(scratch);
+			stack[depth++] = new CombinedNode(roots);
+		}
+
+		void run() throws ConfigStreamException {
+			QueryEvent event = new QueryEvent();
+			event.begin();
+			for (; ; ) {
+				ConfigStreamItem.Type type = src.advance();
+				CombinedNode node = stack[depth - 1];
+				switch (type) {
+					case Class: {
+						entriesRead++;
+						CombinedNode next = childNode(node, src.name());
+						if (next == null) {
+							skipped = true;
+							ConfigQuery.skipClass(src);
+							classesSkipped++;
+							break;
+						}
+						push(next);
+						notify(next, type);
+						break;
+					}
+					case Field: {
+						entriesRead++;
+						CharSequence name = src.name();
+						boolean matched = false;
+						for (int i : node.active) {
+							if (node.nodes[i].containsFieldKey(name)) {
+								sinks[i].accept(type, src);
+								matched = true;
+							}
+						}
+						if (matched) {
+							entriesMatched++;
+						}
+						break;
+					}
+					case EndClass: {
+						entriesRead++;
+						if (skipped) {
+							skipped = false;
+							break;
+						}
+						stack[--depth] = null;
+						notify(node, type);
+						break;
+					}
+					case EndStream: {
+						for (Sink sink : sinks) {
+							sink.accept(type, src);
+						}
+						ConfigQuery.commitQuery(event, sinks.length, entriesRead, entriesMatched, classesSkipped);
+						return;
+					}
+					default: {
+						throw new IllegalStateException();
+					}
+				}
+			}
+		}
+
+		/** @return the nodes of the queries interested in the class, or null if no query is */
+		private CombinedNode childNode(@NotNull CombinedNode parent, @NotNull CharSequence className) {
+			ConfigQuery.QueryNode[] nodes = scratch;
+			Arrays.fill(nodes, null);
+			boolean any = false;
+			for (int i : parent.active) {
+				ConfigQuery.QueryNode queryNode = parent.nodes[i];
+				if (!queryNode.containsClassName(className)) {
+					continue;
+				}
+				ConfigQuery.QueryNode next = queryNode.childQueryNode(className);
+				if (next == null && queryNode.isMatchAllClasses()) {
+					next = queryNode.anyClassQueryNode();
+				}
+				if (next != null) {
+					nodes[i] = next;
+					any = true;
+				}
+			}
+			if (!any) {
+				return null;
+			}
+			probe.set(nodes);
+			CombinedNode existing = combined.get(probe);
+			if (existing != null) {
+				return existing;
+			}
+			CombinedNode node = new CombinedNode(nodes);
+			combined.put(new NodesKey(nodes), node);
+			scratch = new ConfigQuery.QueryNode[nodes.length];
+			return node;
+		}
+
+		private void notify(@NotNull CombinedNode node, @NotNull ConfigStreamItem.Type type) throws ConfigStreamException {
+			entriesMatched++;
+			for (int i : node.active) {
+				sinks[i].accept(type, src);
+			}
+		}
+
+		private void push(@NotNull CombinedNode node) {
+			if (depth == stack.length) {
+				stack = Arrays.copyOf(stack, depth * 2);
+			}
+			stack[depth++] = node;
+		}
+	}
+}
@@ -0,0 +1,474 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ Reads the same few fields of many classes into columns, for example for stats over every vehicle:
+ <pre>
+ ConfigProjection projection = new ConfigProjection("scope", "armor", "maxSpeed", "displayName");
+ ConfigProjection.Result result = projection.project(root.getClass("CfgVehicles"));
+ ConfigProjection.Column armor = result.getColumn("armor");
+ for (int row = 0; row &lt; result.getRowCount(); row++) {
+ 	if (armor.isNumber(row)) {
+ 		sum += armor.getNumbers()[row];
+ 	}
+ }
+ </pre>
+ Each row is a class and each column is one of the field keys. The result is filled in one pass over a
+ {@link ConfigCursor}, so the classes are never materialized and no {@link ConfigFieldValue} is created for scalars.
+ Classes inside a row's class are skipped without being read.
+ <p>
+ Only the fields declared in a row's class are read, like {@link ConfigClass#getFieldValue(String)}. Inherited
+ values aren't resolved. Keys are matched case sensitively. If a class declares a key twice, the last value is used,
+ the same one {@link ConfigClass#getFieldValue(String)} returns.
+
+ @author K
+ @since 02/07/2019 */
+public class ConfigProjection {
+	/** amount of classes read by each task of {@link #project(ConfigClass, ForkJoinPool)} */
+	private static final int CLASSES_PER_TASK = 64;
+
+	private final String[] keys;
+
+	public ConfigProjection(@NotNull String... keys) {
+		this(Arrays.asList(keys));
+	}
+
+	/** @throws IllegalArgumentException when a key is given twice */
+	public ConfigProjection(@NotNull List<String> keys) {
+		this.keys = keys.toArray(new String[0]);
+		if (new HashSet<>(keys).size() != this.keys.length) {
+			throw new IllegalArgumentException("duplicate key in " + keys);
+		}
+	}
+
+	@NotNull
+	public List<String> getKeys() {
+		return Collections.unmodifiableList(Arrays.asList(keys));
+	}
+
+	/**
+	 Reads the fields of each class directly inside parent, in one pass over {@link ConfigClass#newCursor()}.
+
+	 @return a row for each class in parent, in declaration order
+	 */
+	@NotNull
+	public Result project(@NotNull ConfigClass parent) throws ConfigStreamException {
+		return project(parent.newCursor(), 1);
+	}
+
+	/**
+	 Reads the fields of the classes at the given depth of a cursor. The cursor can be the result of a query,
+	 so only the matched classes and fields are read:
+	 <pre>
+	 CompiledQuery query = ConfigQuery.parseQuery("CfgVehicles{&#42;{scope;armor;}}");
+	 Result result = projection.project(new ConfigQuery(query).query(file.newCursor()), 2);
+	 </pre>
+
+	 @param cursor   cursor that wasn't advanced yet. It is read until {@link ConfigStreamItem.Type#EndStream}.
+	 @param rowDepth nesting depth of the classes that are rows. 1 is the classes the cursor returns first.
+	 @return a row for each class at rowDepth, in the order the cursor returns them
+	 */
+	@NotNull
+	public Result project(@NotNull ConfigCursor cursor, int rowDepth) throws ConfigStreamException {
+		if (rowDepth < 1) {
+			throw new IllegalArgumentException("rowDepth must be >= 1");
+		}
+		Builder builder = new Builder(keys);
+		int depth = 0;
+		ConfigStreamItem.Type type;
+		while ((type = cursor.advance()) != ConfigStreamItem.Type.EndStream) {
+			switch (type) {
+				case Class: {
+					depth++;
+					if (depth == rowDepth) {
+						builder.addRow(cursor.name());
+					} else if (depth > rowDepth) {
+						ConfigQuery.skipClass(cursor);
+					}
+					break;
+				}
+				case EndClass: {
+					depth--;
+					break;
+				}
+				case Field: {
+					if (depth == rowDepth) {
+						builder.read(cursor);
+					}
+					break;
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 Like {@link #project(ConfigClass)}, but the classes in parent are split into groups that are read in parallel
+	 on the pool, each class with its own {@link ConfigClass#newCursor()}. The rows are in the same order.
+
+	 @throws ConfigStreamException when a class couldn't be read. Failures of other groups are added as suppressed exceptions.
+	 */
+	@NotNull
+	public Result project(@NotNull ConfigClass parent, @NotNull ForkJoinPool pool) throws ConfigStreamException {
+		List<ConfigClass> classes = new ArrayList<>();
+		for (ConfigEntry entry : parent.getEntries()) {
+			if (entry.isClass()) {
+				classes.add((ConfigClass) entry);
+			}
+		}
+		int groups = (classes.size() + CLASSES_PER_TASK - 1) / CLASSES_PER_TASK;
+		Result[] parts = new Result[groups];
+		Exception[] errors = new Exception[groups];
+		if (groups > 0) {
+			pool.invoke(new ProjectTask(classes, 0, groups, parts, errors));
+		}
+
+		Exception first = null;
+		for (Exception error : errors) {
+			if (error == null) {
+				continue;
+			}
+			if (first == null) {
+				first = error;
+			} else {
+				first.addSuppressed(error);
+			}
+		}
+		if (first instanceof ConfigStreamException) {
+			throw (ConfigStreamException) first;
+		}
+		if (first != null) {
+			throw (RuntimeException) first;
+		}
+
+		Builder builder = new Builder(keys);
+		for (Result part : parts) {
+			builder.append(part);
+		}
+		return builder.build();
+	}
+
+	/** @return the fields of the classes in [from, to) */
+	@NotNull
+	private Result project(@NotNull List<ConfigClass> classes, int from, int to) throws ConfigStreamException {
+		Builder builder = new Builder(keys);
+		for (int i = from; i < to; i++) {
+			ConfigClass configClass = classes.get(i);
+			builder.addRow(configClass.getClassName());
+			ConfigCursor cursor = configClass.newCursor();
+			ConfigStreamItem.Type type;
+			while ((type = cursor.advance()) != ConfigStreamItem.Type.EndStream) {
+				if (type == ConfigStreamItem.Type.Class) {
+					ConfigQuery.skipClass(cursor);
+					cursor.advance();
+				} else if (type == ConfigStreamItem.Type.Field) {
+					builder.read(cursor);
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	private class ProjectTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<ConfigClass> classes;
+		/** range of groups of {@link #CLASSES_PER_TASK} classes */
+		private final int from;
+		private final int to;
+		private final Result[] parts;
+		private final Exception[] errors;
+
+		ProjectTask(@NotNull List<ConfigClass> classes, int from, int to, @NotNull Result[] parts, @NotNull Exception[] errors) {
+			this.classes = classes;
+			this.from = from;
+			this.to = to;
+			this.parts = parts;
+			this.errors = errors;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new ProjectTask(classes, from, middle, parts, errors), new ProjectTask(classes, middle, to, parts, errors));
+				return;
+			}
+			try {
+				int start = from * CLASSES_PER_TASK;
+				parts[from] = project(classes, start, Math.min(start + CLASSES_PER_TASK, classes.size()));
+			} catch (ConfigStreamException | RuntimeException e) {
+				errors[from] = e;
+			}
+		}
+	}
+
+	/** Rows of a projection. Immutable, so it can be shared between threads. */
+	public static class Result {
+		private final String[] rowNames;
+		private final Column[] columns;
+
+		private Result(@NotNull String[] rowNames, @NotNull Column[] columns) {
+			this.rowNames = rowNames;
+			this.columns = columns;
+		}
+
+		public int getRowCount() {
+			return rowNames.length;
+		}
+
+		/** @return class name of the row */
+		@NotNull
+		public String getRowName(int row) {
+			return rowNames[row];
+		}
+
+		/** @return a column for each key, in the order of {@link ConfigProjection#getKeys()} */
+		@NotNull
+		public List<Column> getColumns() {
+			return Collections.unmodifiableList(Arrays.asList(columns));
+		}
+
+		/** @return the column of the key, or null if it isn't projected */
+		@Nullable
+		public Column getColumn(@NotNull String key) {
+			for (Column column : columns) {
+				if (column.key.equals(key)) {
+					return column;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public String toString() {
+			return "ConfigProjection.Result{rows=" + rowNames.length + ", columns=" + Arrays.toString(columns) + "}";
+		}
+	}
+
+	/**
+	 The values of one key. A row has a number if the field is a scalar, a text if the field is a string, and neither
+	 if the class doesn't declare the field or it is an array. Numbers are kept in a double[] with a bitmap of
+	 the rows that have one, and texts are dictionary encoded: each distinct text is kept once and the rows refer to it
+	 by its index.
+	 */
+	public static class Column {
+		private final String key;
+		private final double[] numbers;
+		private final long[] numberBitmap;
+		private final int[] textCodes;
+		private final String[] dictionary;
+
+		private Column(@NotNull String key, @NotNull double[] numbers, @NotNull long[] numberBitmap, @NotNull int[] textCodes, @NotNull String[] dictionary) {
+			this.key = key;
+			this.numbers = numbers;
+			this.numberBitmap = numberBitmap;
+			this.textCodes = textCodes;
+			this.dictionary = dictionary;
+		}
+
+		@NotNull
+		public String getKey() {
+			return key;
+		}
+
+		public boolean isNumber(int row) {
+			return (numberBitmap[row >>> 6] & 1L << row) != 0;
+		}
+
+		public boolean isText(int row) {
+			return textCodes[row] >= 0;
+		}
+
+		/** @return true if the row has neither a number nor a text */
+		public boolean isNull(int row) {
+			return !isNumber(row) && !isText(row);
+		}
+
+		/**
+		 @return the number of each row, or 0 for rows that don't have one (see {@link #getNumberBitmap()}).
+		 The array is shared and must not be modified.
+		 */
+		@NotNull
+		public double[] getNumbers() {
+			return numbers;
+		}
+
+		/** @return bit (row &amp; 63) of word (row &gt;&gt;&gt; 6) is set if the row has a number. The array is shared and must not be modified. */
+		@NotNull
+		public long[] getNumberBitmap() {
+			return numberBitmap;
+		}
+
+		/** @return the number of the row, or null if it doesn't have one */
+		@Nullable
+		public Double getNumber(int row) {
+			return isNumber(row) ? numbers[row] : null;
+		}
+
+		/** @return index in {@link #getDictionary()} of the text of each row, or -1. The array is shared and must not be modified. */
+		@NotNull
+		public int[] getTextCodes() {
+			return textCodes;
+		}
+
+		/** @return the distinct texts of the column, in the order they were first read */
+		@NotNull
+		public List<String> getDictionary() {
+			return Collections.unmodifiableList(Arrays.asList(dictionary));
+		}
+
+		/** @return the text of the row, or null if it doesn't have one */
+		@Nullable
+		public String getText(int row) {
+			int code = textCodes[row];
+			return code < 0 ? null : dictionary[code];
+		}
+
+		@Override
+		public String toString() {
+			return "Column{" + key + ", rows=" + numbers.length + ", distinctTexts=" + dictionary.length + "}";
+		}
+	}
+
+	/** Growable columns, filled a row at a time */
+	private static class Builder {
+		private final String[] keys;
+		private String[] rowNames = new String[64];
+		private int rowCount;
+		private double[][] numbers;
+		private long[][] numberBitmaps;
+		private int[][] textCodes;
+		private final List<Map<String, Integer>> dictionaryCodes = new ArrayList<>();
+		private final List<List<String>> dictionaries = new ArrayList<>();
+
+		Builder(@NotNull String[] keys) {
+			this.keys = keys;
+			this.numbers = new double[keys.length][rowNames.length];
+			this.numberBitmaps = new long[keys.length][rowNames.length >>> 6];
+			this.textCodes = new int[keys.length][rowNames.length];
+			for (int c = 0; c < keys.length; c++) {
+				Arrays.fill(textCodes[c], -1);
+				dictionaryCodes.add(new HashMap<>());
+				dictionaries.add(new ArrayList<>());
+			}
+		}
+
+		void addRow(@NotNull CharSequence className) {
+			if (rowCount == rowNames.length) {
+				int newLength = rowCount * 2;
+				rowNames = Arrays.copyOf(rowNames, newLength);
+				for (int c = 0; c < keys.length; c++) {
+					numbers[c] = Arrays.copyOf(numbers[c], newLength);
+					numberBitmaps[c] = Arrays.copyOf(numberBitmaps[c], newLength >>> 6);
+					textCodes[c] = Arrays.copyOf(textCodes[c], newLength);
+					Arrays.fill(textCodes[c], rowCount, newLength, -1);
+				}
+			}
+			rowNames[rowCount++] = ConfigStringPool.getShared().intern(className);
+		}
+
+		/** Sets the column of the field the cursor is on, if its key is projected. A later field replaces an earlier one. */
+		void read(@NotNull ConfigCursor cursor) {
+			int c = indexOf(cursor.name());
+			if (c < 0) {
+				return;
+			}
+			int row = rowCount - 1;
+			switch (cursor.valueType()) {
+				case Scalar: {
+					setNumber(c, row, cursor.scalarValue());
+					break;
+				}
+				case Text: {
+					setText(c, row, textCode(c, ConfigStringPool.getShared().intern(cursor.textValue())));
+					break;
+				}
+				default: {
+					setText(c, row, -1);
+					break;
+				}
+			}
+		}
+
+		private void setNumber(int c, int row, double number) {
+			numbers[c][row] = number;
+			numberBitmaps[c][row >>> 6] |= 1L << row;
+			textCodes[c][row] = -1;
+		}
+
+		/** @param textCode index in the dictionary, or -1 to set the row to null */
+		private void setText(int c, int row, int textCode) {
+			numbers[c][row] = 0;
+			numberBitmaps[c][row >>> 6] &= ~(1L << row);
+			textCodes[c][row] = textCode;
+		}
+
+		/** Adds the rows of a result that has the same keys */
+		void append(@NotNull Result result) {
+			for (int i = 0; i < result.rowNames.length; i++) {
+				addRow(result.rowNames[i]);
+				int row = rowCount - 1;
+				for (int c = 0; c < keys.length; c++) {
+					Column column = result.columns[c];
+					if (column.isNumber(i)) {
+						setNumber(c, row, column.numbers[i]);
+					} else if (column.isText(i)) {
+						setText(c, row, textCode(c, column.dictionary[column.textCodes[i]]));
+					}
+				}
+			}
+		}
+
+		private int textCode(int c, @NotNull String text) {
+			Map<String, Integer> codes = dictionaryCodes.get(c);
+			Integer code = codes.get(text);
+			if (code == null) {
+				List<String> dictionary = dictionaries.get(c);
+				code = dictionary.size();
+				dictionary.add(text);
+				codes.put(text, code);
+			}
+			return code;
+		}
+
+		private int indexOf(@NotNull CharSequence name) {
+			for (int c = 0; c < keys.length; c++) {
+				if (contentEquals(keys[c], name)) {
+					return c;
+				}
+			}
+			return -1;
+		}
+
+		private static boolean contentEquals(@NotNull String key, @NotNull CharSequence name) {
+			int length = key.length();
+			if (name.length() != length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (key.charAt(i) != name.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@NotNull
+		Result build() {
+			Column[] columns = new Column[keys.length];
+			for (int c = 0; c < keys.length; c++) {
+				int[] codes = Arrays.copyOf(textCodes[c], rowCount);
+				long[] bitmap = Arrays.copyOf(numberBitmaps[c], (rowCount + 63) >>> 6);
+				columns[c] = new Column(keys[c], Arrays.copyOf(numbers[c], rowCount), bitmap, codes, dictionaries.get(c).toArray(new String[0]));
+			}
+			return new Result(Arrays.copyOf(rowNames, rowCount), columns);
+		}
+	}
+}
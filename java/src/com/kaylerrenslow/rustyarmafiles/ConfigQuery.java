@@ -1,8 +1,12 @@
 package com.kaylerrenslow.rustyarmafiles;
 
+import com.kaylerrenslow.rustyarmafiles.jfr.QueryEvent;
+import com.kaylerrenslow.rustyarmafiles.jfr.SkipEvent;
+import jdk.jfr.EventType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.nio.ByteBuffer;
 import java.text.ParseException;
 import java.util.*;
 import java.util.function.Consumer;
@@ -15,12 +19,27 @@ import java.util.function.Consumer;
  @since 01/08/2019 */
 public class ConfigQuery {
 
+	private static final EventType SKIP_EVENT_TYPE = EventType.getEventType(SkipEvent.class);
+
 	private final QueryNode queryRootNode;
 
 	public ConfigQuery(@NotNull ConfigQuery.CompiledQuery query) {
 		this.queryRootNode = query.getNode();
 	}
 
+	/**
+	 Parses a query. Eg. CfgVehicles{*{displayName;scope;}} matches the displayName and scope fields of every class
+	 in CfgVehicles. A word followed by { enters the class with that name, a word followed by ; matches the field with
+	 that key, and * matches every class or every field.
+	 <p>
+	 A name that ends with ? is incomplete: the ? is dropped and the name matches every class/field name that contains
+	 the rest. Eg. Thing?; matches Thing, Thing2 and MyThing. Once a class has an incomplete field key, all of its field
+	 keys are matched that way, and the same goes for its class names.
+
+	 @param query the query text
+	 @return the compiled query
+	 @throws ParseException when the query couldn't be compiled
+	 */
 	@NotNull
 	public static CompiledQuery parseQuery(@NotNull String query) throws ParseException {
 		return new PatternParser(query).parse();
@@ -30,9 +49,10 @@ public class ConfigQuery {
 	 Parses an Arma format query. Eg. ConfigFile>>"CfgVehicles">>"AVehicle".
 	 The parser doesn't need quotes around each item and supports double quotes and single quotes.
 	 The parser also has the option for incomplete names.
-	 Use ? to denote that the name is incomplete and should match the first class/field with the name up to the ?.
+	 Use ? at the end of a name to denote that the name is incomplete. The ? is dropped and the name matches every
+	 class/field name that contains the rest, the same as in {@link #parseQuery(String)}.
 	 Example:
-	 Query: Thing>>Thing? will match Thing>>Thing, Thing>>Thing2, Thing>>ThingThing, etc
+	 Query: Thing>>Thing? will match Thing>>Thing, Thing>>Thing2, Thing>>ThingThing, Thing>>MyThing, etc
 
 	 @param query           the query text
 	 @param allowIncomplete true if the query can match incomplete/partial names
@@ -44,62 +64,127 @@ public class ConfigQuery {
 		return new ArmaFormatQueryParser(query).parse(allowIncomplete);
 	}
 
+	/**
+	 Filters a {@link ConfigStream}. If the stream is a {@link ConfigCursorStream}, the query runs on its cursor
+	 and nothing is created for the entries that don't match.
+
+	 @param stream the stream to filter
+	 @return a stream of only the entries that match
+	 */
 	@NotNull
 	public ConfigStream query(@NotNull ConfigStream stream) {
+		ConfigCursor cursor;
+		if (stream instanceof ConfigCursorStream) {
+			cursor = ((ConfigCursorStream) stream).getCursor();
+		} else {
+			cursor = new ConfigStreamCursor(stream);
+		}
+		return new ConfigCursorStream(query(cursor));
+	}
+
+	/**
+	 Filters a {@link ConfigCursor}. The returned cursor reads from the given cursor, so the given cursor shouldn't be
+	 used afterwards.
+
+	 @param cursor the cursor to filter
+	 @return a cursor over only the entries that match
+	 */
+	@NotNull
+	public ConfigCursor query(@NotNull ConfigCursor cursor) {
 		if (queryRootNode == null) {
 			throw new IllegalStateException();
 		}
-		return new QueryResultConfigStream(stream, queryRootNode);
+		return new QueryResultConfigCursor(cursor, queryRootNode);
 	}
 
-	private static final class QueryResultConfigStream implements ConfigStream {
+	/**
+	 Skips the class the cursor is in, and records a {@link SkipEvent} if it is enabled. While the event is disabled,
+	 nothing is created and the cursor isn't asked for the class name. Otherwise the name is taken before skipping,
+	 since skipping may move the cursor off it, but it is only copied if the event is committed.
+	 */
+	static void skipClass(@NotNull ConfigCursor cursor) throws ConfigStreamException {
+		if (!SKIP_EVENT_TYPE.isEnabled()) {
+			cursor.skipCurrentClass();
+			return;
+		}
+		SkipEvent event = new SkipEvent();
+		event.begin();
+		CharSequence className = cursor.type() == ConfigStreamItem.Type.Class ? cursor.name() : null;
+		cursor.skipCurrentClass();
+		if (event.shouldCommit()) {
+			event.className = className == null ? null : className.toString();
+			event.commit();
+		}
+	}
 
-		private final ConfigStream src;
-		private final Stack<QueryNode> queryNodeStack = new Stack<>();
-		private boolean querySkipClass = false;
+	/** Commits a query event that was begun when the query started, and reports the skipped classes */
+	static void commitQuery(@NotNull QueryEvent event, int queries, long entriesRead, long entriesMatched, long classesSkipped) {
+		if (event.shouldCommit()) {
+			event.queries = queries;
+			event.entriesRead = entriesRead;
+			event.entriesMatched = entriesMatched;
+			event.classesSkipped = classesSkipped;
+			event.commit();
+		}
+		ConfigMetrics.add(ConfigMetrics.Counter.ClassesSkipped, classesSkipped);
+	}
+
+	private static final class QueryResultConfigCursor implements ConfigCursor {
 
-		public QueryResultConfigStream(@NotNull ConfigStream src, @NotNull QueryNode root) {
+		private final ConfigCursor src;
+		private QueryNode[] queryNodeStack = new QueryNode[8];
+		private int depth;
+		private boolean querySkipClass = false;
+		/** begun on the first {@link #advance()}, and committed at the end of the stream */
+		private QueryEvent event;
+		private long entriesRead;
+		private long entriesMatched;
+		private long classesSkipped;
+		private boolean ended;
+
+		public QueryResultConfigCursor(@NotNull ConfigCursor src, @NotNull QueryNode root) {
 			this.src = src;
-			queryNodeStack.push(root);
+			queryNodeStack[depth++] = root;
 		}
 
 		@Override
 		@NotNull
-		public ConfigStreamItem next() throws ConfigStreamException {
-			while (src.hasNext()) { //loop until a match
-				ConfigStreamItem nextItem = src.next();
-				QueryNode queryNode = queryNodeStack.peek();
+		public ConfigStreamItem.Type advance() throws ConfigStreamException {
+			if (event == null && !ended) {
+				event = new QueryEvent();
+				event.begin();
+			}
+			for (; ; ) { //loop until a match
+				ConfigStreamItem.Type type = src.advance();
+				QueryNode queryNode = queryNodeStack[depth - 1];
+				entriesRead++;
 
-				switch (nextItem.getType()) {
-					// Stream will always read assignments first,
+				switch (type) {
+					// Rapified cursors will always read assignments first,
 					// then for each embedded class: read those assignments first, etc (recursion man).
 					case Class: {
-						ConfigStreamItem.ClassItem classItem = (ConfigStreamItem.ClassItem) nextItem;
-						// No need to check if the class is the root class because it won't be returned as a ClassItem
+						// No need to check if the class is the root class because it won't be returned as a Class
 						// and instead will immediately just stream the fields.
-						final boolean match = queryNode.containsClassName(classItem.getClassName());
-						if (match) {
-							QueryNode nextNode = queryNode.childQueryNode(classItem.getClassName());
-							if (queryNode.isMatchAllClasses()) {
-								if (nextNode == null) {
-									nextNode = queryNode.childQueryNode("*");
-								}
-							} else {
-								throw new IllegalStateException(); //how??
+						CharSequence className = src.name();
+						if (queryNode.containsClassName(className)) {
+							QueryNode nextNode = queryNode.childQueryNode(className);
+							if (nextNode == null && queryNode.isMatchAllClasses()) {
+								nextNode = queryNode.anyClassQueryNode();
 							}
 							if (nextNode != null) {
-								queryNodeStack.push(nextNode);
-								return nextItem;
+								push(nextNode);
+								entriesMatched++;
+								return type;
 							}
 						}
 						querySkipClass = true;
-						src.skipCurrentClass();
+						skipSrcClass();
 						break;
 					}
 					case Field: {
-						ConfigStreamItem.FieldItem item = (ConfigStreamItem.FieldItem) nextItem;
-						if (queryNode.containsFieldKey(item.getKey())) {
-							return nextItem;
+						if (queryNode.containsFieldKey(src.name())) {
+							entriesMatched++;
+							return type;
 						}
 						break;
 					}
@@ -108,28 +193,99 @@ public class ConfigQuery {
 							querySkipClass = false;
 							break;
 						}
-						queryNodeStack.pop();
-						return nextItem;
+						queryNodeStack[--depth] = null;
+						entriesMatched++;
+						return type;
 					}
 					case EndStream: {
-						return nextItem;
+						entriesRead--;
+						end();
+						return type;
 					}
 					default: {
 						throw new IllegalStateException();
 					}
 				}
 			}
-			return ConfigStreamItem.EndStreamItem.INSTANCE;
+		}
+
+		private void skipSrcClass() throws ConfigStreamException {
+			skipClass(src);
+			classesSkipped++;
+		}
+
+		/** Commits the event and reports the counters, once */
+		private void end() {
+			if (ended) {
+				return;
+			}
+			ended = true;
+			commitQuery(event, 1, entriesRead, entriesMatched, classesSkipped);
+			event = null;
+		}
+
+		private void push(@NotNull QueryNode node) {
+			if (depth == queryNodeStack.length) {
+				queryNodeStack = Arrays.copyOf(queryNodeStack, depth * 2);
+			}
+			queryNodeStack[depth++] = node;
+		}
+
+		@Override
+		@Nullable
+		public ConfigStreamItem.Type type() {
+			return src.type();
+		}
+
+		@Override
+		@NotNull
+		public CharSequence name() {
+			return src.name();
+		}
+
+		@Override
+		@Nullable
+		public CharSequence parentClassName() {
+			return src.parentClassName();
+		}
+
+		@Override
+		@NotNull
+		public ByteBuffer nameBytes() {
+			return src.nameBytes();
+		}
+
+		@Override
+		@NotNull
+		public ValueType valueType() {
+			return src.valueType();
+		}
+
+		@Override
+		public double scalarValue() {
+			return src.scalarValue();
 		}
 
 		@Override
-		public boolean hasNext() {
-			return src.hasNext();
+		@NotNull
+		public CharSequence textValue() {
+			return src.textValue();
 		}
 
 		@Override
-		public void skipCurrentClass() {
-			src.skipCurrentClass();
+		public int arrayLength() {
+			return src.arrayLength();
+		}
+
+		@Override
+		@NotNull
+		public ConfigFieldValue value() {
+			return src.value();
+		}
+
+		@Override
+		public void skipCurrentClass() throws ConfigStreamException {
+			skipSrcClass();
 		}
 	}
 
@@ -142,82 +298,86 @@ public class ConfigQuery {
 
 		@NotNull
 		public CompiledQuery parse(boolean allowIncomplete) throws ParseException {
-			int wordLength = 0;
-			int wordStartIndex = 0;
-			boolean expectOperator = true;
-			int bracketCount = 0;
-			boolean expectWord = true;
-
 			QueryNode currentNode = new QueryNode();
 			QueryNode start = currentNode;
 
-			for (int i = 0; i < query.length(); i++) {
-				char c = query.charAt(i);
-				if (Character.isWhitespace(c)) {
-					if (wordLength > 0) {
-						expectOperator = true;
-					} else {
-						wordStartIndex++;
-					}
+			int wordStartIndex = 0;
+			boolean first = true;
+			while (true) {
+				int operatorIndex = query.indexOf(">>", wordStartIndex);
+				int wordEndIndex = operatorIndex < 0 ? query.length() : operatorIndex;
+				String word = readWord(wordStartIndex, wordEndIndex, allowIncomplete);
+				boolean last = operatorIndex < 0;
+				wordStartIndex = wordEndIndex + 2;
+
+				if (first && word == null) {
+					//leading configFile refers to the root
+					first = false;
 					continue;
 				}
-				if (c == '>') {
-					if (expectWord) {
-						throw new ParseException("expected a word, got >", i);
-					}
-					bracketCount++;
-					if (bracketCount > 2) {
-						throw new ParseException("expected word, got >", i);
-					}
-					if (bracketCount == 2) {
-						expectOperator = false;
-						String word = query.substring(wordStartIndex, wordLength + 1);
-						final char endChar = word.charAt(word.length() - 1);
-						final char startChar = word.charAt(0);
-						if (startChar == '"' || endChar == '"' || startChar == '\'' || endChar == '\'') {
-							if (startChar != endChar) {
-								throw new ParseException("Missing a \" or ' somewhere", i);
-							}
-							//remove quotes
-							word = word.substring(1, word.length() - 1);
-						}
+				first = false;
+				if (word == null) {
+					throw new ParseException("configFile can only be at the start", wordEndIndex);
+				}
 
-						//match either class or assignment since the >> in arma 3 matches entry name and doesn't care about type
-						QueryNode oldNode = currentNode;
-						currentNode = new QueryNode();
-						oldNode.addChildClass(word, currentNode);
-						oldNode.addFieldToMatch(word);
-						if (allowIncomplete && word.charAt(word.length() - 1) == '?') {
-							oldNode.matchIncompleteClassNames();
-							oldNode.matchIncompleteFieldKeys();
-						}
-						expectWord = true;
-					} else {
-						expectOperator = true;
-						expectWord = false;
-					}
-					continue;
+				//match either class or assignment since the >> in arma 3 matches entry name and doesn't care about type
+				QueryNode oldNode = currentNode;
+				currentNode = new QueryNode();
+				oldNode.addChildClass(word, currentNode);
+				oldNode.addFieldToMatch(word);
+				if (allowIncomplete && word.charAt(word.length() - 1) == '?') {
+					oldNode.matchIncompleteClassNames();
+					oldNode.matchIncompleteFieldKeys();
 				}
-				if (!Character.isAlphabetic(c) && !(allowIncomplete && c == '?')) {
-					throw new ParseException("Unexpected token: " + c, i);
+				if (last) {
+					//the last name selects the whole entry
+					currentNode.matchAllFields();
+					currentNode.matchAllClasses();
+					currentNode.addChildClass("*", currentNode);
+					break;
 				}
-				wordLength++;
-				expectWord = false;
 			}
-			if (expectOperator) {
-				throw new ParseException("Unexpected >", query.length());
+			return new CompiledQuery(start);
+		}
+
+		/**
+		 @return the name in [start, end) without quotes, or null if it is an unquoted configFile
+		 @throws ParseException when the name is empty or has an unexpected character
+		 */
+		@Nullable
+		private String readWord(int start, int end, boolean allowIncomplete) throws ParseException {
+			while (start < end && Character.isWhitespace(query.charAt(start))) {
+				start++;
+			}
+			while (end > start && Character.isWhitespace(query.charAt(end - 1))) {
+				end--;
 			}
-			if (expectWord) {
-				throw new ParseException("Expected a word", query.length());
+			if (start >= end) {
+				throw new ParseException("Expected a word", start);
 			}
-			if (wordLength > 0) {
-				String word = query.substring(wordStartIndex, wordLength + 1);
-
-				//match either class or assignment since the >> in arma 3 matches entry name and doesn't care about type
-				currentNode.addChildClass(word, currentNode);
-				currentNode.addFieldToMatch(word);
+			final char startChar = query.charAt(start);
+			final char endChar = query.charAt(end - 1);
+			boolean quoted = false;
+			if (startChar == '"' || endChar == '"' || startChar == '\'' || endChar == '\'') {
+				if (startChar != endChar || end - start < 3) {
+					throw new ParseException("Missing a \" or ' somewhere", start);
+				}
+				//remove quotes
+				start++;
+				end--;
+				quoted = true;
 			}
-			return new CompiledQuery(start);
+			for (int i = start; i < end; i++) {
+				char c = query.charAt(i);
+				if (!Character.isLetterOrDigit(c) && c != '_' && !(allowIncomplete && c == '?' && i == end - 1)) {
+					throw new ParseException("Unexpected token: " + c, i);
+				}
+			}
+			String word = query.substring(start, end);
+			if (!quoted && word.equalsIgnoreCase("configFile")) {
+				return null;
+			}
+			return word;
 		}
 	}
 
@@ -259,7 +419,7 @@ public class ConfigQuery {
 						throw new ParseException("missing class name", i);
 					}
 					expectOperator = false;
-					String word = query.substring(wordStartIndex, wordLength + 1);
+					String word = query.substring(wordStartIndex, wordStartIndex + wordLength);
 					QueryNode peek = nodeStack.peek();
 					if (word.equals("*")) {
 						peek.matchAllClasses();
@@ -279,7 +439,7 @@ public class ConfigQuery {
 					}
 					expectOperator = false;
 					QueryNode peek = nodeStack.peek();
-					String word = query.substring(wordStartIndex, wordLength + 1);
+					String word = query.substring(wordStartIndex, wordStartIndex + wordLength);
 					if (word.equals("*")) {
 						peek.matchAllFields();
 					} else {
@@ -292,7 +452,7 @@ public class ConfigQuery {
 					wordLength = 0;
 					wordStartIndex = i + 1;
 				} else if (c == '}') {
-					if (lbracketCount < rbracketCount) {
+					if (lbracketCount <= rbracketCount) {
 						throw new ParseException("unexpected }", i);
 					}
 					expectOperator = false;
@@ -304,7 +464,7 @@ public class ConfigQuery {
 					if (expectOperator) {
 						throw new ParseException("Expected bracket or comma but got whitespace", i);
 					}
-					if (!Character.isAlphabetic(c) && c != '?') {
+					if (!Character.isLetterOrDigit(c) && c != '_' && c != '?' && c != '*') {
 						throw new ParseException("Unexpected token: " + c, i);
 					}
 					wordLength++;
@@ -319,7 +479,7 @@ public class ConfigQuery {
 					rootNode.matchAllFields();
 				} else {
 					//don't add whole query because there may be whitespace
-					rootNode.addFieldToMatch(query.substring(wordStartIndex, wordLength + 1));
+					rootNode.addFieldToMatch(query.substring(wordStartIndex, wordStartIndex + wordLength));
 				}
 			}
 			return new CompiledQuery(rootNode);
@@ -331,15 +491,34 @@ public class ConfigQuery {
 
 		private CompiledQuery(@NotNull QueryNode node) {
 			this.node = node;
+			node.compile(Collections.newSetFromMap(new IdentityHashMap<>()));
 		}
 
 		@NotNull
 		QueryNode getNode() {
 			return node;
 		}
+
+		/** @return a hash of what the query matches, so equal queries compiled separately have the same hash */
+		@Override
+		public int hashCode() {
+			return node.structuralHash(new IdentityHashMap<>());
+		}
+
+		/** @return true if o is a query that matches the same names with the same options, however it was compiled */
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof CompiledQuery)) {
+				return false;
+			}
+			return node.structurallyEquals(((CompiledQuery) o).node, new IdentityHashMap<>());
+		}
 	}
 
-	private static class QueryNode {
+	static class QueryNode {
 		private final Map<String, QueryNode> children = new HashMap<>();
 		private final Set<String> fields = new HashSet<>();
 		private boolean matchAllFields = false;
@@ -347,25 +526,36 @@ public class ConfigQuery {
 		private boolean matchIncompleteClassNames = false;
 		private boolean matchIncompleteFieldKeys = false;
 
+		/** compiled from {@link #children}, or null if the children changed since it was compiled */
+		private ClassNameMatcher classNameMatcher;
+		/** compiled from {@link #fields}, or null if the fields changed since it was compiled */
+		private NameAutomaton fieldKeyAutomaton;
+
 		@Nullable
-		public QueryNode childQueryNode(@NotNull String className) {
-			if (matchIncompleteClassNames) {
-				Map.Entry<String, QueryNode> match = matchIncompleteClassName(className);
-				return match == null ? null : match.getValue();
-			}
-			return children.get(className);
+		public QueryNode childQueryNode(@NotNull CharSequence className) {
+			ClassNameMatcher matcher = getClassNameMatcher();
+			int match = matcher.automaton.match(className, matchIncompleteClassNames);
+			return match < 0 ? null : matcher.nodes[match];
 		}
 
-		public boolean containsClassName(@NotNull String key) {
-			return matchAllClasses || children.containsKey(key);
+		/** @return the node for the * class, or null if there is none */
+		@Nullable
+		public QueryNode anyClassQueryNode() {
+			return children.get("*");
+		}
+
+		public boolean containsClassName(@NotNull CharSequence key) {
+			return matchAllClasses || getClassNameMatcher().automaton.match(key, matchIncompleteClassNames) >= 0;
 		}
 
 		public void addChildClass(@NotNull String className, @NotNull QueryNode node) {
 			children.put(className, node);
+			classNameMatcher = null;
 		}
 
 		public void addFieldToMatch(@NotNull String key) {
 			fields.add(key);
+			fieldKeyAutomaton = null;
 		}
 
 		public void matchAllFields() {
@@ -382,35 +572,275 @@ public class ConfigQuery {
 
 		public void matchIncompleteClassNames() {
 			this.matchIncompleteClassNames = true;
+			classNameMatcher = null;
 		}
 
 		public void matchIncompleteFieldKeys() {
 			this.matchIncompleteFieldKeys = true;
+			fieldKeyAutomaton = null;
 		}
 
-		public boolean containsFieldKey(@NotNull String key) {
+		public boolean containsFieldKey(@NotNull CharSequence key) {
 			if (matchAllFields) {
 				return true;
 			}
-			if (matchIncompleteFieldKeys) {
-				for (String fieldKey : fields) {
-					if (key.contains(fieldKey)) {
-						return true;
+			return getFieldKeyAutomaton().match(key, matchIncompleteFieldKeys) >= 0;
+		}
+
+		/** @param visited hash of each node already visited. Nodes that are being hashed are visited with hash 0. */
+		int structuralHash(@NotNull Map<QueryNode, Integer> visited) {
+			Integer known = visited.putIfAbsent(this, 0);
+			if (known != null) {
+				return known;
+			}
+			int hash = fields.hashCode();
+			hash = 31 * hash + (matchAllFields ? 1 : 0);
+			hash = 31 * hash + (matchAllClasses ? 1 : 0);
+			hash = 31 * hash + (matchIncompleteClassNames ? 1 : 0);
+			hash = 31 * hash + (matchIncompleteFieldKeys ? 1 : 0);
+			int childrenHash = 0;
+			for (Map.Entry<String, QueryNode> child : children.entrySet()) {
+				//order independent, like Map.hashCode()
+				childrenHash += child.getKey().hashCode() ^ child.getValue().structuralHash(visited);
+			}
+			hash = 31 * hash + childrenHash;
+			visited.put(this, hash);
+			return hash;
+		}
+
+		/**
+		 @param pairs nodes of this query already matched with the nodes of the other query. A pair is added before
+		 its children are compared, so shared and recursive nodes are compared once.
+		 */
+		boolean structurallyEquals(@NotNull QueryNode other, @NotNull Map<QueryNode, Set<QueryNode>> pairs) {
+			if (pairs.containsKey(this) && pairs.get(this).contains(other)) {
+				return true;
+			}
+			if (matchAllFields != other.matchAllFields || matchAllClasses != other.matchAllClasses
+					|| matchIncompleteClassNames != other.matchIncompleteClassNames
+					|| matchIncompleteFieldKeys != other.matchIncompleteFieldKeys
+					|| !fields.equals(other.fields) || !children.keySet().equals(other.children.keySet())) {
+				return false;
+			}
+			pairs.computeIfAbsent(this, n -> Collections.newSetFromMap(new IdentityHashMap<>())).add(other);
+			for (Map.Entry<String, QueryNode> child : children.entrySet()) {
+				if (!child.getValue().structurallyEquals(other.children.get(child.getKey()), pairs)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/** Compiles the automatons of this node and all nodes below it. */
+		public void compile(@NotNull Set<QueryNode> compiled) {
+			if (!compiled.add(this)) {
+				return;
+			}
+			getFieldKeyAutomaton();
+			for (QueryNode child : getClassNameMatcher().nodes) {
+				child.compile(compiled);
+			}
+		}
+
+		@NotNull
+		private NameAutomaton getFieldKeyAutomaton() {
+			NameAutomaton automaton = fieldKeyAutomaton;
+			if (automaton == null) {
+				automaton = new NameAutomaton(fields, matchIncompleteFieldKeys);
+				fieldKeyAutomaton = automaton;
+			}
+			return automaton;
+		}
+
+		@NotNull
+		private ClassNameMatcher getClassNameMatcher() {
+			ClassNameMatcher matcher = classNameMatcher;
+			if (matcher == null) {
+				matcher = new ClassNameMatcher(children, matchIncompleteClassNames);
+				classNameMatcher = matcher;
+			}
+			return matcher;
+		}
+	}
+
+	private static class ClassNameMatcher {
+		private final NameAutomaton automaton;
+		/** child node for each pattern index of {@link #automaton} */
+		private final QueryNode[] nodes;
+
+		public ClassNameMatcher(@NotNull Map<String, QueryNode> children, boolean incomplete) {
+			List<String> names = new ArrayList<>(children.keySet());
+			this.nodes = new QueryNode[names.size()];
+			for (int i = 0; i < nodes.length; i++) {
+				nodes[i] = children.get(names.get(i));
+			}
+			this.automaton = new NameAutomaton(names, incomplete);
+		}
+	}
+
+	/**
+	 Matches a name against many patterns in a single pass over the name, without allocating.
+	 Exact matching walks the trie of the patterns. Incomplete matching (a pattern matches if the name contains it)
+	 runs the trie as an Aho-Corasick automaton, so the cost is O(name length) instead of O(patterns * name length).
+	 Transitions are kept in one open addressing table keyed by (state, char).
+	 */
+	private static final class NameAutomaton {
+		private static final int ROOT = 0;
+		private static final long EMPTY = -1;
+
+		private long[] transitionKeys;
+		private int[] transitionTargets;
+		private int transitionMask;
+		/** smallest pattern index that ends at each state, or -1 */
+		private int[] terminal;
+		/** smallest pattern index that ends at each state or any of its suffix states, or -1 */
+		private int[] output;
+		private int[] fail;
+		private int stateCount = 1;
+
+		/**
+		 @param patterns   patterns in index order
+		 @param incomplete true if a trailing ? should be dropped from each pattern
+		 */
+		NameAutomaton(@NotNull Collection<String> patterns, boolean incomplete) {
+			int capacity = 16;
+			int totalLength = 0;
+			for (String pattern : patterns) {
+				totalLength += pattern.length();
+			}
+			while (capacity < totalLength * 2) {
+				capacity <<= 1;
+			}
+			transitionKeys = new long[capacity];
+			Arrays.fill(transitionKeys, EMPTY);
+			transitionTargets = new int[capacity];
+			transitionMask = capacity - 1;
+			terminal = new int[totalLength + 1];
+			Arrays.fill(terminal, -1);
+
+			// trie
+			int[] parent = new int[totalLength + 1];
+			char[] parentChar = new char[totalLength + 1];
+			int patternIndex = 0;
+			for (String pattern : patterns) {
+				int end = pattern.length();
+				if (incomplete && end > 0 && pattern.charAt(end - 1) == '?') {
+					end--;
+				}
+				int state = ROOT;
+				for (int i = 0; i < end; i++) {
+					char c = pattern.charAt(i);
+					int next = transition(state, c);
+					if (next < 0) {
+						next = stateCount++;
+						parent[next] = state;
+						parentChar[next] = c;
+						putTransition(state, c, next);
 					}
+					state = next;
 				}
-				return false;
+				if (terminal[state] < 0) {
+					terminal[state] = patternIndex;
+				}
+				patternIndex++;
+			}
+
+			// failure links, in breadth first order. States are numbered in insertion order, so sort them by depth
+			fail = new int[stateCount];
+			output = new int[stateCount];
+			int[] depth = new int[stateCount];
+			Integer[] order = new Integer[stateCount];
+			for (int s = 0; s < stateCount; s++) {
+				depth[s] = s == ROOT ? 0 : depth[parent[s]] + 1;
+				order[s] = s;
+			}
+			Arrays.sort(order, Comparator.comparingInt(s -> depth[s]));
+			output[ROOT] = terminal[ROOT];
+			for (int s : order) {
+				if (s == ROOT) {
+					continue;
+				}
+				int f = ROOT;
+				if (parent[s] != ROOT) {
+					f = fail[parent[s]];
+					int next;
+					while ((next = transition(f, parentChar[s])) < 0 && f != ROOT) {
+						f = fail[f];
+					}
+					f = next < 0 ? ROOT : next;
+				}
+				fail[s] = f;
+				output[s] = min(terminal[s], output[f]);
 			}
-			return fields.contains(key);
 		}
 
-		@Nullable
-		private Map.Entry<String, QueryNode> matchIncompleteClassName(@NotNull String className) {
-			for (Map.Entry<String, QueryNode> incompleteClassNameEntry : children.entrySet()) {
-				if (className.contains(incompleteClassNameEntry.getKey())) {
-					return incompleteClassNameEntry;
+		/**
+		 @param name       the name
+		 @param incomplete true if the name only needs to contain a pattern, false if it must equal one
+		 @return index of the matching pattern, or -1 if there is no match
+		 */
+		int match(@NotNull CharSequence name, boolean incomplete) {
+			int length = name.length();
+			int state = ROOT;
+			if (!incomplete) {
+				for (int i = 0; i < length && state >= 0; i++) {
+					state = transition(state, name.charAt(i));
+				}
+				return state < 0 ? -1 : terminal[state];
+			}
+			if (output[ROOT] >= 0) {
+				return output[ROOT];
+			}
+			for (int i = 0; i < length; i++) {
+				char c = name.charAt(i);
+				int next;
+				while ((next = transition(state, c)) < 0 && state != ROOT) {
+					state = fail[state];
+				}
+				state = next < 0 ? ROOT : next;
+				if (output[state] >= 0) {
+					return output[state];
+				}
+			}
+			return -1;
+		}
+
+		private int transition(int state, char c) {
+			long key = ((long) state << 16) | c;
+			int slot = mix(key) & transitionMask;
+			long k;
+			while ((k = transitionKeys[slot]) != EMPTY) {
+				if (k == key) {
+					return transitionTargets[slot];
 				}
+				slot = (slot + 1) & transitionMask;
 			}
-			return null;
+			return -1;
+		}
+
+		private void putTransition(int state, char c, int target) {
+			long key = ((long) state << 16) | c;
+			int slot = mix(key) & transitionMask;
+			while (transitionKeys[slot] != EMPTY) {
+				slot = (slot + 1) & transitionMask;
+			}
+			transitionKeys[slot] = key;
+			transitionTargets[slot] = target;
+		}
+
+		private static int mix(long key) {
+			long h = key * 0x9E3779B97F4A7C15L;
+			return (int) (h ^ (h >>> 32));
+		}
+
+		private static int min(int a, int b) {
+			if (a < 0) {
+				return b;
+			}
+			if (b < 0) {
+				return a;
+			}
+			return Math.min(a, b);
 		}
 	}
 
@@ -447,13 +877,15 @@ public class ConfigQuery {
 		@NotNull
 		public ConfigQuery.ConfigQueryBuilder matchAllClassesAndEnter() {
 			parent.matchAllClasses();
-			return new ConfigQueryBuilder(new QueryNode(), this, startBuilder);
+			QueryNode child = new QueryNode();
+			parent.addChildClass("*", child);
+			return new ConfigQueryBuilder(child, this, startBuilder);
 		}
 
 		@NotNull
 		public ConfigQuery.ConfigQueryBuilder matchClass(@NotNull String name) {
 			QueryNode child = new QueryNode();
-			parent.children.put(name, child);
+			parent.addChildClass(name, child);
 			return this;
 		}
 
@@ -461,7 +893,7 @@ public class ConfigQuery {
 		public ConfigQuery.ConfigQueryBuilder matchClasses(@NotNull String... names) {
 			QueryNode child = new QueryNode();
 			for (String name : names) {
-				parent.children.put(name, child);
+				parent.addChildClass(name, child);
 			}
 			return this;
 		}
@@ -470,7 +902,7 @@ public class ConfigQuery {
 		public ConfigQuery.ConfigQueryBuilder matchClassesAndForEach(@NotNull Consumer<ConfigQueryBuilder> visitor, @NotNull String... names) {
 			for (String name : names) {
 				ConfigQueryBuilder builder = new ConfigQueryBuilder(new QueryNode(), this, startBuilder);
-				parent.children.put(name, builder.parent);
+				parent.addChildClass(name, builder.parent);
 				visitor.accept(builder);
 			}
 			return this;
@@ -479,20 +911,20 @@ public class ConfigQuery {
 		@NotNull
 		public ConfigQuery.ConfigQueryBuilder matchClassAndEnter(@NotNull String name) {
 			QueryNode child = new QueryNode();
-			parent.children.put(name, child);
+			parent.addChildClass(name, child);
 			return new ConfigQueryBuilder(child, this, startBuilder);
 		}
 
 		@NotNull
 		public ConfigQuery.ConfigQueryBuilder matchAssignment(@NotNull String name) {
-			parent.fields.add(name);
+			parent.addFieldToMatch(name);
 			return this;
 		}
 
 		@NotNull
 		public ConfigQuery.ConfigQueryBuilder matchAssignments(@NotNull String... names) {
 			for (String name : names) {
-				parent.fields.add(name);
+				parent.addFieldToMatch(name);
 			}
 			return this;
 		}
@@ -0,0 +1,602 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ A bounded cache of the results of {@link ConfigQuery.CompiledQuery}s on {@link ConfigFile}s, for services that run
+ the same queries on the same files over and over.
+ <p>
+ Results are keyed by the file's path and the query. Queries are compared by what they match
+ ({@link ConfigQuery.CompiledQuery#equals(Object)}), so the same query text compiled on every request still hits.
+ Each result remembers the size and last modified time of the file it was read from; a result whose file changed
+ since is dropped on its next lookup and the query runs again. A result is a compact copy of the matched entries
+ that doesn't reference the file, so it stays valid after the file is closed or changed.
+ <p>
+ The cache holds at most maxBytes of (estimated) result sizes and evicts the least recently used results first.
+ When many threads look up the same missing result at once, the query runs once and the others wait for it.
+
+ @author K
+ @since 02/04/2019 */
+public class ConfigQueryCache {
+	private final long maxBytes;
+	/** results in access order. Guarded by this. */
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	/** queries being run, so concurrent lookups of the same result run it once. Guarded by this. */
+	private final Map<Key, Pending> pending = new HashMap<>();
+	/** sum of the sizes of the entries. Guarded by this. */
+	private long size;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder joins = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+
+	/** @param maxBytes the most (estimated) bytes of results to keep */
+	public ConfigQueryCache(long maxBytes) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("maxBytes must be > 0");
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 Gets the result of the query on the file, running the query with {@link ConfigFile#newCursor()} if the result
+	 isn't cached or the file changed since it was cached.
+
+	 @return the cached or new result
+	 @throws ConfigStreamException when the query couldn't read the file
+	 */
+	@NotNull
+	public Result get(@NotNull ConfigFile file, @NotNull ConfigQuery.CompiledQuery query) throws ConfigStreamException {
+		File path = file.getFile().getAbsoluteFile();
+		long fileSize = path.length();
+		long lastModified = path.lastModified();
+		Key key = new Key(path, query);
+		CompletableFuture<Result> future;
+		Pending running;
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				if (entry.fileSize == fileSize && entry.lastModified == lastModified) {
+					hits.increment();
+					ConfigMetrics.add(ConfigMetrics.Counter.CacheHits, 1);
+					return entry.result;
+				}
+				entries.remove(key);
+				size -= entry.result.getSizeInBytes();
+				invalidations.increment();
+			}
+			running = pending.get(key);
+			if (running != null && running.fileSize == fileSize && running.lastModified == lastModified) {
+				joins.increment();
+				future = running.future;
+			} else {
+				misses.increment();
+				future = null;
+				running = new Pending(fileSize, lastModified);
+				pending.put(key, running);
+			}
+		}
+		if (future != null) {
+			return join(future);
+		}
+		return run(file, key, running);
+	}
+
+	/** Drops the cached results of the file */
+	public synchronized void invalidate(@NotNull File file) {
+		File path = file.getAbsoluteFile();
+		Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<Key, Entry> e = it.next();
+			if (e.getKey().file.equals(path)) {
+				it.remove();
+				size -= e.getValue().result.getSizeInBytes();
+				invalidations.increment();
+			}
+		}
+	}
+
+	/** Drops every cached result. The statistics are kept. */
+	public synchronized void clear() {
+		entries.clear();
+		size = 0;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/** @return estimated bytes of the cached results */
+	public synchronized long getSizeInBytes() {
+		return size;
+	}
+
+	public synchronized int getEntryCount() {
+		return entries.size();
+	}
+
+	/** @return amount of lookups that returned a cached result */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/** @return amount of lookups that ran the query */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/** @return amount of lookups that waited for another thread running the same query */
+	public long getJoinCount() {
+		return joins.sum();
+	}
+
+	/** @return amount of results dropped to make room for newer ones */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/** @return amount of results dropped because their file changed or {@link #invalidate(File)} was invoked */
+	public long getInvalidationCount() {
+		return invalidations.sum();
+	}
+
+	/** @return (hits + joins) / lookups, or 0 if there were no lookups */
+	public double getHitRate() {
+		long hits = getHitCount() + getJoinCount();
+		long total = hits + getMissCount();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	@Override
+	public String toString() {
+		return "ConfigQueryCache{entries=" + getEntryCount() + ", bytes=" + getSizeInBytes() + ", hits=" + getHitCount() +
+				", misses=" + getMissCount() + ", joins=" + getJoinCount() + ", evictions=" + getEvictionCount() +
+				", invalidations=" + getInvalidationCount() + "}";
+	}
+
+	@NotNull
+	private Result run(@NotNull ConfigFile file, @NotNull Key key, @NotNull Pending running) throws ConfigStreamException {
+		Result result;
+		try {
+			result = Result.record(new ConfigQuery(key.query).query(file.newCursor()));
+		} catch (ConfigStreamException | RuntimeException | Error e) {
+			synchronized (this) {
+				pending.remove(key, running);
+			}
+			running.future.completeExceptionally(e);
+			throw e;
+		}
+		synchronized (this) {
+			pending.remove(key, running);
+			long resultSize = result.getSizeInBytes();
+			if (resultSize <= maxBytes) {
+				Entry old = entries.put(key, new Entry(result, running.fileSize, running.lastModified));
+				if (old != null) {
+					size -= old.result.getSizeInBytes();
+				}
+				size += resultSize;
+				evict();
+			}
+		}
+		running.future.complete(result);
+		return result;
+	}
+
+	/** Removes the least recently used entries until the size fits */
+	private void evict() {
+		Iterator<Entry> it = entries.values().iterator();
+		while (size > maxBytes && it.hasNext()) {
+			size -= it.next().result.getSizeInBytes();
+			it.remove();
+			evictions.increment();
+		}
+	}
+
+	@NotNull
+	private static Result join(@NotNull CompletableFuture<Result> future) throws ConfigStreamException {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof ConfigStreamException) {
+				throw new ConfigStreamException(cause.getMessage(), cause);
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	private static final class Key {
+		private final File file;
+		private final ConfigQuery.CompiledQuery query;
+		private final int hash;
+
+		Key(@NotNull File file, @NotNull ConfigQuery.CompiledQuery query) {
+			this.file = file;
+			this.query = query;
+			this.hash = 31 * file.hashCode() + query.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return hash == other.hash && file.equals(other.file) && query.equals(other.query);
+		}
+	}
+
+	private static final class Entry {
+		private final Result result;
+		private final long fileSize;
+		private final long lastModified;
+
+		Entry(@NotNull Result result, long fileSize, long lastModified) {
+			this.result = result;
+			this.fileSize = fileSize;
+			this.lastModified = lastModified;
+		}
+	}
+
+	private static final class Pending {
+		private final CompletableFuture<Result> future = new CompletableFuture<>();
+		private final long fileSize;
+		private final long lastModified;
+
+		Pending(long fileSize, long lastModified) {
+			this.fileSize = fileSize;
+			this.lastModified = lastModified;
+		}
+	}
+
+	/**
+	 The entries matched by a query, in the order {@link ConfigQuery#query(ConfigCursor)} returned them. Names and
+	 texts are kept once per result in a string table, and each entry takes a type byte, a name index and a
+	 payload (a scalar's bits, or a string or array index), instead of an object per entry.
+	 */
+	public static final class Result {
+		private static final byte CLASS = 0;
+		private static final byte END_CLASS = 1;
+		private static final byte SCALAR = 2;
+		private static final byte TEXT = 3;
+		private static final byte ARRAY = 4;
+
+		private final byte[] types;
+		/** index in {@link #strings} of the class name or field key, or -1 */
+		private final int[] names;
+		/** parent class name index (or -1), scalar bits, text index or array index, depending on the type */
+		private final long[] payloads;
+		private final String[] strings;
+		private final ConfigFieldValue.Array[] arrays;
+		private final long sizeInBytes;
+
+		private Result(@NotNull byte[] types, @NotNull int[] names, @NotNull long[] payloads, @NotNull String[] strings, @NotNull ConfigFieldValue.Array[] arrays, long sizeInBytes) {
+			this.types = types;
+			this.names = names;
+			this.payloads = payloads;
+			this.strings = strings;
+			this.arrays = arrays;
+			this.sizeInBytes = sizeInBytes;
+		}
+
+		/** Reads the cursor to its end */
+		@NotNull
+		static Result record(@NotNull ConfigCursor cursor) throws ConfigStreamException {
+			Recorder recorder = new Recorder();
+			ConfigStreamItem.Type type;
+			while ((type = cursor.advance()) != ConfigStreamItem.Type.EndStream) {
+				recorder.add(type, cursor);
+			}
+			return recorder.finish();
+		}
+
+		/** @return a new cursor over the entries */
+		@NotNull
+		public ConfigCursor newCursor() {
+			return new ResultCursor();
+		}
+
+		/** @return a new stream over the entries */
+		@NotNull
+		public ConfigStream newStream() {
+			return new ConfigCursorStream(newCursor());
+		}
+
+		/** @return amount of entries, counting {@link ConfigStreamItem.Type#EndClass} markers */
+		public int getEntryCount() {
+			return types.length;
+		}
+
+		/** @return estimated heap bytes of the result */
+		public long getSizeInBytes() {
+			return sizeInBytes;
+		}
+
+		private static final class Recorder {
+			private byte[] types = new byte[64];
+			private int[] names = new int[64];
+			private long[] payloads = new long[64];
+			private int count;
+			private final Map<String, Integer> stringIndexes = new HashMap<>();
+			private final List<String> strings = new ArrayList<>();
+			private final List<ConfigFieldValue.Array> arrays = new ArrayList<>();
+			private long valueBytes;
+
+			void add(@NotNull ConfigStreamItem.Type type, @NotNull ConfigCursor cursor) {
+				switch (type) {
+					case Class: {
+						CharSequence parentClassName = cursor.parentClassName();
+						add(CLASS, string(cursor.name()), parentClassName == null ? -1 : string(parentClassName));
+						break;
+					}
+					case EndClass: {
+						add(END_CLASS, -1, -1);
+						break;
+					}
+					case Field: {
+						int name = string(cursor.name());
+						switch (cursor.valueType()) {
+							case Scalar: {
+								add(SCALAR, name, Double.doubleToRawLongBits(cursor.scalarValue()));
+								break;
+							}
+							case Text: {
+								add(TEXT, name, string(cursor.textValue()));
+								break;
+							}
+							case Array: {
+								arrays.add(copy((ConfigFieldValue.Array) cursor.value()));
+								add(ARRAY, name, arrays.size() - 1);
+								break;
+							}
+							default: {
+								throw new IllegalStateException();
+							}
+						}
+						break;
+					}
+					default: {
+						throw new IllegalStateException();
+					}
+				}
+			}
+
+			@NotNull
+			Result finish() {
+				long size = 80 + count * 13L + 16 * 3;
+				for (String s : strings) {
+					size += 8 + 24 + 16 + s.length();
+				}
+				size += valueBytes;
+				return new Result(
+						Arrays.copyOf(types, count), Arrays.copyOf(names, count), Arrays.copyOf(payloads, count),
+						strings.toArray(new String[0]), arrays.toArray(new ConfigFieldValue.Array[0]), size
+				);
+			}
+
+			private void add(byte type, int name, long payload) {
+				if (count == types.length) {
+					types = Arrays.copyOf(types, count * 2);
+					names = Arrays.copyOf(names, count * 2);
+					payloads = Arrays.copyOf(payloads, count * 2);
+				}
+				types[count] = type;
+				names[count] = name;
+				payloads[count] = payload;
+				count++;
+			}
+
+			private int string(@NotNull CharSequence chars) {
+				String s = ConfigStringPool.getShared().intern(chars);
+				Integer index = stringIndexes.get(s);
+				if (index == null) {
+					index = strings.size();
+					strings.add(s);
+					stringIndexes.put(s, index);
+				}
+				return index;
+			}
+
+			/** @return a copy of the array that doesn't reference the file it was read from */
+			@NotNull
+			private ConfigFieldValue.Array copy(@NotNull ConfigFieldValue.Array array) {
+				int length = array.getLength();
+				List<ConfigFieldValue> values = new ArrayList<>(length);
+				for (int i = 0; i < length; i++) {
+					ConfigFieldValue v = array.getValue(i);
+					if (v instanceof ConfigFieldValue.Scalar) {
+						values.add(v);
+						valueBytes += 8;
+					} else if (v instanceof ConfigFieldValue.Text) {
+						String text = ConfigStringPool.getShared().intern(((ConfigFieldValue.Text) v).getChars());
+						values.add(new ConfigFieldValue.Text(text));
+						valueBytes += 8 + 24 + 16 + text.length();
+					} else {
+						values.add(copy((ConfigFieldValue.Array) v));
+					}
+				}
+				valueBytes += 32;
+				return ConfigFieldValue.Array.of(values);
+			}
+		}
+
+		private final class ResultCursor implements ConfigCursor {
+			/** index of the current entry */
+			private int index = -1;
+			private ConfigStreamItem.Type type;
+			/** amount of open classes */
+			private int depth;
+
+			@Override
+			@NotNull
+			public ConfigStreamItem.Type advance() {
+				if (index < types.length) {
+					index++;
+				}
+				if (index == types.length) {
+					type = ConfigStreamItem.Type.EndStream;
+					return type;
+				}
+				switch (types[index]) {
+					case CLASS: {
+						depth++;
+						type = ConfigStreamItem.Type.Class;
+						break;
+					}
+					case END_CLASS: {
+						depth--;
+						type = ConfigStreamItem.Type.EndClass;
+						break;
+					}
+					default: {
+						type = ConfigStreamItem.Type.Field;
+						break;
+					}
+				}
+				return type;
+			}
+
+			@Override
+			@Nullable
+			public ConfigStreamItem.Type type() {
+				return type;
+			}
+
+			@Override
+			@NotNull
+			public CharSequence name() {
+				if (type != ConfigStreamItem.Type.Class && type != ConfigStreamItem.Type.Field) {
+					throw new IllegalStateException("not on a class or field");
+				}
+				return strings[names[index]];
+			}
+
+			@Override
+			@Nullable
+			public CharSequence parentClassName() {
+				if (type != ConfigStreamItem.Type.Class) {
+					throw new IllegalStateException("not on a class");
+				}
+				int parent = (int) payloads[index];
+				return parent < 0 ? null : strings[parent];
+			}
+
+			@Override
+			@NotNull
+			public ByteBuffer nameBytes() {
+				return StandardCharsets.UTF_8.encode(name().toString());
+			}
+
+			@Override
+			@NotNull
+			public ValueType valueType() {
+				if (type != ConfigStreamItem.Type.Field) {
+					return ValueType.None;
+				}
+				switch (types[index]) {
+					case SCALAR: {
+						return ValueType.Scalar;
+					}
+					case TEXT: {
+						return ValueType.Text;
+					}
+					default: {
+						return ValueType.Array;
+					}
+				}
+			}
+
+			@Override
+			public double scalarValue() {
+				return Double.longBitsToDouble(payload(ValueType.Scalar));
+			}
+
+			@Override
+			@NotNull
+			public CharSequence textValue() {
+				return strings[(int) payload(ValueType.Text)];
+			}
+
+			@Override
+			public int arrayLength() {
+				return arrays[(int) payload(ValueType.Array)].getLength();
+			}
+
+			@Override
+			@NotNull
+			public ConfigFieldValue value() {
+				switch (valueType()) {
+					case Scalar: {
+						return new ConfigFieldValue.Scalar(scalarValue());
+					}
+					case Text: {
+						return new ConfigFieldValue.Text(strings[(int) payloads[index]]);
+					}
+					case Array: {
+						return arrays[(int) payloads[index]];
+					}
+					default: {
+						throw new IllegalStateException("not on a field");
+					}
+				}
+			}
+
+			@Override
+			public void skipCurrentClass() {
+				if (depth == 0) {
+					index = types.length - 1;
+					return;
+				}
+				//move to the entry before the EndClass of the innermost open class, so it is returned next
+				int nested = 0;
+				int i = index + 1;
+				for (; i < types.length; i++) {
+					if (types[i] == CLASS) {
+						nested++;
+					} else if (types[i] == END_CLASS) {
+						if (nested == 0) {
+							break;
+						}
+						nested--;
+					}
+				}
+				index = i - 1;
+			}
+
+			private long payload(@NotNull ValueType expected) {
+				if (valueType() != expected) {
+					throw new IllegalStateException("value isn't " + expected);
+				}
+				return payloads[index];
+			}
+		}
+	}
+}
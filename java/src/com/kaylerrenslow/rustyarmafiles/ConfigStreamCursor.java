@@ -0,0 +1,131 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ A {@link ConfigCursor} over a {@link ConfigStream}, for streams that don't have a cursor of their own
+ (for example the native rapified streams). Since the stream already creates an item per entry, this cursor
+ doesn't avoid any allocation. It only lets such streams be used wherever a cursor is expected.
+
+ @author K
+ @since 01/20/2019 */
+public class ConfigStreamCursor implements ConfigCursor {
+	private final ConfigStream stream;
+	private ConfigStreamItem item;
+
+	public ConfigStreamCursor(@NotNull ConfigStream stream) {
+		this.stream = stream;
+	}
+
+	@Override
+	@NotNull
+	public ConfigStreamItem.Type advance() throws ConfigStreamException {
+		if (item != null && item.getType() == ConfigStreamItem.Type.EndStream) {
+			return ConfigStreamItem.Type.EndStream;
+		}
+		item = stream.hasNext() ? stream.next() : ConfigStreamItem.EndStreamItem.INSTANCE;
+		return item.getType();
+	}
+
+	@Override
+	@Nullable
+	public ConfigStreamItem.Type type() {
+		return item == null ? null : item.getType();
+	}
+
+	@Override
+	@NotNull
+	public CharSequence name() {
+		if (item instanceof ConfigStreamItem.ClassItem) {
+			return ((ConfigStreamItem.ClassItem) item).getClassName();
+		}
+		return field().getKey();
+	}
+
+	@Override
+	@Nullable
+	public CharSequence parentClassName() {
+		if (!(item instanceof ConfigStreamItem.ClassItem)) {
+			throw new IllegalStateException("not on a class");
+		}
+		return ((ConfigStreamItem.ClassItem) item).getParentClassName();
+	}
+
+	@Override
+	@NotNull
+	public ByteBuffer nameBytes() {
+		return StandardCharsets.UTF_8.encode(name().toString());
+	}
+
+	@Override
+	@NotNull
+	public ValueType valueType() {
+		if (!(item instanceof ConfigStreamItem.FieldItem)) {
+			return ValueType.None;
+		}
+		ConfigFieldValue value = ((ConfigStreamItem.FieldItem) item).getValue();
+		if (value instanceof ConfigFieldValue.Scalar) {
+			return ValueType.Scalar;
+		}
+		if (value instanceof ConfigFieldValue.Text) {
+			return ValueType.Text;
+		}
+		return ValueType.Array;
+	}
+
+	@Override
+	public double scalarValue() {
+		return ((ConfigFieldValue.Scalar) value(ValueType.Scalar)).getValue();
+	}
+
+	@Override
+	@NotNull
+	public CharSequence textValue() {
+		return ((ConfigFieldValue.Text) value(ValueType.Text)).getChars();
+	}
+
+	@Override
+	public int arrayLength() {
+		return ((ConfigFieldValue.Array) value(ValueType.Array)).getLength();
+	}
+
+	@Override
+	@NotNull
+	public ConfigFieldValue value() {
+		return field().getValue();
+	}
+
+	@Override
+	public void skipCurrentClass() {
+		stream.skipCurrentClass();
+	}
+
+	/** @return the item of the current entry */
+	@NotNull
+	ConfigStreamItem currentItem() {
+		if (item == null) {
+			throw new IllegalStateException("advance() hasn't been invoked");
+		}
+		return item;
+	}
+
+	@NotNull
+	private ConfigStreamItem.FieldItem field() {
+		if (!(item instanceof ConfigStreamItem.FieldItem)) {
+			throw new IllegalStateException("not on a field");
+		}
+		return (ConfigStreamItem.FieldItem) item;
+	}
+
+	@NotNull
+	private ConfigFieldValue value(@NotNull ValueType expected) {
+		if (valueType() != expected) {
+			throw new IllegalStateException("value isn't " + expected);
+		}
+		return field().getValue();
+	}
+}
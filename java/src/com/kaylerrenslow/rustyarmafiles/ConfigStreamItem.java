@@ -1,6 +1,7 @@
 package com.kaylerrenslow.rustyarmafiles;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  @author K
@@ -37,9 +38,17 @@ public interface ConfigStreamItem {
 	class ClassItem implements ConfigStreamItem {
 
 		private final String className;
+		private final String parentClassName;
 
 		public ClassItem(@NotNull String className) {
-			this.className = className;
+			this(className, null);
+		}
+
+		/** The names are interned with {@link ConfigStringPool#getShared()}, since native streams create new strings. */
+		public ClassItem(@NotNull String className, @Nullable String parentClassName) {
+			ConfigStringPool pool = ConfigStringPool.getShared();
+			this.className = pool.intern(className);
+			this.parentClassName = parentClassName == null ? null : pool.intern(parentClassName);
 		}
 
 		@NotNull
@@ -47,6 +56,12 @@ public interface ConfigStreamItem {
 			return className;
 		}
 
+		/** @return the name of the class this class inherits, or null if it doesn't inherit a class */
+		@Nullable
+		public String getParentClassName() {
+			return parentClassName;
+		}
+
 		@Override
 		@NotNull
 		public Type getType() {
@@ -71,8 +86,20 @@ public interface ConfigStreamItem {
 		private final String key;
 		private final ConfigFieldValue value;
 
+		/**
+		 The key and a plain {@link ConfigFieldValue.Text} value are interned with {@link ConfigStringPool#getShared()},
+		 since native streams create new strings. Other values are kept as they are.
+		 */
 		public FieldItem(@NotNull String key, @NotNull ConfigFieldValue value) {
-			this.key = key;
+			ConfigStringPool pool = ConfigStringPool.getShared();
+			this.key = pool.intern(key);
+			if (value.getClass() == ConfigFieldValue.Text.class) {
+				String text = ((ConfigFieldValue.Text) value).getText();
+				String pooled = pool.intern(text);
+				if (pooled != text) {
+					value = new ConfigFieldValue.Text(pooled);
+				}
+			}
 			this.value = value;
 		}
 
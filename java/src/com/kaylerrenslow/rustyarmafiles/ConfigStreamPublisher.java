@@ -0,0 +1,222 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ A {@link Flow.Publisher} of the items of a {@link ConfigStream}, optionally filtered by a {@link ConfigQuery}.
+ <p>
+ Every subscriber gets its own stream from the stream supplier (for example {@link ConfigFile#newStream()}).
+ A read task reads up to readAhead items ahead of the subscriber's demand, and stops until the subscriber has
+ taken some of them. Items are delivered by a separate task, so a slow subscriber never blocks reading and reading
+ never runs on the subscriber's thread. Both tasks run on the given executor.
+ <p>
+ The {@link ConfigStreamItem.Type#EndStream} item isn't published; {@link Flow.Subscriber#onComplete()} is invoked
+ instead. A {@link ConfigStreamException} (or any other exception from the stream) is passed to
+ {@link Flow.Subscriber#onError(Throwable)} once the items read before it are delivered. Cancelling stops the read
+ task before it reads the next item.
+
+ @author K
+ @since 01/31/2019 */
+public class ConfigStreamPublisher implements Flow.Publisher<ConfigStreamItem> {
+	public static final int DEFAULT_READ_AHEAD = 256;
+
+	private final Supplier<ConfigStream> streamSupplier;
+	private final ConfigQuery query;
+	private final Executor executor;
+	private final int readAhead;
+
+	/** Creates a publisher that runs on {@link ForkJoinPool#commonPool()} */
+	public ConfigStreamPublisher(@NotNull Supplier<ConfigStream> streamSupplier) {
+		this(streamSupplier, null, ForkJoinPool.commonPool(), DEFAULT_READ_AHEAD);
+	}
+
+	/**
+	 @param streamSupplier creates the stream of each subscriber
+	 @param query          if not null, only the items matched by this query are published
+	 @param executor       runs the read and delivery tasks
+	 @param readAhead      the most items that are read and not yet delivered, per subscriber
+	 */
+	public ConfigStreamPublisher(@NotNull Supplier<ConfigStream> streamSupplier, @Nullable ConfigQuery.CompiledQuery query, @NotNull Executor executor, int readAhead) {
+		if (readAhead < 1) {
+			throw new IllegalArgumentException("readAhead must be >= 1");
+		}
+		this.streamSupplier = streamSupplier;
+		this.query = query == null ? null : new ConfigQuery(query);
+		this.executor = executor;
+		this.readAhead = readAhead;
+	}
+
+	@Override
+	public void subscribe(@NotNull Flow.Subscriber<? super ConfigStreamItem> subscriber) {
+		StreamSubscription subscription = new StreamSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+		subscription.startReading();
+	}
+
+	private final class StreamSubscription implements Flow.Subscription {
+		private final Flow.Subscriber<? super ConfigStreamItem> subscriber;
+		/** items read and not delivered yet. Guarded by this. */
+		private final ArrayDeque<ConfigStreamItem> buffer = new ArrayDeque<>();
+		/** true while a read task is scheduled or running. Guarded by this. */
+		private boolean reading;
+		/** true once the stream ended or failed. Guarded by this. */
+		private boolean readDone;
+		/** why reading failed, or null. Guarded by this. */
+		private Throwable readError;
+
+		private final AtomicLong demand = new AtomicLong();
+		/** amount of times delivery was requested, so only one delivery task runs at once */
+		private final AtomicInteger deliveryRequests = new AtomicInteger();
+		private volatile boolean cancelled;
+		/** only used by the delivery task */
+		private boolean terminated;
+		/** only used by the read task */
+		private ConfigStream stream;
+
+		StreamSubscription(@NotNull Flow.Subscriber<? super ConfigStreamItem> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				synchronized (this) {
+					readError = new IllegalArgumentException("non-positive request: " + n);
+					readDone = true;
+					buffer.clear();
+				}
+				scheduleDelivery();
+				return;
+			}
+			demand.accumulateAndGet(n, (a, b) -> a + b < 0 ? Long.MAX_VALUE : a + b);
+			scheduleDelivery();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			synchronized (this) {
+				buffer.clear();
+			}
+		}
+
+		void startReading() {
+			synchronized (this) {
+				if (reading || readDone) {
+					return;
+				}
+				reading = true;
+			}
+			executor.execute(this::read);
+		}
+
+		private void read() {
+			try {
+				if (stream == null) {
+					ConfigStream s = streamSupplier.get();
+					stream = query == null ? s : query.query(s);
+				}
+				for (; ; ) {
+					synchronized (this) {
+						if (cancelled || readDone || buffer.size() >= readAhead) {
+							reading = false;
+							return;
+						}
+					}
+					ConfigStreamItem item = stream.next();
+					boolean end = item.getType() == ConfigStreamItem.Type.EndStream;
+					synchronized (this) {
+						if (readDone) {
+							//failed by an invalid request meanwhile
+							reading = false;
+							return;
+						}
+						if (end) {
+							readDone = true;
+							reading = false;
+						} else if (!cancelled) {
+							buffer.add(item);
+						}
+					}
+					scheduleDelivery();
+					if (end) {
+						return;
+					}
+				}
+			} catch (Throwable t) {
+				synchronized (this) {
+					readError = t;
+					readDone = true;
+					reading = false;
+				}
+				scheduleDelivery();
+			}
+		}
+
+		private void scheduleDelivery() {
+			if (deliveryRequests.getAndIncrement() == 0) {
+				executor.execute(this::deliver);
+			}
+		}
+
+		private void deliver() {
+			int requests = deliveryRequests.get();
+			for (; ; ) {
+				deliverAvailable();
+				requests = deliveryRequests.addAndGet(-requests);
+				if (requests == 0) {
+					return;
+				}
+			}
+		}
+
+		private void deliverAvailable() {
+			while (!terminated) {
+				if (cancelled) {
+					terminated = true;
+					return;
+				}
+				ConfigStreamItem item;
+				boolean done;
+				Throwable error;
+				boolean resumeReading;
+				synchronized (this) {
+					done = readDone;
+					error = readError;
+					item = demand.get() > 0 ? buffer.poll() : null;
+					resumeReading = item != null && !reading && !readDone && buffer.size() < readAhead;
+				}
+				if (resumeReading) {
+					startReading();
+				}
+				if (item != null) {
+					demand.decrementAndGet();
+					subscriber.onNext(item);
+					continue;
+				}
+				if (done && isBufferEmpty()) {
+					terminated = true;
+					if (error != null) {
+						subscriber.onError(error);
+					} else {
+						subscriber.onComplete();
+					}
+				}
+				return;
+			}
+		}
+
+		private synchronized boolean isBufferEmpty() {
+			return buffer.isEmpty();
+		}
+	}
+}
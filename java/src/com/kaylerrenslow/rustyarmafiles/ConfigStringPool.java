@@ -0,0 +1,209 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ A bounded, thread safe pool of the strings that repeat across config files, such as class names, field keys and
+ short text values (scope, displayName, model, author...). The readers of every format get their names and short
+ values from {@link #getShared()}, so a string that occurs a million times across a modpack is kept once.
+ <p>
+ Strings can be looked up by their UTF-8 bytes (for rapified files) or by their chars (for text files). Both hash a
+ string the same way as {@link String#hashCode()}, so the two share entries, and a hit creates nothing.
+ <p>
+ The pool is a fixed size table where each hash maps to two slots. A miss replaces the older string of the two,
+ so the pool never grows and never locks, at the cost of sometimes forgetting a string that is still in use.
+ Strings longer than {@link #getMaxLength()} chars are never pooled, since they rarely repeat.
+
+ @author K
+ @since 02/02/2019 */
+public class ConfigStringPool {
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+	public static final int DEFAULT_MAX_LENGTH = 64;
+
+	private static final ConfigStringPool SHARED = new ConfigStringPool(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+
+	private final AtomicReferenceArray<String> slots;
+	private final int mask;
+	private final int maxLength;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder bytesSaved = new LongAdder();
+
+	/**
+	 @param capacity  amount of strings the pool can hold. Rounded up to a power of two.
+	 @param maxLength strings with more chars than this aren't pooled
+	 */
+	public ConfigStringPool(int capacity, int maxLength) {
+		int size = 2;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		this.slots = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+		this.maxLength = maxLength;
+	}
+
+	/** @return the pool used by all readers */
+	@NotNull
+	public static ConfigStringPool getShared() {
+		return SHARED;
+	}
+
+	public int getMaxLength() {
+		return maxLength;
+	}
+
+	/**
+	 A string that already is the pooled one is returned as is and isn't counted as a hit, so a string that is interned
+	 again (for example by a reader and then by the constructor of a {@link ConfigStreamItem}) doesn't skew the counts.
+
+	 @return the pooled string equal to the chars, which is only created if it isn't pooled
+	 */
+	@NotNull
+	public String intern(@NotNull CharSequence chars) {
+		int length = chars.length();
+		if (length == 0) {
+			return "";
+		}
+		if (length > maxLength) {
+			return chars.toString();
+		}
+		int hash = 0;
+		if (chars instanceof String) {
+			hash = chars.hashCode();
+		} else {
+			for (int i = 0; i < length; i++) {
+				hash = 31 * hash + chars.charAt(i);
+			}
+		}
+		int slot = slot(hash);
+		for (int i = 0; i < 2; i++) {
+			String s = slots.get(slot ^ i);
+			if (s == chars) {
+				return s;
+			}
+			if (s != null && s.hashCode() == hash && s.contentEquals(chars)) {
+				hit(s);
+				return s;
+			}
+		}
+		return add(slot, chars.toString());
+	}
+
+	/**
+	 @param bytes  buffer with the UTF-8 bytes. Its position and limit are ignored.
+	 @param offset absolute offset of the first byte
+	 @param length amount of bytes
+	 @return the pooled string of the bytes, which is only created if it isn't pooled
+	 */
+	@NotNull
+	public String intern(@NotNull ByteBuffer bytes, int offset, int length) {
+		if (length == 0) {
+			return "";
+		}
+		if (length > maxLength * 3) {
+			return Utf8.decode(bytes, offset, length);
+		}
+		int end = offset + length;
+		long scan = Utf8.scan(bytes, offset, end);
+		if ((scan & Utf8.MALFORMED) != 0) {
+			//let the decoder replace it
+			return add(-1, Utf8.decode(bytes, offset, length));
+		}
+		int hash = Utf8.hash(scan);
+		int charCount = Utf8.charCount(scan);
+		if (charCount > maxLength) {
+			return Utf8.decode(bytes, offset, length);
+		}
+		int slot = slot(hash);
+		for (int i = 0; i < 2; i++) {
+			String s = slots.get(slot ^ i);
+			if (s != null && s.hashCode() == hash && s.length() == charCount && Utf8.equals(bytes, offset, end, s, false)) {
+				hit(s);
+				return s;
+			}
+		}
+		return add(slot, Utf8.decode(bytes, offset, length));
+	}
+
+	/** @return amount of lookups that found a pooled string */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/** @return amount of lookups that had to create a string, not counting strings too long to pool */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/** @return hits / (hits + misses), or 0 if there were no lookups */
+	public double getHitRate() {
+		long hits = getHitCount();
+		long total = hits + getMissCount();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/** @return estimated heap bytes of the strings that weren't created thanks to hits */
+	public long getBytesSaved() {
+		return bytesSaved.sum();
+	}
+
+	/** Forgets every pooled string and resets the statistics */
+	public void clear() {
+		for (int i = 0; i < slots.length(); i++) {
+			slots.set(i, null);
+		}
+		hits.reset();
+		misses.reset();
+		bytesSaved.reset();
+	}
+
+	@Override
+	public String toString() {
+		return "ConfigStringPool{hits=" + getHitCount() + ", misses=" + getMissCount() + ", hitRate=" + getHitRate() +
+				", bytesSaved=" + getBytesSaved() + "}";
+	}
+
+	private int slot(int hash) {
+		//spread the bits, since String hashes of short names differ mostly in the low bits
+		int h = hash * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & mask;
+	}
+
+	private void hit(@NotNull String s) {
+		hits.increment();
+		bytesSaved.add(shallowSize(s));
+	}
+
+	/**
+	 @param slot first of the two slots of the hash, or -1 to not pool the string
+	 @return s
+	 */
+	@NotNull
+	private String add(int slot, @NotNull String s) {
+		misses.increment();
+		if (slot < 0) {
+			return s;
+		}
+		//fill the empty slot of the two, otherwise replace the first one and move the first one to the second
+		if (slots.compareAndSet(slot, null, s) || slots.compareAndSet(slot ^ 1, null, s)) {
+			return s;
+		}
+		slots.set(slot ^ 1, slots.getAndSet(slot, s));
+		return s;
+	}
+
+	/** @return estimated heap size of the string: its object, its array header and its Latin-1 or UTF-16 chars */
+	private static long shallowSize(@NotNull String s) {
+		boolean latin1 = true;
+		for (int i = 0; i < s.length() && latin1; i++) {
+			latin1 = s.charAt(i) < 0x100;
+		}
+		long chars = latin1 ? s.length() : s.length() * 2L;
+		return 24 + ((16 + chars + 7) & ~7L);
+	}
+}
@@ -0,0 +1,155 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ A {@link ConfigClass} that is the same class path declared in one or more files, applied in load order the way
+ class updates work in Arma: a later declaration replaces fields and adds new entries, and embedded classes with the
+ same name are merged recursively.
+ <p>
+ Nothing is copied. Field values and fields are the instances of the files they come from, and embedded classes are
+ only wrapped (and memoized) once they are requested, so a subtree that only one file declares costs one small
+ wrapper per class that is actually visited. The wrapper is needed so inheritance resolves across files.
+
+ @author K
+ @since 01/23/2019 */
+class MergedConfigClass implements ConfigClass {
+	private static final Object NOT_FOUND = new Object();
+
+	/** the declarations of this class, in load order */
+	private final ConfigClass[] layers;
+	private final String className;
+	private final MergedConfigClass outerClass;
+	private final ConfigClassHierarchy hierarchy;
+	/** class name to {@link MergedConfigClass}, or {@link #NOT_FOUND} */
+	private final Map<String, Object> classes = new ConcurrentHashMap<>();
+
+	MergedConfigClass(@NotNull ConfigClass[] layers, @NotNull String className, @Nullable MergedConfigClass outerClass, @NotNull ConfigClassHierarchy hierarchy) {
+		this.layers = layers;
+		this.className = className;
+		this.outerClass = outerClass;
+		this.hierarchy = hierarchy;
+	}
+
+	@Override
+	@NotNull
+	public String getClassName() {
+		return className;
+	}
+
+	/** @return the parent named by the last declaration that names one */
+	@Override
+	@Nullable
+	public String getParentClassName() {
+		for (int i = layers.length - 1; i >= 0; i--) {
+			String parentClassName = layers[i].getParentClassName();
+			if (parentClassName != null) {
+				return parentClassName;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	@Nullable
+	public ConfigClass getOuterClass() {
+		return outerClass;
+	}
+
+	@Override
+	@NotNull
+	public ConfigClassHierarchy getHierarchy() {
+		return hierarchy;
+	}
+
+	@Override
+	@NotNull
+	public ConfigStream newStream() {
+		return new ConfigCursorStream(newCursor());
+	}
+
+	@Override
+	@NotNull
+	public ConfigCursor newCursor() {
+		return new ConfigClassCursor(this);
+	}
+
+	@Override
+	@Nullable
+	public ConfigClass getClass(@NotNull String className) {
+		Object merged = classes.get(className);
+		if (merged == null) {
+			List<ConfigClass> declarations = new ArrayList<>(1);
+			for (ConfigClass layer : layers) {
+				ConfigEntry entry = layer.getEntry(className);
+				if (entry == null) {
+					continue;
+				}
+				if (entry.isClass()) {
+					declarations.add((ConfigClass) entry);
+				} else {
+					//a later field with the same name replaces the class
+					declarations.clear();
+				}
+			}
+			merged = declarations.isEmpty() ? NOT_FOUND : new MergedConfigClass(declarations.toArray(new ConfigClass[0]), className, this, hierarchy);
+			Object existing = classes.putIfAbsent(className, merged);
+			if (existing != null) {
+				merged = existing;
+			}
+		}
+		return merged == NOT_FOUND ? null : (ConfigClass) merged;
+	}
+
+	@Override
+	@Nullable
+	public ConfigFieldValue getFieldValue(@NotNull String key) {
+		for (int i = layers.length - 1; i >= 0; i--) {
+			ConfigEntry entry = layers[i].getEntry(key);
+			if (entry != null) {
+				return entry.isField() ? ((ConfigField) entry).getValue() : null;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	@Nullable
+	public ConfigEntry getEntry(@NotNull String name) {
+		for (int i = layers.length - 1; i >= 0; i--) {
+			ConfigEntry entry = layers[i].getEntry(name);
+			if (entry != null) {
+				return entry.isField() ? entry : getClass(name);
+			}
+		}
+		return null;
+	}
+
+	/** @return the entries of every declaration, in the order they first appear. A later declaration replaces fields. */
+	@Override
+	@NotNull
+	public List<ConfigEntry> getEntries() {
+		if (layers.length == 1) {
+			List<ConfigEntry> entries = new ArrayList<>();
+			for (ConfigEntry entry : layers[0].getEntries()) {
+				entries.add(entry.isClass() ? getClass(entry.getName()) : entry);
+			}
+			return entries;
+		}
+		Map<String, ConfigEntry> merged = new LinkedHashMap<>();
+		for (ConfigClass layer : layers) {
+			for (ConfigEntry entry : layer.getEntries()) {
+				merged.put(entry.getName(), entry);
+			}
+		}
+		List<ConfigEntry> entries = new ArrayList<>(merged.size());
+		for (ConfigEntry entry : merged.values()) {
+			entries.add(entry.isClass() ? getClass(entry.getName()) : entry);
+		}
+		return entries;
+	}
+}
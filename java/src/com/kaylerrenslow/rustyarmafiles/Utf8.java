@@ -0,0 +1,185 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ UTF-8 helpers that read bytes of a {@link ByteBuffer} in place, by absolute offset, so strings can be hashed and
+ compared without decoding them into a {@link String}.
+ <p>
+ Overlong encodings, surrogates and truncated sequences are malformed. Malformed bytes are always decoded by
+ {@link #decode(ByteBuffer, int, int)}, so they are replaced the same way no matter which reader decodes them.
+
+ @author K
+ @since 02/03/2019 */
+public final class Utf8 {
+	/** {@link #scan} result bit: the bytes aren't valid UTF-8 */
+	static final long MALFORMED = 1L << 32;
+	/** {@link #scan} result bit: every byte is ASCII, so byte i is char i */
+	static final long ASCII = 1L << 33;
+
+	private Utf8() {
+	}
+
+	/**
+	 Reads the bytes once.
+
+	 @return the {@link String#hashCode()} of the decoded chars in the low 32 bits, {@link #ASCII} or
+	 {@link #MALFORMED}, and the amount of chars in the bits above those (see {@link #hash(long)} and
+	 {@link #charCount(long)})
+	 */
+	static long scan(@NotNull ByteBuffer bytes, int offset, int end) {
+		int hash = 0;
+		long charCount = 0;
+		boolean ascii = true;
+		for (int i = offset; i < end; ) {
+			int b = bytes.get(i) & 0xff;
+			if (b < 0x80) {
+				hash = 31 * hash + b;
+				charCount++;
+				i++;
+				continue;
+			}
+			ascii = false;
+			int codePoint = decodeCodePoint(bytes, i, end);
+			if (codePoint < 0) {
+				return MALFORMED;
+			}
+			if (Character.isBmpCodePoint(codePoint)) {
+				hash = 31 * hash + codePoint;
+				charCount++;
+			} else {
+				hash = 31 * (31 * hash + Character.highSurrogate(codePoint)) + Character.lowSurrogate(codePoint);
+				charCount += 2;
+			}
+			i += byteCount(b);
+		}
+		return (hash & 0xFFFFFFFFL) | (ascii ? ASCII : 0) | charCount << 34;
+	}
+
+	static int hash(long scan) {
+		return (int) scan;
+	}
+
+	static int charCount(long scan) {
+		return (int) (scan >>> 34);
+	}
+
+	/**
+	 Compares valid UTF-8 bytes with chars.
+
+	 @param prefix true if the bytes only need to start with the chars
+	 */
+	static boolean equals(@NotNull ByteBuffer bytes, int offset, int end, @NotNull CharSequence chars, boolean prefix) {
+		int length = chars.length();
+		int c = 0;
+		for (int i = offset; i < end; ) {
+			if (c == length) {
+				return prefix;
+			}
+			int b = bytes.get(i) & 0xff;
+			if (b < 0x80) {
+				if (chars.charAt(c++) != b) {
+					return false;
+				}
+				i++;
+				continue;
+			}
+			int codePoint = decodeCodePoint(bytes, i, end);
+			if (Character.isBmpCodePoint(codePoint)) {
+				if (chars.charAt(c++) != codePoint) {
+					return false;
+				}
+			} else {
+				if (chars.charAt(c) != Character.highSurrogate(codePoint)) {
+					return false;
+				}
+				if (c + 1 == length) {
+					//like String.startsWith, a prefix may end between the two chars of a surrogate pair
+					return prefix;
+				}
+				if (chars.charAt(c + 1) != Character.lowSurrogate(codePoint)) {
+					return false;
+				}
+				c += 2;
+			}
+			i += byteCount(b);
+		}
+		return c == length;
+	}
+
+	/** @return amount of bytes of the sequence that starts with the given (non ASCII) byte */
+	static int byteCount(int firstByte) {
+		return firstByte >= 0xf0 ? 4 : firstByte >= 0xe0 ? 3 : 2;
+	}
+
+	/** @return the code point of the multi byte sequence at offset, or -1 if it is malformed */
+	static int decodeCodePoint(@NotNull ByteBuffer bytes, int offset, int end) {
+		int b = bytes.get(offset) & 0xff;
+		if (b < 0xc0 || b >= 0xf8) {
+			return -1;
+		}
+		int byteCount = byteCount(b);
+		if (offset + byteCount > end) {
+			return -1;
+		}
+		int codePoint = b & (0x7f >> byteCount);
+		for (int k = 1; k < byteCount; k++) {
+			int next = bytes.get(offset + k) & 0xff;
+			if ((next & 0xc0) != 0x80) {
+				return -1;
+			}
+			codePoint = (codePoint << 6) | (next & 0x3f);
+		}
+		if (!Character.isValidCodePoint(codePoint) || Character.isBmpCodePoint(codePoint) && Character.isSurrogate((char) codePoint)) {
+			return -1;
+		}
+		//overlong encodings are malformed as well
+		int min = byteCount == 2 ? 0x80 : byteCount == 3 ? 0x800 : 0x10000;
+		return codePoint < min ? -1 : codePoint;
+	}
+
+	/**
+	 Appends the decoded bytes to dst without creating a {@link String}, unless they are malformed, in which case
+	 {@link #decode(ByteBuffer, int, int)} is appended instead.
+
+	 @param bytes  buffer with the UTF-8 bytes. Its position and limit are ignored.
+	 @param offset absolute offset of the first byte
+	 @param end    absolute offset after the last byte
+	 @return dst
+	 */
+	@NotNull
+	public static StringBuilder append(@NotNull ByteBuffer bytes, int offset, int end, @NotNull StringBuilder dst) {
+		int start = dst.length();
+		for (int i = offset; i < end; ) {
+			int b = bytes.get(i) & 0xff;
+			if (b < 0x80) {
+				dst.append((char) b);
+				i++;
+				continue;
+			}
+			int codePoint = decodeCodePoint(bytes, i, end);
+			if (codePoint < 0) {
+				dst.setLength(start);
+				return dst.append(decode(bytes, offset, end - offset));
+			}
+			dst.appendCodePoint(codePoint);
+			i += byteCount(b);
+		}
+		return dst;
+	}
+
+	@NotNull
+	static String decode(@NotNull ByteBuffer bytes, int offset, int length) {
+		if (length == 0) {
+			return "";
+		}
+		byte[] array = new byte[length];
+		for (int i = 0; i < length; i++) {
+			array[i] = bytes.get(offset + i);
+		}
+		return new String(array, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,188 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ A {@link ConfigClass} that reads its body straight out of a {@link RapBuffer}.
+ The body is only scanned the first time an entry is requested. Only the entry offsets and a
+ {@link RapNameIndex} over them are kept, so lookups are a hash probe that compares raw name bytes.
+
+ @author K
+ @since 01/14/2019 */
+public class MappedRapifiedConfigClass implements ConfigClass {
+	private final RapBuffer buffer;
+	private final RapEntryCache entryCache;
+	private final ConfigClassHierarchy hierarchy;
+	private final MappedRapifiedConfigClass outerClass;
+	private final int bodyOffset;
+	private final String className;
+	private volatile EntryIndex entryIndex;
+
+	MappedRapifiedConfigClass(@NotNull RapBuffer buffer, @NotNull RapEntryCache entryCache, @NotNull ConfigClassHierarchy hierarchy, @Nullable MappedRapifiedConfigClass outerClass, int bodyOffset, @NotNull String className) {
+		this.buffer = buffer;
+		this.entryCache = entryCache;
+		this.hierarchy = hierarchy;
+		this.outerClass = outerClass;
+		this.bodyOffset = bodyOffset;
+		this.className = className;
+	}
+
+	@Override
+	@NotNull
+	public String getClassName() {
+		return className;
+	}
+
+	@Override
+	@Nullable
+	public String getParentClassName() {
+		//the body starts with the asciiz name of the inherited class
+		String parentClassName = buffer.getAsciiz(bodyOffset);
+		return parentClassName.isEmpty() ? null : parentClassName;
+	}
+
+	@Override
+	@Nullable
+	public ConfigClass getOuterClass() {
+		return outerClass;
+	}
+
+	@Override
+	@NotNull
+	public ConfigClassHierarchy getHierarchy() {
+		return hierarchy;
+	}
+
+	@Override
+	@NotNull
+	public ConfigStream newStream() {
+		return new MappedRapifiedConfigClassStream(buffer, bodyOffset);
+	}
+
+	@Override
+	@NotNull
+	public ConfigCursor newCursor() {
+		return new RapConfigCursor(buffer, bodyOffset);
+	}
+
+	@Override
+	@Nullable
+	public ConfigClass getClass(@NotNull String className) {
+		EntryIndex index = getEntryIndex();
+		int i = index.nameIndex.find(className, 0, index.classCount);
+		return i < 0 ? null : newClass(index.entryOffsets[i]);
+	}
+
+	@Override
+	@Nullable
+	public ConfigFieldValue getFieldValue(@NotNull String key) {
+		EntryIndex index = getEntryIndex();
+		int i = index.nameIndex.find(key, index.classCount, index.entryOffsets.length);
+		return i < 0 ? null : buffer.getFieldEntryValue(index.entryOffsets[i]);
+	}
+
+	@Override
+	@Nullable
+	public ConfigEntry getEntry(@NotNull String name) {
+		EntryIndex index = getEntryIndex();
+		int i = index.nameIndex.find(name, 0, index.entryOffsets.length);
+		if (i < 0) {
+			return null;
+		}
+		if (i < index.classCount) {
+			return newClass(index.entryOffsets[i]);
+		}
+		return entryCache.get(index.entryOffsets[i], entryOffset -> new MappedRapifiedConfigField(buffer, entryOffset, name));
+	}
+
+	/** @return the classes followed by the fields declared in this class */
+	@Override
+	@NotNull
+	public List<ConfigEntry> getEntries() {
+		EntryIndex index = getEntryIndex();
+		List<ConfigEntry> entries = new ArrayList<>(index.entryOffsets.length);
+		for (int i = 0; i < index.entryOffsets.length; i++) {
+			int entryOffset = index.entryOffsets[i];
+			if (i < index.classCount) {
+				entries.add(newClass(entryOffset));
+			} else {
+				entries.add(entryCache.get(entryOffset, offset -> new MappedRapifiedConfigField(buffer, offset, getEntryName(offset))));
+			}
+		}
+		return entries;
+	}
+
+	@NotNull
+	private String getEntryName(int entryOffset) {
+		return buffer.getAsciiz(buffer.getEntryNameOffset(entryOffset));
+	}
+
+	@NotNull
+	private MappedRapifiedConfigClass newClass(int entryOffset) {
+		return entryCache.get(
+				buffer.getClassEntryBodyOffset(entryOffset),
+				bodyOffset -> new MappedRapifiedConfigClass(buffer, entryCache, hierarchy, this, bodyOffset, getEntryName(entryOffset))
+		);
+	}
+
+	@NotNull
+	private EntryIndex getEntryIndex() {
+		EntryIndex index = entryIndex;
+		if (index == null) {
+			index = new EntryIndex(buffer, bodyOffset);
+			entryIndex = index;
+		}
+		return index;
+	}
+
+	/** Offsets of the class entries followed by the offsets of the field entries, hashed by name. */
+	private static class EntryIndex implements RapNameIndex.Names {
+		private final RapBuffer buffer;
+		private final int[] entryOffsets;
+		private final int classCount;
+		private final RapNameIndex nameIndex;
+
+		public EntryIndex(@NotNull RapBuffer buffer, int bodyOffset) {
+			this.buffer = buffer;
+			int count = buffer.getBodyEntryCount(bodyOffset);
+			int entry = buffer.getBodyEntriesOffset(bodyOffset);
+			int[] classes = new int[count];
+			int[] fields = new int[count];
+			int classCount = 0;
+			int fieldCount = 0;
+			for (int i = 0; i < count; i++) {
+				if (buffer.getEntryType(entry) == RapBuffer.ENTRY_CLASS) {
+					classes[classCount++] = entry;
+				} else if (buffer.isFieldEntry(entry)) {
+					fields[fieldCount++] = entry;
+				}
+				entry = buffer.skipEntry(entry);
+			}
+			this.entryOffsets = Arrays.copyOf(classes, classCount + fieldCount);
+			System.arraycopy(fields, 0, entryOffsets, classCount, fieldCount);
+			this.classCount = classCount;
+			this.nameIndex = new RapNameIndex(this);
+		}
+
+		@Override
+		public int size() {
+			return entryOffsets.length;
+		}
+
+		@Override
+		public int hashName(int i) {
+			return RapNameIndex.hash(buffer, buffer.getEntryNameOffset(entryOffsets[i]));
+		}
+
+		@Override
+		public boolean nameEquals(int i, @NotNull String name) {
+			return RapNameIndex.asciizEquals(buffer, buffer.getEntryNameOffset(entryOffsets[i]), name);
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigCursorStream;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ @author K
+ @since 01/14/2019 */
+public class MappedRapifiedConfigClassStream extends ConfigCursorStream {
+	MappedRapifiedConfigClassStream(@NotNull RapBuffer buffer, int bodyOffset) {
+		super(new RapConfigCursor(buffer, bodyOffset));
+	}
+}
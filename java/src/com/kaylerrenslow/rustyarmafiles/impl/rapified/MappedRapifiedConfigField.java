@@ -0,0 +1,32 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigField;
+import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ @author K
+ @since 01/14/2019 */
+public class MappedRapifiedConfigField implements ConfigField {
+	private final RapBuffer buffer;
+	private final int entryOffset;
+	private final String key;
+
+	MappedRapifiedConfigField(@NotNull RapBuffer buffer, int entryOffset, @NotNull String key) {
+		this.buffer = buffer;
+		this.entryOffset = entryOffset;
+		this.key = key;
+	}
+
+	@Override
+	@NotNull
+	public String getKey() {
+		return key;
+	}
+
+	@Override
+	@NotNull
+	public ConfigFieldValue getValue() {
+		return buffer.getFieldEntryValue(entryOffset);
+	}
+}
@@ -0,0 +1,140 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigClass;
+import com.kaylerrenslow.rustyarmafiles.ConfigClassHierarchy;
+import com.kaylerrenslow.rustyarmafiles.ConfigCursor;
+import com.kaylerrenslow.rustyarmafiles.ConfigFile;
+import com.kaylerrenslow.rustyarmafiles.ConfigMetrics;
+import com.kaylerrenslow.rustyarmafiles.ConfigStream;
+import com.kaylerrenslow.rustyarmafiles.jfr.ParseEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+
+/**
+ A pure Java {@link ConfigFile} for rapified files. Unlike {@link RapifiedConfigFile}, no native code is used.
+ The file is memory mapped with {@link java.nio.channels.FileChannel#map} and everything is decoded straight out of
+ the mapping, so the file is never copied onto the heap.
+ <p>
+ The content can also be given as a {@link ByteBuffer}, for example a slice of a memory mapped PBO archive, in which
+ case nothing is read from {@link #getFile()}.
+
+ @author K
+ @since 01/14/2019 */
+public class MappedRapifiedConfigFile implements ConfigFile {
+	private final File configFile;
+	/** content of the file, or null if the file should be mapped */
+	private final ByteBuffer content;
+	private final int entryCacheSize;
+	private volatile boolean isParsed;
+	private MappedRapifiedConfigClass configClass;
+
+	public MappedRapifiedConfigFile(@NotNull File configFile) {
+		this(configFile, RapEntryCache.DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 @param configFile     the file
+	 @param entryCacheSize max amount of classes and fields that are kept canonicalized by offset,
+	 so that navigating the same path again reuses the already parsed instances
+	 */
+	public MappedRapifiedConfigFile(@NotNull File configFile, int entryCacheSize) {
+		this(configFile, null, entryCacheSize);
+	}
+
+	/**
+	 Creates a config file that reads from the given content instead of mapping a file.
+	 The buffer's bytes between its position and limit are used and the buffer itself isn't modified.
+
+	 @param configFile file the content belongs to. It is only used for {@link #getFile()} and doesn't need to exist
+	 @param content    the rapified content
+	 */
+	public MappedRapifiedConfigFile(@NotNull File configFile, @NotNull ByteBuffer content) {
+		this(configFile, content, RapEntryCache.DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 @param configFile     file the content belongs to. It is only used for {@link #getFile()} and doesn't need to exist
+	 @param content        the rapified content, or null to map configFile
+	 @param entryCacheSize max amount of classes and fields that are kept canonicalized by offset
+	 */
+	public MappedRapifiedConfigFile(@NotNull File configFile, @Nullable ByteBuffer content, int entryCacheSize) {
+		if (entryCacheSize <= 0) {
+			throw new IllegalArgumentException("entryCacheSize must be > 0");
+		}
+		this.configFile = configFile;
+		this.content = content == null ? null : content.slice();
+		this.entryCacheSize = entryCacheSize;
+	}
+
+	@Override
+	@NotNull
+	public ConfigClass getRoot() {
+		if (!isParsed) {
+			throw new IllegalStateException();
+		}
+		return configClass;
+	}
+
+	@Override
+	@NotNull
+	public File getFile() {
+		return configFile;
+	}
+
+	/**
+	 Maps the file (unless the content was given) and validates the header. Class bodies aren't read until they are requested.
+
+	 @throws IOException    when the file couldn't be mapped
+	 @throws ParseException when the file isn't rapified
+	 */
+	@Override
+	public void parse() throws IOException, ParseException {
+		ParseEvent event = new ParseEvent();
+		event.begin();
+		RapBuffer buffer = mapBuffer();
+		RapEntryCache entryCache = new RapEntryCache(entryCacheSize);
+		configClass = new MappedRapifiedConfigClass(buffer, entryCache, new ConfigClassHierarchy(), null, buffer.getRootBodyOffset(), "");
+		isParsed = true;
+		ConfigMetrics.commitParse(event, configFile, "rapified", buffer.size());
+	}
+
+	@Override
+	public boolean isParsed() {
+		return isParsed;
+	}
+
+	@Override
+	@NotNull
+	public ConfigStream newStream() {
+		if (isParsed) {
+			return configClass.newStream();
+		}
+		return new MappedRapifiedConfigFileStream(this);
+	}
+
+	@Override
+	@NotNull
+	public ConfigCursor newCursor() {
+		if (isParsed) {
+			return configClass.newCursor();
+		}
+		return new RapConfigCursor(this);
+	}
+
+	@Override
+	public boolean isRapified() {
+		return true;
+	}
+
+	@NotNull
+	RapBuffer mapBuffer() throws IOException, ParseException {
+		RapBuffer buffer = content == null ? RapBuffer.map(configFile) : new RapBuffer(content);
+		buffer.checkHeader();
+		return buffer;
+	}
+}
@@ -0,0 +1,37 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigCursorStream;
+import com.kaylerrenslow.rustyarmafiles.ConfigFileStream;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamException;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamItem;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ A {@link ConfigFileStream} that maps the file on the first {@link #next()} and walks it without building a tree.
+
+ @author K
+ @since 01/14/2019 */
+public class MappedRapifiedConfigFileStream extends ConfigFileStream {
+	private final ConfigCursorStream stream;
+
+	public MappedRapifiedConfigFileStream(@NotNull MappedRapifiedConfigFile file) {
+		super(file);
+		this.stream = new ConfigCursorStream(new RapConfigCursor(file));
+	}
+
+	@Override
+	@NotNull
+	public ConfigStreamItem next() throws ConfigStreamException {
+		return stream.next();
+	}
+
+	@Override
+	public boolean hasNext() {
+		return stream.hasNext();
+	}
+
+	@Override
+	public void skipCurrentClass() {
+		stream.skipCurrentClass();
+	}
+}
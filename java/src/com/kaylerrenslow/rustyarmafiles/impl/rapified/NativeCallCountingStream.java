@@ -0,0 +1,71 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigFile;
+import com.kaylerrenslow.rustyarmafiles.ConfigFileStream;
+import com.kaylerrenslow.rustyarmafiles.ConfigMetrics;
+import com.kaylerrenslow.rustyarmafiles.ConfigStream;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamException;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamItem;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ Wraps a {@link RapifiedConfigFileStream} or {@link RapifiedConfigClassStream} and counts the calls into the native
+ library and the items they return for {@link ConfigMetrics}. The counts are reported when the stream ends and every
+ {@link ConfigMetrics#REPORT_INTERVAL} native calls before that. The counting is kept out of the native streams, so
+ their native method names stay the ones the native library exports.
+ <p>
+ It is a {@link ConfigFileStream} of the file the native stream reads, so {@link RapifiedConfigFile#newStream()} keeps
+ returning a {@link ConfigFileStream} when the file isn't parsed.
+
+ @author K
+ @since 02/05/2019 */
+final class NativeCallCountingStream extends ConfigFileStream {
+	private final ConfigStream nativeStream;
+	/** amount of items and native calls not reported to {@link ConfigMetrics} yet */
+	private long itemsEmitted;
+	private long nativeCalls;
+
+	NativeCallCountingStream(@NotNull ConfigFile file, @NotNull ConfigStream nativeStream) {
+		super(file);
+		this.nativeStream = nativeStream;
+	}
+
+	@Override
+	@NotNull
+	public ConfigStreamItem next() throws ConfigStreamException {
+		ConfigStreamItem item = nativeStream.next();
+		if (item.getType() == ConfigStreamItem.Type.EndStream) {
+			nativeCalls++;
+			report();
+		} else {
+			itemsEmitted++;
+			countNativeCall();
+		}
+		return item;
+	}
+
+	@Override
+	public boolean hasNext() {
+		countNativeCall();
+		return nativeStream.hasNext();
+	}
+
+	@Override
+	public void skipCurrentClass() {
+		countNativeCall();
+		nativeStream.skipCurrentClass();
+	}
+
+	private void countNativeCall() {
+		if (++nativeCalls >= ConfigMetrics.REPORT_INTERVAL) {
+			report();
+		}
+	}
+
+	private void report() {
+		ConfigMetrics.add(ConfigMetrics.Counter.ItemsEmitted, itemsEmitted);
+		ConfigMetrics.add(ConfigMetrics.Counter.NativeCalls, nativeCalls);
+		itemsEmitted = 0;
+		nativeCalls = 0;
+	}
+}
@@ -0,0 +1,141 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.DoubleConsumer;
+
+/**
+ A {@link ConfigFieldValue.Array} that is a view of an array in a {@link RapBuffer}.
+ Nothing is decoded up front. Elements are decoded each time they are accessed, and the offsets of the elements are
+ only scanned once an element is accessed by index. {@link #toDoubleArray()}, {@link #toFloatArray()} and
+ {@link #forEachScalar(DoubleConsumer)} read the numbers straight out of the buffer in one pass.
+
+ @author K
+ @since 01/21/2019 */
+final class RapArrayValue extends ConfigFieldValue.Array {
+	private final RapBuffer buffer;
+	private final int length;
+	/** offset of the first element */
+	private final int elementsOffset;
+	/** offset of the type byte of each element, or null if not scanned yet */
+	private volatile int[] elementOffsets;
+
+	/** @param arrayOffset offset of the compressed int length of the array */
+	RapArrayValue(@NotNull RapBuffer buffer, int arrayOffset) {
+		this.buffer = buffer;
+		this.length = buffer.getCompressedInt(arrayOffset);
+		this.elementsOffset = buffer.skipCompressedInt(arrayOffset);
+	}
+
+	@Override
+	public int getLength() {
+		return length;
+	}
+
+	@Override
+	@NotNull
+	public ConfigFieldValue getValue(int i) {
+		int offset = getElementOffset(i);
+		return buffer.getValue(buffer.getByte(offset), offset + 1);
+	}
+
+	@Override
+	public boolean isScalar(int i) {
+		return isScalarType(buffer.getByte(getElementOffset(i)));
+	}
+
+	@Override
+	public double getScalar(int i) {
+		int offset = getElementOffset(i);
+		int valueType = buffer.getByte(offset);
+		if (!isScalarType(valueType)) {
+			throw new IllegalStateException("element " + i + " isn't a scalar");
+		}
+		return getScalar(valueType, offset + 1);
+	}
+
+	@Override
+	@NotNull
+	public String getText(int i) {
+		int offset = getElementOffset(i);
+		int valueType = buffer.getByte(offset);
+		if (valueType != RapBuffer.VALUE_STRING && valueType != RapBuffer.VALUE_VARIABLE) {
+			throw new IllegalStateException("element " + i + " isn't text");
+		}
+		return buffer.getAsciiz(offset + 1);
+	}
+
+	@Override
+	@NotNull
+	public double[] toDoubleArray() {
+		double[] numbers = new double[length];
+		int offset = elementsOffset;
+		for (int i = 0; i < length; i++) {
+			int valueType = buffer.getByte(offset);
+			if (!isScalarType(valueType)) {
+				throw new IllegalStateException("element " + i + " isn't a scalar");
+			}
+			numbers[i] = getScalar(valueType, offset + 1);
+			offset += 5;
+		}
+		return numbers;
+	}
+
+	/** Floats are copied as they are stored, without going through double */
+	@Override
+	@NotNull
+	public float[] toFloatArray() {
+		float[] numbers = new float[length];
+		int offset = elementsOffset;
+		for (int i = 0; i < length; i++) {
+			int valueType = buffer.getByte(offset);
+			if (valueType == RapBuffer.VALUE_FLOAT) {
+				numbers[i] = buffer.getFloat(offset + 1);
+			} else if (valueType == RapBuffer.VALUE_LONG) {
+				numbers[i] = buffer.getInt(offset + 1);
+			} else {
+				throw new IllegalStateException("element " + i + " isn't a scalar");
+			}
+			offset += 5;
+		}
+		return numbers;
+	}
+
+	@Override
+	public void forEachScalar(@NotNull DoubleConsumer action) {
+		int offset = elementsOffset;
+		for (int i = 0; i < length; i++) {
+			int valueType = buffer.getByte(offset);
+			if (isScalarType(valueType)) {
+				action.accept(getScalar(valueType, offset + 1));
+			}
+			offset = buffer.skipValue(valueType, offset + 1);
+		}
+	}
+
+	private double getScalar(int valueType, int offset) {
+		return valueType == RapBuffer.VALUE_FLOAT ? buffer.getFloat(offset) : buffer.getInt(offset);
+	}
+
+	private int getElementOffset(int i) {
+		if (i < 0 || i >= length) {
+			throw new IndexOutOfBoundsException(i);
+		}
+		int[] offsets = elementOffsets;
+		if (offsets == null) {
+			offsets = new int[length];
+			int offset = elementsOffset;
+			for (int e = 0; e < length; e++) {
+				offsets[e] = offset;
+				offset = buffer.skipValue(buffer.getByte(offset), offset + 1);
+			}
+			elementOffsets = offsets;
+		}
+		return offsets[i];
+	}
+
+	private static boolean isScalarType(int valueType) {
+		return valueType == RapBuffer.VALUE_FLOAT || valueType == RapBuffer.VALUE_LONG;
+	}
+}
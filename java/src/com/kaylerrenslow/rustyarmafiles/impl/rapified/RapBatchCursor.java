@@ -0,0 +1,353 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigCursor;
+import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import com.kaylerrenslow.rustyarmafiles.ConfigMetrics;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamException;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamItem;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ A {@link ConfigCursor} over a {@link RapifiedConfigFile} that crosses into the native library once per batch of
+ items instead of once per item. Each {@link #nativeFill(ByteBuffer, ByteBuffer, int)} walks the file the same way
+ {@link RapConfigCursor} does (fields of a class first, then its embedded classes) and writes up to batchSize
+ records into a direct buffer, which this cursor then decodes without any further native calls.
+ <p>
+ Record layout ({@link #RECORD_SIZE} bytes, little endian):
+ <pre>
+ byte  type:       ordinal of {@link ConfigStreamItem.Type}
+ byte  valueType:  value type of a field ({@link RapBuffer#VALUE_STRING} etc., array entries are VALUE_ARRAY), else 0
+ short reserved
+ int   nameOffset: offset of the asciiz name of a class or field in the file, else -1
+ int   value:      class: offset of its body (which starts with the asciiz parent name)
+                   string, variable and array field: offset of the value
+                   float field: the float bits
+                   long field: the int
+ </pre>
+ The walk state is kept in this object's frame arrays ({@link #entriesOffset} and so on) so that skipping a class
+ doesn't need a native call. The native side reads the frames when a fill starts and writes them back before it
+ returns. It stops early, without consuming the entry, when a class would need a frame past the end of the arrays,
+ and the arrays are grown before the next fill. A fill always writes at least one record otherwise, and the last
+ record of the walk is {@link ConfigStreamItem.Type#EndStream}.
+ <p>
+ Names and text values are read from the file mapped on the Java side, so nothing but the records is copied.
+ The native calls are reported to {@link ConfigMetrics} when the walk ends and every
+ {@link ConfigMetrics#REPORT_INTERVAL} calls before that.
+ <p>
+ The cursor is only used by {@link RapifiedConfigFile#newCursor()} and {@link RapifiedConfigClass#newCursor()}, when
+ batching is enabled with {@link RapifiedConfigFile#RapifiedConfigFile(java.io.File, int)}. If the native library
+ doesn't implement {@link #nativeFill(ByteBuffer, ByteBuffer, int)}, {@link #advance()} throws a
+ {@link ConfigStreamException} that says so.
+
+ @author K
+ @since 02/06/2019 */
+final class RapBatchCursor implements ConfigCursor {
+	static final int RECORD_SIZE = 12;
+
+	private static final ConfigStreamItem.Type[] TYPES = ConfigStreamItem.Type.values();
+
+	private final RapifiedConfigFile file;
+	/** offset of the class body to walk, or -1 for the root */
+	private final int bodyOffset;
+	private final int batchSize;
+	private RapBuffer buffer;
+	private ByteBuffer fileView;
+	private ByteBuffer nameView;
+	private final ByteBuffer batch;
+	/** amount of records in the batch */
+	private int count;
+	/** index of the current record */
+	private int index;
+
+	//walk state shared with the native side, see RapConfigCursor
+	private int[] entriesOffset = new int[8];
+	private int[] entryCount = new int[8];
+	private int[] nextEntryOffset = new int[8];
+	private int[] nextEntryIndex = new int[8];
+	private boolean[] classPhase = new boolean[8];
+	private int depth;
+
+	/** amount of classes entered and not ended yet, as seen by the caller */
+	private int openClasses;
+	/** amount of native calls not reported to {@link ConfigMetrics} yet */
+	private long nativeCalls;
+
+	private ConfigStreamItem.Type type;
+	private final StringBuilder name = new StringBuilder();
+	private boolean nameDecoded;
+	private final StringBuilder parentClassName = new StringBuilder();
+	private boolean parentClassNameDecoded;
+	private final StringBuilder text = new StringBuilder();
+	private boolean textDecoded;
+
+	/**
+	 @param file       file to map on the first {@link #advance()}
+	 @param bodyOffset offset of the class body to walk, or -1 for the root
+	 @param batchSize  max amount of records per native call
+	 */
+	RapBatchCursor(@NotNull RapifiedConfigFile file, int bodyOffset, int batchSize) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("batchSize must be > 0");
+		}
+		this.file = file;
+		this.bodyOffset = bodyOffset;
+		this.batchSize = batchSize;
+		this.batch = ByteBuffer.allocateDirect(batchSize * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	@Override
+	@NotNull
+	public ConfigStreamItem.Type advance() throws ConfigStreamException {
+		if (type == ConfigStreamItem.Type.EndStream) {
+			return type;
+		}
+		try {
+			if (buffer == null) {
+				buffer = file.mapBuffer();
+				fileView = buffer.duplicate();
+				push(bodyOffset < 0 ? buffer.getRootBodyOffset() : bodyOffset);
+			}
+			if (++index >= count) {
+				fill();
+			}
+			type = TYPES[batch.get(index * RECORD_SIZE)];
+		} catch (IOException | ParseException | RuntimeException e) {
+			throw new ConfigStreamException(e);
+		} catch (UnsatisfiedLinkError e) {
+			throw new ConfigStreamException("The native library doesn't support batched reads. Use a batch size of 0.", e);
+		}
+		switch (type) {
+			case Class: {
+				openClasses++;
+				break;
+			}
+			case EndClass: {
+				openClasses--;
+				break;
+			}
+			case EndStream: {
+				reportNativeCalls();
+				break;
+			}
+		}
+		nameDecoded = false;
+		parentClassNameDecoded = false;
+		textDecoded = false;
+		return type;
+	}
+
+	private void fill() {
+		while (true) {
+			if (depth == entriesOffset.length) {
+				grow();
+			}
+			batch.clear();
+			count = nativeFill(fileView, batch, batchSize);
+			if (++nativeCalls >= ConfigMetrics.REPORT_INTERVAL) {
+				reportNativeCalls();
+			}
+			index = 0;
+			if (count > 0) {
+				return;
+			}
+		}
+	}
+
+	private void reportNativeCalls() {
+		ConfigMetrics.add(ConfigMetrics.Counter.NativeCalls, nativeCalls);
+		nativeCalls = 0;
+	}
+
+	/**
+	 Walks from the frames and writes up to maxItems records at the start of batch, then writes the frames back.
+
+	 @param file     the whole mapped file
+	 @param batch    buffer to write the records to
+	 @param maxItems max amount of records to write
+	 @return the amount of records written. 0 only if a class needs a frame past the end of the frame arrays.
+	 */
+	private native int nativeFill(@NotNull ByteBuffer file, @NotNull ByteBuffer batch, int maxItems);
+
+	@Override
+	@Nullable
+	public ConfigStreamItem.Type type() {
+		return type;
+	}
+
+	@Override
+	@NotNull
+	public CharSequence name() {
+		checkNamed();
+		if (!nameDecoded) {
+			name.setLength(0);
+			buffer.appendAsciiz(recordInt(4), name);
+			nameDecoded = true;
+		}
+		return name;
+	}
+
+	@Override
+	@Nullable
+	public CharSequence parentClassName() {
+		if (type != ConfigStreamItem.Type.Class) {
+			throw new IllegalStateException("not on a class");
+		}
+		if (!parentClassNameDecoded) {
+			parentClassName.setLength(0);
+			buffer.appendAsciiz(recordInt(8), parentClassName);
+			parentClassNameDecoded = true;
+		}
+		return parentClassName.length() == 0 ? null : parentClassName;
+	}
+
+	@Override
+	@NotNull
+	public ByteBuffer nameBytes() {
+		checkNamed();
+		if (nameView == null) {
+			nameView = buffer.duplicate();
+		}
+		return buffer.viewAsciiz(recordInt(4), nameView);
+	}
+
+	@Override
+	@NotNull
+	public ValueType valueType() {
+		if (type != ConfigStreamItem.Type.Field) {
+			return ValueType.None;
+		}
+		switch (recordValueType()) {
+			case RapBuffer.VALUE_FLOAT:
+			case RapBuffer.VALUE_LONG: {
+				return ValueType.Scalar;
+			}
+			case RapBuffer.VALUE_ARRAY: {
+				return ValueType.Array;
+			}
+			default: {
+				return ValueType.Text;
+			}
+		}
+	}
+
+	@Override
+	public double scalarValue() {
+		checkValueType(ValueType.Scalar);
+		if (recordValueType() == RapBuffer.VALUE_FLOAT) {
+			return Float.intBitsToFloat(recordInt(8));
+		}
+		return recordInt(8);
+	}
+
+	@Override
+	@NotNull
+	public CharSequence textValue() {
+		checkValueType(ValueType.Text);
+		if (!textDecoded) {
+			text.setLength(0);
+			buffer.appendAsciiz(recordInt(8), text);
+			textDecoded = true;
+		}
+		return text;
+	}
+
+	@Override
+	public int arrayLength() {
+		checkValueType(ValueType.Array);
+		return buffer.getCompressedInt(recordInt(8));
+	}
+
+	@Override
+	@NotNull
+	public ConfigFieldValue value() {
+		if (type != ConfigStreamItem.Type.Field) {
+			throw new IllegalStateException("not on a field");
+		}
+		int valueType = recordValueType();
+		switch (valueType) {
+			case RapBuffer.VALUE_FLOAT:
+			case RapBuffer.VALUE_LONG: {
+				return new ConfigFieldValue.Scalar(scalarValue());
+			}
+			default: {
+				return buffer.getValue(valueType, recordInt(8));
+			}
+		}
+	}
+
+	/**
+	 The records of the skipped class that are already in the batch are passed over. If the batch ends inside the
+	 class, the rest of the batch is dropped and the class's frame is set to its end, so the next fill starts with
+	 its {@link ConfigStreamItem.Type#EndClass}.
+	 */
+	@Override
+	public void skipCurrentClass() {
+		if (buffer == null || type == ConfigStreamItem.Type.EndStream) {
+			return;
+		}
+		int nested = 0;
+		for (int i = index + 1; i < count; i++) {
+			ConfigStreamItem.Type t = TYPES[batch.get(i * RECORD_SIZE)];
+			if (t == ConfigStreamItem.Type.Class) {
+				nested++;
+			} else if (t == ConfigStreamItem.Type.EndClass && nested > 0) {
+				nested--;
+			} else if (t == ConfigStreamItem.Type.EndClass || t == ConfigStreamItem.Type.EndStream) {
+				index = i - 1;
+				return;
+			}
+		}
+		//frame 0 is the body the cursor started on, frame n is the n-th open class
+		int f = openClasses;
+		depth = f + 1;
+		classPhase[f] = true;
+		nextEntryIndex[f] = entryCount[f];
+		index = count;
+	}
+
+	private int recordInt(int fieldOffset) {
+		return batch.getInt(index * RECORD_SIZE + fieldOffset);
+	}
+
+	private int recordValueType() {
+		return batch.get(index * RECORD_SIZE + 1);
+	}
+
+	private void checkNamed() {
+		if (type != ConfigStreamItem.Type.Class && type != ConfigStreamItem.Type.Field) {
+			throw new IllegalStateException("not on a class or field");
+		}
+	}
+
+	private void checkValueType(@NotNull ValueType expected) {
+		if (valueType() != expected) {
+			throw new IllegalStateException("value isn't " + expected);
+		}
+	}
+
+	private void grow() {
+		int newLength = entriesOffset.length * 2;
+		entriesOffset = Arrays.copyOf(entriesOffset, newLength);
+		entryCount = Arrays.copyOf(entryCount, newLength);
+		nextEntryOffset = Arrays.copyOf(nextEntryOffset, newLength);
+		nextEntryIndex = Arrays.copyOf(nextEntryIndex, newLength);
+		classPhase = Arrays.copyOf(classPhase, newLength);
+	}
+
+	private void push(int bodyOffset) {
+		int entries = buffer.getBodyEntriesOffset(bodyOffset);
+		entriesOffset[depth] = entries;
+		nextEntryOffset[depth] = entries;
+		entryCount[depth] = buffer.getBodyEntryCount(bodyOffset);
+		nextEntryIndex[depth] = 0;
+		classPhase[depth] = false;
+		depth++;
+	}
+}
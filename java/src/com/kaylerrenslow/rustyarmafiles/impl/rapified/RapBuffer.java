@@ -0,0 +1,337 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import com.kaylerrenslow.rustyarmafiles.ConfigMetrics;
+import com.kaylerrenslow.rustyarmafiles.ConfigStringPool;
+import com.kaylerrenslow.rustyarmafiles.Utf8;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+
+/**
+ Decodes the raP format directly from a {@link ByteBuffer} (usually a {@link java.nio.MappedByteBuffer}).
+ All reads are absolute, so a single instance can be shared between any amount of classes, fields and streams
+ without copying the underlying bytes.
+ <p>
+ Layout of a rapified file:
+ <pre>
+ header:     "\0raP", uint32 0, uint32 8, uint32 offsetToEnums
+ class body: asciiz inheritedClassName, compressedInt entryCount, entry[entryCount]
+ entry:      byte type, then
+ 0 class:        asciiz name, uint32 offsetToClassBody
+ 1 value:        byte valueType, asciiz name, value
+ 2 array:        asciiz name, array
+ 3 extern class: asciiz name
+ 4 delete class: asciiz name
+ 5 array append: uint32 flags, asciiz name, array
+ array:      compressedInt length, (byte valueType, value)[length]
+ </pre>
+
+ @author K
+ @since 01/14/2019 */
+final class RapBuffer {
+	static final int HEADER_SIZE = 16;
+
+	static final int ENTRY_CLASS = 0;
+	static final int ENTRY_VALUE = 1;
+	static final int ENTRY_ARRAY = 2;
+	static final int ENTRY_EXTERN_CLASS = 3;
+	static final int ENTRY_DELETE_CLASS = 4;
+	static final int ENTRY_ARRAY_APPEND = 5;
+
+	static final int VALUE_STRING = 0;
+	static final int VALUE_FLOAT = 1;
+	static final int VALUE_LONG = 2;
+	static final int VALUE_ARRAY = 3;
+	static final int VALUE_VARIABLE = 4;
+
+	private final ByteBuffer buffer;
+
+	RapBuffer(@NotNull ByteBuffer buffer) {
+		this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 Memory maps the given file read only. The channel is closed right away, the mapping stays valid until the buffer
+	 is garbage collected.
+
+	 @param file file to map
+	 @return the buffer
+	 @throws IOException when the file couldn't be mapped
+	 */
+	@NotNull
+	static RapBuffer map(@NotNull File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ConfigMetrics.add(ConfigMetrics.Counter.BytesRead, channel.size());
+			return new RapBuffer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/** @throws ParseException when the buffer doesn't start with a raP header */
+	void checkHeader() throws ParseException {
+		if (buffer.limit() < HEADER_SIZE) {
+			throw new ParseException("file is too small to be rapified", 0);
+		}
+		if (buffer.get(0) != 0 || buffer.get(1) != 'r' || buffer.get(2) != 'a' || buffer.get(3) != 'P') {
+			throw new ParseException("missing raP signature", 0);
+		}
+		if (buffer.getInt(4) != 0 || buffer.getInt(8) != 8) {
+			throw new ParseException("unsupported raP header", 4);
+		}
+		int enumsOffset = getEnumsOffset();
+		if (enumsOffset < HEADER_SIZE || enumsOffset > buffer.limit()) {
+			throw new ParseException("enum offset is out of bounds", 12);
+		}
+	}
+
+	int getEnumsOffset() {
+		return buffer.getInt(12);
+	}
+
+	int getRootBodyOffset() {
+		return HEADER_SIZE;
+	}
+
+	int size() {
+		return buffer.limit();
+	}
+
+	int getByte(int offset) {
+		return buffer.get(offset) & 0xff;
+	}
+
+	int getInt(int offset) {
+		return buffer.getInt(offset);
+	}
+
+	float getFloat(int offset) {
+		return buffer.getFloat(offset);
+	}
+
+	/** @return offset of the byte after the null terminator of the asciiz string at the given offset */
+	int skipAsciiz(int offset) {
+		while (buffer.get(offset) != 0) {
+			offset++;
+		}
+		return offset + 1;
+	}
+
+	/** @return the asciiz string at the given offset, from {@link ConfigStringPool#getShared()} */
+	@NotNull
+	String getAsciiz(int offset) {
+		int length = skipAsciiz(offset) - offset - 1;
+		return ConfigStringPool.getShared().intern(buffer, offset, length);
+	}
+
+	/**
+	 Appends the asciiz string at the given offset to dst with {@link Utf8#append(ByteBuffer, int, int, StringBuilder)},
+	 so it is decoded without creating a {@link String} unless it is malformed.
+
+	 @return dst
+	 */
+	@NotNull
+	StringBuilder appendAsciiz(int offset, @NotNull StringBuilder dst) {
+		return Utf8.append(buffer, offset, skipAsciiz(offset) - 1, dst);
+	}
+
+	/**
+	 Sets the position and limit of view (a {@link #duplicate()}) to the asciiz string at the given offset,
+	 excluding the null terminator.
+
+	 @return view
+	 */
+	@NotNull
+	ByteBuffer viewAsciiz(int offset, @NotNull ByteBuffer view) {
+		view.clear();
+		view.position(offset);
+		view.limit(skipAsciiz(offset) - 1);
+		return view;
+	}
+
+	/** @return a new view of the bytes that shares the content and can be positioned independently */
+	@NotNull
+	ByteBuffer duplicate() {
+		return buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/** @return the value of the compressed int (7 bits per byte, least significant group first) at the given offset */
+	int getCompressedInt(int offset) {
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = buffer.get(offset++);
+			value |= (b & 0x7f) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	/** @return offset of the byte after the compressed int at the given offset */
+	int skipCompressedInt(int offset) {
+		while ((buffer.get(offset) & 0x80) != 0) {
+			offset++;
+		}
+		return offset + 1;
+	}
+
+	/** @return the amount of entries in the class body at the given offset */
+	int getBodyEntryCount(int bodyOffset) {
+		return getCompressedInt(skipAsciiz(bodyOffset));
+	}
+
+	/** @return the offset of the first entry in the class body at the given offset */
+	int getBodyEntriesOffset(int bodyOffset) {
+		return skipCompressedInt(skipAsciiz(bodyOffset));
+	}
+
+	int getEntryType(int entryOffset) {
+		return getByte(entryOffset);
+	}
+
+	/** @return offset of the asciiz name of the entry at the given offset */
+	int getEntryNameOffset(int entryOffset) {
+		switch (getEntryType(entryOffset)) {
+			case ENTRY_VALUE: {
+				return entryOffset + 2;
+			}
+			case ENTRY_ARRAY_APPEND: {
+				return entryOffset + 5;
+			}
+			case ENTRY_CLASS:
+			case ENTRY_ARRAY:
+			case ENTRY_EXTERN_CLASS:
+			case ENTRY_DELETE_CLASS: {
+				return entryOffset + 1;
+			}
+			default: {
+				throw new IllegalStateException("unknown entry type " + getEntryType(entryOffset) + " at " + entryOffset);
+			}
+		}
+	}
+
+	/** @return the class body offset of the class entry at the given offset */
+	int getClassEntryBodyOffset(int entryOffset) {
+		return getInt(skipAsciiz(entryOffset + 1));
+	}
+
+	/** @return offset of the entry following the entry at the given offset */
+	int skipEntry(int entryOffset) {
+		int type = getEntryType(entryOffset);
+		int afterName = skipAsciiz(getEntryNameOffset(entryOffset));
+		switch (type) {
+			case ENTRY_CLASS: {
+				return afterName + 4;
+			}
+			case ENTRY_VALUE: {
+				return skipValue(getByte(entryOffset + 1), afterName);
+			}
+			case ENTRY_ARRAY:
+			case ENTRY_ARRAY_APPEND: {
+				return skipArray(afterName);
+			}
+			default: {
+				return afterName;
+			}
+		}
+	}
+
+	/** @return true if the entry at the given offset is a value, array or array append entry */
+	boolean isFieldEntry(int entryOffset) {
+		int type = getEntryType(entryOffset);
+		return type == ENTRY_VALUE || type == ENTRY_ARRAY || type == ENTRY_ARRAY_APPEND;
+	}
+
+	/** @return the value of a field entry (see {@link #isFieldEntry(int)}) */
+	@NotNull
+	ConfigFieldValue getFieldEntryValue(int entryOffset) {
+		int type = getEntryType(entryOffset);
+		int afterName = skipAsciiz(getEntryNameOffset(entryOffset));
+		if (type == ENTRY_VALUE) {
+			return getValue(getByte(entryOffset + 1), afterName);
+		}
+		if (type == ENTRY_ARRAY || type == ENTRY_ARRAY_APPEND) {
+			return getArray(afterName);
+		}
+		throw new IllegalStateException("entry at " + entryOffset + " is not a field");
+	}
+
+	/**
+	 @return the value type of a field entry (see {@link #isFieldEntry(int)}).
+	 Array entries return {@link #VALUE_ARRAY}.
+	 */
+	int getFieldEntryValueType(int entryOffset) {
+		return getEntryType(entryOffset) == ENTRY_VALUE ? getByte(entryOffset + 1) : VALUE_ARRAY;
+	}
+
+	/** @return offset of the value of a field entry (see {@link #isFieldEntry(int)}) */
+	int getFieldEntryValueOffset(int entryOffset) {
+		return skipAsciiz(getEntryNameOffset(entryOffset));
+	}
+
+	/** @return offset of the byte after the value of the given type at the given offset */
+	int skipValue(int valueType, int offset) {
+		switch (valueType) {
+			case VALUE_STRING:
+			case VALUE_VARIABLE: {
+				return skipAsciiz(offset);
+			}
+			case VALUE_FLOAT:
+			case VALUE_LONG: {
+				return offset + 4;
+			}
+			case VALUE_ARRAY: {
+				return skipArray(offset);
+			}
+			default: {
+				throw new IllegalStateException("unknown value type " + valueType + " at " + offset);
+			}
+		}
+	}
+
+	private int skipArray(int offset) {
+		int length = getCompressedInt(offset);
+		offset = skipCompressedInt(offset);
+		for (int i = 0; i < length; i++) {
+			offset = skipValue(getByte(offset), offset + 1);
+		}
+		return offset;
+	}
+
+	/**
+	 @return the value of the given type at the given offset. Arrays are returned as a lazy {@link RapArrayValue} and
+	 strings as a {@link ConfigFieldValue.Utf8Text} over the bytes.
+	 */
+	@NotNull
+	ConfigFieldValue getValue(int valueType, int offset) {
+		switch (valueType) {
+			case VALUE_STRING:
+			case VALUE_VARIABLE: {
+				return new ConfigFieldValue.Utf8Text(buffer, offset, skipAsciiz(offset) - offset - 1);
+			}
+			case VALUE_FLOAT: {
+				return new ConfigFieldValue.Scalar(getFloat(offset));
+			}
+			case VALUE_LONG: {
+				return new ConfigFieldValue.Scalar(getInt(offset));
+			}
+			case VALUE_ARRAY: {
+				return getArray(offset);
+			}
+			default: {
+				throw new IllegalStateException("unknown value type " + valueType + " at " + offset);
+			}
+		}
+	}
+
+	@NotNull
+	private ConfigFieldValue.Array getArray(int offset) {
+		return new RapArrayValue(this, offset);
+	}
+}
@@ -0,0 +1,249 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigCursor;
+import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamException;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamItem;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ Walks the class bodies of a {@link RapBuffer} depth first without materializing any class.
+ For each class, the fields are emitted first and then each embedded class (and its contents) is emitted.
+ The only state kept is one frame per nesting level and the offset of the current entry.
+ Names and text values are only decoded when they are requested, into buffers that are reused for every entry.
+
+ @author K
+ @since 01/14/2019 */
+final class RapConfigCursor implements ConfigCursor {
+	/** file to map on the first {@link #advance()}, or null if the buffer was given */
+	private final MappedRapifiedConfigFile file;
+	private RapBuffer buffer;
+	private ByteBuffer nameView;
+
+	private int[] entriesOffset = new int[8];
+	private int[] entryCount = new int[8];
+	private int[] nextEntryOffset = new int[8];
+	private int[] nextEntryIndex = new int[8];
+	private boolean[] classPhase = new boolean[8];
+	private int depth;
+
+	private ConfigStreamItem.Type type;
+	/** offset of the current class or field entry */
+	private int entry;
+	private final StringBuilder name = new StringBuilder();
+	private boolean nameDecoded;
+	private final StringBuilder parentClassName = new StringBuilder();
+	private boolean parentClassNameDecoded;
+	private final StringBuilder text = new StringBuilder();
+	private boolean textDecoded;
+
+	RapConfigCursor(@NotNull RapBuffer buffer, int bodyOffset) {
+		this.file = null;
+		this.buffer = buffer;
+		push(bodyOffset);
+	}
+
+	/** Creates a cursor over the root of the file. The file is only mapped on the first {@link #advance()}. */
+	RapConfigCursor(@NotNull MappedRapifiedConfigFile file) {
+		this.file = file;
+	}
+
+	@Override
+	@NotNull
+	public ConfigStreamItem.Type advance() throws ConfigStreamException {
+		try {
+			if (buffer == null) {
+				buffer = file.mapBuffer();
+				push(buffer.getRootBodyOffset());
+			}
+			type = walk();
+		} catch (IOException | ParseException | RuntimeException e) {
+			throw new ConfigStreamException(e);
+		}
+		nameDecoded = false;
+		parentClassNameDecoded = false;
+		textDecoded = false;
+		return type;
+	}
+
+	@NotNull
+	private ConfigStreamItem.Type walk() {
+		while (depth > 0) {
+			int f = depth - 1;
+			if (nextEntryIndex[f] >= entryCount[f]) {
+				if (!classPhase[f]) {
+					classPhase[f] = true;
+					nextEntryIndex[f] = 0;
+					nextEntryOffset[f] = entriesOffset[f];
+					continue;
+				}
+				depth--;
+				if (depth == 0) {
+					//the class the cursor started on doesn't get a Class entry, so it doesn't get an EndClass either
+					break;
+				}
+				return ConfigStreamItem.Type.EndClass;
+			}
+			int entry = nextEntryOffset[f];
+			nextEntryOffset[f] = buffer.skipEntry(entry);
+			nextEntryIndex[f]++;
+
+			if (classPhase[f]) {
+				if (buffer.getEntryType(entry) == RapBuffer.ENTRY_CLASS) {
+					this.entry = entry;
+					push(buffer.getClassEntryBodyOffset(entry));
+					return ConfigStreamItem.Type.Class;
+				}
+			} else if (buffer.isFieldEntry(entry)) {
+				this.entry = entry;
+				return ConfigStreamItem.Type.Field;
+			}
+		}
+		return ConfigStreamItem.Type.EndStream;
+	}
+
+	@Override
+	@Nullable
+	public ConfigStreamItem.Type type() {
+		return type;
+	}
+
+	@Override
+	@NotNull
+	public CharSequence name() {
+		checkNamed();
+		if (!nameDecoded) {
+			name.setLength(0);
+			buffer.appendAsciiz(buffer.getEntryNameOffset(entry), name);
+			nameDecoded = true;
+		}
+		return name;
+	}
+
+	@Override
+	@Nullable
+	public CharSequence parentClassName() {
+		if (type != ConfigStreamItem.Type.Class) {
+			throw new IllegalStateException("not on a class");
+		}
+		if (!parentClassNameDecoded) {
+			parentClassName.setLength(0);
+			buffer.appendAsciiz(buffer.getClassEntryBodyOffset(entry), parentClassName);
+			parentClassNameDecoded = true;
+		}
+		return parentClassName.length() == 0 ? null : parentClassName;
+	}
+
+	@Override
+	@NotNull
+	public ByteBuffer nameBytes() {
+		checkNamed();
+		if (nameView == null) {
+			nameView = buffer.duplicate();
+		}
+		return buffer.viewAsciiz(buffer.getEntryNameOffset(entry), nameView);
+	}
+
+	@Override
+	@NotNull
+	public ValueType valueType() {
+		if (type != ConfigStreamItem.Type.Field) {
+			return ValueType.None;
+		}
+		switch (buffer.getFieldEntryValueType(entry)) {
+			case RapBuffer.VALUE_FLOAT:
+			case RapBuffer.VALUE_LONG: {
+				return ValueType.Scalar;
+			}
+			case RapBuffer.VALUE_ARRAY: {
+				return ValueType.Array;
+			}
+			default: {
+				return ValueType.Text;
+			}
+		}
+	}
+
+	@Override
+	public double scalarValue() {
+		checkValueType(ValueType.Scalar);
+		int valueOffset = buffer.getFieldEntryValueOffset(entry);
+		if (buffer.getFieldEntryValueType(entry) == RapBuffer.VALUE_FLOAT) {
+			return buffer.getFloat(valueOffset);
+		}
+		return buffer.getInt(valueOffset);
+	}
+
+	@Override
+	@NotNull
+	public CharSequence textValue() {
+		checkValueType(ValueType.Text);
+		if (!textDecoded) {
+			text.setLength(0);
+			buffer.appendAsciiz(buffer.getFieldEntryValueOffset(entry), text);
+			textDecoded = true;
+		}
+		return text;
+	}
+
+	@Override
+	public int arrayLength() {
+		checkValueType(ValueType.Array);
+		return buffer.getCompressedInt(buffer.getFieldEntryValueOffset(entry));
+	}
+
+	@Override
+	@NotNull
+	public ConfigFieldValue value() {
+		if (type != ConfigStreamItem.Type.Field) {
+			throw new IllegalStateException("not on a field");
+		}
+		return buffer.getFieldEntryValue(entry);
+	}
+
+	@Override
+	public void skipCurrentClass() {
+		if (depth <= 0) {
+			return;
+		}
+		int f = depth - 1;
+		classPhase[f] = true;
+		nextEntryIndex[f] = entryCount[f];
+	}
+
+	private void checkNamed() {
+		if (type != ConfigStreamItem.Type.Class && type != ConfigStreamItem.Type.Field) {
+			throw new IllegalStateException("not on a class or field");
+		}
+	}
+
+	private void checkValueType(@NotNull ValueType expected) {
+		if (valueType() != expected) {
+			throw new IllegalStateException("value isn't " + expected);
+		}
+	}
+
+	private void push(int bodyOffset) {
+		if (depth == entriesOffset.length) {
+			int newLength = depth * 2;
+			entriesOffset = Arrays.copyOf(entriesOffset, newLength);
+			entryCount = Arrays.copyOf(entryCount, newLength);
+			nextEntryOffset = Arrays.copyOf(nextEntryOffset, newLength);
+			nextEntryIndex = Arrays.copyOf(nextEntryIndex, newLength);
+			classPhase = Arrays.copyOf(classPhase, newLength);
+		}
+		int entries = buffer.getBodyEntriesOffset(bodyOffset);
+		entriesOffset[depth] = entries;
+		nextEntryOffset[depth] = entries;
+		entryCount[depth] = buffer.getBodyEntryCount(bodyOffset);
+		nextEntryIndex[depth] = 0;
+		classPhase[depth] = false;
+		depth++;
+	}
+}
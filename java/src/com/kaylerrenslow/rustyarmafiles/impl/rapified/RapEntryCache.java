@@ -0,0 +1,89 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigEntry;
+import com.kaylerrenslow.rustyarmafiles.ConfigMetrics;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ A per file cache that canonicalizes materialized {@link ConfigEntry} instances by their data offset, so navigating
+ the same path twice returns the same (already parsed) objects.
+ <p>
+ Values are held with {@link SoftReference}s so the garbage collector can reclaim them under memory pressure,
+ and the amount of cached offsets is capped, evicting the least recently used first. All methods are thread safe.
+
+ @author K
+ @since 01/16/2019 */
+final class RapEntryCache {
+	static final int DEFAULT_MAX_SIZE = 4096;
+
+	private final ReferenceQueue<ConfigEntry> clearedQueue = new ReferenceQueue<>();
+	private final Map<Integer, OffsetReference> entries;
+
+	RapEntryCache(int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be > 0");
+		}
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, OffsetReference> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 Gets the cached entry for the given offset, or creates and caches one with the factory.
+
+	 @param dataOffset offset of the entry's data
+	 @param factory    creates the entry when there is no live cached entry for the offset
+	 @return the canonical entry
+	 */
+	@NotNull
+	@SuppressWarnings("unchecked")
+	<T extends ConfigEntry> T get(int dataOffset, @NotNull IntFunction<T> factory) {
+		synchronized (entries) {
+			expungeCleared();
+			OffsetReference ref = entries.get(dataOffset);
+			ConfigEntry entry = ref == null ? null : ref.get();
+			if (entry == null) {
+				entry = factory.apply(dataOffset);
+				entries.put(dataOffset, new OffsetReference(dataOffset, entry, clearedQueue));
+			} else {
+				ConfigMetrics.add(ConfigMetrics.Counter.CacheHits, 1);
+			}
+			return (T) entry;
+		}
+	}
+
+	int size() {
+		synchronized (entries) {
+			expungeCleared();
+			return entries.size();
+		}
+	}
+
+	private void expungeCleared() {
+		Reference<? extends ConfigEntry> cleared;
+		while ((cleared = clearedQueue.poll()) != null) {
+			OffsetReference ref = (OffsetReference) cleared;
+			//only remove the mapping if it wasn't replaced after the referent was cleared
+			entries.remove(ref.dataOffset, ref);
+		}
+	}
+
+	private static class OffsetReference extends SoftReference<ConfigEntry> {
+		private final int dataOffset;
+
+		public OffsetReference(int dataOffset, @NotNull ConfigEntry entry, @NotNull ReferenceQueue<ConfigEntry> queue) {
+			super(entry, queue);
+			this.dataOffset = dataOffset;
+		}
+	}
+}
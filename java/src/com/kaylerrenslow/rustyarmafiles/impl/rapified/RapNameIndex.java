@@ -0,0 +1,154 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigMetrics;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ An open addressing hash index from entry name to entry index for a single class body.
+ The index only stores slots and hashes. The names themselves stay wherever {@link Names} keeps them
+ (for {@link MappedRapifiedConfigClass}, that is the raw asciiz bytes in the {@link RapBuffer}),
+ so a lookup never has to decode a {@link String}.
+ <p>
+ Hashes are FNV-1a over the UTF-8 bytes of the name. {@link #hash(CharSequence)} encodes the chars on the fly so
+ that a {@link String} key and an asciiz name in the file hash the same without allocating.
+
+ @author K
+ @since 01/15/2019 */
+final class RapNameIndex {
+	private static final int FNV_OFFSET = 0x811c9dc5;
+	private static final int FNV_PRIME = 0x01000193;
+
+	interface Names {
+		int size();
+
+		/** @return {@link RapNameIndex#hash(CharSequence)} of the name of the i'th entry */
+		int hashName(int i);
+
+		boolean nameEquals(int i, @NotNull String name);
+	}
+
+	private final Names names;
+	/** entry index + 1, or 0 for an empty slot */
+	private final int[] slots;
+	private final int[] slotHashes;
+	private final int mask;
+
+	RapNameIndex(@NotNull Names names) {
+		this.names = names;
+		int size = names.size();
+		int capacity = 2;
+		while (capacity < size * 2) {
+			capacity <<= 1;
+		}
+		this.slots = new int[capacity];
+		this.slotHashes = new int[capacity];
+		this.mask = capacity - 1;
+		for (int i = 0; i < size; i++) {
+			int hash = names.hashName(i);
+			int slot = hash & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = i + 1;
+			slotHashes[slot] = hash;
+		}
+	}
+
+	/**
+	 Finds the first entry with the given name with an index inside [from, to).
+	 Every slot read counts as a probe, from the home slot of the name up to and including the empty slot that ends
+	 the run.
+
+	 @return the entry index, or -1 if there is no such entry
+	 */
+	int find(@NotNull String name, int from, int to) {
+		int hash = hash(name);
+		int slot = hash & mask;
+		int match = -1;
+		int probes = 0;
+		while (true) {
+			int entry = slots[slot];
+			probes++;
+			if (entry == 0) {
+				break;
+			}
+			entry--;
+			if (slotHashes[slot] == hash && entry >= from && entry < to && (match < 0 || entry < match)) {
+				if (names.nameEquals(entry, name)) {
+					match = entry;
+				}
+			}
+			slot = (slot + 1) & mask;
+		}
+		ConfigMetrics.add(ConfigMetrics.Counter.LookupProbes, probes);
+		return match;
+	}
+
+	static int hash(@NotNull CharSequence name) {
+		int hash = FNV_OFFSET;
+		int length = name.length();
+		for (int i = 0; i < length; i++) {
+			int codePoint = Character.codePointAt(name, i);
+			if (Character.isSupplementaryCodePoint(codePoint)) {
+				i++;
+			}
+			int byteCount = utf8Length(codePoint);
+			for (int b = 0; b < byteCount; b++) {
+				hash = (hash ^ utf8Byte(codePoint, byteCount, b)) * FNV_PRIME;
+			}
+		}
+		return hash;
+	}
+
+	/** @return {@link #hash(CharSequence)} of the asciiz string at the given offset, without decoding it */
+	static int hash(@NotNull RapBuffer buffer, int asciizOffset) {
+		int hash = FNV_OFFSET;
+		int b;
+		while ((b = buffer.getByte(asciizOffset++)) != 0) {
+			hash = (hash ^ b) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/** @return true if the asciiz string at the given offset is the UTF-8 encoding of name */
+	static boolean asciizEquals(@NotNull RapBuffer buffer, int asciizOffset, @NotNull CharSequence name) {
+		int length = name.length();
+		for (int i = 0; i < length; i++) {
+			int codePoint = Character.codePointAt(name, i);
+			if (Character.isSupplementaryCodePoint(codePoint)) {
+				i++;
+			}
+			int byteCount = utf8Length(codePoint);
+			for (int b = 0; b < byteCount; b++) {
+				if (buffer.getByte(asciizOffset++) != utf8Byte(codePoint, byteCount, b)) {
+					return false;
+				}
+			}
+		}
+		return buffer.getByte(asciizOffset) == 0;
+	}
+
+	private static int utf8Length(int codePoint) {
+		if (codePoint < 0x80) {
+			return 1;
+		}
+		if (codePoint < 0x800) {
+			return 2;
+		}
+		if (codePoint < 0x10000) {
+			return 3;
+		}
+		return 4;
+	}
+
+	private static int utf8Byte(int codePoint, int byteCount, int b) {
+		if (byteCount == 1) {
+			return codePoint;
+		}
+		int shift = 6 * (byteCount - 1 - b);
+		if (b == 0) {
+			return ((0xf00 >> byteCount) & 0xff) | (codePoint >> shift);
+		}
+		return 0x80 | ((codePoint >> shift) & 0x3f);
+	}
+}
@@ -4,18 +4,37 @@ import com.kaylerrenslow.rustyarmafiles.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
+ Instances are shared between threads through the entry cache of the file, so the body is parsed and indexed once,
+ under a lock, and published as an immutable {@link Body}.
+
  @author K
  @since 01/09/2019 */
 public class RapifiedConfigClass extends RapifiedConfigEntry implements ConfigClass {
 	private String className;
+	/** set by {@link #parse()}. Only read while holding {@link #parseLock}, use {@link #getBody()} instead. */
 	private Entry[] fieldEntries;
 	private Entry[] classEntries;
 	private boolean parsed;
+	private final Object parseLock = new Object();
+	private volatile Body body;
+	/** "" if the class doesn't inherit a class, or null if not read yet */
+	private volatile String parentClassName;
+	private final RapifiedConfigClass outerClass;
 
 	public RapifiedConfigClass(@NotNull RapifiedConfigFileStream fileStream, int bodyOffset, @NotNull String className) {
+		this(fileStream, null, bodyOffset, className);
+	}
+
+	public RapifiedConfigClass(@NotNull RapifiedConfigFileStream fileStream, @Nullable RapifiedConfigClass outerClass, int bodyOffset, @NotNull String className) {
 		super(fileStream, bodyOffset);
-		this.className = className;
+		this.className = ConfigStringPool.getShared().intern(className);
+		this.outerClass = outerClass;
 		this.parsed = false;
 	}
 
@@ -25,38 +44,71 @@ public class RapifiedConfigClass extends RapifiedConfigEntry implements ConfigCl
 		return className;
 	}
 
+	/**
+	 Reads the asciiz parent class name at the start of the body from the mapped file, since the native library
+	 doesn't return it.
+
+	 @throws IllegalStateException when the file couldn't be read. The cause will be the {@link IOException} or
+	 {@link ParseException}.
+	 */
+	@Override
+	@Nullable
+	public String getParentClassName() {
+		String parentClassName = this.parentClassName;
+		if (parentClassName == null) {
+			try {
+				parentClassName = ConfigStringPool.getShared().intern(fileStream.getBuffer().getAsciiz(dataOffset));
+			} catch (IOException | ParseException e) {
+				throw new IllegalStateException(e);
+			}
+			this.parentClassName = parentClassName;
+		}
+		return parentClassName.isEmpty() ? null : parentClassName;
+	}
+
+	@Override
+	@Nullable
+	public ConfigClass getOuterClass() {
+		return outerClass;
+	}
+
+	@Override
+	@NotNull
+	public ConfigClassHierarchy getHierarchy() {
+		return fileStream.hierarchy;
+	}
+
 	@Override
 	@NotNull
 	public ConfigStream newStream() {
-		return new RapifiedConfigClassStream(this);
+		return new NativeCallCountingStream(fileStream.getConfigFile(), new RapifiedConfigClassStream(this));
+	}
+
+	/** @return a batched cursor if batching is enabled for the file, see {@link RapifiedConfigFile} */
+	@Override
+	@NotNull
+	public ConfigCursor newCursor() {
+		RapifiedConfigFile file = fileStream.getConfigFile();
+		if (file.getBatchSize() > 0) {
+			return new RapBatchCursor(file, dataOffset, file.getBatchSize());
+		}
+		return new ConfigStreamCursor(newStream());
 	}
 
 	@Override
 	@Nullable
 	public ConfigClass getClass(@NotNull String className) {
-		if (!parsed) {
-			parse();
-		}
-		for(Entry entry : classEntries) {
-			if (entry.getName().equals(className)) {
-				return (ConfigClass) entry.getAsConfigEntry();
-			}
-		}
-		return null;
+		Body body = getBody();
+		int i = body.nameIndex.find(className, 0, body.classCount);
+		return i < 0 ? null : (ConfigClass) body.entries[i].getAsConfigEntry();
 	}
 
 	@Override
 	@Nullable
 	public ConfigFieldValue getFieldValue(@NotNull String key) {
-		if (!parsed) {
-			parse();
-		}
-		for(Entry entry : fieldEntries) {
-			if (entry.getName().equals(key)) {
-				return ((ConfigField) entry.getAsConfigEntry()).getValue();
-			}
-		}
-		return null;
+		Body body = getBody();
+		int i = body.nameIndex.find(key, body.classCount, body.entries.length);
+		return i < 0 ? null : ((ConfigField) body.entries[i].getAsConfigEntry()).getValue();
 	}
 
 	private native void parse();
@@ -64,20 +116,82 @@ public class RapifiedConfigClass extends RapifiedConfigEntry implements ConfigCl
 	@Override
 	@Nullable
 	public ConfigEntry getEntry(@NotNull String name) {
-		if (!parsed) {
-			parse();
+		Body body = getBody();
+		int i = body.nameIndex.find(name, 0, body.entries.length);
+		return i < 0 ? null : body.entries[i].getAsConfigEntry();
+	}
+
+	/** @return the classes followed by the fields declared in this class */
+	@Override
+	@NotNull
+	public List<ConfigEntry> getEntries() {
+		Entry[] bodyEntries = getBody().entries;
+		List<ConfigEntry> entries = new ArrayList<>(bodyEntries.length);
+		for (Entry entry : bodyEntries) {
+			entries.add(entry.getAsConfigEntry());
 		}
-		for (Entry entry : classEntries) {
-			if (entry.getName().equals(name)) {
-				return entry.getAsConfigEntry();
+		return entries;
+	}
+
+	/**
+	 Parses the body and builds the name index on the first lookup. Other threads that look up entries meanwhile wait
+	 for it, instead of parsing the same body again.
+	 */
+	@NotNull
+	private Body getBody() {
+		Body body = this.body;
+		if (body != null) {
+			return body;
+		}
+		synchronized (parseLock) {
+			body = this.body;
+			if (body == null) {
+				if (!parsed) {
+					parse();
+				}
+				body = new Body(classEntries, fieldEntries);
+				this.body = body;
 			}
+			return body;
 		}
-		for (Entry entry : fieldEntries) {
-			if (entry.getName().equals(name)) {
-				return entry.getAsConfigEntry();
+	}
+
+	/**
+	 The classes followed by the fields of the body, hashed by name. The names are fetched with
+	 {@link Entry#getName()} once here instead of once per entry on every lookup.
+	 */
+	private static class Body implements RapNameIndex.Names {
+		private final Entry[] entries;
+		private final int classCount;
+		private final String[] names;
+		private final RapNameIndex nameIndex;
+
+		Body(@NotNull Entry[] classEntries, @NotNull Entry[] fieldEntries) {
+			this.entries = new Entry[classEntries.length + fieldEntries.length];
+			System.arraycopy(classEntries, 0, entries, 0, classEntries.length);
+			System.arraycopy(fieldEntries, 0, entries, classEntries.length, fieldEntries.length);
+			this.classCount = classEntries.length;
+			this.names = new String[entries.length];
+			for (int i = 0; i < entries.length; i++) {
+				names[i] = entries[i].getName();
 			}
+			this.nameIndex = new RapNameIndex(this);
+		}
+
+		@Override
+		public int size() {
+			return names.length;
+		}
+
+		@Override
+		public int hashName(int i) {
+			return RapNameIndex.hash(names[i]);
+		}
+
+		@Override
+		public boolean nameEquals(int i, @NotNull String name) {
+			return names[i].equals(name);
 		}
-		return null;
 	}
 
 	private class Entry {
@@ -94,9 +208,9 @@ public class RapifiedConfigClass extends RapifiedConfigEntry implements ConfigCl
 		@NotNull
 		public ConfigEntry getAsConfigEntry() {
 			if (isClass) {
-				return new RapifiedConfigClass(fileStream, dataOffset, getName());
+				return fileStream.entryCache.get(dataOffset, offset -> new RapifiedConfigClass(fileStream, RapifiedConfigClass.this, offset, getName()));
 			}
-			return new RapifiedConfigField(fileStream, dataOffset, getName());
+			return fileStream.entryCache.get(dataOffset, offset -> new RapifiedConfigField(fileStream, offset, getName()));
 		}
 
 		@NotNull
@@ -2,6 +2,7 @@ package com.kaylerrenslow.rustyarmafiles.impl.rapified;
 
 import com.kaylerrenslow.rustyarmafiles.ConfigField;
 import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import com.kaylerrenslow.rustyarmafiles.ConfigStringPool;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -13,7 +14,7 @@ public class RapifiedConfigField extends RapifiedConfigEntry implements ConfigFi
 
 	public RapifiedConfigField(@NotNull RapifiedConfigFileStream fileStream, int dataOffset, @NotNull String key) {
 		super(fileStream, dataOffset);
-		this.key = key;
+		this.key = ConfigStringPool.getShared().intern(key);
 	}
 
 	@Override
@@ -1,23 +1,50 @@
 package com.kaylerrenslow.rustyarmafiles.impl.rapified;
 
 import com.kaylerrenslow.rustyarmafiles.ConfigClass;
+import com.kaylerrenslow.rustyarmafiles.ConfigCursor;
 import com.kaylerrenslow.rustyarmafiles.ConfigFile;
 import com.kaylerrenslow.rustyarmafiles.ConfigStream;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.IOException;
+import java.text.ParseException;
 
 /**
+ Streams of this file make a native call per item ({@link RapifiedConfigFileStream} and
+ {@link RapifiedConfigClassStream}). Batching can be enabled with {@link #RapifiedConfigFile(File, int)}, in which
+ case cursors ({@link #newCursor()}, and {@link ConfigClass#newCursor()} of the classes of this file) read items in
+ batches of {@link #getBatchSize()} items (see {@link RapBatchCursor}), so a query run on a cursor crosses into native
+ code a handful of times instead of once per item. Streams are never batched, so {@link #newStream()} keeps returning
+ a {@link com.kaylerrenslow.rustyarmafiles.ConfigFileStream} while the file isn't parsed.
+ <p>
+ Batching is off by default, since it needs a native library that implements the batch protocol of
+ {@link RapBatchCursor}. With a library that doesn't, the first advance of a batched cursor fails with a
+ {@link com.kaylerrenslow.rustyarmafiles.ConfigStreamException}.
+
  @author K
  @since 01/09/2019 */
 public class RapifiedConfigFile implements ConfigFile {
 	private final File configFile;
+	private final int batchSize;
 	private boolean isParsed;
 	private RapifiedConfigClass configClass;
 
 	public RapifiedConfigFile(@NotNull File configFile) {
+		this(configFile, 0);
+	}
+
+	/**
+	 @param configFile the file
+	 @param batchSize  max amount of items that cursors read per native call, or 0 to make a native call per item
+	 (the default)
+	 */
+	public RapifiedConfigFile(@NotNull File configFile, int batchSize) {
+		if (batchSize < 0) {
+			throw new IllegalArgumentException("batchSize must be >= 0");
+		}
 		this.configFile = configFile;
+		this.batchSize = batchSize;
 	}
 
 	@Override
@@ -35,6 +62,11 @@ public class RapifiedConfigFile implements ConfigFile {
 		return configFile;
 	}
 
+	/** @return max amount of items that cursors read per native call, or 0 if a native call is made per item */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
 	@Override
 	public native void parse() throws IOException;
 
@@ -49,11 +81,30 @@ public class RapifiedConfigFile implements ConfigFile {
 		if (isParsed) {
 			return configClass.newStream();
 		}
-		return new RapifiedConfigFileStream(this);
+		return new NativeCallCountingStream(this, new RapifiedConfigFileStream(this));
+	}
+
+	@Override
+	@NotNull
+	public ConfigCursor newCursor() {
+		if (isParsed) {
+			return configClass.newCursor();
+		}
+		if (batchSize > 0) {
+			return new RapBatchCursor(this, -1, batchSize);
+		}
+		return ConfigFile.super.newCursor();
 	}
 
 	@Override
 	public boolean isRapified() {
 		return true;
 	}
+
+	@NotNull
+	RapBuffer mapBuffer() throws IOException, ParseException {
+		RapBuffer buffer = RapBuffer.map(configFile);
+		buffer.checkHeader();
+		return buffer;
+	}
 }
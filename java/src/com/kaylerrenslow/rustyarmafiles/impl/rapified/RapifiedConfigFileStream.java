@@ -1,20 +1,46 @@
 package com.kaylerrenslow.rustyarmafiles.impl.rapified;
 
+import com.kaylerrenslow.rustyarmafiles.ConfigClassHierarchy;
 import com.kaylerrenslow.rustyarmafiles.ConfigFileStream;
 import com.kaylerrenslow.rustyarmafiles.ConfigStreamException;
 import com.kaylerrenslow.rustyarmafiles.ConfigStreamItem;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+import java.text.ParseException;
+
 /**
  @author K
  @since 01/08/2019 */
 public class RapifiedConfigFileStream extends ConfigFileStream {
 	private int currentEntryOffset = -1;
+	final RapEntryCache entryCache = new RapEntryCache(RapEntryCache.DEFAULT_MAX_SIZE);
+	final ConfigClassHierarchy hierarchy = new ConfigClassHierarchy();
+	private volatile RapBuffer buffer;
 
 	public RapifiedConfigFileStream(@NotNull RapifiedConfigFile file) {
 		super(file);
 	}
 
+	@NotNull
+	RapifiedConfigFile getConfigFile() {
+		return (RapifiedConfigFile) configFile;
+	}
+
+	/**
+	 @return the file, mapped on the first call, for the few reads that the native library doesn't offer
+	 (such as the parent class names of class bodies)
+	 */
+	@NotNull
+	RapBuffer getBuffer() throws IOException, ParseException {
+		RapBuffer buffer = this.buffer;
+		if (buffer == null) {
+			buffer = getConfigFile().mapBuffer();
+			this.buffer = buffer;
+		}
+		return buffer;
+	}
+
 	@Override
 	@NotNull
 	public native ConfigStreamItem next() throws ConfigStreamException;
@@ -0,0 +1,565 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ Writes a {@link ConfigCursor}, {@link ConfigStream} or {@link ConfigClass} as a rapified file (config.bin) in one
+ pass over the entries.
+ <p>
+ The body of a class can only be written once all its entries are known, so each open class keeps its own entries
+ in a buffer, and a class body is written out as soon as its class ends. The memory used is therefore bounded by the
+ nesting depth times the size of the biggest class's own entries, not by the size of the file. Since bodies are
+ written children first, the root body (which has to come right after the header) is written last: everything else
+ goes to a temporary file first, and is then copied behind the root body with each class body offset patched.
+ Both files are written and read through {@link FileChannel}s with direct buffers. The file itself is written next to
+ the target and then moved over it, so readers never see a partially written file.
+ <p>
+ Files don't round-trip byte for byte: {@link ConfigFieldValue.Scalar} doesn't know whether a number was an int or a
+ float, so every whole number that fits an int is written as an int (long entry) and every other number as a float.
+ A rapified file with a float of 1.0 is therefore written back with an int of 1.
+
+ @author K
+ @since 01/27/2019 */
+public class RapifiedConfigWriter {
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+	private final int bufferSize;
+
+	public RapifiedConfigWriter() {
+		this(DEFAULT_BUFFER_SIZE);
+	}
+
+	/** @param bufferSize size of each direct buffer used for writing and reading files */
+	public RapifiedConfigWriter(int bufferSize) {
+		if (bufferSize < 64) {
+			throw new IllegalArgumentException("bufferSize must be >= 64");
+		}
+		this.bufferSize = bufferSize;
+	}
+
+	/** Writes the entries of the class (not the class itself) as the root of a rapified file. */
+	public void write(@NotNull ConfigClass configClass, @NotNull File file) throws IOException, ConfigStreamException {
+		write(configClass.newCursor(), file);
+	}
+
+	public void write(@NotNull ConfigStream stream, @NotNull File file) throws IOException, ConfigStreamException {
+		if (stream instanceof ConfigCursorStream) {
+			write(((ConfigCursorStream) stream).getCursor(), file);
+		} else {
+			write(new ConfigStreamCursor(stream), file);
+		}
+	}
+
+	/**
+	 Reads the rest of the cursor and writes it as a rapified file.
+
+	 @param cursor the cursor. Its entries are the root entries of the file
+	 @param file   file to write. It is replaced if it exists, once the whole file is written.
+	 @throws IOException           when a file couldn't be written
+	 @throws ConfigStreamException when the cursor couldn't be read
+	 */
+	public void write(@NotNull ConfigCursor cursor, @NotNull File file) throws IOException, ConfigStreamException {
+		Path target = file.getAbsoluteFile().toPath();
+		Path tailFile = Files.createTempFile(target.getParent(), file.getName(), ".tail");
+		Path temp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+		try (FileChannel tail = FileChannel.open(tailFile, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+			ChannelOutput tailOutput = new ChannelOutput(tail, bufferSize);
+			EntryBuffer root = writeBodies(cursor, tailOutput);
+			tailOutput.flush();
+			long tailSize = tailOutput.position();
+
+			int rootBodySize = root.size();
+			long delta = RapBuffer.HEADER_SIZE + rootBodySize;
+			if (delta + tailSize + 4 > Integer.MAX_VALUE) {
+				throw new IOException("rapified file would be bigger than 2GB");
+			}
+			root.addToOffsets((int) delta);
+
+			try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				ChannelOutput output = new ChannelOutput(out, bufferSize);
+				output.putByte(0);
+				output.putBytes(new byte[]{'r', 'a', 'P'}, 0, 3);
+				output.putInt(0);
+				output.putInt(8);
+				output.putInt((int) (delta + tailSize)); //enums follow the last body
+				output.putBytes(root.bytes(), 0, rootBodySize);
+				new Relocator(new ChannelInput(tail, bufferSize), output, (int) delta).copy(tailSize);
+				output.putInt(0); //no enums
+				output.flush();
+			}
+			try {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tailFile);
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 Writes every class body but the root's to the output. Class body offsets are relative to the start of the output.
+
+	 @return the root body
+	 */
+	@NotNull
+	private EntryBuffer writeBodies(@NotNull ConfigCursor cursor, @NotNull ChannelOutput output) throws IOException, ConfigStreamException {
+		//level i holds the entries of the class at depth i, and are reused by the next class at that depth
+		EntryBuffer[] levels = new EntryBuffer[8];
+		levels[0] = new EntryBuffer(true);
+		levels[0].startBody(null);
+		int depth = 0;
+		ConfigStreamItem.Type type;
+		while ((type = cursor.advance()) != ConfigStreamItem.Type.EndStream) {
+			switch (type) {
+				case Class: {
+					depth++;
+					if (depth == levels.length) {
+						levels = Arrays.copyOf(levels, depth * 2);
+					}
+					if (levels[depth] == null) {
+						levels[depth] = new EntryBuffer(false);
+					}
+					levels[depth].startBody(cursor.parentClassName());
+					levels[depth - 1].addClassEntry(cursor.name());
+					break;
+				}
+				case Field: {
+					levels[depth].addField(cursor);
+					break;
+				}
+				case EndClass: {
+					if (depth == 0) {
+						throw new IllegalStateException("end of a class that wasn't started");
+					}
+					int bodyOffset = (int) output.position();
+					EntryBuffer body = levels[depth];
+					output.putBytes(body.bytes(), 0, body.size());
+					depth--;
+					levels[depth].setLastClassOffset(bodyOffset);
+					break;
+				}
+				default: {
+					throw new IllegalStateException();
+				}
+			}
+		}
+		if (depth != 0) {
+			throw new IllegalStateException("stream ended inside a class");
+		}
+		return levels[0];
+	}
+
+	/**
+	 A growable little endian buffer of one class body: asciiz parentClassName, compressedInt entryCount, entry[].
+	 The entry count is only known when the class ends, so it is inserted when the body is requested.
+	 */
+	private static class EntryBuffer {
+		/** the asciiz parent class name followed by the entries */
+		private byte[] bytes = new byte[256];
+		private int size;
+		/** size of the asciiz parent class name */
+		private int parentNameSize;
+		private int entryCount;
+		/** position of the offset of the last class entry */
+		private int lastClassOffsetPosition;
+		/** positions of every class offset, or null if they aren't needed */
+		private int[] classOffsetPositions;
+		private int classCount;
+		private byte[] body = new byte[0];
+
+		/** @param keepClassOffsets true to keep the position of every class offset for {@link #addToOffsets(int)} */
+		EntryBuffer(boolean keepClassOffsets) {
+			if (keepClassOffsets) {
+				classOffsetPositions = new int[16];
+			}
+		}
+
+		void startBody(@Nullable CharSequence parentClassName) {
+			size = 0;
+			entryCount = 0;
+			classCount = 0;
+			putAsciiz(parentClassName == null ? "" : parentClassName);
+			parentNameSize = size;
+		}
+
+		void addClassEntry(@NotNull CharSequence name) {
+			entryCount++;
+			putByte(RapBuffer.ENTRY_CLASS);
+			putAsciiz(name);
+			lastClassOffsetPosition = size;
+			if (classOffsetPositions != null) {
+				if (classCount == classOffsetPositions.length) {
+					classOffsetPositions = Arrays.copyOf(classOffsetPositions, classCount * 2);
+				}
+				classOffsetPositions[classCount++] = size;
+			}
+			putInt(0);
+		}
+
+		void setLastClassOffset(int offset) {
+			setInt(lastClassOffsetPosition, offset);
+		}
+
+		void addField(@NotNull ConfigCursor cursor) {
+			entryCount++;
+			switch (cursor.valueType()) {
+				case Scalar: {
+					double value = cursor.scalarValue();
+					putByte(RapBuffer.ENTRY_VALUE);
+					putByte(isInt(value) ? RapBuffer.VALUE_LONG : RapBuffer.VALUE_FLOAT);
+					putAsciiz(cursor.name());
+					putScalar(value);
+					break;
+				}
+				case Text: {
+					putByte(RapBuffer.ENTRY_VALUE);
+					putByte(RapBuffer.VALUE_STRING);
+					putAsciiz(cursor.name());
+					putAsciiz(cursor.textValue());
+					break;
+				}
+				case Array: {
+					putByte(RapBuffer.ENTRY_ARRAY);
+					putAsciiz(cursor.name());
+					putArray((ConfigFieldValue.Array) cursor.value());
+					break;
+				}
+				default: {
+					throw new IllegalStateException();
+				}
+			}
+		}
+
+		private void putArray(@NotNull ConfigFieldValue.Array array) {
+			int length = array.getLength();
+			putCompressedInt(length);
+			for (int i = 0; i < length; i++) {
+				if (array.isScalar(i)) {
+					double value = array.getScalar(i);
+					putByte(isInt(value) ? RapBuffer.VALUE_LONG : RapBuffer.VALUE_FLOAT);
+					putScalar(value);
+					continue;
+				}
+				ConfigFieldValue value = array.getValue(i);
+				if (value instanceof ConfigFieldValue.Text) {
+					putByte(RapBuffer.VALUE_STRING);
+					putAsciiz(((ConfigFieldValue.Text) value).getChars());
+				} else {
+					putByte(RapBuffer.VALUE_ARRAY);
+					putArray((ConfigFieldValue.Array) value);
+				}
+			}
+		}
+
+		private static boolean isInt(double value) {
+			return value == (int) value;
+		}
+
+		private void putScalar(double value) {
+			putInt(isInt(value) ? (int) value : Float.floatToIntBits((float) value));
+		}
+
+		/** Encodes the chars as UTF-8 without creating a String, followed by the null terminator. */
+		private void putAsciiz(@NotNull CharSequence s) {
+			int length = s.length();
+			ensure(size + length * 3 + 1);
+			for (int i = 0; i < length; i++) {
+				char c = s.charAt(i);
+				if (c < 0x80) {
+					bytes[size++] = (byte) c;
+				} else if (c < 0x800) {
+					bytes[size++] = (byte) (0xC0 | c >> 6);
+					bytes[size++] = (byte) (0x80 | c & 0x3F);
+				} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(c, s.charAt(++i));
+					bytes[size++] = (byte) (0xF0 | codePoint >> 18);
+					bytes[size++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+					bytes[size++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+					bytes[size++] = (byte) (0x80 | codePoint & 0x3F);
+				} else {
+					bytes[size++] = (byte) (0xE0 | c >> 12);
+					bytes[size++] = (byte) (0x80 | c >> 6 & 0x3F);
+					bytes[size++] = (byte) (0x80 | c & 0x3F);
+				}
+			}
+			bytes[size++] = 0;
+		}
+
+		private void putCompressedInt(int value) {
+			do {
+				int b = value & 0x7F;
+				value >>>= 7;
+				putByte(value != 0 ? b | 0x80 : b);
+			} while (value != 0);
+		}
+
+		private void putByte(int b) {
+			ensure(size + 1);
+			bytes[size++] = (byte) b;
+		}
+
+		private void putInt(int value) {
+			ensure(size + 4);
+			setInt(size, value);
+			size += 4;
+		}
+
+		private void setInt(int position, int value) {
+			bytes[position] = (byte) value;
+			bytes[position + 1] = (byte) (value >>> 8);
+			bytes[position + 2] = (byte) (value >>> 16);
+			bytes[position + 3] = (byte) (value >>> 24);
+		}
+
+		private int getInt(int position) {
+			return (bytes[position] & 0xFF) | (bytes[position + 1] & 0xFF) << 8 | (bytes[position + 2] & 0xFF) << 16 | (bytes[position + 3] & 0xFF) << 24;
+		}
+
+		private void ensure(int capacity) {
+			if (bytes.length < capacity) {
+				bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+			}
+		}
+
+		/** Adds delta to every class offset. Requires keepClassOffsets. */
+		void addToOffsets(int delta) {
+			for (int i = 0; i < classCount; i++) {
+				int position = classOffsetPositions[i];
+				setInt(position, getInt(position) + delta);
+			}
+		}
+
+		/** @return the whole body, which is {@link #size()} long. Only valid until the next change. */
+		@NotNull
+		byte[] bytes() {
+			int bodySize = size();
+			if (body.length < bodySize) {
+				body = new byte[Math.max(bodySize, body.length * 2)];
+			}
+			System.arraycopy(bytes, 0, body, 0, parentNameSize);
+			int position = parentNameSize;
+			int count = entryCount;
+			do {
+				int b = count & 0x7F;
+				count >>>= 7;
+				body[position++] = (byte) (count != 0 ? b | 0x80 : b);
+			} while (count != 0);
+			System.arraycopy(bytes, parentNameSize, body, position, size - parentNameSize);
+			return body;
+		}
+
+		int size() {
+			int countSize = 1;
+			for (int count = entryCount >>> 7; count != 0; count >>>= 7) {
+				countSize++;
+			}
+			return size + countSize;
+		}
+	}
+
+	/** Buffered sequential writes to a channel */
+	private static class ChannelOutput {
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private long flushed;
+
+		ChannelOutput(@NotNull FileChannel channel, int bufferSize) {
+			this.channel = channel;
+			this.buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		/** @return amount of bytes written so far */
+		long position() {
+			return flushed + buffer.position();
+		}
+
+		void putByte(int b) throws IOException {
+			if (!buffer.hasRemaining()) {
+				flush();
+			}
+			buffer.put((byte) b);
+		}
+
+		void putInt(int value) throws IOException {
+			if (buffer.remaining() < 4) {
+				flush();
+			}
+			buffer.putInt(value);
+		}
+
+		void putBytes(@NotNull byte[] bytes, int offset, int length) throws IOException {
+			while (length > 0) {
+				if (!buffer.hasRemaining()) {
+					flush();
+				}
+				int n = Math.min(length, buffer.remaining());
+				buffer.put(bytes, offset, n);
+				offset += n;
+				length -= n;
+			}
+		}
+
+		void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				flushed += channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+
+	/** Buffered sequential reads of a channel, from its start */
+	private static class ChannelInput {
+		private final FileChannel channel;
+		private final ByteBuffer buffer;
+		private long position;
+
+		ChannelInput(@NotNull FileChannel channel, int bufferSize) {
+			this.channel = channel;
+			this.buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.limit(0);
+		}
+
+		/** @return amount of bytes read so far */
+		long position() {
+			return position;
+		}
+
+		int getByte() throws IOException {
+			require(1);
+			position++;
+			return buffer.get() & 0xFF;
+		}
+
+		int getInt() throws IOException {
+			require(4);
+			position += 4;
+			return buffer.getInt();
+		}
+
+		private void require(int size) throws IOException {
+			if (buffer.remaining() >= size) {
+				return;
+			}
+			buffer.compact();
+			while (buffer.position() < size) {
+				int read = channel.read(buffer, position + buffer.position());
+				if (read < 0) {
+					throw new IOException("unexpected end of the temporary file");
+				}
+			}
+			buffer.flip();
+		}
+	}
+
+	/**
+	 Copies the class bodies of the temporary file to the output, adding the given amount to every class body offset.
+	 The format is the one {@link EntryBuffer} writes, so only class, value and array entries can occur.
+	 */
+	private static class Relocator {
+		private final ChannelInput in;
+		private final ChannelOutput out;
+		private final int delta;
+
+		Relocator(@NotNull ChannelInput in, @NotNull ChannelOutput out, int delta) {
+			this.in = in;
+			this.out = out;
+			this.delta = delta;
+		}
+
+		void copy(long size) throws IOException {
+			while (in.position() < size) {
+				copyAsciiz();
+				int count = copyCompressedInt();
+				for (int i = 0; i < count; i++) {
+					int entryType = copyByte();
+					switch (entryType) {
+						case RapBuffer.ENTRY_CLASS: {
+							copyAsciiz();
+							out.putInt(in.getInt() + delta);
+							break;
+						}
+						case RapBuffer.ENTRY_VALUE: {
+							int valueType = copyByte();
+							copyAsciiz();
+							copyValue(valueType);
+							break;
+						}
+						case RapBuffer.ENTRY_ARRAY: {
+							copyAsciiz();
+							copyArray();
+							break;
+						}
+						default: {
+							throw new IllegalStateException("unexpected entry type " + entryType);
+						}
+					}
+				}
+			}
+		}
+
+		private void copyArray() throws IOException {
+			int length = copyCompressedInt();
+			for (int i = 0; i < length; i++) {
+				copyValue(copyByte());
+			}
+		}
+
+		private void copyValue(int valueType) throws IOException {
+			switch (valueType) {
+				case RapBuffer.VALUE_STRING: {
+					copyAsciiz();
+					break;
+				}
+				case RapBuffer.VALUE_ARRAY: {
+					copyArray();
+					break;
+				}
+				default: {
+					out.putInt(in.getInt());
+					break;
+				}
+			}
+		}
+
+		private int copyByte() throws IOException {
+			int b = in.getByte();
+			out.putByte(b);
+			return b;
+		}
+
+		private void copyAsciiz() throws IOException {
+			while (copyByte() != 0) {
+				//copied
+			}
+		}
+
+		private int copyCompressedInt() throws IOException {
+			int value = 0;
+			int shift = 0;
+			int b;
+			do {
+				b = copyByte();
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return value;
+		}
+	}
+}
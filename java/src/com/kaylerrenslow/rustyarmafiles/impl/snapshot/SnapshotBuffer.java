@@ -0,0 +1,324 @@
+package com.kaylerrenslow.rustyarmafiles.impl.snapshot;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import com.kaylerrenslow.rustyarmafiles.ConfigMetrics;
+import com.kaylerrenslow.rustyarmafiles.ConfigStringPool;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ Decodes a snapshot (see {@link SnapshotConfigFile}) straight from a {@link ByteBuffer}, usually a memory mapping.
+ All reads are absolute, so one instance is shared by every class, field and cursor of the snapshot.
+ <p>
+ Layout, little endian:
+ <pre>
+ header:        int magic "RAFS", int version, then (int count, int offset) for sources, strings, classes, fields
+ and values, then int stringDataOffset
+ source:        int pathString, long size, long lastModified, long hash
+ string:        int dataOffset, int byteLength, int {@link String#hashCode()}
+ class:         int nameString, int parentNameString, int outerClass, int firstClass, int classCount,
+ int firstField, int fieldCount
+ field:         int nameString, then a value
+ value:         int type, long payload
+ </pre>
+ Strings are deduplicated and stored as UTF-8. Class 0 is the root, and the embedded classes of every class are
+ consecutive records, as are its fields. A missing string is -1. The payload of a value is the bits of the double for
+ {@link #TYPE_SCALAR}, the string for {@link #TYPE_TEXT}, and for {@link #TYPE_ARRAY}, the first element value in the
+ high 32 bits and the amount of elements in the low 32 bits.
+
+ @author K
+ @since 01/25/2019 */
+final class SnapshotBuffer {
+	static final int MAGIC = 0x53464152;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 56;
+
+	static final int SOURCE_SIZE = 28;
+	static final int STRING_SIZE = 12;
+	static final int CLASS_SIZE = 28;
+	static final int VALUE_SIZE = 12;
+	static final int FIELD_SIZE = 4 + VALUE_SIZE;
+
+	static final int TYPE_SCALAR = 0;
+	static final int TYPE_TEXT = 1;
+	static final int TYPE_ARRAY = 2;
+
+	static final int NONE = -1;
+
+	private final ByteBuffer buffer;
+	private final int sourceCount, sourcesOffset;
+	private final int stringCount, stringsOffset;
+	private final int classCount, classesOffset;
+	private final int fieldCount, fieldsOffset;
+	private final int valueCount, valuesOffset;
+	private final int stringDataOffset;
+	/** strings that were decoded already. Races only cause a string to be decoded twice. */
+	private final String[] strings;
+
+	private SnapshotBuffer(@NotNull ByteBuffer buffer) throws ParseException {
+		this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+		checkHeader(this.buffer, this.buffer.limit());
+		sourceCount = this.buffer.getInt(8);
+		sourcesOffset = this.buffer.getInt(12);
+		stringCount = this.buffer.getInt(16);
+		stringsOffset = this.buffer.getInt(20);
+		classCount = this.buffer.getInt(24);
+		classesOffset = this.buffer.getInt(28);
+		fieldCount = this.buffer.getInt(32);
+		fieldsOffset = this.buffer.getInt(36);
+		valueCount = this.buffer.getInt(40);
+		valuesOffset = this.buffer.getInt(44);
+		stringDataOffset = this.buffer.getInt(48);
+		strings = new String[stringCount];
+	}
+
+	/**
+	 Validates the header of a snapshot.
+
+	 @param header   buffer that starts with the header (little endian)
+	 @param fileSize size of the whole snapshot
+	 @throws ParseException when the header isn't one of a snapshot of this version, or a section is out of bounds
+	 */
+	private static void checkHeader(@NotNull ByteBuffer header, long fileSize) throws ParseException {
+		if (fileSize < HEADER_SIZE || header.limit() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+			throw new ParseException("not a config snapshot", 0);
+		}
+		if (header.getInt(4) != VERSION) {
+			throw new ParseException("unsupported snapshot version " + header.getInt(4), 4);
+		}
+		checkSection(header.getInt(12), header.getInt(8), SOURCE_SIZE, fileSize);
+		checkSection(header.getInt(20), header.getInt(16), STRING_SIZE, fileSize);
+		checkSection(header.getInt(28), header.getInt(24), CLASS_SIZE, fileSize);
+		checkSection(header.getInt(36), header.getInt(32), FIELD_SIZE, fileSize);
+		checkSection(header.getInt(44), header.getInt(40), VALUE_SIZE, fileSize);
+		if (header.getInt(24) == 0) {
+			throw new ParseException("snapshot has no root class", header.getInt(28));
+		}
+	}
+
+	/**
+	 Memory maps the given snapshot read only and validates the header.
+
+	 @throws IOException    when the file couldn't be mapped
+	 @throws ParseException when the file isn't a snapshot of this version
+	 */
+	@NotNull
+	static SnapshotBuffer map(@NotNull File file) throws IOException, ParseException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too big to be mapped");
+			}
+			ConfigMetrics.add(ConfigMetrics.Counter.BytesRead, channel.size());
+			return new SnapshotBuffer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	private static void checkSection(int offset, int count, int recordSize, long fileSize) throws ParseException {
+		if (count < 0 || offset < HEADER_SIZE || (long) offset + (long) count * recordSize > fileSize) {
+			throw new ParseException("snapshot section is out of bounds", offset);
+		}
+	}
+
+	/**
+	 Reads the source fingerprints of a snapshot with plain reads of the header, the source records and their paths,
+	 without mapping the file. A mapping keeps the file from being replaced on Windows until it is garbage collected,
+	 so this is used to decide if a snapshot has to be rebuilt.
+
+	 @throws IOException    when the file couldn't be read
+	 @throws ParseException when the file isn't a snapshot of this version
+	 */
+	@NotNull
+	static List<SourceFingerprint> readSources(@NotNull File file) throws IOException, ParseException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			ByteBuffer header = read(channel, 0, (int) Math.min(HEADER_SIZE, fileSize));
+			checkHeader(header, fileSize);
+			int sourceCount = header.getInt(8);
+			int stringsOffset = header.getInt(20);
+			int stringCount = header.getInt(16);
+			int stringDataOffset = header.getInt(48);
+			ByteBuffer records = read(channel, header.getInt(12), sourceCount * SOURCE_SIZE);
+			List<SourceFingerprint> sources = new ArrayList<>(sourceCount);
+			for (int i = 0; i < sourceCount; i++) {
+				int offset = i * SOURCE_SIZE;
+				int path = records.getInt(offset);
+				if (path < 0 || path >= stringCount) {
+					throw new ParseException("source path is out of bounds", header.getInt(12) + offset);
+				}
+				ByteBuffer string = read(channel, stringsOffset + (long) path * STRING_SIZE, STRING_SIZE);
+				long dataOffset = (long) stringDataOffset + string.getInt(0);
+				int length = string.getInt(4);
+				if (length < 0 || dataOffset < HEADER_SIZE || dataOffset + length > fileSize) {
+					throw new ParseException("source path is out of bounds", header.getInt(12) + offset);
+				}
+				ByteBuffer bytes = read(channel, dataOffset, length);
+				sources.add(new SourceFingerprint(
+						new File(new String(bytes.array(), 0, length, StandardCharsets.UTF_8)),
+						records.getLong(offset + 4),
+						records.getLong(offset + 12),
+						records.getLong(offset + 20)
+				));
+			}
+			return sources;
+		}
+	}
+
+	/** @return a little endian heap buffer with length bytes of the channel at position */
+	@NotNull
+	private static ByteBuffer read(@NotNull FileChannel channel, long position, int length) throws IOException, ParseException {
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new ParseException("snapshot is truncated", (int) Math.min(position, Integer.MAX_VALUE));
+			}
+		}
+		ConfigMetrics.add(ConfigMetrics.Counter.BytesRead, length);
+		return buffer;
+	}
+
+	/** @return the source files the snapshot was created from */
+	@NotNull
+	List<SourceFingerprint> getSources() {
+		List<SourceFingerprint> sources = new ArrayList<>(sourceCount);
+		for (int i = 0; i < sourceCount; i++) {
+			int offset = sourcesOffset + i * SOURCE_SIZE;
+			sources.add(new SourceFingerprint(
+					new File(getString(buffer.getInt(offset))),
+					buffer.getLong(offset + 4),
+					buffer.getLong(offset + 12),
+					buffer.getLong(offset + 20)
+			));
+		}
+		return sources;
+	}
+
+	@Nullable
+	String getStringOrNull(int string) {
+		return string == NONE ? null : getString(string);
+	}
+
+	@NotNull
+	String getString(int string) {
+		String s = strings[string];
+		if (s == null) {
+			int record = stringsOffset + string * STRING_SIZE;
+			s = ConfigStringPool.getShared().intern(buffer, stringDataOffset + buffer.getInt(record), buffer.getInt(record + 4));
+			strings[string] = s;
+		}
+		return s;
+	}
+
+	/** @return the UTF-8 bytes of the string, viewed through the given duplicate of this buffer */
+	@NotNull
+	ByteBuffer viewString(int string, @NotNull ByteBuffer view) {
+		int record = stringsOffset + string * STRING_SIZE;
+		int start = stringDataOffset + buffer.getInt(record);
+		view.limit(start + buffer.getInt(record + 4)).position(start);
+		return view;
+	}
+
+	int getStringHash(int string) {
+		return buffer.getInt(stringsOffset + string * STRING_SIZE + 8);
+	}
+
+	@NotNull
+	ByteBuffer duplicate() {
+		return buffer.duplicate();
+	}
+
+	int getClassCount() {
+		return classCount;
+	}
+
+	int getClassName(int c) {
+		return buffer.getInt(classesOffset + c * CLASS_SIZE);
+	}
+
+	int getClassParentName(int c) {
+		return buffer.getInt(classesOffset + c * CLASS_SIZE + 4);
+	}
+
+	int getClassOuter(int c) {
+		return buffer.getInt(classesOffset + c * CLASS_SIZE + 8);
+	}
+
+	int getClassFirstClass(int c) {
+		return buffer.getInt(classesOffset + c * CLASS_SIZE + 12);
+	}
+
+	int getClassClassCount(int c) {
+		return buffer.getInt(classesOffset + c * CLASS_SIZE + 16);
+	}
+
+	int getClassFirstField(int c) {
+		return buffer.getInt(classesOffset + c * CLASS_SIZE + 20);
+	}
+
+	int getClassFieldCount(int c) {
+		return buffer.getInt(classesOffset + c * CLASS_SIZE + 24);
+	}
+
+	int getFieldName(int f) {
+		return buffer.getInt(fieldsOffset + f * FIELD_SIZE);
+	}
+
+	/** @return offset of the value record of the field */
+	int getFieldValueRecord(int f) {
+		return fieldsOffset + f * FIELD_SIZE + 4;
+	}
+
+	int getValueType(int valueRecord) {
+		return buffer.getInt(valueRecord);
+	}
+
+	long getValuePayload(int valueRecord) {
+		return buffer.getLong(valueRecord + 4);
+	}
+
+	@NotNull
+	ConfigFieldValue getValue(int valueRecord) {
+		long payload = getValuePayload(valueRecord);
+		switch (getValueType(valueRecord)) {
+			case TYPE_SCALAR: {
+				return new ConfigFieldValue.Scalar(Double.longBitsToDouble(payload));
+			}
+			case TYPE_TEXT: {
+				return new ConfigFieldValue.Text(getString((int) payload));
+			}
+			case TYPE_ARRAY: {
+				int first = (int) (payload >>> 32);
+				int length = (int) payload;
+				boolean allScalar = true;
+				for (int i = 0; i < length && allScalar; i++) {
+					allScalar = getValueType(valuesOffset + (first + i) * VALUE_SIZE) == TYPE_SCALAR;
+				}
+				if (allScalar) {
+					double[] values = new double[length];
+					for (int i = 0; i < length; i++) {
+						values[i] = Double.longBitsToDouble(getValuePayload(valuesOffset + (first + i) * VALUE_SIZE));
+					}
+					return new ConfigFieldValue.ScalarArray(values);
+				}
+				List<ConfigFieldValue> values = new ArrayList<>(length);
+				for (int i = 0; i < length; i++) {
+					values.add(getValue(valuesOffset + (first + i) * VALUE_SIZE));
+				}
+				return ConfigFieldValue.Array.of(values);
+			}
+			default: {
+				throw new IllegalStateException("unknown value type " + getValueType(valueRecord));
+			}
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package com.kaylerrenslow.rustyarmafiles.impl.snapshot;
+
+import com.kaylerrenslow.rustyarmafiles.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ A {@link ConfigClass} backed by a class record of a snapshot. Nothing is decoded until it is requested.
+ Lookups compare the precomputed name hashes of the records first, so names are only decoded for hash matches.
+
+ @author K
+ @since 01/25/2019 */
+public class SnapshotConfigClass implements ConfigClass {
+	/** classes with more entries than this get a hash index on their first lookup instead of a linear scan */
+	private static final int LINEAR_SCAN_MAX = 8;
+
+	private final SnapshotConfigFile.Snapshot snapshot;
+	private final int classIndex;
+	private volatile int[] hashIndex;
+
+	SnapshotConfigClass(@NotNull SnapshotConfigFile.Snapshot snapshot, int classIndex) {
+		this.snapshot = snapshot;
+		this.classIndex = classIndex;
+	}
+
+	@Override
+	@NotNull
+	public String getClassName() {
+		int name = snapshot.buffer.getClassName(classIndex);
+		return name == SnapshotBuffer.NONE ? "" : snapshot.buffer.getString(name);
+	}
+
+	@Override
+	@Nullable
+	public String getParentClassName() {
+		return snapshot.buffer.getStringOrNull(snapshot.buffer.getClassParentName(classIndex));
+	}
+
+	@Override
+	@Nullable
+	public ConfigClass getOuterClass() {
+		int outer = snapshot.buffer.getClassOuter(classIndex);
+		return outer == SnapshotBuffer.NONE ? null : snapshot.getClass(outer);
+	}
+
+	@Override
+	@NotNull
+	public ConfigClassHierarchy getHierarchy() {
+		return snapshot.hierarchy;
+	}
+
+	@Override
+	@NotNull
+	public ConfigStream newStream() {
+		return new ConfigCursorStream(newCursor());
+	}
+
+	@Override
+	@NotNull
+	public ConfigCursor newCursor() {
+		return new SnapshotCursor(snapshot.buffer, classIndex);
+	}
+
+	@Override
+	@Nullable
+	public ConfigClass getClass(@NotNull String className) {
+		int i = find(className, true, false);
+		return i < 0 ? null : snapshot.getClass(snapshot.buffer.getClassFirstClass(classIndex) + i);
+	}
+
+	@Override
+	@Nullable
+	public ConfigFieldValue getFieldValue(@NotNull String key) {
+		int i = find(key, false, true);
+		if (i < 0) {
+			return null;
+		}
+		int field = snapshot.buffer.getClassFirstField(classIndex) + i - snapshot.buffer.getClassClassCount(classIndex);
+		return snapshot.buffer.getValue(snapshot.buffer.getFieldValueRecord(field));
+	}
+
+	@Override
+	@Nullable
+	public ConfigEntry getEntry(@NotNull String name) {
+		int i = find(name, true, true);
+		if (i < 0) {
+			return null;
+		}
+		return entry(i);
+	}
+
+	/** @return the classes followed by the fields declared in this class */
+	@Override
+	@NotNull
+	public List<ConfigEntry> getEntries() {
+		int count = snapshot.buffer.getClassClassCount(classIndex) + snapshot.buffer.getClassFieldCount(classIndex);
+		List<ConfigEntry> entries = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			entries.add(entry(i));
+		}
+		return entries;
+	}
+
+	/** @param i index in the classes followed by the fields */
+	@NotNull
+	private ConfigEntry entry(int i) {
+		SnapshotBuffer buffer = snapshot.buffer;
+		int classCount = buffer.getClassClassCount(classIndex);
+		if (i < classCount) {
+			return snapshot.getClass(buffer.getClassFirstClass(classIndex) + i);
+		}
+		return new SnapshotConfigField(buffer, buffer.getClassFirstField(classIndex) + i - classCount);
+	}
+
+	/** @return the index in the classes followed by the fields, or -1 */
+	private int find(@NotNull String name, boolean classes, boolean fields) {
+		SnapshotBuffer buffer = snapshot.buffer;
+		int classCount = buffer.getClassClassCount(classIndex);
+		int count = classCount + buffer.getClassFieldCount(classIndex);
+		int from = classes ? 0 : classCount;
+		int to = fields ? count : classCount;
+		int hash = name.hashCode();
+		if (count <= LINEAR_SCAN_MAX) {
+			for (int i = from; i < to; i++) {
+				if (nameMatches(i, classCount, hash, name)) {
+					ConfigMetrics.add(ConfigMetrics.Counter.LookupProbes, i - from + 1);
+					return i;
+				}
+			}
+			ConfigMetrics.add(ConfigMetrics.Counter.LookupProbes, to - from);
+			return -1;
+		}
+		int[] index = getHashIndex(count, classCount);
+		int mask = index.length - 1;
+		int match = -1;
+		int probes = 1;
+		for (int slot = hash & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+			probes++;
+			int i = index[slot] - 1;
+			if (i >= from && i < to && (match < 0 || i < match) && nameMatches(i, classCount, hash, name)) {
+				match = i;
+			}
+		}
+		ConfigMetrics.add(ConfigMetrics.Counter.LookupProbes, probes);
+		return match;
+	}
+
+	private boolean nameMatches(int i, int classCount, int hash, @NotNull String name) {
+		int string = nameString(i, classCount);
+		return snapshot.buffer.getStringHash(string) == hash && snapshot.buffer.getString(string).equals(name);
+	}
+
+	private int nameString(int i, int classCount) {
+		SnapshotBuffer buffer = snapshot.buffer;
+		if (i < classCount) {
+			return buffer.getClassName(buffer.getClassFirstClass(classIndex) + i);
+		}
+		return buffer.getFieldName(buffer.getClassFirstField(classIndex) + i - classCount);
+	}
+
+	/** @return open addressing table of entry index + 1 by name hash, 0 for an empty slot */
+	@NotNull
+	private int[] getHashIndex(int count, int classCount) {
+		int[] index = hashIndex;
+		if (index == null) {
+			int capacity = 2;
+			while (capacity < count * 2) {
+				capacity <<= 1;
+			}
+			index = new int[capacity];
+			int mask = capacity - 1;
+			for (int i = 0; i < count; i++) {
+				int slot = snapshot.buffer.getStringHash(nameString(i, classCount)) & mask;
+				while (index[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				index[slot] = i + 1;
+			}
+			hashIndex = index;
+		}
+		return index;
+	}
+}
@@ -0,0 +1,30 @@
+package com.kaylerrenslow.rustyarmafiles.impl.snapshot;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigField;
+import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ @author K
+ @since 01/25/2019 */
+public class SnapshotConfigField implements ConfigField {
+	private final SnapshotBuffer buffer;
+	private final int fieldIndex;
+
+	SnapshotConfigField(@NotNull SnapshotBuffer buffer, int fieldIndex) {
+		this.buffer = buffer;
+		this.fieldIndex = fieldIndex;
+	}
+
+	@Override
+	@NotNull
+	public String getKey() {
+		return buffer.getString(buffer.getFieldName(fieldIndex));
+	}
+
+	@Override
+	@NotNull
+	public ConfigFieldValue getValue() {
+		return buffer.getValue(buffer.getFieldValueRecord(fieldIndex));
+	}
+}
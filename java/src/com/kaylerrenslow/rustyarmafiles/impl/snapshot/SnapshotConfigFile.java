@@ -0,0 +1,241 @@
+package com.kaylerrenslow.rustyarmafiles.impl.snapshot;
+
+import com.kaylerrenslow.rustyarmafiles.*;
+import com.kaylerrenslow.rustyarmafiles.ConfigMetrics;
+import com.kaylerrenslow.rustyarmafiles.jfr.ParseEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ A {@link ConfigFile} for a snapshot: a {@link ConfigClass} tree (for example a parsed file or the root of a
+ {@link ConfigFileSet}) saved in a compact format that is read with a single memory mapping. There is no parse step,
+ {@link #parse()} only maps the file, and classes, names and values are decoded when they are requested.
+ <p>
+ A snapshot remembers a {@link SourceFingerprint} of each file it was created from, so
+ {@link #openOrRebuild(File, Collection, Loader)} can tell when it is stale.
+
+ @author K
+ @since 01/25/2019 */
+public class SnapshotConfigFile implements ConfigFile {
+	/** Creates the tree a snapshot is made of, when there is no up to date snapshot. */
+	@FunctionalInterface
+	public interface Loader {
+		@NotNull ConfigClass load() throws IOException, ParseException;
+	}
+
+	private final File snapshotFile;
+	private volatile boolean isParsed;
+	private Snapshot snapshot;
+
+	public SnapshotConfigFile(@NotNull File snapshotFile) {
+		this.snapshotFile = snapshotFile;
+	}
+
+	/**
+	 Writes a snapshot of the given tree.
+
+	 @param root         the tree to save
+	 @param sources      files the tree was created from. They are fingerprinted so that the snapshot can be checked
+	 with {@link #isUpToDate()}
+	 @param snapshotFile file to write. It is replaced once the snapshot is fully written.
+	 @throws IOException when a source couldn't be read or the snapshot couldn't be written
+	 */
+	public static void write(@NotNull ConfigClass root, @NotNull Collection<File> sources, @NotNull File snapshotFile) throws IOException {
+		new SnapshotWriter().write(root, fingerprint(sources), snapshotFile);
+	}
+
+	@NotNull
+	private static List<SourceFingerprint> fingerprint(@NotNull Collection<File> sources) throws IOException {
+		List<SourceFingerprint> fingerprints = new ArrayList<>(sources.size());
+		for (File source : sources) {
+			fingerprints.add(SourceFingerprint.of(source));
+		}
+		return fingerprints;
+	}
+
+	/**
+	 Opens the snapshot if it exists, is valid and was created from exactly the given sources with their current content.
+	 Otherwise, the tree is created with the loader and a new snapshot is written first.
+
+	 @param snapshotFile the snapshot
+	 @param sources      files the tree is created from, in the same order as when the snapshot was written
+	 @param loader       creates the tree when the snapshot has to be rebuilt
+	 @return the parsed snapshot
+	 @throws IOException    when a file couldn't be read or written
+	 @throws ParseException when the loader failed to parse a source
+	 */
+	@NotNull
+	public static SnapshotConfigFile openOrRebuild(@NotNull File snapshotFile, @NotNull Collection<File> sources, @NotNull Loader loader) throws IOException, ParseException {
+		if (snapshotFile.isFile()) {
+			//the fingerprints are read without mapping the snapshot, since a mapping keeps a stale snapshot from being
+			//replaced on Windows
+			boolean upToDate;
+			try {
+				upToDate = isUpToDate(SnapshotBuffer.readSources(snapshotFile), sources);
+			} catch (ParseException ignore) {
+				//a corrupt or old snapshot is rebuilt like a stale one
+				upToDate = false;
+			}
+			if (upToDate) {
+				SnapshotConfigFile file = new SnapshotConfigFile(snapshotFile);
+				file.parse();
+				return file;
+			}
+		}
+		//fingerprint before loading, so a source that changes while it is loaded makes the snapshot stale
+		List<SourceFingerprint> fingerprints = fingerprint(sources);
+		new SnapshotWriter().write(loader.load(), fingerprints, snapshotFile);
+		SnapshotConfigFile file = new SnapshotConfigFile(snapshotFile);
+		file.parse();
+		return file;
+	}
+
+	@Override
+	@NotNull
+	public ConfigClass getRoot() {
+		if (!isParsed) {
+			throw new IllegalStateException();
+		}
+		return snapshot.getClass(0);
+	}
+
+	@Override
+	@NotNull
+	public File getFile() {
+		return snapshotFile;
+	}
+
+	/**
+	 Maps the snapshot and validates the header.
+
+	 @throws IOException    when the file couldn't be mapped
+	 @throws ParseException when the file isn't a snapshot, or was written by an incompatible version
+	 */
+	@Override
+	public void parse() throws IOException, ParseException {
+		ParseEvent event = new ParseEvent();
+		event.begin();
+		snapshot = new Snapshot(mapBuffer());
+		isParsed = true;
+		ConfigMetrics.commitParse(event, snapshotFile, "snapshot", snapshotFile.length());
+	}
+
+	@Override
+	public boolean isParsed() {
+		return isParsed;
+	}
+
+	@Override
+	@NotNull
+	public ConfigStream newStream() {
+		if (isParsed) {
+			return getRoot().newStream();
+		}
+		return new SnapshotConfigFileStream(this);
+	}
+
+	@Override
+	@NotNull
+	public ConfigCursor newCursor() {
+		if (isParsed) {
+			return getRoot().newCursor();
+		}
+		return new SnapshotCursor(this);
+	}
+
+	/** @return true since a snapshot is binary, even though it isn't in the rapified format */
+	@Override
+	public boolean isRapified() {
+		return true;
+	}
+
+	/**
+	 @return fingerprints of the files the snapshot was created from
+	 @throws IllegalStateException when {@link #parse()} hasn't been invoked.
+	 */
+	@NotNull
+	public List<SourceFingerprint> getSources() {
+		if (!isParsed) {
+			throw new IllegalStateException();
+		}
+		return snapshot.buffer.getSources();
+	}
+
+	/**
+	 @return true if every source still has the content it had when the snapshot was created
+	 @throws IOException when a source couldn't be read
+	 @throws IllegalStateException when {@link #parse()} hasn't been invoked.
+	 */
+	public boolean isUpToDate() throws IOException {
+		for (SourceFingerprint source : getSources()) {
+			if (!source.isUpToDate()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 @return true if the snapshot was created from exactly the given files and {@link #isUpToDate()}
+	 @throws IOException when a source couldn't be read
+	 @throws IllegalStateException when {@link #parse()} hasn't been invoked.
+	 */
+	public boolean isUpToDate(@NotNull Collection<File> sources) throws IOException {
+		return isUpToDate(getSources(), sources);
+	}
+
+	private static boolean isUpToDate(@NotNull List<SourceFingerprint> fingerprints, @NotNull Collection<File> sources) throws IOException {
+		if (fingerprints.size() != sources.size()) {
+			return false;
+		}
+		int i = 0;
+		for (File source : sources) {
+			if (!fingerprints.get(i++).getFile().equals(source.getAbsoluteFile())) {
+				return false;
+			}
+		}
+		for (SourceFingerprint fingerprint : fingerprints) {
+			if (!fingerprint.isUpToDate()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@NotNull
+	SnapshotBuffer mapBuffer() throws IOException, ParseException {
+		return SnapshotBuffer.map(snapshotFile);
+	}
+
+	/** What all classes of one parsed snapshot share */
+	static class Snapshot {
+		final SnapshotBuffer buffer;
+		final ConfigClassHierarchy hierarchy = new ConfigClassHierarchy();
+		/** classes by record index, created when they are first requested so they are canonical */
+		private final AtomicReferenceArray<SnapshotConfigClass> classes;
+
+		Snapshot(@NotNull SnapshotBuffer buffer) {
+			this.buffer = buffer;
+			this.classes = new AtomicReferenceArray<>(buffer.getClassCount());
+		}
+
+		@NotNull
+		SnapshotConfigClass getClass(int classIndex) {
+			SnapshotConfigClass configClass = classes.get(classIndex);
+			if (configClass == null) {
+				configClass = new SnapshotConfigClass(this, classIndex);
+				if (!classes.compareAndSet(classIndex, null, configClass)) {
+					configClass = classes.get(classIndex);
+				}
+			}
+			return configClass;
+		}
+	}
+}
@@ -0,0 +1,38 @@
+package com.kaylerrenslow.rustyarmafiles.impl.snapshot;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigCursorStream;
+import com.kaylerrenslow.rustyarmafiles.ConfigFileStream;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamException;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamItem;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ A {@link ConfigFileStream} that maps the snapshot on the first {@link #next()} and walks its records without
+ creating classes.
+
+ @author K
+ @since 01/25/2019 */
+public class SnapshotConfigFileStream extends ConfigFileStream {
+	private final ConfigCursorStream stream;
+
+	public SnapshotConfigFileStream(@NotNull SnapshotConfigFile file) {
+		super(file);
+		this.stream = new ConfigCursorStream(new SnapshotCursor(file));
+	}
+
+	@Override
+	@NotNull
+	public ConfigStreamItem next() throws ConfigStreamException {
+		return stream.next();
+	}
+
+	@Override
+	public boolean hasNext() {
+		return stream.hasNext();
+	}
+
+	@Override
+	public void skipCurrentClass() {
+		stream.skipCurrentClass();
+	}
+}
@@ -0,0 +1,201 @@
+package com.kaylerrenslow.rustyarmafiles.impl.snapshot;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigCursor;
+import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamException;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamItem;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ Walks the class records of a snapshot depth first. Like a rapified file, the fields of each class are emitted before
+ its embedded classes. Names are the decoded strings of the snapshot's string table, so walking allocates nothing once
+ the names have been decoded.
+
+ @author K
+ @since 01/25/2019 */
+final class SnapshotCursor implements ConfigCursor {
+	/** file to map on the first {@link #advance()}, or null if the buffer was given */
+	private final SnapshotConfigFile file;
+	private SnapshotBuffer buffer;
+	private ByteBuffer nameView;
+
+	private int[] classes = new int[8];
+	/** index in the fields followed by the classes of the class */
+	private int[] nextIndex = new int[8];
+	private int depth;
+
+	private ConfigStreamItem.Type type;
+	/** the current class, or field index */
+	private int current;
+
+	SnapshotCursor(@NotNull SnapshotBuffer buffer, int classIndex) {
+		this.file = null;
+		this.buffer = buffer;
+		push(classIndex);
+	}
+
+	/** Creates a cursor over the root of the file. The file is only mapped on the first {@link #advance()}. */
+	SnapshotCursor(@NotNull SnapshotConfigFile file) {
+		this.file = file;
+	}
+
+	@Override
+	@NotNull
+	public ConfigStreamItem.Type advance() throws ConfigStreamException {
+		if (buffer == null) {
+			try {
+				buffer = file.mapBuffer();
+			} catch (IOException | ParseException e) {
+				throw new ConfigStreamException(e);
+			}
+			push(0);
+		}
+		type = walk();
+		return type;
+	}
+
+	@NotNull
+	private ConfigStreamItem.Type walk() {
+		while (depth > 0) {
+			int f = depth - 1;
+			int c = classes[f];
+			int fieldCount = buffer.getClassFieldCount(c);
+			int i = nextIndex[f]++;
+			if (i < fieldCount) {
+				current = buffer.getClassFirstField(c) + i;
+				return ConfigStreamItem.Type.Field;
+			}
+			if (i - fieldCount < buffer.getClassClassCount(c)) {
+				current = buffer.getClassFirstClass(c) + i - fieldCount;
+				push(current);
+				return ConfigStreamItem.Type.Class;
+			}
+			depth--;
+			if (depth == 0) {
+				//the class the cursor started on doesn't get a Class entry, so it doesn't get an EndClass either
+				break;
+			}
+			return ConfigStreamItem.Type.EndClass;
+		}
+		return ConfigStreamItem.Type.EndStream;
+	}
+
+	@Override
+	@Nullable
+	public ConfigStreamItem.Type type() {
+		return type;
+	}
+
+	@Override
+	@NotNull
+	public CharSequence name() {
+		return buffer.getString(nameString());
+	}
+
+	@Override
+	@Nullable
+	public CharSequence parentClassName() {
+		if (type != ConfigStreamItem.Type.Class) {
+			throw new IllegalStateException("not on a class");
+		}
+		return buffer.getStringOrNull(buffer.getClassParentName(current));
+	}
+
+	@Override
+	@NotNull
+	public ByteBuffer nameBytes() {
+		int name = nameString();
+		if (nameView == null) {
+			nameView = buffer.duplicate();
+		}
+		return buffer.viewString(name, nameView);
+	}
+
+	@Override
+	@NotNull
+	public ValueType valueType() {
+		if (type != ConfigStreamItem.Type.Field) {
+			return ValueType.None;
+		}
+		switch (buffer.getValueType(buffer.getFieldValueRecord(current))) {
+			case SnapshotBuffer.TYPE_SCALAR: {
+				return ValueType.Scalar;
+			}
+			case SnapshotBuffer.TYPE_TEXT: {
+				return ValueType.Text;
+			}
+			default: {
+				return ValueType.Array;
+			}
+		}
+	}
+
+	@Override
+	public double scalarValue() {
+		checkValueType(ValueType.Scalar);
+		return Double.longBitsToDouble(buffer.getValuePayload(buffer.getFieldValueRecord(current)));
+	}
+
+	@Override
+	@NotNull
+	public CharSequence textValue() {
+		checkValueType(ValueType.Text);
+		return buffer.getString((int) buffer.getValuePayload(buffer.getFieldValueRecord(current)));
+	}
+
+	@Override
+	public int arrayLength() {
+		checkValueType(ValueType.Array);
+		return (int) buffer.getValuePayload(buffer.getFieldValueRecord(current));
+	}
+
+	@Override
+	@NotNull
+	public ConfigFieldValue value() {
+		if (type != ConfigStreamItem.Type.Field) {
+			throw new IllegalStateException("not on a field");
+		}
+		return buffer.getValue(buffer.getFieldValueRecord(current));
+	}
+
+	@Override
+	public void skipCurrentClass() {
+		if (depth <= 0) {
+			return;
+		}
+		int c = classes[depth - 1];
+		nextIndex[depth - 1] = buffer.getClassFieldCount(c) + buffer.getClassClassCount(c);
+	}
+
+	private int nameString() {
+		if (type == ConfigStreamItem.Type.Class) {
+			return buffer.getClassName(current);
+		}
+		if (type == ConfigStreamItem.Type.Field) {
+			return buffer.getFieldName(current);
+		}
+		throw new IllegalStateException("not on a class or field");
+	}
+
+	private void checkValueType(@NotNull ValueType expected) {
+		if (valueType() != expected) {
+			throw new IllegalStateException("value isn't " + expected);
+		}
+	}
+
+	private void push(int classIndex) {
+		if (depth == classes.length) {
+			classes = Arrays.copyOf(classes, depth * 2);
+			nextIndex = Arrays.copyOf(nextIndex, depth * 2);
+		}
+		classes[depth] = classIndex;
+		nextIndex[depth] = 0;
+		depth++;
+	}
+}
@@ -0,0 +1,186 @@
+package com.kaylerrenslow.rustyarmafiles.impl.snapshot;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigClass;
+import com.kaylerrenslow.rustyarmafiles.ConfigEntry;
+import com.kaylerrenslow.rustyarmafiles.ConfigField;
+import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+import static com.kaylerrenslow.rustyarmafiles.impl.snapshot.SnapshotBuffer.*;
+
+/**
+ Flattens a {@link ConfigClass} tree into the snapshot layout described in {@link SnapshotBuffer}.
+ Classes are numbered breadth first, so the embedded classes of every class get consecutive records.
+
+ @author K
+ @since 01/25/2019 */
+final class SnapshotWriter {
+	private final Map<String, Integer> stringIndices = new HashMap<>();
+	private final List<byte[]> strings = new ArrayList<>();
+	private final List<String> stringValues = new ArrayList<>();
+	private int stringDataSize;
+
+	private final List<ConfigClass> classes = new ArrayList<>();
+	/** per class: name, parentName, outer, firstClass, classCount, firstField, fieldCount */
+	private final List<int[]> classRecords = new ArrayList<>();
+	private final List<Integer> fieldNames = new ArrayList<>();
+	private final List<long[]> fieldValues = new ArrayList<>();
+	private final List<long[]> values = new ArrayList<>();
+
+	/**
+	 Writes the snapshot to a temporary file next to target and then moves it over target, so readers never see a
+	 partially written snapshot.
+	 */
+	void write(@NotNull ConfigClass root, @NotNull List<SourceFingerprint> sources, @NotNull File target) throws IOException {
+		int[] sourcePaths = new int[sources.size()];
+		for (int i = 0; i < sourcePaths.length; i++) {
+			sourcePaths[i] = string(sources.get(i).getFile().getPath());
+		}
+		flatten(root);
+
+		int sourcesOffset = HEADER_SIZE;
+		int stringsOffset = sourcesOffset + sources.size() * SOURCE_SIZE;
+		int classesOffset = stringsOffset + strings.size() * STRING_SIZE;
+		int fieldsOffset = classesOffset + classRecords.size() * CLASS_SIZE;
+		int valuesOffset = fieldsOffset + fieldNames.size() * FIELD_SIZE;
+		int stringDataOffset = valuesOffset + values.size() * VALUE_SIZE;
+		long size = (long) stringDataOffset + stringDataSize;
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("snapshot would be too big");
+		}
+
+		ByteBuffer out = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+		out.putInt(MAGIC).putInt(VERSION);
+		out.putInt(sources.size()).putInt(sourcesOffset);
+		out.putInt(strings.size()).putInt(stringsOffset);
+		out.putInt(classRecords.size()).putInt(classesOffset);
+		out.putInt(fieldNames.size()).putInt(fieldsOffset);
+		out.putInt(values.size()).putInt(valuesOffset);
+		out.putInt(stringDataOffset);
+		out.position(HEADER_SIZE);
+		for (int i = 0; i < sourcePaths.length; i++) {
+			SourceFingerprint source = sources.get(i);
+			out.putInt(sourcePaths[i]).putLong(source.getSize()).putLong(source.getLastModified()).putLong(source.getHash());
+		}
+		int dataOffset = 0;
+		for (int i = 0; i < strings.size(); i++) {
+			out.putInt(dataOffset).putInt(strings.get(i).length).putInt(stringValues.get(i).hashCode());
+			dataOffset += strings.get(i).length;
+		}
+		for (int[] record : classRecords) {
+			for (int value : record) {
+				out.putInt(value);
+			}
+		}
+		for (int i = 0; i < fieldNames.size(); i++) {
+			long[] value = fieldValues.get(i);
+			out.putInt(fieldNames.get(i)).putInt((int) value[0]).putLong(value[1]);
+		}
+		for (long[] value : values) {
+			out.putInt((int) value[0]).putLong(value[1]);
+		}
+		for (byte[] bytes : strings) {
+			out.put(bytes);
+		}
+		out.flip();
+
+		Path targetPath = target.getAbsoluteFile().toPath();
+		Path temp = Files.createTempFile(targetPath.getParent(), target.getName(), ".tmp");
+		try {
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				while (out.hasRemaining()) {
+					channel.write(out);
+				}
+			}
+			try {
+				Files.move(temp, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, targetPath, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private void flatten(@NotNull ConfigClass root) {
+		addClass(root, NONE);
+		for (int c = 0; c < classes.size(); c++) {
+			List<ConfigEntry> entries = classes.get(c).getEntries();
+			int[] record = classRecords.get(c);
+			record[3] = classes.size();
+			record[5] = fieldNames.size();
+			for (ConfigEntry entry : entries) {
+				if (entry.isClass()) {
+					addClass((ConfigClass) entry, c);
+					record[4]++;
+				}
+			}
+			for (ConfigEntry entry : entries) {
+				if (entry.isField()) {
+					ConfigField field = (ConfigField) entry;
+					fieldNames.add(string(field.getKey()));
+					fieldValues.add(value(field.getValue()));
+					record[6]++;
+				}
+			}
+		}
+	}
+
+	private void addClass(@NotNull ConfigClass configClass, int outer) {
+		classes.add(configClass);
+		classRecords.add(new int[]{
+				outer == NONE ? NONE : string(configClass.getClassName()),
+				stringOrNone(configClass.getParentClassName()),
+				outer, 0, 0, 0, 0
+		});
+	}
+
+	/** @return {type, payload}. Array elements are added to {@link #values}. */
+	@NotNull
+	private long[] value(@NotNull ConfigFieldValue value) {
+		if (value instanceof ConfigFieldValue.Scalar) {
+			return new long[]{TYPE_SCALAR, Double.doubleToRawLongBits(((ConfigFieldValue.Scalar) value).getValue())};
+		}
+		if (value instanceof ConfigFieldValue.Text) {
+			return new long[]{TYPE_TEXT, string(((ConfigFieldValue.Text) value).getText())};
+		}
+		ConfigFieldValue.Array array = (ConfigFieldValue.Array) value;
+		int length = array.getLength();
+		int first = values.size();
+		//reserve the element records first so that they are consecutive even if an element is an array itself
+		for (int i = 0; i < length; i++) {
+			values.add(null);
+		}
+		for (int i = 0; i < length; i++) {
+			values.set(first + i, value(array.getValue(i)));
+		}
+		return new long[]{TYPE_ARRAY, (long) first << 32 | (length & 0xFFFFFFFFL)};
+	}
+
+	private int stringOrNone(@Nullable String s) {
+		return s == null ? NONE : string(s);
+	}
+
+	private int string(@NotNull String s) {
+		Integer index = stringIndices.get(s);
+		if (index == null) {
+			index = strings.size();
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			strings.add(bytes);
+			stringValues.add(s);
+			stringDataSize += bytes.length;
+			stringIndices.put(s, index);
+		}
+		return index;
+	}
+}
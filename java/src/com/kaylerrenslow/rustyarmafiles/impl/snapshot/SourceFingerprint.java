@@ -0,0 +1,92 @@
+package com.kaylerrenslow.rustyarmafiles.impl.snapshot;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.zip.CRC32C;
+
+/**
+ Identifies the content of a source file of a snapshot by its size, last modified time and a CRC32C of its bytes.
+
+ @author K
+ @since 01/25/2019 */
+public final class SourceFingerprint {
+	private final File file;
+	private final long size;
+	private final long lastModified;
+	private final long hash;
+
+	SourceFingerprint(@NotNull File file, long size, long lastModified, long hash) {
+		this.file = file;
+		this.size = size;
+		this.lastModified = lastModified;
+		this.hash = hash;
+	}
+
+	/**
+	 Reads the whole file to fingerprint it.
+
+	 @throws IOException when the file couldn't be read
+	 */
+	@NotNull
+	public static SourceFingerprint of(@NotNull File file) throws IOException {
+		File absolute = file.getAbsoluteFile();
+		long lastModified = absolute.lastModified();
+		return new SourceFingerprint(absolute, absolute.length(), lastModified, hash(absolute));
+	}
+
+	@NotNull
+	public File getFile() {
+		return file;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	/** @return CRC32C of the content */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 Checks if the file still has the fingerprinted content. The size is compared first, and the content is only
+	 hashed when the size is the same but the last modified time changed.
+
+	 @return true if the file's content is the same, false if it changed or doesn't exist anymore
+	 @throws IOException when the file couldn't be read
+	 */
+	public boolean isUpToDate() throws IOException {
+		if (!file.isFile() || file.length() != size) {
+			return false;
+		}
+		if (file.lastModified() == lastModified) {
+			return true;
+		}
+		return hash(file) == hash;
+	}
+
+	private static long hash(@NotNull File file) throws IOException {
+		CRC32C crc = new CRC32C();
+		byte[] buffer = new byte[64 * 1024];
+		try (InputStream in = Files.newInputStream(file.toPath())) {
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				crc.update(buffer, 0, read);
+			}
+		}
+		return crc.getValue();
+	}
+
+	@Override
+	public String toString() {
+		return file + " (" + size + " bytes, modified " + lastModified + ", crc " + Long.toHexString(hash) + ")";
+	}
+}
@@ -0,0 +1,561 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ A streaming Arma config preprocessor. It supports #include, #define (with and without arguments, # stringizing
+ and ## concatenation), #undef, #ifdef, #ifndef, #if, #else and #endif.
+ <p>
+ The preprocessor is a {@link Readable}: the file is processed one logical line at a time, only when the consumer
+ (usually a {@link TextConfigLexer}) asks for more chars, so the expanded text is never built as a whole.
+ Included files come from the {@link IncludeCache} of the {@link PreprocessorContext}.
+ <p>
+ Syntax errors (an unknown directive, an #if condition that isn't an integer after expansion, macro arguments
+ without a closing parenthesis, unbalanced conditionals) are thrown from {@link #read(CharBuffer)} as a
+ {@link SyntaxException}, whose cause is a {@link ParseException}. The arguments of a macro invocation may span lines.
+
+ @author K
+ @since 01/18/2019 */
+public class ConfigPreprocessor implements Readable {
+	private static final int MAX_INCLUDE_DEPTH = 32;
+
+	/**
+	 Thrown by {@link #read(CharBuffer)} when the text has a preprocessor syntax error. {@link Readable} can only throw
+	 an {@link IOException}, so the {@link ParseException} is the cause. Its error offset is the number of the
+	 logical line (see {@link LogicalLineReader}) in the file that has the error, starting at 1.
+	 */
+	public static final class SyntaxException extends IOException {
+		SyntaxException(@NotNull ParseException cause) {
+			super(cause.getMessage(), cause);
+		}
+
+		@Override
+		@NotNull
+		public synchronized ParseException getCause() {
+			return (ParseException) super.getCause();
+		}
+	}
+
+	private final PreprocessorContext context;
+	private final MacroTable macros;
+	private final ArrayDeque<LineSource> sources = new ArrayDeque<>();
+	/** whether the lines in each nested conditional block are kept */
+	private final ArrayDeque<Boolean> conditions = new ArrayDeque<>();
+	private final StringBuilder pending = new StringBuilder(256);
+	private int pendingIndex;
+	private final Set<String> expanding = new HashSet<>();
+
+	/**
+	 @param source  text of the file
+	 @param file    path of the file, used for resolving relative includes
+	 @param context macros, include cache and include roots
+	 */
+	public ConfigPreprocessor(@NotNull Readable source, @NotNull Path file, @NotNull PreprocessorContext context) {
+		this.context = context;
+		this.macros = context.getPredefinedMacros().snapshot();
+		LogicalLineReader reader = new LogicalLineReader(source);
+		sources.push(new LineSource(file) {
+			@Override
+			@Nullable
+			String nextLine() throws IOException {
+				return reader.readLine();
+			}
+		});
+	}
+
+	/** @return the macros defined so far */
+	@NotNull
+	public MacroTable getMacros() {
+		return macros;
+	}
+
+	@Override
+	public int read(@NotNull CharBuffer cb) throws IOException {
+		int start = cb.position();
+		while (cb.hasRemaining()) {
+			if (pendingIndex >= pending.length()) {
+				if (!processNextLine()) {
+					break;
+				}
+				continue;
+			}
+			int count = Math.min(cb.remaining(), pending.length() - pendingIndex);
+			cb.append(pending, pendingIndex, pendingIndex + count);
+			pendingIndex += count;
+		}
+		int read = cb.position() - start;
+		return read == 0 && sources.isEmpty() ? -1 : read;
+	}
+
+	/**
+	 Processes lines until one produces output or the input ends.
+
+	 @return false if the input ended
+	 */
+	private boolean processNextLine() throws IOException {
+		pending.setLength(0);
+		pendingIndex = 0;
+		while (!sources.isEmpty()) {
+			LineSource source = sources.peek();
+			String line = source.next();
+			if (line == null) {
+				sources.pop();
+				continue;
+			}
+			int start = skipWhitespace(line, 0);
+			if (start < line.length() && line.charAt(start) == '#') {
+				directive(line, start + 1, source);
+				if (pending.length() > 0) {
+					return true;
+				}
+				continue;
+			}
+			if (!isActive()) {
+				continue;
+			}
+			line = joinArgumentLines(line, source);
+			expand(line, pending);
+			pending.append('\n');
+			return true;
+		}
+		if (!conditions.isEmpty()) {
+			throw new SyntaxException(new ParseException("missing #endif", 0));
+		}
+		return false;
+	}
+
+	/** @return the line, joined with the next lines of the source while a macro invocation on it isn't closed */
+	@NotNull
+	private String joinArgumentLines(@NotNull String line, @NotNull LineSource source) throws IOException {
+		int firstLine = source.lineNumber;
+		while (line.indexOf('(') >= 0 && hasOpenInvocation(line)) {
+			String next = source.next();
+			if (next == null) {
+				throw source.error("missing ) after macro arguments", firstLine);
+			}
+			line = line + '\n' + next;
+		}
+		return line;
+	}
+
+	/** @return true if the text invokes a function like macro whose arguments don't end in the text */
+	private boolean hasOpenInvocation(@NotNull String text) {
+		int length = text.length();
+		int i = 0;
+		while (i < length) {
+			char c = text.charAt(i);
+			if (c == '"') {
+				int end = text.indexOf('"', i + 1);
+				if (end < 0) {
+					return false;
+				}
+				i = end + 1;
+				continue;
+			}
+			if (!isIdentifierStart(c) || (i > 0 && Character.isLetterOrDigit(text.charAt(i - 1)))) {
+				i++;
+				continue;
+			}
+			int end = identifierEnd(text, i);
+			MacroTable.Macro macro = macros.get(text.substring(i, end));
+			int open = skipWhitespace(text, end);
+			if (macro != null && macro.params != null && open < length && text.charAt(open) == '(') {
+				int close = readArguments(text, open, new ArrayList<>(macro.params.length));
+				if (close < 0) {
+					return true;
+				}
+				i = close + 1;
+				continue;
+			}
+			i = end;
+		}
+		return false;
+	}
+
+	private void directive(@NotNull String line, int start, @NotNull LineSource source) throws IOException {
+		int nameEnd = identifierEnd(line, skipWhitespace(line, start));
+		String directive = line.substring(skipWhitespace(line, start), nameEnd);
+		int argsStart = skipWhitespace(line, nameEnd);
+		switch (directive) {
+			case "ifdef":
+			case "ifndef": {
+				String name = line.substring(argsStart, identifierEnd(line, argsStart));
+				boolean defined = macros.isDefined(name);
+				conditions.push(isActive() && (directive.equals("ifdef") == defined));
+				return;
+			}
+			case "if": {
+				conditions.push(isActive() && evaluate(line.substring(argsStart), source));
+				return;
+			}
+			case "else": {
+				if (conditions.isEmpty()) {
+					throw source.error("#else without #if");
+				}
+				boolean taken = conditions.pop();
+				conditions.push(isActive() && !taken);
+				return;
+			}
+			case "endif": {
+				if (conditions.isEmpty()) {
+					throw source.error("#endif without #if");
+				}
+				conditions.pop();
+				return;
+			}
+		}
+		if (!isActive()) {
+			return;
+		}
+		switch (directive) {
+			case "define": {
+				define(line, argsStart);
+				break;
+			}
+			case "undef": {
+				macros.undefine(line.substring(argsStart, identifierEnd(line, argsStart)));
+				break;
+			}
+			case "include": {
+				include(line.substring(argsStart).trim(), source);
+				break;
+			}
+			case "": {
+				//a lone # does nothing
+				break;
+			}
+			default: {
+				throw source.error("unsupported directive #" + directive);
+			}
+		}
+	}
+
+	private void define(@NotNull String line, int start) {
+		int nameEnd = identifierEnd(line, start);
+		String name = line.substring(start, nameEnd);
+		if (nameEnd < line.length() && line.charAt(nameEnd) == '(') {
+			int close = line.indexOf(')', nameEnd);
+			if (close < 0) {
+				close = line.length();
+			}
+			List<String> params = new ArrayList<>();
+			for (String param : line.substring(nameEnd + 1, close).split(",")) {
+				if (!param.isBlank()) {
+					params.add(param.trim());
+				}
+			}
+			String body = close < line.length() ? line.substring(close + 1).trim() : "";
+			macros.define(name, params, body);
+		} else {
+			macros.define(name, line.substring(nameEnd).trim());
+		}
+	}
+
+	private void include(@NotNull String pathText, @NotNull LineSource source) throws IOException {
+		if (pathText.length() < 2) {
+			throw source.error("bad #include " + pathText);
+		}
+		char open = pathText.charAt(0);
+		char close = pathText.charAt(pathText.length() - 1);
+		if (!(open == '"' && close == '"') && !(open == '<' && close == '>')) {
+			throw source.error("bad #include " + pathText);
+		}
+		if (sources.size() >= MAX_INCLUDE_DEPTH) {
+			throw new IOException("#include nested too deep (recursive include?) " + pathText);
+		}
+		Path file = resolveInclude(pathText.substring(1, pathText.length() - 1).replace('\\', '/'), source.file);
+		String[] lines = context.getIncludeCache().getLines(file);
+		sources.push(new LineSource(file) {
+			private int next = 0;
+
+			@Override
+			@Nullable
+			String nextLine() {
+				return next < lines.length ? lines[next++] : null;
+			}
+		});
+	}
+
+	@NotNull
+	private Path resolveInclude(@NotNull String path, @NotNull Path includingFile) throws FileNotFoundException {
+		boolean absolute = path.startsWith("/");
+		String relative = absolute ? path.substring(1) : path;
+		if (!absolute) {
+			Path dir = includingFile.toAbsolutePath().getParent();
+			Path candidate = dir == null ? Path.of(relative) : dir.resolve(relative);
+			if (Files.isRegularFile(candidate)) {
+				return candidate;
+			}
+		}
+		for (Path root : context.getIncludeRoots()) {
+			Path candidate = root.resolve(relative);
+			if (Files.isRegularFile(candidate)) {
+				return candidate;
+			}
+		}
+		throw new FileNotFoundException("couldn't resolve #include " + path + " from " + includingFile);
+	}
+
+	/**
+	 Evaluates an #if condition. Like the game's preprocessor, only a macro expanding to an integer (or an integer
+	 literal) is supported.
+
+	 @throws SyntaxException when the condition isn't an integer after expansion
+	 */
+	private boolean evaluate(@NotNull String condition, @NotNull LineSource source) throws SyntaxException {
+		StringBuilder expanded = new StringBuilder();
+		expand(condition, expanded);
+		String value = expanded.toString().trim();
+		try {
+			return Long.parseLong(value) != 0;
+		} catch (NumberFormatException e) {
+			throw source.error("unsupported #if condition " + condition.trim() + (value.equals(condition.trim()) ? "" : " (expands to " + value + ")"));
+		}
+	}
+
+	/** Appends text to out with all macros expanded. Macros aren't expanded inside of double quoted strings. */
+	private void expand(@NotNull CharSequence text, @NotNull StringBuilder out) {
+		int length = text.length();
+		int i = 0;
+		while (i < length) {
+			char c = text.charAt(i);
+			if (c == '"') {
+				int end = i + 1;
+				while (end < length && text.charAt(end) != '"') {
+					end++;
+				}
+				end = Math.min(end + 1, length);
+				out.append(text, i, end);
+				i = end;
+				continue;
+			}
+			if (Character.isDigit(c)) {
+				//numbers like 1e5 aren't an identifier after a digit
+				int end = identifierEnd(text, i);
+				out.append(text, i, end);
+				i = end;
+				continue;
+			}
+			if (!isIdentifierStart(c)) {
+				out.append(c);
+				i++;
+				continue;
+			}
+			int end = identifierEnd(text, i);
+			String name = text.subSequence(i, end).toString();
+			MacroTable.Macro macro = expanding.contains(name) ? null : macros.get(name);
+			if (macro == null) {
+				out.append(name);
+				i = end;
+				continue;
+			}
+			if (macro.params == null) {
+				expanding.add(name);
+				expand(macro.body, out);
+				expanding.remove(name);
+				i = end;
+				continue;
+			}
+			int open = skipWhitespace(text, end);
+			List<String> args = new ArrayList<>(macro.params.length);
+			int close = open < length && text.charAt(open) == '(' ? readArguments(text, open, args) : -1;
+			if (close < 0) {
+				//not invoked, so it isn't expanded
+				out.append(name);
+				i = end;
+				continue;
+			}
+			expanding.add(name);
+			expand(substitute(macro, args), out);
+			expanding.remove(name);
+			i = close + 1;
+		}
+	}
+
+	/**
+	 Reads the comma separated arguments of a macro invocation.
+
+	 @return index of the closing parenthesis, or -1 if there is none
+	 */
+	private static int readArguments(@NotNull CharSequence text, int open, @NotNull List<String> args) {
+		int depth = 0;
+		int argStart = open + 1;
+		boolean inString = false;
+		for (int i = open + 1; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"') {
+				inString = !inString;
+			} else if (inString) {
+				continue;
+			} else if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				if (depth == 0) {
+					args.add(text.subSequence(argStart, i).toString().trim());
+					return i;
+				}
+				depth--;
+			} else if (c == ',' && depth == 0) {
+				args.add(text.subSequence(argStart, i).toString().trim());
+				argStart = i + 1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 Replaces the parameters in the body of the macro and applies # and ##.
+	 Like the game's preprocessor, arguments are expanded before they are substituted (even when stringized),
+	 and macros on either side of a ## are expanded before they are concatenated.
+
+	 @return the body of the macro with its parameters replaced
+	 */
+	@NotNull
+	private String substitute(@NotNull MacroTable.Macro macro, @NotNull List<String> args) {
+		String[] expandedArgs = new String[macro.params.length];
+		for (int a = 0; a < expandedArgs.length; a++) {
+			if (a < args.size()) {
+				StringBuilder expandedArg = new StringBuilder(args.get(a).length());
+				expand(args.get(a), expandedArg);
+				expandedArgs[a] = expandedArg.toString();
+			} else {
+				expandedArgs[a] = "";
+			}
+		}
+		String body = macro.body;
+		StringBuilder out = new StringBuilder(body.length() + 16);
+		int i = 0;
+		while (i < body.length()) {
+			char c = body.charAt(i);
+			if (c == '#' && i + 1 < body.length() && body.charAt(i + 1) == '#') {
+				//concatenation: drop the operator and the whitespace around it
+				while (out.length() > 0 && Character.isWhitespace(out.charAt(out.length() - 1))) {
+					out.setLength(out.length() - 1);
+				}
+				i = skipWhitespace(body, i + 2);
+				continue;
+			}
+			if (c == '#') {
+				int paramStart = skipWhitespace(body, i + 1);
+				int paramEnd = identifierEnd(body, paramStart);
+				int param = paramIndex(macro, body, paramStart, paramEnd);
+				if (param >= 0) {
+					out.append('"').append(expandedArgs[param]).append('"');
+					i = paramEnd;
+					continue;
+				}
+			}
+			if (isIdentifierStart(c)) {
+				int end = identifierEnd(body, i);
+				int param = paramIndex(macro, body, i, end);
+				if (param >= 0) {
+					out.append(expandedArgs[param]);
+				} else if (isConcatenated(body, i, end)) {
+					expand(body.substring(i, end), out);
+				} else {
+					out.append(body, i, end);
+				}
+				i = end;
+				continue;
+			}
+			out.append(c);
+			i++;
+		}
+		return out.toString();
+	}
+
+	/** @return true if the token in [start, end) is an operand of ## */
+	private static boolean isConcatenated(@NotNull String body, int start, int end) {
+		int before = start - 1;
+		while (before >= 0 && Character.isWhitespace(body.charAt(before))) {
+			before--;
+		}
+		if (before >= 1 && body.charAt(before) == '#' && body.charAt(before - 1) == '#') {
+			return true;
+		}
+		int after = skipWhitespace(body, end);
+		return after + 1 < body.length() && body.charAt(after) == '#' && body.charAt(after + 1) == '#';
+	}
+
+	private static int paramIndex(@NotNull MacroTable.Macro macro, @NotNull String body, int start, int end) {
+		if (start >= end) {
+			return -1;
+		}
+		for (int p = 0; p < macro.params.length; p++) {
+			String param = macro.params[p];
+			if (param.length() == end - start && body.startsWith(param, start)) {
+				return p;
+			}
+		}
+		return -1;
+	}
+
+	private boolean isActive() {
+		return conditions.isEmpty() || conditions.peek();
+	}
+
+	private static int skipWhitespace(@NotNull CharSequence text, int i) {
+		while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean isIdentifierStart(char c) {
+		return Character.isLetter(c) || c == '_';
+	}
+
+	private static int identifierEnd(@NotNull CharSequence text, int i) {
+		while (i < text.length() && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_')) {
+			i++;
+		}
+		return i;
+	}
+
+	private abstract static class LineSource {
+		private final Path file;
+		/** number of the logical line that was read last */
+		private int lineNumber;
+
+		LineSource(@NotNull Path file) {
+			this.file = file;
+		}
+
+		/** @return the next logical line, or null at the end of the source */
+		@Nullable
+		final String next() throws IOException {
+			String line = nextLine();
+			if (line != null) {
+				lineNumber++;
+			}
+			return line;
+		}
+
+		@Nullable
+		abstract String nextLine() throws IOException;
+
+		/** @return an error at the line that was read last */
+		@NotNull
+		SyntaxException error(@NotNull String message) {
+			return error(message, lineNumber);
+		}
+
+		@NotNull
+		SyntaxException error(@NotNull String message, int line) {
+			return new SyntaxException(new ParseException(file + ":" + line + ": " + message, line));
+		}
+	}
+}
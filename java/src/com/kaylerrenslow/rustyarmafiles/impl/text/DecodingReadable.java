@@ -0,0 +1,47 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ A {@link Readable} that decodes a {@link ByteBuffer} (usually a mapped file) straight into the caller's
+ {@link CharBuffer}, so no intermediate char or byte arrays are made.
+
+ @author K
+ @since 01/17/2019 */
+final class DecodingReadable implements Readable {
+	private final ByteBuffer bytes;
+	private final CharsetDecoder decoder;
+	private boolean flushed;
+
+	DecodingReadable(@NotNull ByteBuffer bytes, @NotNull Charset charset) {
+		this.bytes = bytes;
+		this.decoder = charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	@Override
+	public int read(@NotNull CharBuffer cb) throws IOException {
+		if (flushed) {
+			return -1;
+		}
+		int start = cb.position();
+		CoderResult result = decoder.decode(bytes, cb, true);
+		if (result.isError()) {
+			result.throwException();
+		}
+		if (result.isUnderflow() && decoder.flush(cb).isUnderflow()) {
+			flushed = true;
+		}
+		int read = cb.position() - start;
+		return read == 0 && flushed ? -1 : read;
+	}
+}
@@ -0,0 +1,78 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ Caches the logical lines (see {@link LogicalLineReader}) of included files by path and last modified time,
+ so headers like script_component.hpp that are included by hundreds of files are only read and split once.
+ A single instance is meant to be shared by every {@link ConfigPreprocessor} and is thread safe.
+
+ @author K
+ @since 01/18/2019 */
+public final class IncludeCache {
+	private final ConcurrentHashMap<Path, CachedFile> files = new ConcurrentHashMap<>();
+	private final Charset charset;
+
+	public IncludeCache(@NotNull Charset charset) {
+		this.charset = charset;
+	}
+
+	/** @return the logical lines of the file, read from disk if the file isn't cached or was modified since */
+	@NotNull
+	String[] getLines(@NotNull Path file) throws IOException {
+		Path key = file.toAbsolutePath().normalize();
+		FileTime modified = Files.getLastModifiedTime(key);
+		CachedFile cached = files.get(key);
+		if (cached != null && cached.modified.equals(modified)) {
+			return cached.lines;
+		}
+		cached = new CachedFile(modified, readLines(key));
+		files.put(key, cached);
+		return cached.lines;
+	}
+
+	public void clear() {
+		files.clear();
+	}
+
+	public int size() {
+		return files.size();
+	}
+
+	@NotNull
+	private String[] readLines(@NotNull Path file) throws IOException {
+		ByteBuffer bytes;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		LogicalLineReader reader = new LogicalLineReader(new DecodingReadable(bytes, charset));
+		List<String> lines = new ArrayList<>();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lines.add(line);
+		}
+		return lines.toArray(new String[0]);
+	}
+
+	private static class CachedFile {
+		private final FileTime modified;
+		private final String[] lines;
+
+		public CachedFile(@NotNull FileTime modified, @NotNull String[] lines) {
+			this.modified = modified;
+			this.lines = lines;
+		}
+	}
+}
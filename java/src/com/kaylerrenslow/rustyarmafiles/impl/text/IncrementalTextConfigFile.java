@@ -0,0 +1,630 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import com.kaylerrenslow.rustyarmafiles.*;
+import com.kaylerrenslow.rustyarmafiles.jfr.ParseEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.text.ParseException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ A plain text {@link ConfigFile} (without preprocessing) that can be reloaded incrementally while it is edited.
+ <p>
+ {@link #reload()} reads the file again and skips all work if the CRC32C of its bytes didn't change. Otherwise the
+ top level entries are lexed again (class bodies are only skipped over), and the text of each top level class is
+ compared with the text it had before, using a hash and then the chars. A class whose text didn't change keeps its
+ {@link ConfigClass} object, together with everything that was already lexed inside it. Only changed and new classes
+ get new objects. The {@link ConfigClassHierarchy} of the file is cleared on every change.
+ <p>
+ Kept classes still read the text they were created from. Once the old texts kept alive this way add up to more
+ than the current text, every class is recreated over the current text (see {@link Delta#getReplacedClasses()}).
+ Kept fields don't keep old text alive, since their values are decoded when they are lexed.
+ <p>
+ {@link #watch()} reloads the file whenever a {@link WatchService} reports it was modified, and {@link Listener}s are
+ told what changed. {@link #close()} stops watching.
+
+ @author K
+ @since 02/01/2019 */
+public class IncrementalTextConfigFile implements ConfigFile, AutoCloseable {
+	/** how long to wait for more change events before reloading, since editors often write a file in steps */
+	private static final long WATCH_SETTLE_MILLIS = 50;
+
+	/** Told about every reload that changed the file */
+	public interface Listener {
+		/**
+		 Invoked after the new entries are visible through {@link #getRoot()}. Listeners are invoked while the reload
+		 still holds its lock, so they are told about reloads in the order they happened, and the next reload waits
+		 until they return.
+		 */
+		void configChanged(@NotNull IncrementalTextConfigFile file, @NotNull Delta delta);
+
+		/**
+		 Invoked when a reload done by {@link #watch()} failed. The previous entries are kept and the file is still
+		 watched, whatever was thrown.
+		 */
+		default void reloadFailed(@NotNull IncrementalTextConfigFile file, @NotNull Throwable e) {
+		}
+	}
+
+	/** The top level entries that changed in a reload, by name */
+	public static final class Delta {
+		private final List<String> addedClasses = new ArrayList<>();
+		private final List<String> removedClasses = new ArrayList<>();
+		private final List<String> changedClasses = new ArrayList<>();
+		private final List<String> replacedClasses = new ArrayList<>();
+		private final List<String> changedFields = new ArrayList<>();
+
+		Delta() {
+		}
+
+		/** @return classes that didn't exist before */
+		@NotNull
+		public List<String> getAddedClasses() {
+			return addedClasses;
+		}
+
+		/** @return classes that don't exist anymore */
+		@NotNull
+		public List<String> getRemovedClasses() {
+			return removedClasses;
+		}
+
+		/** @return classes whose text changed. They have a new {@link ConfigClass}. */
+		@NotNull
+		public List<String> getChangedClasses() {
+			return changedClasses;
+		}
+
+		/** @return classes whose text didn't change, but got a new {@link ConfigClass} to release old text */
+		@NotNull
+		public List<String> getReplacedClasses() {
+			return replacedClasses;
+		}
+
+		/** @return fields that were added, removed or changed */
+		@NotNull
+		public List<String> getChangedFields() {
+			return changedFields;
+		}
+
+		/** @return true if no top level entry changed */
+		public boolean isEmpty() {
+			return addedClasses.isEmpty() && removedClasses.isEmpty() && changedClasses.isEmpty() && replacedClasses.isEmpty() && changedFields.isEmpty();
+		}
+
+		@Override
+		public String toString() {
+			return "Delta{added=" + addedClasses + ", removed=" + removedClasses + ", changed=" + changedClasses +
+					", replaced=" + replacedClasses + ", changedFields=" + changedFields + "}";
+		}
+	}
+
+	private final File configFile;
+	private final Charset charset;
+	private final boolean lazy;
+	private final ConfigClassHierarchy hierarchy = new ConfigClassHierarchy();
+	private final Root root = new Root();
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+	private final Object reloadLock = new Object();
+	private volatile Version version;
+	private WatchService watchService;
+
+	/** Creates a UTF-8 config whose changed classes are lexed lazily */
+	public IncrementalTextConfigFile(@NotNull File configFile) {
+		this(configFile, StandardCharsets.UTF_8, true);
+	}
+
+	/**
+	 @param configFile the file
+	 @param charset    charset of the file
+	 @param lazy       false if every new or changed class should be lexed fully when it is loaded, so syntax errors
+	 are thrown by {@link #parse()} and {@link #reload()}. See {@link TextConfigFile#TextConfigFile(File, Charset, boolean)}
+	 */
+	public IncrementalTextConfigFile(@NotNull File configFile, @NotNull Charset charset, boolean lazy) {
+		this.configFile = configFile;
+		this.charset = charset;
+		this.lazy = lazy;
+	}
+
+	public void addListener(@NotNull Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(@NotNull Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 The root. Unlike with other files, the same instance is kept across reloads, and it always reads the entries of
+	 the latest reload.
+	 */
+	@Override
+	@NotNull
+	public ConfigClass getRoot() {
+		if (version == null) {
+			throw new IllegalStateException();
+		}
+		return root;
+	}
+
+	@Override
+	@NotNull
+	public File getFile() {
+		return configFile;
+	}
+
+	/** Loads the file. Same as {@link #reload()}. */
+	@Override
+	public void parse() throws IOException, ParseException {
+		reload();
+	}
+
+	@Override
+	public boolean isParsed() {
+		return version != null;
+	}
+
+	@Override
+	@NotNull
+	public ConfigStream newStream() {
+		if (version != null) {
+			return root.newStream();
+		}
+		return new TextConfigFile(configFile, charset, true).newStream();
+	}
+
+	@Override
+	@NotNull
+	public ConfigCursor newCursor() {
+		if (version != null) {
+			return root.newCursor();
+		}
+		return new TextConfigFile(configFile, charset, true).newCursor();
+	}
+
+	@Override
+	public boolean isRapified() {
+		return false;
+	}
+
+	/**
+	 Reads the file again and replaces the entries that changed. Listeners are told if any did, before this returns.
+
+	 @return what changed, or null if the file's bytes didn't change since the last reload
+	 @throws IOException    when the file couldn't be read
+	 @throws ParseException when the top level entries (or in non lazy mode, the new or changed classes) have a
+	 syntax error. The previous entries are kept.
+	 */
+	@Nullable
+	public Delta reload() throws IOException, ParseException {
+		Delta delta;
+		ParseEvent event = new ParseEvent();
+		event.begin();
+		synchronized (reloadLock) {
+			ByteBuffer bytes = readFile();
+			CRC32C crc = new CRC32C();
+			crc.update(bytes.duplicate());
+			long fileHash = crc.getValue();
+			Version old = version;
+			if (old != null && old.fileHash == fileHash && old.fileSize == bytes.remaining()) {
+				return null;
+			}
+			int fileSize = bytes.remaining();
+			CharBuffer content = charset.decode(bytes);
+			delta = new Delta();
+			Version next = new Version(content, fileHash, fileSize);
+			readTopLevel(old, next, delta);
+			if (old != null) {
+				releaseOldText(next, delta);
+			}
+			if (!lazy) {
+				for (Segment segment : next.classes.values()) {
+					if (segment.entryText == content) {
+						((TextConfigClass) segment.entry).parseAll();
+					}
+				}
+			}
+			version = next;
+			hierarchy.clear();
+			ConfigMetrics.commitParse(event, configFile, "text", fileSize);
+			//still under the lock, so that deltas of consecutive reloads can't be delivered out of order
+			for (Listener listener : listeners) {
+				listener.configChanged(this, delta);
+			}
+		}
+		return delta;
+	}
+
+	/** Lexes the top level entries of next, reusing the classes and fields of old whose text didn't change */
+	private void readTopLevel(@Nullable Version old, @NotNull Version next, @NotNull Delta delta) throws ParseException {
+		CharBuffer content = next.content;
+		TextConfigCursor cursor = new TextConfigCursor(new TextConfigLexer(content, 0), false);
+		ConfigStringPool pool = ConfigStringPool.getShared();
+		//entries declared more than once are applied in order, like TextConfigClass does
+		Map<String, String> parentNames = new HashMap<>();
+		Map<String, ConfigFieldValue> values = new HashMap<>();
+		int start = 0;
+		try {
+			ConfigStreamItem.Type type;
+			while ((type = cursor.advance()) != ConfigStreamItem.Type.EndStream) {
+				switch (type) {
+					case Class: {
+						String name = pool.intern(cursor.name());
+						CharSequence parentName = cursor.parentClassName();
+						int bodyStart = (int) cursor.position();
+						cursor.skipCurrentClass();
+						cursor.advance();
+						int end = (int) cursor.position();
+						next.fields.remove(name);
+						values.remove(name);
+						Segment segment = new Segment(content, start, end, bodyStart - start);
+						Segment first = next.classes.putIfAbsent(name, segment);
+						if (first != null) {
+							first.last().update = segment;
+						}
+						if (parentName != null) {
+							parentNames.put(name, pool.intern(parentName));
+						}
+						break;
+					}
+					case Field: {
+						String key = pool.intern(cursor.name());
+						int end = (int) cursor.position();
+						next.classes.remove(key);
+						parentNames.remove(key);
+						values.put(key, TextConfigClass.update(values.get(key), cursor.value(), cursor.isAppend()));
+						Segment segment = new Segment(content, start, end, 0);
+						Segment first = next.fields.putIfAbsent(key, segment);
+						if (first != null) {
+							first.last().update = segment;
+						}
+						break;
+					}
+					default: {
+						throw new IllegalStateException();
+					}
+				}
+				start = (int) cursor.position();
+			}
+		} catch (ConfigStreamException e) {
+			if (e.getCause() instanceof ParseException) {
+				throw (ParseException) e.getCause();
+			}
+			//content is already in memory
+			throw new IllegalStateException(e.getCause());
+		}
+		for (Map.Entry<String, Segment> entry : next.classes.entrySet()) {
+			String name = entry.getKey();
+			Segment segment = entry.getValue();
+			Segment previous = old == null ? null : old.classes.get(name);
+			if (previous != null && previous.sameText(old.content, segment, content)) {
+				segment.keep(previous);
+			} else {
+				segment.entry = new TextConfigClass(content, segment.bodyStarts(), name, parentNames.get(name), root, hierarchy);
+				segment.entryText = content;
+				(previous == null ? delta.addedClasses : delta.changedClasses).add(name);
+			}
+		}
+		for (Map.Entry<String, Segment> entry : next.fields.entrySet()) {
+			String key = entry.getKey();
+			Segment segment = entry.getValue();
+			Segment previous = old == null ? null : old.fields.get(key);
+			if (previous != null && previous.sameText(old.content, segment, content)) {
+				segment.keep(previous);
+			} else {
+				segment.entry = new TextConfigField(key, values.get(key));
+				delta.changedFields.add(key);
+			}
+		}
+		if (old != null) {
+			for (String name : old.classes.keySet()) {
+				if (!next.classes.containsKey(name)) {
+					delta.removedClasses.add(name);
+				}
+			}
+			for (String key : old.fields.keySet()) {
+				if (!next.fields.containsKey(key)) {
+					delta.changedFields.add(key);
+				}
+			}
+		}
+	}
+
+	/**
+	 Recreates the kept classes over the current text if the old texts kept alive by the entries of next are bigger
+	 than it. Only classes keep old text alive, since the segments themselves only hold offsets into the current text
+	 and field values are decoded, but fields are counted the same way in case that changes.
+	 */
+	private void releaseOldText(@NotNull Version next, @NotNull Delta delta) {
+		Set<CharBuffer> oldTexts = Collections.newSetFromMap(new IdentityHashMap<>());
+		long oldTextSize = 0;
+		for (Map<String, Segment> segments : Arrays.asList(next.classes, next.fields)) {
+			for (Segment segment : segments.values()) {
+				CharBuffer text = segment.entryText;
+				if (text != null && text != next.content && oldTexts.add(text)) {
+					oldTextSize += text.capacity();
+				}
+			}
+		}
+		if (oldTextSize <= next.content.capacity()) {
+			return;
+		}
+		for (Map.Entry<String, Segment> entry : next.classes.entrySet()) {
+			Segment segment = entry.getValue();
+			if (segment.entryText == next.content) {
+				continue;
+			}
+			ConfigClass kept = (ConfigClass) segment.entry;
+			segment.entry = new TextConfigClass(next.content, segment.bodyStarts(), kept.getClassName(), kept.getParentClassName(), root, hierarchy);
+			segment.entryText = next.content;
+			delta.replacedClasses.add(entry.getKey());
+		}
+	}
+
+	/**
+	 Starts reloading the file whenever it is modified, on a daemon thread. Does nothing if already watching.
+
+	 @throws IOException when the directory of the file can't be watched
+	 */
+	public void watch() throws IOException {
+		synchronized (reloadLock) {
+			if (watchService != null) {
+				return;
+			}
+			Path path = configFile.toPath().toAbsolutePath();
+			WatchService service = FileSystems.getDefault().newWatchService();
+			path.getParent().register(service, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+			Thread thread = new Thread(() -> watchLoop(service, path.getFileName()), "watch " + configFile.getName());
+			thread.setDaemon(true);
+			watchService = service;
+			thread.start();
+		}
+	}
+
+	/** Stops watching the file */
+	@Override
+	public void close() throws IOException {
+		WatchService service;
+		synchronized (reloadLock) {
+			service = watchService;
+			watchService = null;
+		}
+		if (service != null) {
+			service.close();
+		}
+	}
+
+	private void watchLoop(@NotNull WatchService service, @NotNull Path fileName) {
+		try {
+			for (; ; ) {
+				WatchKey key = service.take();
+				boolean changed = pollChanged(key, fileName);
+				//wait until the writes settle
+				while ((key = service.poll(WATCH_SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+					changed |= pollChanged(key, fileName);
+				}
+				if (!changed) {
+					continue;
+				}
+				try {
+					reload();
+				} catch (Throwable t) {
+					//anything thrown here would end the thread silently, and the file would no longer be watched
+					for (Listener listener : listeners) {
+						listener.reloadFailed(this, t);
+					}
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			//stopped
+		}
+	}
+
+	private static boolean pollChanged(@NotNull WatchKey key, @NotNull Path fileName) {
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+				changed = true;
+			}
+		}
+		key.reset();
+		return changed;
+	}
+
+	/**
+	 Reads the whole file onto the heap. The file is often being written by an editor, so it isn't memory mapped:
+	 a mapped file that is truncated while it is read faults the JVM, and on Windows a mapping that is still alive
+	 keeps the editor from saving the file.
+	 */
+	@NotNull
+	private ByteBuffer readFile() throws IOException {
+		byte[] bytes = Files.readAllBytes(configFile.toPath());
+		ConfigMetrics.add(ConfigMetrics.Counter.BytesRead, bytes.length);
+		return ByteBuffer.wrap(bytes);
+	}
+
+	/**
+	 The text of one top level entry, including the comments before it, as offsets into the content of the
+	 {@link Version} the segment belongs to. A segment never refers to the text of another version itself.
+	 */
+	private static final class Segment {
+		final int start;
+		final int end;
+		/** offset of a class body from {@link #start} */
+		final int bodyOffset;
+		final int hash;
+		/** the next declaration of the same entry, or null. Only the first declaration has the entry. */
+		Segment update;
+		ConfigEntry entry;
+		/**
+		 text the entry reads, which is the text of an older version if the entry was kept. Null for fields, since their
+		 values are decoded when they are lexed.
+		 */
+		CharBuffer entryText;
+
+		Segment(@NotNull CharBuffer content, int start, int end, int bodyOffset) {
+			//whitespace in front doesn't belong to the entry, so entries can be moved around
+			while (start < end && Character.isWhitespace(content.get(start))) {
+				start++;
+				bodyOffset--;
+			}
+			this.start = start;
+			this.end = end;
+			this.bodyOffset = bodyOffset;
+			int h = 0;
+			for (int i = start; i < end; i++) {
+				h = 31 * h + content.get(i);
+			}
+			this.hash = h;
+		}
+
+		/**
+		 @return true if this segment of content and its updates have the same text as the other segment of
+		 otherContent and its updates
+		 */
+		boolean sameText(@NotNull CharBuffer content, @NotNull Segment other, @NotNull CharBuffer otherContent) {
+			Segment a = this;
+			Segment b = other;
+			for (; a != null && b != null; a = a.update, b = b.update) {
+				if (a.hash != b.hash || a.end - a.start != b.end - b.start) {
+					return false;
+				}
+				for (int i = 0; i < a.end - a.start; i++) {
+					if (content.get(a.start + i) != otherContent.get(b.start + i)) {
+						return false;
+					}
+				}
+			}
+			return a == null && b == null;
+		}
+
+		@NotNull
+		Segment last() {
+			Segment last = this;
+			while (last.update != null) {
+				last = last.update;
+			}
+			return last;
+		}
+
+		/** @return the start of the body of this class declaration and its updates */
+		@NotNull
+		int[] bodyStarts() {
+			int count = 0;
+			for (Segment s = this; s != null; s = s.update) {
+				count++;
+			}
+			int[] bodyStarts = new int[count];
+			int i = 0;
+			for (Segment s = this; s != null; s = s.update) {
+				bodyStarts[i++] = s.start + s.bodyOffset;
+			}
+			return bodyStarts;
+		}
+
+		/** Takes the entry of a segment of the previous version that has the same text */
+		void keep(@NotNull Segment previous) {
+			entry = previous.entry;
+			entryText = previous.entryText;
+		}
+	}
+
+	private static final class Version {
+		final CharBuffer content;
+		final long fileHash;
+		final int fileSize;
+		final Map<String, Segment> classes = new LinkedHashMap<>();
+		final Map<String, Segment> fields = new LinkedHashMap<>();
+
+		Version(@NotNull CharBuffer content, long fileHash, int fileSize) {
+			this.content = content;
+			this.fileHash = fileHash;
+			this.fileSize = fileSize;
+		}
+	}
+
+	/** The root, which reads the latest version */
+	private final class Root implements ConfigClass {
+		@Override
+		@NotNull
+		public String getClassName() {
+			return "";
+		}
+
+		@Override
+		@NotNull
+		public ConfigStream newStream() {
+			return new TextConfigClassStream(new TextConfigCursor(new TextConfigLexer(version.content, 0), false));
+		}
+
+		@Override
+		@NotNull
+		public ConfigCursor newCursor() {
+			return new TextConfigCursor(new TextConfigLexer(version.content, 0), false);
+		}
+
+		@Override
+		@Nullable
+		public ConfigClass getClass(@NotNull String className) {
+			Segment segment = version.classes.get(className);
+			return segment == null ? null : (ConfigClass) segment.entry;
+		}
+
+		@Override
+		@Nullable
+		public ConfigFieldValue getFieldValue(@NotNull String key) {
+			Segment segment = version.fields.get(key);
+			return segment == null ? null : ((ConfigField) segment.entry).getValue();
+		}
+
+		@Override
+		@Nullable
+		public ConfigEntry getEntry(@NotNull String name) {
+			Version version = IncrementalTextConfigFile.this.version;
+			Segment segment = version.classes.get(name);
+			if (segment == null) {
+				segment = version.fields.get(name);
+			}
+			return segment == null ? null : segment.entry;
+		}
+
+		/** @return the classes followed by the fields, like {@link TextConfigClass#getEntries()} */
+		@Override
+		@NotNull
+		public List<ConfigEntry> getEntries() {
+			Version version = IncrementalTextConfigFile.this.version;
+			List<ConfigEntry> entries = new ArrayList<>(version.classes.size() + version.fields.size());
+			for (Segment segment : version.classes.values()) {
+				entries.add(segment.entry);
+			}
+			for (Segment segment : version.fields.values()) {
+				entries.add(segment.entry);
+			}
+			return entries;
+		}
+
+		@Override
+		@NotNull
+		public ConfigClassHierarchy getHierarchy() {
+			return hierarchy;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ Splits text into logical lines for {@link ConfigPreprocessor}: comments are removed and lines ending with \ are joined
+ with the next line. Double quoted strings are honored so // inside of them isn't treated as a comment.
+
+ @author K
+ @since 01/18/2019 */
+final class LogicalLineReader {
+	private final Readable source;
+	private final CharBuffer window = CharBuffer.allocate(8192);
+	private final StringBuilder line = new StringBuilder(256);
+	private boolean sourceEnded;
+
+	LogicalLineReader(@NotNull Readable source) {
+		this.source = source;
+		window.flip();
+	}
+
+	/** @return the next logical line without its line terminator, or null at the end of the input */
+	@Nullable
+	String readLine() throws IOException {
+		line.setLength(0);
+		boolean inString = false;
+		boolean inBlockComment = false;
+		int c;
+		boolean readAny = false;
+		while ((c = read()) != -1) {
+			readAny = true;
+			if (inBlockComment) {
+				if (c == '*' && peek() == '/') {
+					read();
+					inBlockComment = false;
+					line.append(' ');
+				}
+				continue;
+			}
+			if (c == '\r') {
+				continue;
+			}
+			if (c == '\n') {
+				if (inString || line.length() == 0 || line.charAt(line.length() - 1) != '\\') {
+					return line.toString();
+				}
+				//line continuation
+				line.setLength(line.length() - 1);
+				continue;
+			}
+			if (inString) {
+				if (c == '"') {
+					inString = false;
+				}
+				line.append((char) c);
+				continue;
+			}
+			if (c == '"') {
+				inString = true;
+			} else if (c == '/' && peek() == '/') {
+				while ((c = peek()) != -1 && c != '\n') {
+					read();
+				}
+				continue;
+			} else if (c == '/' && peek() == '*') {
+				read();
+				inBlockComment = true;
+				continue;
+			}
+			line.append((char) c);
+		}
+		return readAny ? line.toString() : null;
+	}
+
+	private int read() throws IOException {
+		int c = peek();
+		if (c != -1) {
+			window.position(window.position() + 1);
+		}
+		return c;
+	}
+
+	private int peek() throws IOException {
+		while (!window.hasRemaining()) {
+			if (sourceEnded) {
+				return -1;
+			}
+			window.clear();
+			if (source.read(window) < 0) {
+				sourceEnded = true;
+			}
+			window.flip();
+		}
+		return window.get(window.position());
+	}
+}
@@ -0,0 +1,88 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ The #define table of a {@link ConfigPreprocessor}.
+ {@link #snapshot()} is O(1): the snapshot and this table share the same map until either of them is changed,
+ at which point the changed table copies it. That way every file can start from the same set of predefined macros.
+ A table isn't thread safe, but snapshots of it may be handed to different threads.
+
+ @author K
+ @since 01/18/2019 */
+public final class MacroTable {
+	private Map<String, Macro> macros;
+	private boolean shared;
+
+	public MacroTable() {
+		this.macros = new HashMap<>();
+	}
+
+	private MacroTable(@NotNull Map<String, Macro> macros) {
+		this.macros = macros;
+		this.shared = true;
+	}
+
+	/** @return a copy on write copy of this table */
+	@NotNull
+	public synchronized MacroTable snapshot() {
+		shared = true;
+		return new MacroTable(macros);
+	}
+
+	/** Defines an object like macro, #define name body */
+	public void define(@NotNull String name, @NotNull String body) {
+		put(new Macro(name, null, body));
+	}
+
+	/** Defines a function like macro, #define name(params) body */
+	public void define(@NotNull String name, @NotNull List<String> params, @NotNull String body) {
+		put(new Macro(name, params.toArray(new String[0]), body));
+	}
+
+	public void undefine(@NotNull String name) {
+		if (macros.containsKey(name)) {
+			copyIfShared();
+			macros.remove(name);
+		}
+	}
+
+	public boolean isDefined(@NotNull String name) {
+		return macros.containsKey(name);
+	}
+
+	@Nullable
+	Macro get(@NotNull String name) {
+		return macros.get(name);
+	}
+
+	private void put(@NotNull Macro macro) {
+		copyIfShared();
+		macros.put(macro.name, macro);
+	}
+
+	private synchronized void copyIfShared() {
+		if (shared) {
+			macros = new HashMap<>(macros);
+			shared = false;
+		}
+	}
+
+	static final class Macro {
+		final String name;
+		/** null for object like macros */
+		final String[] params;
+		final String body;
+
+		Macro(@NotNull String name, @Nullable String[] params, @NotNull String body) {
+			this.name = name;
+			this.params = params;
+			this.body = body;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ Everything a {@link ConfigPreprocessor} needs besides the file itself. One context is meant to be shared by all files
+ that are preprocessed together so that the {@link IncludeCache} is shared too.
+
+ @author K
+ @since 01/18/2019 */
+public final class PreprocessorContext {
+	private final MacroTable predefinedMacros;
+	private final IncludeCache includeCache;
+	private final List<Path> includeRoots;
+
+	/**
+	 @param predefinedMacros macros every file starts with. Each file gets its own {@link MacroTable#snapshot()}
+	 @param includeCache     cache for included files
+	 @param includeRoots     directories that absolute (\-prefixed) and unresolved include paths are looked up in
+	 */
+	public PreprocessorContext(@NotNull MacroTable predefinedMacros, @NotNull IncludeCache includeCache, @NotNull List<Path> includeRoots) {
+		this.predefinedMacros = predefinedMacros;
+		this.includeCache = includeCache;
+		this.includeRoots = Collections.unmodifiableList(new ArrayList<>(includeRoots));
+	}
+
+	@NotNull
+	public MacroTable getPredefinedMacros() {
+		return predefinedMacros;
+	}
+
+	@NotNull
+	public IncludeCache getIncludeCache() {
+		return includeCache;
+	}
+
+	@NotNull
+	public List<Path> getIncludeRoots() {
+		return includeRoots;
+	}
+}
@@ -0,0 +1,275 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import com.kaylerrenslow.rustyarmafiles.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.CharBuffer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ A {@link ConfigClass} over a range of the text of a {@link TextConfigFile}.
+ The body is only lexed the first time an entry is requested. Embedded classes are skipped over while doing so,
+ and are only lexed once they are requested themselves.
+ <p>
+ Entries declared more than once in the same class are applied in order, like class updates: a later field replaces
+ the earlier one, an array declared with += appends to the array declared earlier in the same class, and a class
+ declared again gets the entries of both bodies. The parent of such a class is the one named by the last declaration
+ that names one. Streams and cursors still return every declaration as it is written.
+ An array appended to with += that isn't declared earlier in the same class only has the appended elements, since
+ inherited values aren't resolved while lexing.
+
+ @author K
+ @since 01/17/2019 */
+public class TextConfigClass implements ConfigClass {
+	private final CharBuffer content;
+	/** start of the body of each declaration, in order */
+	private final int[] bodyStarts;
+	private final String className;
+	private final String parentClassName;
+	private final ConfigClass outerClass;
+	private final ConfigClassHierarchy hierarchy;
+	private volatile Body body;
+
+	/** Creates the root class of a file. */
+	TextConfigClass(@NotNull CharBuffer content) {
+		this(content, 0, "", null, null, new ConfigClassHierarchy());
+	}
+
+	/**
+	 @param content         text of the whole file
+	 @param bodyStart       index of the first char after the class' {, or the start of the file for the root
+	 @param className       name of the class
+	 @param parentClassName name of the inherited class, or null
+	 @param outerClass      class this class is declared in, or null for the root
+	 @param hierarchy       inheritance memo shared by all classes of the file
+	 */
+	TextConfigClass(@NotNull CharBuffer content, int bodyStart, @NotNull String className, @Nullable String parentClassName, @Nullable ConfigClass outerClass, @NotNull ConfigClassHierarchy hierarchy) {
+		this(content, new int[]{bodyStart}, className, parentClassName, outerClass, hierarchy);
+	}
+
+	/**
+	 Creates a class that is declared more than once in the same outer class.
+
+	 @param bodyStarts index of the first char after the { of each declaration, in the order they are declared
+	 */
+	TextConfigClass(@NotNull CharBuffer content, @NotNull int[] bodyStarts, @NotNull String className, @Nullable String parentClassName, @Nullable ConfigClass outerClass, @NotNull ConfigClassHierarchy hierarchy) {
+		this.content = content;
+		this.bodyStarts = bodyStarts;
+		this.className = className;
+		this.parentClassName = parentClassName;
+		this.outerClass = outerClass;
+		this.hierarchy = hierarchy;
+	}
+
+	@Override
+	@NotNull
+	public String getClassName() {
+		return className;
+	}
+
+	@Override
+	@Nullable
+	public String getParentClassName() {
+		return parentClassName;
+	}
+
+	@Override
+	@Nullable
+	public ConfigClass getOuterClass() {
+		return outerClass;
+	}
+
+	@Override
+	@NotNull
+	public ConfigClassHierarchy getHierarchy() {
+		return hierarchy;
+	}
+
+	@Override
+	@NotNull
+	public ConfigStream newStream() {
+		return new TextConfigClassStream(newTextCursor());
+	}
+
+	@Override
+	@NotNull
+	public ConfigCursor newCursor() {
+		return newTextCursor();
+	}
+
+	@Override
+	@Nullable
+	public ConfigClass getClass(@NotNull String className) {
+		return getBody().classes.get(className);
+	}
+
+	@Override
+	@Nullable
+	public ConfigFieldValue getFieldValue(@NotNull String key) {
+		TextConfigField field = getBody().fields.get(key);
+		return field == null ? null : field.getValue();
+	}
+
+	@Override
+	@Nullable
+	public ConfigEntry getEntry(@NotNull String name) {
+		Body body = getBody();
+		ConfigEntry entry = body.classes.get(name);
+		return entry != null ? entry : body.fields.get(name);
+	}
+
+	/** @return the classes followed by the fields declared in this class */
+	@Override
+	@NotNull
+	public List<ConfigEntry> getEntries() {
+		Body body = getBody();
+		List<ConfigEntry> entries = new ArrayList<>(body.classes.size() + body.fields.size());
+		entries.addAll(body.classes.values());
+		entries.addAll(body.fields.values());
+		return entries;
+	}
+
+	/**
+	 Lexes this class and all embedded classes right away.
+
+	 @throws ParseException when there is a syntax error anywhere in the class
+	 */
+	void parseAll() throws ParseException {
+		Body body = this.body;
+		if (body == null) {
+			body = parseBody();
+			this.body = body;
+		}
+		for (TextConfigClass configClass : body.classes.values()) {
+			configClass.parseAll();
+		}
+	}
+
+	/** @throws IllegalStateException when the body has a syntax error. The cause will be a {@link ParseException}. */
+	@NotNull
+	private Body getBody() {
+		Body body = this.body;
+		if (body == null) {
+			try {
+				body = parseBody();
+			} catch (ParseException e) {
+				throw new IllegalStateException(e);
+			}
+			this.body = body;
+		}
+		return body;
+	}
+
+	@NotNull
+	private TextConfigCursor newTextCursor() {
+		if (bodyStarts.length > 1) {
+			return new TextConfigCursor(content, bodyStarts);
+		}
+		return new TextConfigCursor(new TextConfigLexer(content, bodyStarts[0]), outerClass != null);
+	}
+
+	@NotNull
+	private Body parseBody() throws ParseException {
+		Body body = new Body();
+		ConfigStringPool pool = ConfigStringPool.getShared();
+		//classes are only created once every declaration of them is known
+		Map<String, Declarations> declarations = new LinkedHashMap<>();
+		TextConfigCursor cursor = newTextCursor();
+		try {
+			for (; ; ) {
+				ConfigStreamItem.Type type = cursor.advance();
+				if (type == ConfigStreamItem.Type.EndStream) {
+					break;
+				}
+				switch (type) {
+					case Class: {
+						String name = pool.intern(cursor.name());
+						CharSequence parentName = cursor.parentClassName();
+						//a later class replaces a field with the same name
+						body.fields.remove(name);
+						declarations.computeIfAbsent(name, k -> new Declarations()).add((int) cursor.position(), parentName == null ? null : pool.intern(parentName));
+						cursor.skipCurrentClass();
+						cursor.advance();
+						break;
+					}
+					case Field: {
+						String key = pool.intern(cursor.name());
+						declarations.remove(key);
+						TextConfigField previous = body.fields.get(key);
+						ConfigFieldValue value = update(previous == null ? null : previous.getValue(), cursor.value(), cursor.isAppend());
+						body.fields.put(key, new TextConfigField(key, value));
+						break;
+					}
+					default: {
+						break;
+					}
+				}
+			}
+		} catch (ConfigStreamException e) {
+			if (e.getCause() instanceof ParseException) {
+				throw (ParseException) e.getCause();
+			}
+			//content is already in memory
+			throw new IllegalStateException(e.getCause());
+		}
+		for (Map.Entry<String, Declarations> entry : declarations.entrySet()) {
+			Declarations declared = entry.getValue();
+			body.classes.put(entry.getKey(), new TextConfigClass(
+					content, Arrays.copyOf(declared.bodyStarts, declared.count), entry.getKey(), declared.parentClassName, this, hierarchy
+			));
+		}
+		return body;
+	}
+
+	/**
+	 @param previous value of the same field declared earlier in the same class, or null
+	 @param value    value of the later declaration
+	 @param append   true if the later declaration is an array declared with +=
+	 @return the value of the field after the later declaration
+	 */
+	@NotNull
+	static ConfigFieldValue update(@Nullable ConfigFieldValue previous, @NotNull ConfigFieldValue value, boolean append) {
+		if (!append || !(previous instanceof ConfigFieldValue.Array) || !(value instanceof ConfigFieldValue.Array)) {
+			return value;
+		}
+		ConfigFieldValue.Array head = (ConfigFieldValue.Array) previous;
+		ConfigFieldValue.Array tail = (ConfigFieldValue.Array) value;
+		List<ConfigFieldValue> values = new ArrayList<>(head.getLength() + tail.getLength());
+		for (int i = 0; i < head.getLength(); i++) {
+			values.add(head.getValue(i));
+		}
+		for (int i = 0; i < tail.getLength(); i++) {
+			values.add(tail.getValue(i));
+		}
+		return ConfigFieldValue.Array.of(values);
+	}
+
+	private static class Body {
+		private final Map<String, TextConfigClass> classes = new LinkedHashMap<>();
+		private final Map<String, TextConfigField> fields = new LinkedHashMap<>();
+	}
+
+	/** Every declaration of an embedded class, collected while lexing the body */
+	private static class Declarations {
+		private int[] bodyStarts = new int[1];
+		private int count;
+		/** parent named by the last declaration that names one */
+		private String parentClassName;
+
+		void add(int bodyStart, @Nullable String parentClassName) {
+			if (count == bodyStarts.length) {
+				bodyStarts = Arrays.copyOf(bodyStarts, count * 2);
+			}
+			bodyStarts[count++] = bodyStart;
+			if (parentClassName != null) {
+				this.parentClassName = parentClassName;
+			}
+		}
+	}
+}
@@ -0,0 +1,15 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigCursorStream;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ Streams the body of a {@link TextConfigClass} straight out of the already read file content.
+
+ @author K
+ @since 01/17/2019 */
+public class TextConfigClassStream extends ConfigCursorStream {
+	TextConfigClassStream(@NotNull TextConfigCursor cursor) {
+		super(cursor);
+	}
+}
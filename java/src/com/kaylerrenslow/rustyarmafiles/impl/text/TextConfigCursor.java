@@ -0,0 +1,477 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigCursor;
+import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamException;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamItem;
+import com.kaylerrenslow.rustyarmafiles.ConfigStringPool;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ Turns the tokens of a {@link TextConfigLexer} into entries one at a time.
+ Only the current nesting depth is tracked, so the memory used doesn't grow with the size of the input.
+ Names and scalar/text values are copied out of the lexer into buffers that are reused for every entry.
+ Arrays are still read right away, since the lexer can't go back to them later, but numeric and text arrays are
+ read into a {@link ConfigFieldValue.ScalarArray} or {@link ConfigFieldValue.TextArray}.
+ <p>
+ Unlike the rapified cursors, entries are returned in the order they appear in the text.
+ Extern class declarations (class X;), delete statements and enums are skipped.
+ Entries that are declared more than once are all returned; applying them in order (see {@link #isAppend()}) is up to
+ the reader, like {@link TextConfigClass} does.
+
+ @author K
+ @since 01/17/2019 */
+final class TextConfigCursor implements ConfigCursor {
+	/** file to lex on the first {@link #advance()}, or null if the lexer was given */
+	private final TextConfigFile file;
+	private TextConfigLexer lexer;
+	/** true if the input is a class body that ends with a }, false if it ends at the end of the input */
+	private final boolean classBody;
+	/** text and starts of the bodies to read after the current one ends, or null if there is only one body */
+	private final CharBuffer content;
+	private final int[] bodyStarts;
+	private int bodyIndex;
+	private int depth;
+
+	private ConfigStreamItem.Type type;
+	private final StringBuilder name = new StringBuilder();
+	private final StringBuilder parentClassName = new StringBuilder();
+	private ByteBuffer nameBytes = ByteBuffer.allocate(64);
+	private boolean nameEncoded;
+	private ValueType valueType = ValueType.None;
+	private double scalar;
+	private final StringBuilder text = new StringBuilder();
+	private ConfigFieldValue.Array array;
+	private boolean append;
+
+	TextConfigCursor(@NotNull TextConfigLexer lexer, boolean classBody) {
+		this.file = null;
+		this.lexer = lexer;
+		this.classBody = classBody;
+		this.content = null;
+		this.bodyStarts = null;
+	}
+
+	/** Creates a cursor over the whole file. The file is only opened on the first {@link #advance()}. */
+	TextConfigCursor(@NotNull TextConfigFile file) {
+		this.file = file;
+		this.classBody = false;
+		this.content = null;
+		this.bodyStarts = null;
+	}
+
+	/**
+	 Creates a cursor over the bodies of every declaration of a class, one after the other, as if they were one body.
+
+	 @param bodyStarts index of the first char after the { of each declaration, in the order they are declared
+	 */
+	TextConfigCursor(@NotNull CharBuffer content, @NotNull int[] bodyStarts) {
+		this.file = null;
+		this.lexer = new TextConfigLexer(content, bodyStarts[0]);
+		this.classBody = true;
+		this.content = content;
+		this.bodyStarts = bodyStarts;
+	}
+
+	/** @return absolute offset of the next char the lexer hasn't read */
+	long position() {
+		return lexer.position();
+	}
+
+	@Override
+	@NotNull
+	public ConfigStreamItem.Type advance() throws ConfigStreamException {
+		if (type == ConfigStreamItem.Type.EndStream) {
+			return type;
+		}
+		nameEncoded = false;
+		valueType = ValueType.None;
+		array = null;
+		append = false;
+		try {
+			if (lexer == null) {
+				lexer = new TextConfigLexer(file.newReadable());
+			}
+			type = read();
+		} catch (ConfigPreprocessor.SyntaxException e) {
+			throw new ConfigStreamException(e.getCause());
+		} catch (IOException | ParseException e) {
+			throw new ConfigStreamException(e);
+		}
+		return type;
+	}
+
+	@NotNull
+	private ConfigStreamItem.Type read() throws IOException, ParseException {
+		for (; ; ) {
+			TextConfigLexer.Token token = lexer.next();
+			switch (token) {
+				case EOF: {
+					if (depth > 0 || classBody) {
+						throw new ParseException("unexpected end of input, missing }", (int) lexer.tokenPosition());
+					}
+					return ConfigStreamItem.Type.EndStream;
+				}
+				case RBrace: {
+					if (depth == 0) {
+						if (!classBody) {
+							throw new ParseException("unexpected }", (int) lexer.tokenPosition());
+						}
+						if (bodyStarts != null && bodyIndex + 1 < bodyStarts.length) {
+							lexer = new TextConfigLexer(content, bodyStarts[++bodyIndex]);
+							break;
+						}
+						return ConfigStreamItem.Type.EndStream;
+					}
+					depth--;
+					lexer.consumeIf(';');
+					return ConfigStreamItem.Type.EndClass;
+				}
+				case Semicolon: {
+					break;
+				}
+				case Word: {
+					ConfigStreamItem.Type type = readEntry();
+					if (type != null) {
+						return type;
+					}
+					break;
+				}
+				default: {
+					throw unexpected();
+				}
+			}
+		}
+	}
+
+	@Override
+	@Nullable
+	public ConfigStreamItem.Type type() {
+		return type;
+	}
+
+	@Override
+	@NotNull
+	public CharSequence name() {
+		checkNamed();
+		return name;
+	}
+
+	@Override
+	@Nullable
+	public CharSequence parentClassName() {
+		if (type != ConfigStreamItem.Type.Class) {
+			throw new IllegalStateException("not on a class");
+		}
+		return parentClassName.length() == 0 ? null : parentClassName;
+	}
+
+	@Override
+	@NotNull
+	public ByteBuffer nameBytes() {
+		checkNamed();
+		if (!nameEncoded) {
+			encodeName();
+			nameEncoded = true;
+		}
+		return nameBytes;
+	}
+
+	/** @return true if the current field is an array declared with +=, which appends to the earlier value */
+	boolean isAppend() {
+		return append;
+	}
+
+	@Override
+	@NotNull
+	public ValueType valueType() {
+		return valueType;
+	}
+
+	@Override
+	public double scalarValue() {
+		checkValueType(ValueType.Scalar);
+		return scalar;
+	}
+
+	@Override
+	@NotNull
+	public CharSequence textValue() {
+		checkValueType(ValueType.Text);
+		return text;
+	}
+
+	@Override
+	public int arrayLength() {
+		checkValueType(ValueType.Array);
+		return array.getLength();
+	}
+
+	@Override
+	@NotNull
+	public ConfigFieldValue value() {
+		switch (valueType) {
+			case Scalar: {
+				return new ConfigFieldValue.Scalar(scalar);
+			}
+			case Text: {
+				return new ConfigFieldValue.Text(ConfigStringPool.getShared().intern(text));
+			}
+			case Array: {
+				return array;
+			}
+			default: {
+				throw new IllegalStateException("not on a field");
+			}
+		}
+	}
+
+	/**
+	 Skips the remaining entries of the class that was most recently entered.
+	 The {@link ConfigStreamItem.Type#EndClass} of that class will still be returned by {@link #advance()}.
+	 */
+	@Override
+	public void skipCurrentClass() throws ConfigStreamException {
+		if (lexer == null || type == ConfigStreamItem.Type.EndStream) {
+			return;
+		}
+		try {
+			if (depth == 0 && !classBody) {
+				while (lexer.next() != TextConfigLexer.Token.EOF) {
+					if (lexer.token() == TextConfigLexer.Token.LBrace) {
+						lexer.skipToClosingBrace();
+					}
+				}
+				return;
+			}
+			if (depth == 0 && bodyStarts != null) {
+				bodyIndex = bodyStarts.length - 1;
+			}
+			lexer.skipToClosingBrace();
+		} catch (IOException | ParseException e) {
+			throw new ConfigStreamException(e);
+		}
+	}
+
+	/** @return the type of the entry starting with the current word, or null if the entry is skipped */
+	@Nullable
+	private ConfigStreamItem.Type readEntry() throws IOException, ParseException {
+		if (lexer.textEquals("class")) {
+			expect(TextConfigLexer.Token.Word);
+			name.setLength(0);
+			lexer.appendText(name);
+			TextConfigLexer.Token token = lexer.next();
+			parentClassName.setLength(0);
+			if (token == TextConfigLexer.Token.Colon) {
+				expect(TextConfigLexer.Token.Word);
+				lexer.appendText(parentClassName);
+				token = lexer.next();
+			}
+			if (token == TextConfigLexer.Token.Semicolon) {
+				return null;
+			}
+			if (token != TextConfigLexer.Token.LBrace) {
+				throw unexpected();
+			}
+			depth++;
+			return ConfigStreamItem.Type.Class;
+		}
+		if (lexer.textEquals("delete")) {
+			expect(TextConfigLexer.Token.Word);
+			lexer.consumeIf(';');
+			return null;
+		}
+		if (lexer.textEquals("enum")) {
+			expect(TextConfigLexer.Token.LBrace);
+			lexer.skipToClosingBrace();
+			expect(TextConfigLexer.Token.RBrace);
+			lexer.consumeIf(';');
+			return null;
+		}
+		name.setLength(0);
+		lexer.appendText(name);
+		TextConfigLexer.Token token = lexer.next();
+		if (token == TextConfigLexer.Token.LBracket) {
+			expect(TextConfigLexer.Token.RBracket);
+			token = lexer.next();
+			if (token != TextConfigLexer.Token.Assign && token != TextConfigLexer.Token.AppendAssign) {
+				throw unexpected();
+			}
+			if (lexer.nextValue(false) != TextConfigLexer.Token.LBrace) {
+				throw unexpected();
+			}
+			array = readArray();
+			valueType = ValueType.Array;
+			append = token == TextConfigLexer.Token.AppendAssign;
+		} else if (token == TextConfigLexer.Token.Assign) {
+			readFieldValue(lexer.nextValue(false));
+		} else {
+			throw unexpected();
+		}
+		if (!lexer.consumeIf(';')) {
+			throw new ParseException("missing ; after " + name, (int) lexer.position());
+		}
+		return ConfigStreamItem.Type.Field;
+	}
+
+	/** Reads the value of a field (not an array element) into the reused buffers. */
+	private void readFieldValue(@NotNull TextConfigLexer.Token token) throws IOException, ParseException {
+		switch (token) {
+			case Text: {
+				text.setLength(0);
+				lexer.appendText(text);
+				valueType = ValueType.Text;
+				break;
+			}
+			case Word: {
+				scalar = lexer.number();
+				if (Double.isNaN(scalar)) {
+					text.setLength(0);
+					lexer.appendText(text);
+					valueType = ValueType.Text;
+				} else {
+					valueType = ValueType.Scalar;
+				}
+				break;
+			}
+			case LBrace: {
+				array = readArray();
+				valueType = ValueType.Array;
+				break;
+			}
+			default: {
+				throw unexpected();
+			}
+		}
+	}
+
+	@NotNull
+	private ConfigFieldValue readValue(@NotNull TextConfigLexer.Token token) throws IOException, ParseException {
+		switch (token) {
+			case Text: {
+				return new ConfigFieldValue.Text(lexer.text());
+			}
+			case Word: {
+				double number = lexer.number();
+				if (Double.isNaN(number)) {
+					return new ConfigFieldValue.Text(lexer.text());
+				}
+				return new ConfigFieldValue.Scalar(number);
+			}
+			case LBrace: {
+				return readArray();
+			}
+			default: {
+				throw unexpected();
+			}
+		}
+	}
+
+	/**
+	 Reads an array after its { has been read. Numbers are collected into a double[] until a value that isn't a
+	 number is found, so numeric arrays never create an object per element.
+	 */
+	@NotNull
+	private ConfigFieldValue.Array readArray() throws IOException, ParseException {
+		double[] numbers = new double[8];
+		int count = 0;
+		List<ConfigFieldValue> values = null;
+		for (; ; ) {
+			TextConfigLexer.Token token = lexer.nextValue(true);
+			if (token == TextConfigLexer.Token.RBrace) {
+				break;
+			}
+			double number = values == null && token == TextConfigLexer.Token.Word ? lexer.number() : Double.NaN;
+			if (!Double.isNaN(number)) {
+				if (count == numbers.length) {
+					numbers = Arrays.copyOf(numbers, count * 2);
+				}
+				numbers[count++] = number;
+			} else {
+				if (values == null) {
+					values = new ArrayList<>(count + 4);
+					for (int i = 0; i < count; i++) {
+						values.add(new ConfigFieldValue.Scalar(numbers[i]));
+					}
+				}
+				values.add(readValue(token));
+			}
+			token = lexer.next();
+			if (token == TextConfigLexer.Token.RBrace) {
+				break;
+			}
+			if (token != TextConfigLexer.Token.Comma) {
+				throw unexpected();
+			}
+		}
+		if (values == null) {
+			return new ConfigFieldValue.ScalarArray(Arrays.copyOf(numbers, count));
+		}
+		return ConfigFieldValue.Array.of(values);
+	}
+
+	/** Encodes {@link #name} as UTF-8 into {@link #nameBytes}, growing it if needed. */
+	private void encodeName() {
+		int maxLength = name.length() * 3;
+		if (nameBytes.capacity() < maxLength) {
+			nameBytes = ByteBuffer.allocate(Math.max(maxLength, nameBytes.capacity() * 2));
+		}
+		nameBytes.clear();
+		int length = name.length();
+		for (int i = 0; i < length; i++) {
+			char c = name.charAt(i);
+			if (c < 0x80) {
+				nameBytes.put((byte) c);
+			} else if (c < 0x800) {
+				nameBytes.put((byte) (0xc0 | (c >> 6)));
+				nameBytes.put((byte) (0x80 | (c & 0x3f)));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(name.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, name.charAt(++i));
+				nameBytes.put((byte) (0xf0 | (codePoint >> 18)));
+				nameBytes.put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+				nameBytes.put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+				nameBytes.put((byte) (0x80 | (codePoint & 0x3f)));
+			} else {
+				nameBytes.put((byte) (0xe0 | (c >> 12)));
+				nameBytes.put((byte) (0x80 | ((c >> 6) & 0x3f)));
+				nameBytes.put((byte) (0x80 | (c & 0x3f)));
+			}
+		}
+		nameBytes.flip();
+	}
+
+	private void checkNamed() {
+		if (type != ConfigStreamItem.Type.Class && type != ConfigStreamItem.Type.Field) {
+			throw new IllegalStateException("not on a class or field");
+		}
+	}
+
+	private void checkValueType(@NotNull ValueType expected) {
+		if (valueType != expected) {
+			throw new IllegalStateException("value isn't " + expected);
+		}
+	}
+
+	private void expect(@NotNull TextConfigLexer.Token expected) throws IOException, ParseException {
+		TextConfigLexer.Token token = lexer.next();
+		if (token != expected) {
+			throw new ParseException("expected " + expected + ", got " + token, (int) lexer.tokenPosition());
+		}
+	}
+
+	@NotNull
+	private ParseException unexpected() {
+		TextConfigLexer.Token token = lexer.token();
+		String text = token == TextConfigLexer.Token.Word || token == TextConfigLexer.Token.Text ? lexer.text() : String.valueOf(token);
+		return new ParseException("unexpected " + text, (int) lexer.tokenPosition());
+	}
+}
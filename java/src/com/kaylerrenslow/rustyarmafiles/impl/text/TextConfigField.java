@@ -0,0 +1,30 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigField;
+import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ @author K
+ @since 01/17/2019 */
+public class TextConfigField implements ConfigField {
+	private final String key;
+	private final ConfigFieldValue value;
+
+	public TextConfigField(@NotNull String key, @NotNull ConfigFieldValue value) {
+		this.key = key;
+		this.value = value;
+	}
+
+	@Override
+	@NotNull
+	public String getKey() {
+		return key;
+	}
+
+	@Override
+	@NotNull
+	public ConfigFieldValue getValue() {
+		return value;
+	}
+}
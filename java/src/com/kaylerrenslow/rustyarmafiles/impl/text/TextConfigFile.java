@@ -0,0 +1,172 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigClass;
+import com.kaylerrenslow.rustyarmafiles.ConfigCursor;
+import com.kaylerrenslow.rustyarmafiles.ConfigFile;
+import com.kaylerrenslow.rustyarmafiles.ConfigMetrics;
+import com.kaylerrenslow.rustyarmafiles.ConfigStream;
+import com.kaylerrenslow.rustyarmafiles.jfr.ParseEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+
+/**
+ A {@link ConfigFile} for plain text (unbinarized) configs such as config.cpp and description.ext.
+ <p>
+ Before {@link #parse()}, {@link #newStream()} lexes the file incrementally and never builds a tree.
+ {@link #parse()} decodes the whole file once. In lazy mode, class bodies are then only lexed once they are requested,
+ which means syntax errors inside a class surface as an {@link IllegalStateException} (caused by a
+ {@link ParseException}) when that class is first used instead of from {@link #parse()}.
+ <p>
+ When a {@link PreprocessorContext} is given, the text goes through a {@link ConfigPreprocessor} first.
+
+ @author K
+ @since 01/17/2019 */
+public class TextConfigFile implements ConfigFile {
+	private final File configFile;
+	private final Charset charset;
+	private final boolean lazy;
+	private final PreprocessorContext preprocessorContext;
+	private volatile boolean isParsed;
+	private TextConfigClass configClass;
+
+	/** Creates an eagerly parsed UTF-8 config */
+	public TextConfigFile(@NotNull File configFile) {
+		this(configFile, StandardCharsets.UTF_8, false);
+	}
+
+	/**
+	 @param configFile the file
+	 @param charset    charset of the file
+	 @param lazy       true if {@link #parse()} should only read the file and leave lexing the classes until they are
+	 requested, false if the whole tree should be built (and checked for errors) in {@link #parse()}
+	 */
+	public TextConfigFile(@NotNull File configFile, @NotNull Charset charset, boolean lazy) {
+		this(configFile, charset, lazy, null);
+	}
+
+	/**
+	 @param configFile          the file
+	 @param charset             charset of the file and its includes
+	 @param lazy                see {@link #TextConfigFile(File, Charset, boolean)}
+	 @param preprocessorContext if not null, the file is run through a {@link ConfigPreprocessor} with this context
+	 before it is lexed
+	 */
+	public TextConfigFile(@NotNull File configFile, @NotNull Charset charset, boolean lazy, @Nullable PreprocessorContext preprocessorContext) {
+		this.configFile = configFile;
+		this.charset = charset;
+		this.lazy = lazy;
+		this.preprocessorContext = preprocessorContext;
+	}
+
+	@Override
+	@NotNull
+	public ConfigClass getRoot() {
+		if (!isParsed) {
+			throw new IllegalStateException();
+		}
+		return configClass;
+	}
+
+	@Override
+	@NotNull
+	public File getFile() {
+		return configFile;
+	}
+
+	@Override
+	public void parse() throws IOException, ParseException {
+		ParseEvent event = new ParseEvent();
+		event.begin();
+		CharBuffer content;
+		if (preprocessorContext == null) {
+			content = charset.decode(mapFile());
+		} else {
+			try {
+				content = readAll(newReadable());
+			} catch (ConfigPreprocessor.SyntaxException e) {
+				throw e.getCause();
+			}
+		}
+		TextConfigClass root = new TextConfigClass(content);
+		if (!lazy) {
+			root.parseAll();
+		}
+		configClass = root;
+		isParsed = true;
+		ConfigMetrics.commitParse(event, configFile, "text", configFile.length());
+	}
+
+	@Override
+	public boolean isParsed() {
+		return isParsed;
+	}
+
+	@Override
+	@NotNull
+	public ConfigStream newStream() {
+		if (isParsed) {
+			return configClass.newStream();
+		}
+		return new TextConfigFileStream(this);
+	}
+
+	@Override
+	@NotNull
+	public ConfigCursor newCursor() {
+		if (isParsed) {
+			return configClass.newCursor();
+		}
+		return new TextConfigCursor(this);
+	}
+
+	@Override
+	public boolean isRapified() {
+		return false;
+	}
+
+	/** @return a {@link Readable} that decodes (and preprocesses, if enabled) the file as it is read */
+	@NotNull
+	Readable newReadable() throws IOException {
+		Readable readable = new DecodingReadable(mapFile(), charset);
+		if (preprocessorContext == null) {
+			return readable;
+		}
+		return new ConfigPreprocessor(readable, configFile.toPath(), preprocessorContext);
+	}
+
+	@NotNull
+	private CharBuffer readAll(@NotNull Readable readable) throws IOException {
+		CharBuffer content = CharBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, Math.max(1024, configFile.length())));
+		for (; ; ) {
+			if (!content.hasRemaining()) {
+				CharBuffer bigger = CharBuffer.allocate(content.capacity() * 2);
+				content.flip();
+				bigger.put(content);
+				content = bigger;
+			}
+			if (readable.read(content) < 0) {
+				break;
+			}
+		}
+		content.flip();
+		return content;
+	}
+
+	@NotNull
+	private ByteBuffer mapFile() throws IOException {
+		try (FileChannel channel = FileChannel.open(configFile.toPath(), StandardOpenOption.READ)) {
+			ConfigMetrics.add(ConfigMetrics.Counter.BytesRead, channel.size());
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigCursorStream;
+import com.kaylerrenslow.rustyarmafiles.ConfigFileStream;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamException;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamItem;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ A {@link ConfigFileStream} that maps the file on the first {@link #next()} and lexes it incrementally through a
+ small window, so a huge config.cpp can be filtered with {@link com.kaylerrenslow.rustyarmafiles.ConfigQuery}
+ without ever holding all of its text or a tree in memory.
+
+ @author K
+ @since 01/17/2019 */
+public class TextConfigFileStream extends ConfigFileStream {
+	private final ConfigCursorStream stream;
+
+	public TextConfigFileStream(@NotNull TextConfigFile file) {
+		super(file);
+		this.stream = new ConfigCursorStream(new TextConfigCursor(file));
+	}
+
+	@Override
+	@NotNull
+	public ConfigStreamItem next() throws ConfigStreamException {
+		return stream.next();
+	}
+
+	@Override
+	public boolean hasNext() {
+		return stream.hasNext();
+	}
+
+	@Override
+	public void skipCurrentClass() {
+		stream.skipCurrentClass();
+	}
+}
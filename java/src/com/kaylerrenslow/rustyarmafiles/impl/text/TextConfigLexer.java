@@ -0,0 +1,497 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigStringPool;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.text.ParseException;
+
+/**
+ A hand written lexer for config.cpp style text.
+ <p>
+ The lexer either works directly on a {@link CharBuffer} that holds all of the input (no copy is made),
+ or pulls chars incrementally from a {@link Readable} into a reusable window. Token text isn't turned into a
+ {@link String} unless {@link #text()} is invoked, so words can be compared with {@link #textEquals(String)},
+ copied with {@link #appendText(StringBuilder)} and numbers parsed with {@link #number()} without allocating.
+ <p>
+ Comments are skipped, and so are lines starting with # (preprocessor directives in text that wasn't preprocessed).
+
+ @author K
+ @since 01/17/2019 */
+final class TextConfigLexer {
+	enum Token {
+		/** An unquoted word. In value position, this is everything up to the next delimiter. */
+		Word,
+		/** A quoted string. {@link #text()} returns it without the quotes and with escapes resolved. */
+		Text,
+		LBrace,
+		RBrace,
+		LBracket,
+		RBracket,
+		Semicolon,
+		Colon,
+		Comma,
+		Assign,
+		AppendAssign,
+		EOF
+	}
+
+	private static final int WINDOW_SIZE = 8192;
+
+	/** source to pull chars from, or null if {@link #buf} holds all of the input */
+	private final Readable source;
+	private boolean sourceEnded;
+	/** holds the input in [0, limit) */
+	private CharBuffer buf;
+	/** absolute offset of index 0 of {@link #buf} */
+	private long base;
+	private int pos;
+	/** index that must be kept when the window is compacted, or -1 */
+	private int markIndex = -1;
+	private boolean atLineStart = true;
+
+	private Token token;
+	private int tokenStart;
+	private int tokenEnd;
+	/** only used for quoted strings with escaped quotes */
+	private final StringBuilder unescaped = new StringBuilder();
+	private boolean tokenHasEscapes;
+
+	/**
+	 @param input all of the input
+	 @param start index in input to start lexing at
+	 */
+	TextConfigLexer(@NotNull CharBuffer input, int start) {
+		this.source = null;
+		this.buf = input.duplicate();
+		this.buf.position(0);
+		this.pos = start;
+	}
+
+	TextConfigLexer(@NotNull Readable source) {
+		this.source = source;
+		this.buf = CharBuffer.allocate(WINDOW_SIZE);
+		this.buf.flip();
+	}
+
+	/** @return absolute offset of the next char that hasn't been read */
+	long position() {
+		return base + pos;
+	}
+
+	/** @return absolute offset of the start of the current token */
+	long tokenPosition() {
+		return base + tokenStart;
+	}
+
+	@Nullable
+	Token token() {
+		return token;
+	}
+
+	/** Reads the next token in entry position. */
+	@NotNull
+	Token next() throws IOException {
+		skipWhitespaceAndComments();
+		int c = peek(0);
+		tokenStart = pos;
+		markIndex = pos;
+		tokenHasEscapes = false;
+		switch (c) {
+			case -1: {
+				return token(Token.EOF, 0);
+			}
+			case '{': {
+				return token(Token.LBrace, 1);
+			}
+			case '}': {
+				return token(Token.RBrace, 1);
+			}
+			case '[': {
+				return token(Token.LBracket, 1);
+			}
+			case ']': {
+				return token(Token.RBracket, 1);
+			}
+			case ';': {
+				return token(Token.Semicolon, 1);
+			}
+			case ':': {
+				return token(Token.Colon, 1);
+			}
+			case ',': {
+				return token(Token.Comma, 1);
+			}
+			case '=': {
+				return token(Token.Assign, 1);
+			}
+			case '"':
+			case '\'': {
+				return readQuoted((char) c);
+			}
+			case '+': {
+				if (peek(1) == '=') {
+					return token(Token.AppendAssign, 2);
+				}
+			}
+		}
+		while ((c = peek(0)) != -1 && !isDelimiter(c)) {
+			pos++;
+		}
+		tokenEnd = pos;
+		token = Token.Word;
+		return token;
+	}
+
+	/**
+	 Reads the next token in value position. Quoted strings and { are lexed as usual.
+	 Anything else is read as a single {@link Token#Word} up to the next ; (or , and } when inArray is true),
+	 with surrounding whitespace trimmed.
+	 */
+	@NotNull
+	Token nextValue(boolean inArray) throws IOException {
+		skipWhitespaceAndComments();
+		int c = peek(0);
+		if (c == '"' || c == '\'' || c == '{' || c == '}' || c == -1 || c == ';' || (inArray && c == ',')) {
+			return next();
+		}
+		tokenStart = pos;
+		markIndex = pos;
+		tokenHasEscapes = false;
+		//relative to tokenStart since peek may compact the window
+		int trimmedLength = 0;
+		while ((c = peek(0)) != -1 && c != ';' && c != '\n' && c != '\r' && !(inArray && (c == ',' || c == '}'))) {
+			pos++;
+			if (!Character.isWhitespace(c)) {
+				trimmedLength = pos - tokenStart;
+			}
+		}
+		tokenEnd = tokenStart + trimmedLength;
+		token = Token.Word;
+		return token;
+	}
+
+	/**
+	 Skips whitespace and comments and consumes the next char if it is c.
+
+	 @return true if c was consumed
+	 */
+	boolean consumeIf(char c) throws IOException {
+		skipWhitespaceAndComments();
+		if (peek(0) == c) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 Skips everything up to (not including) the } that closes the class whose { was the last one read.
+	 Strings and comments are honored so braces inside them aren't counted.
+
+	 @throws ParseException when the input ends before the closing brace
+	 */
+	void skipToClosingBrace() throws IOException, ParseException {
+		markIndex = -1;
+		int depth = 0;
+		for (; ; ) {
+			skipWhitespaceAndComments();
+			int c = peek(0);
+			if (c == -1) {
+				throw new ParseException("missing }", (int) position());
+			}
+			if (c == '"' || c == '\'') {
+				tokenStart = pos;
+				markIndex = pos;
+				readQuoted((char) c);
+				markIndex = -1;
+				continue;
+			}
+			if (c == '{') {
+				depth++;
+			} else if (c == '}') {
+				if (depth == 0) {
+					return;
+				}
+				depth--;
+			}
+			pos++;
+		}
+	}
+
+	/** @return the text of the current token, from {@link ConfigStringPool#getShared()} */
+	@NotNull
+	String text() {
+		if (tokenHasEscapes) {
+			return ConfigStringPool.getShared().intern(unescaped);
+		}
+		int length = tokenEnd - tokenStart;
+		if (length == 0) {
+			return "";
+		}
+		return ConfigStringPool.getShared().intern(buf.subSequence(tokenStart, tokenEnd));
+	}
+
+	/**
+	 Appends the text of the current token to dst without creating a {@link String}.
+
+	 @return dst
+	 */
+	@NotNull
+	StringBuilder appendText(@NotNull StringBuilder dst) {
+		if (tokenHasEscapes) {
+			return dst.append(unescaped);
+		}
+		return dst.append(buf, tokenStart, tokenEnd);
+	}
+
+	/** @return true if the text of the current token equals s, without creating a {@link String} */
+	boolean textEquals(@NotNull String s) {
+		if (tokenHasEscapes) {
+			return s.contentEquals(unescaped);
+		}
+		if (tokenEnd - tokenStart != s.length()) {
+			return false;
+		}
+		for (int i = 0; i < s.length(); i++) {
+			if (buf.get(tokenStart + i) != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 Checks if the current {@link Token#Word} is a decimal or hexadecimal number and parses it if so.
+
+	 @return the number, or {@link Double#NaN} if the word isn't a number
+	 */
+	double number() {
+		if (token != Token.Word || tokenStart == tokenEnd) {
+			return Double.NaN;
+		}
+		int i = tokenStart;
+		boolean negative = false;
+		char c = buf.get(i);
+		if (c == '-' || c == '+') {
+			negative = c == '-';
+			i++;
+		}
+		if (i + 2 < tokenEnd && buf.get(i) == '0' && (buf.get(i + 1) == 'x' || buf.get(i + 1) == 'X')) {
+			long value = 0;
+			for (i += 2; i < tokenEnd; i++) {
+				int digit = Character.digit(buf.get(i), 16);
+				if (digit < 0) {
+					return Double.NaN;
+				}
+				value = value * 16 + digit;
+			}
+			return negative ? -value : value;
+		}
+		long mantissa = 0;
+		int mantissaDigits = 0;
+		int fractionDigits = 0;
+		int digits = 0;
+		boolean dot = false;
+		boolean exact = true;
+		for (; i < tokenEnd; i++) {
+			c = buf.get(i);
+			if (c >= '0' && c <= '9') {
+				digits++;
+				if (mantissaDigits < 18) {
+					mantissa = mantissa * 10 + (c - '0');
+					if (mantissa != 0) {
+						mantissaDigits++;
+					}
+					if (dot) {
+						fractionDigits++;
+					}
+				} else {
+					exact = false;
+				}
+			} else if (c == '.' && !dot) {
+				dot = true;
+			} else if ((c == 'e' || c == 'E') && digits > 0) {
+				exact = false;
+				if (!isExponent(i + 1)) {
+					return Double.NaN;
+				}
+				break;
+			} else {
+				return Double.NaN;
+			}
+		}
+		if (digits == 0) {
+			return Double.NaN;
+		}
+		if (exact && mantissa < (1L << 53) && fractionDigits < POWERS_OF_TEN.length) {
+			//both operands are exact, so the division is correctly rounded
+			double value = mantissa / POWERS_OF_TEN[fractionDigits];
+			return negative ? -value : value;
+		}
+		return Double.parseDouble(buf.subSequence(tokenStart, tokenEnd).toString());
+	}
+
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private boolean isExponent(int i) {
+		if (i < tokenEnd && (buf.get(i) == '-' || buf.get(i) == '+')) {
+			i++;
+		}
+		if (i >= tokenEnd) {
+			return false;
+		}
+		for (; i < tokenEnd; i++) {
+			if (buf.get(i) < '0' || buf.get(i) > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@NotNull
+	private Token token(@NotNull Token token, int length) {
+		pos += length;
+		tokenEnd = pos;
+		this.token = token;
+		return token;
+	}
+
+	@NotNull
+	private Token readQuoted(char quote) throws IOException {
+		pos++;
+		for (; ; ) {
+			int c = peek(0);
+			if (c == -1) {
+				break;
+			}
+			if (c == quote) {
+				if (peek(1) == quote) {
+					//"" is an escaped "
+					if (!tokenHasEscapes) {
+						tokenHasEscapes = true;
+						unescaped.setLength(0);
+						unescaped.append(buf, tokenStart + 1, pos);
+					}
+					unescaped.append(quote);
+					pos += 2;
+					continue;
+				}
+				break;
+			}
+			if (tokenHasEscapes) {
+				unescaped.append((char) c);
+			}
+			pos++;
+		}
+		tokenStart++;
+		tokenEnd = pos;
+		if (peek(0) == quote) {
+			pos++;
+		}
+		token = Token.Text;
+		return token;
+	}
+
+	private void skipWhitespaceAndComments() throws IOException {
+		for (; ; ) {
+			int c = peek(0);
+			if (c == -1) {
+				return;
+			}
+			if (c == '\n') {
+				atLineStart = true;
+				pos++;
+			} else if (Character.isWhitespace(c) || c == '\uFEFF') {
+				pos++;
+			} else if (c == '#' && atLineStart) {
+				skipLine();
+			} else if (c == '/' && peek(1) == '/') {
+				skipLine();
+			} else if (c == '/' && peek(1) == '*') {
+				pos += 2;
+				while ((c = peek(0)) != -1 && !(c == '*' && peek(1) == '/')) {
+					pos++;
+				}
+				if (c != -1) {
+					pos += 2;
+				}
+			} else {
+				atLineStart = false;
+				return;
+			}
+		}
+	}
+
+	private void skipLine() throws IOException {
+		int c;
+		while ((c = peek(0)) != -1 && c != '\n') {
+			if (c == '\\' && peek(1) == '\n') {
+				//line continuation
+				pos++;
+			}
+			pos++;
+		}
+	}
+
+	private static boolean isDelimiter(int c) {
+		switch (c) {
+			case '{':
+			case '}':
+			case '[':
+			case ']':
+			case ';':
+			case ':':
+			case ',':
+			case '=':
+			case '"':
+			case '\'': {
+				return true;
+			}
+		}
+		return Character.isWhitespace(c);
+	}
+
+	/** @return the char at pos + ahead, or -1 if the input ends before it */
+	private int peek(int ahead) throws IOException {
+		if (pos + ahead < buf.limit()) {
+			return buf.get(pos + ahead);
+		}
+		if (source == null) {
+			return -1;
+		}
+		while (pos + ahead >= buf.limit() && !sourceEnded) {
+			fill();
+		}
+		return pos + ahead < buf.limit() ? buf.get(pos + ahead) : -1;
+	}
+
+	private void fill() throws IOException {
+		int keep = markIndex >= 0 ? Math.min(markIndex, pos) : pos;
+		buf.position(keep);
+		buf.compact();
+		base += keep;
+		pos -= keep;
+		tokenStart -= keep;
+		tokenEnd -= keep;
+		if (markIndex >= 0) {
+			markIndex -= keep;
+		}
+		if (!buf.hasRemaining()) {
+			CharBuffer bigger = CharBuffer.allocate(buf.capacity() * 2);
+			buf.flip();
+			bigger.put(buf);
+			buf = bigger;
+		}
+		int read = source.read(buf);
+		if (read < 0) {
+			sourceEnded = true;
+		}
+		buf.flip();
+	}
+}
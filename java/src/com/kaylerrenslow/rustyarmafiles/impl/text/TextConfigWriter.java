@@ -0,0 +1,355 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import com.kaylerrenslow.rustyarmafiles.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ Writes a {@link ConfigCursor}, {@link ConfigStream} or {@link ConfigClass} as formatted config.cpp text, for example to
+ derapify a config.bin:
+ <pre>
+ new TextConfigWriter().write(new MappedRapifiedConfigFile(bin).newCursor(), writer);
+ </pre>
+ Entries are written as the cursor reaches them through one reused char buffer, so no tree is built. Only the values
+ of array fields are created, one field at a time. Strings are quoted with " and a " inside a string is written as "".
+ <p>
+ When a {@link ConfigQuery.CompiledQuery} is given, only the entries matched by it are written.
+
+ @author K
+ @since 01/28/2019 */
+public class TextConfigWriter {
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	private final ConfigQuery query;
+	private final int bufferSize;
+	private final String indent;
+
+	/** Creates a writer of every entry, indented with tabs */
+	public TextConfigWriter() {
+		this(null, "\t", DEFAULT_BUFFER_SIZE);
+	}
+
+	/** Creates a writer of only the entries matched by the query, indented with tabs */
+	public TextConfigWriter(@Nullable ConfigQuery.CompiledQuery query) {
+		this(query, "\t", DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 @param query      if not null, only the entries matched by this query are written
+	 @param indent     text written once per nesting level in front of each entry
+	 @param bufferSize size of the char buffer (and byte buffer when writing to a channel)
+	 */
+	public TextConfigWriter(@Nullable ConfigQuery.CompiledQuery query, @NotNull String indent, int bufferSize) {
+		if (bufferSize < 64) {
+			throw new IllegalArgumentException("bufferSize must be >= 64");
+		}
+		this.query = query == null ? null : new ConfigQuery(query);
+		this.indent = indent;
+		this.bufferSize = bufferSize;
+	}
+
+	/** Writes the entries of the class (not the class itself). */
+	public void write(@NotNull ConfigClass configClass, @NotNull Writer writer) throws IOException, ConfigStreamException {
+		write(configClass.newCursor(), writer);
+	}
+
+	public void write(@NotNull ConfigStream stream, @NotNull Writer writer) throws IOException, ConfigStreamException {
+		write(toCursor(stream), writer);
+	}
+
+	/**
+	 Reads the rest of the cursor and writes it as text. The writer is flushed, but not closed.
+
+	 @throws IOException           when the text couldn't be written
+	 @throws ConfigStreamException when the cursor couldn't be read
+	 */
+	public void write(@NotNull ConfigCursor cursor, @NotNull Writer writer) throws IOException, ConfigStreamException {
+		new Emitter(new WriterOutput(writer), bufferSize).write(query(cursor));
+		writer.flush();
+	}
+
+	/** Writes the entries of the class (not the class itself) as UTF-8. */
+	public void write(@NotNull ConfigClass configClass, @NotNull WritableByteChannel channel) throws IOException, ConfigStreamException {
+		write(configClass.newCursor(), channel);
+	}
+
+	public void write(@NotNull ConfigStream stream, @NotNull WritableByteChannel channel) throws IOException, ConfigStreamException {
+		write(toCursor(stream), channel);
+	}
+
+	/**
+	 Reads the rest of the cursor and writes it as UTF-8 text. The channel isn't closed.
+
+	 @throws IOException           when the text couldn't be written
+	 @throws ConfigStreamException when the cursor couldn't be read
+	 */
+	public void write(@NotNull ConfigCursor cursor, @NotNull WritableByteChannel channel) throws IOException, ConfigStreamException {
+		new Emitter(new ChannelOutput(channel, bufferSize), bufferSize).write(query(cursor));
+	}
+
+	@NotNull
+	private static ConfigCursor toCursor(@NotNull ConfigStream stream) {
+		if (stream instanceof ConfigCursorStream) {
+			return ((ConfigCursorStream) stream).getCursor();
+		}
+		return new ConfigStreamCursor(stream);
+	}
+
+	@NotNull
+	private ConfigCursor query(@NotNull ConfigCursor cursor) {
+		return query == null ? cursor : query.query(cursor);
+	}
+
+	/** Where the chars of an {@link Emitter} go */
+	private interface Output {
+		/**
+		 Writes the chars from the buffer's position to its limit.
+		 Chars that can't be written yet (half of a surrogate pair) may be left in the buffer.
+		 */
+		void write(@NotNull CharBuffer chars) throws IOException;
+
+		/** Writes what is left, after the last {@link #write(CharBuffer)} */
+		void finish() throws IOException;
+	}
+
+	private static class WriterOutput implements Output {
+		private final Writer writer;
+
+		WriterOutput(@NotNull Writer writer) {
+			this.writer = writer;
+		}
+
+		@Override
+		public void write(@NotNull CharBuffer chars) throws IOException {
+			writer.write(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+			chars.position(chars.limit());
+		}
+
+		@Override
+		public void finish() {
+		}
+	}
+
+	private static class ChannelOutput implements Output {
+		private final WritableByteChannel channel;
+		private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		private final ByteBuffer bytes;
+
+		ChannelOutput(@NotNull WritableByteChannel channel, int bufferSize) {
+			this.channel = channel;
+			this.bytes = ByteBuffer.allocateDirect(bufferSize);
+		}
+
+		@Override
+		public void write(@NotNull CharBuffer chars) throws IOException {
+			encode(chars, false);
+		}
+
+		@Override
+		public void finish() throws IOException {
+			encode(CharBuffer.allocate(0), true);
+			CoderResult result;
+			while ((result = encoder.flush(bytes)).isOverflow()) {
+				drain();
+			}
+			check(result);
+			drain();
+		}
+
+		private void encode(@NotNull CharBuffer chars, boolean endOfInput) throws IOException {
+			CoderResult result;
+			while ((result = encoder.encode(chars, bytes, endOfInput)).isOverflow()) {
+				drain();
+			}
+			check(result);
+		}
+
+		private static void check(@NotNull CoderResult result) throws CharacterCodingException {
+			if (result.isError()) {
+				result.throwException();
+			}
+		}
+
+		private void drain() throws IOException {
+			bytes.flip();
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+			bytes.clear();
+		}
+	}
+
+	/** Formats the entries of a cursor into a reused char buffer */
+	private class Emitter {
+		private final Output output;
+		private final CharBuffer buffer;
+		private final char[] chars;
+		private int size;
+		private int depth;
+
+		Emitter(@NotNull Output output, int bufferSize) {
+			this.output = output;
+			this.buffer = CharBuffer.allocate(bufferSize);
+			this.chars = buffer.array();
+		}
+
+		void write(@NotNull ConfigCursor cursor) throws IOException, ConfigStreamException {
+			ConfigStreamItem.Type type;
+			while ((type = cursor.advance()) != ConfigStreamItem.Type.EndStream) {
+				switch (type) {
+					case Class: {
+						writeIndent();
+						append("class ");
+						append(cursor.name());
+						CharSequence parentClassName = cursor.parentClassName();
+						if (parentClassName != null) {
+							append(" : ");
+							append(parentClassName);
+						}
+						append(" {\n");
+						depth++;
+						break;
+					}
+					case EndClass: {
+						depth--;
+						writeIndent();
+						append("};\n");
+						break;
+					}
+					case Field: {
+						writeIndent();
+						append(cursor.name());
+						switch (cursor.valueType()) {
+							case Scalar: {
+								append(" = ");
+								appendScalar(cursor.scalarValue());
+								break;
+							}
+							case Text: {
+								append(" = ");
+								appendQuoted(cursor.textValue());
+								break;
+							}
+							case Array: {
+								append("[] = ");
+								appendArray((ConfigFieldValue.Array) cursor.value());
+								break;
+							}
+							default: {
+								throw new IllegalStateException();
+							}
+						}
+						append(";\n");
+						break;
+					}
+					default: {
+						throw new IllegalStateException();
+					}
+				}
+			}
+			flush();
+			output.finish();
+		}
+
+		private void writeIndent() throws IOException {
+			for (int i = 0; i < depth; i++) {
+				append(indent);
+			}
+		}
+
+		private void appendArray(@NotNull ConfigFieldValue.Array array) throws IOException {
+			append('{');
+			int length = array.getLength();
+			for (int i = 0; i < length; i++) {
+				if (i > 0) {
+					append(", ");
+				}
+				if (array.isScalar(i)) {
+					appendScalar(array.getScalar(i));
+					continue;
+				}
+				ConfigFieldValue value = array.getValue(i);
+				if (value instanceof ConfigFieldValue.Text) {
+					appendQuoted(((ConfigFieldValue.Text) value).getChars());
+				} else {
+					appendArray((ConfigFieldValue.Array) value);
+				}
+			}
+			append('}');
+		}
+
+		/** Whole numbers are written without a fraction. Values that are exact floats (rapified) use the shorter float text. */
+		private void appendScalar(double value) throws IOException {
+			if (value == (long) value && Math.abs(value) < 1e15) {
+				appendLong((long) value);
+			} else if (value == (float) value) {
+				append(Float.toString((float) value));
+			} else {
+				append(Double.toString(value));
+			}
+		}
+
+		private void appendLong(long value) throws IOException {
+			if (value < 0) {
+				append('-');
+				value = -value;
+			}
+			long divisor = 1;
+			while (value / divisor >= 10) {
+				divisor *= 10;
+			}
+			for (; divisor > 0; divisor /= 10) {
+				append((char) ('0' + value / divisor % 10));
+			}
+		}
+
+		private void appendQuoted(@NotNull CharSequence text) throws IOException {
+			append('"');
+			int length = text.length();
+			for (int i = 0; i < length; i++) {
+				char c = text.charAt(i);
+				if (c == '"') {
+					append('"');
+				}
+				append(c);
+			}
+			append('"');
+		}
+
+		private void append(@NotNull CharSequence s) throws IOException {
+			int length = s.length();
+			for (int i = 0; i < length; i++) {
+				append(s.charAt(i));
+			}
+		}
+
+		private void append(char c) throws IOException {
+			if (size == chars.length) {
+				flush();
+			}
+			chars[size++] = c;
+		}
+
+		private void flush() throws IOException {
+			buffer.position(0);
+			buffer.limit(size);
+			output.write(buffer);
+			//keep what the output couldn't take yet (half of a surrogate pair)
+			buffer.compact();
+			size = buffer.position();
+		}
+	}
+}
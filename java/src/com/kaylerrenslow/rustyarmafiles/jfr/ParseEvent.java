@@ -0,0 +1,34 @@
+package com.kaylerrenslow.rustyarmafiles.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ Recorded by {@link com.kaylerrenslow.rustyarmafiles.ConfigFile#parse()}.
+
+ @author K
+ @since 02/05/2019 */
+@Name("com.kaylerrenslow.rustyarmafiles.Parse")
+@Label("Config Parse")
+@Category("Rusty Arma Files")
+@Description("A config file was parsed")
+@StackTrace(false)
+public final class ParseEvent extends jdk.jfr.Event {
+	@Label("File")
+	public String file;
+
+	@Label("Format")
+	@Description("text, rapified or snapshot")
+	public String format;
+
+	@Label("Size")
+	@DataAmount
+	public long bytes;
+
+	public ParseEvent() {
+	}
+}
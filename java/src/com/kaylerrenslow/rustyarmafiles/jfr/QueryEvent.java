@@ -0,0 +1,35 @@
+package com.kaylerrenslow.rustyarmafiles.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ Recorded when a {@link com.kaylerrenslow.rustyarmafiles.ConfigQuery} or
+ {@link com.kaylerrenslow.rustyarmafiles.ConfigMultiQuery} reaches the end of its input. The duration is from the
+ first entry read to the end, so it includes the time the caller spent between entries.
+
+ @author K
+ @since 02/05/2019 */
+@Name("com.kaylerrenslow.rustyarmafiles.Query")
+@Label("Config Query")
+@Category("Rusty Arma Files")
+@Description("A query was run over a config")
+public final class QueryEvent extends jdk.jfr.Event {
+	@Label("Queries")
+	@Description("Amount of queries run in the same pass")
+	public int queries;
+
+	@Label("Entries Read")
+	public long entriesRead;
+
+	@Label("Entries Matched")
+	public long entriesMatched;
+
+	@Label("Classes Skipped")
+	public long classesSkipped;
+
+	public QueryEvent() {
+	}
+}
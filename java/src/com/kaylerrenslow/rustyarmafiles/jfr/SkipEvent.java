@@ -0,0 +1,28 @@
+package com.kaylerrenslow.rustyarmafiles.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ Recorded when a query skips a class. Only skips that take longer than the threshold (1 ms by default) are
+ recorded, since a query may skip millions of small classes.
+
+ @author K
+ @since 02/05/2019 */
+@Name("com.kaylerrenslow.rustyarmafiles.Skip")
+@Label("Config Class Skip")
+@Category("Rusty Arma Files")
+@Description("A query skipped a class it didn't match")
+@Threshold("1 ms")
+@StackTrace(false)
+public final class SkipEvent extends jdk.jfr.Event {
+	@Label("Class")
+	public String className;
+
+	public SkipEvent() {
+	}
+}
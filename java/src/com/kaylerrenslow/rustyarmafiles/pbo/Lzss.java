@@ -0,0 +1,74 @@
+package com.kaylerrenslow.rustyarmafiles.pbo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+
+/**
+ Decompressor for the LZSS variant used by PBO entries.
+ <pre>
+ block:   byte flags, then for each bit of flags from the lowest up:
+ 1       byte literal
+ 0       byte b1, byte b2: copy (b2 &amp; 0x0F) + 3 bytes starting at
+ (b1 | (b2 &amp; 0xF0) &lt;&lt; 4) bytes back in the output.
+ Positions before the start of the output are spaces.
+ trailer: int32 sum of all output bytes (unsigned)
+ </pre>
+
+ @author K
+ @since 01/24/2019 */
+final class Lzss {
+	private Lzss() {
+	}
+
+	/**
+	 Decompresses from the position of src into dst, starting at index 0 of dst. The positions of both buffers aren't
+	 changed.
+
+	 @param src            compressed data, followed by the checksum
+	 @param dst            buffer to write to, with at least originalSize bytes remaining from index 0
+	 @param originalSize   size of the decompressed data
+	 @throws DataFormatException when the data is truncated or the checksum doesn't match
+	 */
+	static void decompress(@NotNull ByteBuffer src, @NotNull ByteBuffer dst, int originalSize) throws DataFormatException {
+		int in = src.position();
+		int inEnd = src.limit();
+		int out = 0;
+		int checksum = 0;
+		try {
+			while (out < originalSize) {
+				int flags = src.get(in++) & 0xFF;
+				for (int bit = 0; bit < 8 && out < originalSize; bit++, flags >>>= 1) {
+					if ((flags & 1) != 0) {
+						byte b = src.get(in++);
+						dst.put(out++, b);
+						checksum += b & 0xFF;
+						continue;
+					}
+					int b1 = src.get(in++) & 0xFF;
+					int b2 = src.get(in++) & 0xFF;
+					int from = out - (b1 | (b2 & 0xF0) << 4);
+					int length = (b2 & 0x0F) + 3;
+					if (out + length > originalSize) {
+						throw new DataFormatException("back reference past the original size");
+					}
+					for (; length > 0; length--, from++) {
+						byte b = from < 0 ? (byte) ' ' : dst.get(from);
+						dst.put(out++, b);
+						checksum += b & 0xFF;
+					}
+				}
+			}
+			if (in + 4 > inEnd) {
+				throw new DataFormatException("missing checksum");
+			}
+		} catch (IndexOutOfBoundsException e) {
+			throw new DataFormatException("compressed data is truncated");
+		}
+		int expected = (src.get(in) & 0xFF) | (src.get(in + 1) & 0xFF) << 8 | (src.get(in + 2) & 0xFF) << 16 | (src.get(in + 3) & 0xFF) << 24;
+		if (checksum != expected) {
+			throw new DataFormatException("checksum mismatch");
+		}
+	}
+}
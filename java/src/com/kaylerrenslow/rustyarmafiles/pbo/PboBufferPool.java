@@ -0,0 +1,66 @@
+package com.kaylerrenslow.rustyarmafiles.pbo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ Pool of buffers that compressed {@link PboEntry}s are decompressed into by {@link PboEntry#open()}, so reading many
+ entries one after another doesn't allocate a new buffer for each. All methods are thread safe.
+
+ @author K
+ @since 01/24/2019 */
+public final class PboBufferPool {
+	/** default max amount of idle buffers */
+	public static final int DEFAULT_MAX_IDLE = 8;
+
+	private final ArrayDeque<ByteBuffer> idle = new ArrayDeque<>();
+	private final int maxIdle;
+
+	public PboBufferPool() {
+		this(DEFAULT_MAX_IDLE);
+	}
+
+	/** @param maxIdle max amount of released buffers that are kept. Buffers released beyond it are dropped. */
+	public PboBufferPool(int maxIdle) {
+		if (maxIdle < 0) {
+			throw new IllegalArgumentException("maxIdle must be >= 0");
+		}
+		this.maxIdle = maxIdle;
+	}
+
+	/** @return a cleared buffer with a capacity of at least size and a limit of size */
+	@NotNull
+	ByteBuffer acquire(int size) {
+		synchronized (idle) {
+			Iterator<ByteBuffer> iterator = idle.iterator();
+			while (iterator.hasNext()) {
+				ByteBuffer buffer = iterator.next();
+				if (buffer.capacity() >= size) {
+					iterator.remove();
+					buffer.clear().limit(size);
+					return buffer;
+				}
+			}
+		}
+		//round up so that slightly bigger entries later on can still reuse the buffer
+		int capacity = size <= 1024 ? 1024 : Integer.highestOneBit(size - 1) << 1;
+		if (capacity < size) {
+			capacity = size;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(capacity);
+		buffer.limit(size);
+		return buffer;
+	}
+
+	void release(@NotNull ByteBuffer buffer) {
+		synchronized (idle) {
+			if (idle.size() < maxIdle) {
+				//most recent first, it's most likely still in the cpu cache
+				idle.addFirst(buffer);
+			}
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package com.kaylerrenslow.rustyarmafiles.pbo;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigFile;
+import com.kaylerrenslow.rustyarmafiles.impl.rapified.MappedRapifiedConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+
+/**
+ A file inside a {@link PboFile}. The entry only knows where its data is, nothing is read until it is requested.
+
+ @author K
+ @since 01/24/2019 */
+public final class PboEntry {
+	private final PboFile pboFile;
+	private final String path;
+	private final int packingMethod;
+	private final int originalSize;
+	private final int timestamp;
+	private final int dataOffset;
+	private final int dataSize;
+
+	PboEntry(@NotNull PboFile pboFile, @NotNull String path, int packingMethod, int originalSize, int timestamp, int dataOffset, int dataSize) {
+		this.pboFile = pboFile;
+		this.path = path;
+		this.packingMethod = packingMethod;
+		this.originalSize = originalSize;
+		this.timestamp = timestamp;
+		this.dataOffset = dataOffset;
+		this.dataSize = dataSize;
+	}
+
+	@NotNull
+	public PboFile getPboFile() {
+		return pboFile;
+	}
+
+	/** @return the path of the entry inside the archive, as it is stored (for example "config.bin" or "data\a.paa") */
+	@NotNull
+	public String getPath() {
+		return path;
+	}
+
+	/** @return the size of the entry once it is decompressed */
+	public int getSize() {
+		return isCompressed() ? originalSize : dataSize;
+	}
+
+	/** @return the amount of bytes the entry takes in the archive */
+	public int getDataSize() {
+		return dataSize;
+	}
+
+	/** @return seconds since the epoch, or 0 if the archive doesn't store it */
+	public int getTimestamp() {
+		return timestamp;
+	}
+
+	public boolean isCompressed() {
+		return packingMethod == PboFile.METHOD_COMPRESSED || packingMethod == 0 && originalSize != 0 && originalSize != dataSize;
+	}
+
+	/** @return a read only slice of the stored (possibly compressed) bytes of the mapped archive */
+	@NotNull
+	public ByteBuffer getRawData() {
+		return pboFile.slice(dataOffset, dataSize);
+	}
+
+	/**
+	 Gets the content of the entry. For entries that aren't compressed this is a read only slice of the mapped archive
+	 and nothing is copied. Compressed entries are decompressed into a new buffer that belongs to the caller.
+	 Use {@link #open()} for content that is only needed for a short time.
+
+	 @return the content
+	 @throws IOException when the compressed data is corrupt
+	 */
+	@NotNull
+	public ByteBuffer read() throws IOException {
+		if (!isCompressed()) {
+			return getRawData();
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(originalSize);
+		decompress(buffer);
+		return buffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 Gets the content of the entry like {@link #read()}, except compressed entries are decompressed into a buffer from
+	 the archive's {@link PboBufferPool}. The buffer is returned to the pool when the content is closed, so it must
+	 not be used after that.
+
+	 @return the content, which should be closed once it isn't needed anymore
+	 @throws IOException when the compressed data is corrupt
+	 */
+	@NotNull
+	public Content open() throws IOException {
+		if (!isCompressed()) {
+			return new Content(getRawData(), null, null);
+		}
+		PboBufferPool pool = pboFile.getBufferPool();
+		ByteBuffer buffer = pool.acquire(originalSize);
+		try {
+			decompress(buffer);
+		} catch (IOException | RuntimeException e) {
+			pool.release(buffer);
+			throw e;
+		}
+		return new Content(buffer.asReadOnlyBuffer(), buffer, pool);
+	}
+
+	/**
+	 Creates a rapified {@link ConfigFile} that reads the content of this entry (usually config.bin) in place.
+	 {@link ConfigFile#getFile()} is the archive file joined with {@link #getPath()}.
+
+	 @return the config file, which still needs to be parsed
+	 @throws IOException when the compressed data is corrupt
+	 */
+	@NotNull
+	public MappedRapifiedConfigFile newRapifiedConfigFile() throws IOException {
+		return new MappedRapifiedConfigFile(new File(pboFile.getFile(), path.replace('\\', File.separatorChar)), read());
+	}
+
+	private void decompress(@NotNull ByteBuffer dst) throws IOException {
+		try {
+			Lzss.decompress(getRawData(), dst, originalSize);
+		} catch (DataFormatException e) {
+			throw new IOException("couldn't decompress " + path + " in " + pboFile.getFile() + ": " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return pboFile.getFile().getName() + ":" + path;
+	}
+
+	/** Content of an entry from {@link #open()}. */
+	public static final class Content implements AutoCloseable {
+		private ByteBuffer buffer;
+		/** the buffer from the pool, or null if buffer is a slice of the archive */
+		private final ByteBuffer pooledBuffer;
+		private final PboBufferPool pool;
+
+		private Content(@NotNull ByteBuffer buffer, @Nullable ByteBuffer pooledBuffer, @Nullable PboBufferPool pool) {
+			this.buffer = buffer;
+			this.pooledBuffer = pooledBuffer;
+			this.pool = pool;
+		}
+
+		/**
+		 @return the read only content
+		 @throws IllegalStateException when the content was closed
+		 */
+		@NotNull
+		public ByteBuffer getBuffer() {
+			if (buffer == null) {
+				throw new IllegalStateException("closed");
+			}
+			return buffer;
+		}
+
+		@Override
+		public void close() {
+			if (buffer != null && pool != null) {
+				pool.release(pooledBuffer);
+			}
+			buffer = null;
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package com.kaylerrenslow.rustyarmafiles.pbo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.*;
+
+/**
+ A memory mapped PBO archive. The header is read once when the archive is opened and every file in it is available as
+ a {@link PboEntry}, so files can be read in place without extracting the archive.
+ <p>
+ Layout of a PBO:
+ <pre>
+ header:  entry[], terminated by an entry with an empty path and a packing method of 0
+ entry:   asciiz path, uint32 packingMethod, uint32 originalSize, uint32 reserved, uint32 timestamp, uint32 dataSize
+ The first entry may instead be a product entry: an empty path and packing method "Vers", followed by
+ (asciiz key, asciiz value)[] terminated by an empty key.
+ data:    the data of each entry in header order
+ trailer: byte 0, byte[20] sha1 (not verified)
+ </pre>
+
+ @author K
+ @since 01/24/2019 */
+public final class PboFile {
+	/** "Vers" */
+	static final int METHOD_PRODUCT = 0x56657273;
+	/** "Cprs" */
+	static final int METHOD_COMPRESSED = 0x43707273;
+
+	private static final PboBufferPool DEFAULT_POOL = new PboBufferPool();
+
+	private final File file;
+	private final ByteBuffer buffer;
+	private final PboBufferPool bufferPool;
+	private final Map<String, String> properties;
+	private final List<PboEntry> entries;
+	/** normalized path to entry */
+	private final Map<String, PboEntry> entriesByPath;
+
+	private PboFile(@NotNull File file, @NotNull ByteBuffer buffer, @NotNull PboBufferPool bufferPool) throws ParseException {
+		this.file = file;
+		this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+		this.bufferPool = bufferPool;
+
+		Map<String, String> properties = new LinkedHashMap<>();
+		List<PboEntry> entries = new ArrayList<>();
+		ByteBuffer header = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		try {
+			List<int[]> headers = new ArrayList<>();
+			List<String> paths = new ArrayList<>();
+			while (true) {
+				int entryStart = header.position();
+				String path = readAsciiz(header);
+				int packingMethod = header.getInt();
+				int originalSize = header.getInt();
+				header.getInt(); //reserved
+				int timestamp = header.getInt();
+				int dataSize = header.getInt();
+				if (path.isEmpty()) {
+					if (packingMethod == METHOD_PRODUCT) {
+						readProperties(header, properties);
+						continue;
+					}
+					break;
+				}
+				if (dataSize < 0 || originalSize < 0) {
+					throw new ParseException("invalid size for " + path, entryStart);
+				}
+				paths.add(path);
+				headers.add(new int[]{packingMethod, originalSize, timestamp, dataSize});
+			}
+			long dataOffset = header.position();
+			for (int i = 0; i < paths.size(); i++) {
+				int[] h = headers.get(i);
+				if (dataOffset + h[3] > buffer.limit()) {
+					throw new ParseException("data of " + paths.get(i) + " is past the end of the file", (int) Math.min(dataOffset, Integer.MAX_VALUE));
+				}
+				entries.add(new PboEntry(this, paths.get(i), h[0], h[1], h[2], (int) dataOffset, h[3]));
+				dataOffset += h[3];
+			}
+		} catch (BufferUnderflowException e) {
+			throw new ParseException("header is truncated", header.position());
+		}
+
+		this.properties = Collections.unmodifiableMap(properties);
+		this.entries = Collections.unmodifiableList(entries);
+		this.entriesByPath = new HashMap<>(entries.size() * 2);
+		for (PboEntry entry : entries) {
+			entriesByPath.putIfAbsent(normalizePath(entry.getPath()), entry);
+		}
+	}
+
+	/**
+	 Opens an archive with the default {@link PboBufferPool}.
+
+	 @see #open(File, PboBufferPool)
+	 */
+	@NotNull
+	public static PboFile open(@NotNull File file) throws IOException, ParseException {
+		return open(file, DEFAULT_POOL);
+	}
+
+	/**
+	 Memory maps the archive and reads its header. The channel is closed right away, the mapping stays valid until the
+	 archive and all buffers from it are garbage collected.
+
+	 @param file       the archive
+	 @param bufferPool pool that compressed entries are decompressed into by {@link PboEntry#open()}
+	 @return the archive
+	 @throws IOException    when the file couldn't be mapped, or is 2GB or bigger
+	 @throws ParseException when the header is invalid
+	 */
+	@NotNull
+	public static PboFile open(@NotNull File file, @NotNull PboBufferPool bufferPool) throws IOException, ParseException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(file + " is too big to be mapped");
+			}
+			return new PboFile(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), bufferPool);
+		}
+	}
+
+	@NotNull
+	public File getFile() {
+		return file;
+	}
+
+	/** @return the key value pairs of the product entry (for example "prefix"), in the order they are stored */
+	@NotNull
+	public Map<String, String> getProperties() {
+		return properties;
+	}
+
+	/** @return the "prefix" property, which is the virtual directory the entries are placed in, or "" if there is none */
+	@NotNull
+	public String getPrefix() {
+		String prefix = properties.get("prefix");
+		return prefix == null ? "" : prefix;
+	}
+
+	/** @return all entries in the order they are stored */
+	@NotNull
+	public List<PboEntry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 @param path path relative to the archive. The case and the kind of slashes don't matter
+	 @return the entry, or null if there is none
+	 */
+	@Nullable
+	public PboEntry getEntry(@NotNull String path) {
+		return entriesByPath.get(normalizePath(path));
+	}
+
+	@NotNull
+	PboBufferPool getBufferPool() {
+		return bufferPool;
+	}
+
+	@NotNull
+	ByteBuffer slice(int offset, int length) {
+		ByteBuffer slice = buffer.duplicate();
+		slice.position(offset).limit(offset + length);
+		return slice.slice().asReadOnlyBuffer();
+	}
+
+	/** @return the path lower cased with backslashes and without leading or trailing slashes */
+	@NotNull
+	static String normalizePath(@NotNull String path) {
+		String normalized = path.replace('/', '\\').toLowerCase(Locale.ROOT);
+		int start = 0;
+		int end = normalized.length();
+		while (start < end && normalized.charAt(start) == '\\') {
+			start++;
+		}
+		while (end > start && normalized.charAt(end - 1) == '\\') {
+			end--;
+		}
+		return normalized.substring(start, end);
+	}
+
+	private static void readProperties(@NotNull ByteBuffer header, @NotNull Map<String, String> properties) {
+		while (true) {
+			String key = readAsciiz(header);
+			if (key.isEmpty()) {
+				return;
+			}
+			properties.put(key, readAsciiz(header));
+		}
+	}
+
+	@NotNull
+	private static String readAsciiz(@NotNull ByteBuffer header) {
+		int start = header.position();
+		int end = start;
+		while (end < header.limit() && header.get(end) != 0) {
+			end++;
+		}
+		if (end >= header.limit()) {
+			throw new BufferUnderflowException();
+		}
+		byte[] bytes = new byte[end - start];
+		header.get(bytes);
+		header.get(); //terminator
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
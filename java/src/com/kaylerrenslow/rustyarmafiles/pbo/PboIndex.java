@@ -0,0 +1,89 @@
+package com.kaylerrenslow.rustyarmafiles.pbo;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.*;
+
+/**
+ Lookup of entries over many {@link PboFile}s by their full path, which is the archive's prefix joined with the path
+ of the entry inside the archive (for example "a3\data_f\config.bin"), the way the game resolves file paths.
+ When several archives contain the same full path, the archive given last wins.
+
+ @author K
+ @since 01/24/2019 */
+public final class PboIndex {
+	private final List<PboFile> pboFiles;
+	/** normalized full path to entry, in the order of {@link #findEntries(String)} */
+	private final Map<String, PboEntry> entries = new LinkedHashMap<>();
+
+	public PboIndex(@NotNull Collection<PboFile> pboFiles) {
+		this.pboFiles = Collections.unmodifiableList(new ArrayList<>(pboFiles));
+		for (PboFile pboFile : this.pboFiles) {
+			String prefix = PboFile.normalizePath(pboFile.getPrefix());
+			for (PboEntry entry : pboFile.getEntries()) {
+				String path = PboFile.normalizePath(entry.getPath());
+				String fullPath = prefix.isEmpty() ? path : prefix + '\\' + path;
+				//remove first so that the entry moves to the position of the archive that wins
+				entries.remove(fullPath);
+				entries.put(fullPath, entry);
+			}
+		}
+	}
+
+	/**
+	 Opens every archive with one shared {@link PboBufferPool} and indexes them.
+
+	 @param files archives in load order
+	 @return the index
+	 @throws IOException    when an archive couldn't be mapped
+	 @throws ParseException when an archive's header is invalid
+	 */
+	@NotNull
+	public static PboIndex open(@NotNull Collection<File> files) throws IOException, ParseException {
+		PboBufferPool bufferPool = new PboBufferPool();
+		List<PboFile> pboFiles = new ArrayList<>(files.size());
+		for (File file : files) {
+			pboFiles.add(PboFile.open(file, bufferPool));
+		}
+		return new PboIndex(pboFiles);
+	}
+
+	@NotNull
+	public List<PboFile> getPboFiles() {
+		return pboFiles;
+	}
+
+	/**
+	 @param path full path of the entry. The case, the kind of slashes and a leading slash don't matter
+	 @return the entry, or null if no archive has it
+	 */
+	@Nullable
+	public PboEntry getEntry(@NotNull String path) {
+		return entries.get(PboFile.normalizePath(path));
+	}
+
+	/**
+	 The entries are in load order: archive by archive in the order the archives were given, and in the order of
+	 the archive's header within an archive. A full path that is in several archives is returned once, as the entry of
+	 the archive given last (the same entry {@link #getEntry(String)} returns), at that archive's position.
+
+	 @return every entry whose full path ends with the given file name (for example "config.bin")
+	 */
+	@NotNull
+	public List<PboEntry> findEntries(@NotNull String fileName) {
+		String normalized = PboFile.normalizePath(fileName);
+		String suffix = '\\' + normalized;
+		List<PboEntry> found = new ArrayList<>();
+		for (Map.Entry<String, PboEntry> entry : entries.entrySet()) {
+			String path = entry.getKey();
+			if (path.equals(normalized) || path.endsWith(suffix)) {
+				found.add(entry.getValue());
+			}
+		}
+		return found;
+	}
+}
@@ -3,6 +3,12 @@
  @since 01/08/2019 */
 module RustyArmaFiles {
 	requires annotations;
+	requires jdk.jfr;
 
 	exports com.kaylerrenslow.rustyarmafiles;
+	exports com.kaylerrenslow.rustyarmafiles.impl.rapified;
+	exports com.kaylerrenslow.rustyarmafiles.impl.snapshot;
+	exports com.kaylerrenslow.rustyarmafiles.impl.text;
+	exports com.kaylerrenslow.rustyarmafiles.jfr;
+	exports com.kaylerrenslow.rustyarmafiles.pbo;
 }
\ No newline at end of file
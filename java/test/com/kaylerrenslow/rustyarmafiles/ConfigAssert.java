@@ -0,0 +1,88 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ Assertions on config trees, shared by the tests of the readers and writers.
+
+ @author K
+ @since 02/08/2019 */
+public final class ConfigAssert {
+	private ConfigAssert() {
+	}
+
+	/**
+	 Asserts that both classes have the same fields in the same order and the same embedded classes (with the same
+	 parent class names) in the same order, recursively. The fields and the classes of a class are compared
+	 separately, since a rapified file always has the fields of a class in front of its classes.
+	 */
+	public static void assertTreeEquals(@NotNull ConfigClass expected, @NotNull ConfigClass actual) {
+		assertEquals(describe(expected), describe(actual));
+	}
+
+	/** @return the entries of the class as config.cpp text, with the fields of each class in front of its classes */
+	@NotNull
+	public static String describe(@NotNull ConfigClass configClass) {
+		StringBuilder sb = new StringBuilder();
+		describeBody(configClass, "", sb);
+		return sb.toString();
+	}
+
+	/** @return the value as config.cpp text. Scalars are written as doubles, so 1 and 1.0 are the same. */
+	@NotNull
+	public static String describe(@NotNull ConfigFieldValue value) {
+		StringBuilder sb = new StringBuilder();
+		describeValue(value, sb);
+		return sb.toString();
+	}
+
+	private static void describeBody(@NotNull ConfigClass configClass, @NotNull String indent, @NotNull StringBuilder sb) {
+		List<ConfigClass> classes = new ArrayList<>();
+		for (ConfigEntry entry : configClass.getEntries()) {
+			if (entry.isClass()) {
+				classes.add((ConfigClass) entry);
+				continue;
+			}
+			ConfigField field = (ConfigField) entry;
+			sb.append(indent).append(field.getKey());
+			if (field.getValue() instanceof ConfigFieldValue.Array) {
+				sb.append("[]");
+			}
+			sb.append(" = ");
+			describeValue(field.getValue(), sb);
+			sb.append(";\n");
+		}
+		for (ConfigClass embedded : classes) {
+			sb.append(indent).append("class ").append(embedded.getClassName());
+			if (embedded.getParentClassName() != null) {
+				sb.append(" : ").append(embedded.getParentClassName());
+			}
+			sb.append(" {\n");
+			describeBody(embedded, indent + "\t", sb);
+			sb.append(indent).append("};\n");
+		}
+	}
+
+	private static void describeValue(@NotNull ConfigFieldValue value, @NotNull StringBuilder sb) {
+		if (value instanceof ConfigFieldValue.Scalar) {
+			sb.append(((ConfigFieldValue.Scalar) value).getValue());
+		} else if (value instanceof ConfigFieldValue.Text) {
+			sb.append('"').append(((ConfigFieldValue.Text) value).getText().replace("\"", "\"\"")).append('"');
+		} else {
+			ConfigFieldValue.Array array = (ConfigFieldValue.Array) value;
+			sb.append('{');
+			for (int i = 0; i < array.getLength(); i++) {
+				if (i > 0) {
+					sb.append(", ");
+				}
+				describeValue(array.getValue(i), sb);
+			}
+			sb.append('}');
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import com.kaylerrenslow.rustyarmafiles.impl.rapified.MappedRapifiedConfigFile;
+import com.kaylerrenslow.rustyarmafiles.impl.rapified.RapifiedConfigWriter;
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class ConfigClassHierarchyTest {
+	private Path directory;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = ConfigTestFiles.createTempDirectory();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void fieldsResolveThroughAncestorsInTextFile() throws Exception {
+		assertFieldsResolve(parseText(ConfigTestFiles.SAMPLE));
+	}
+
+	@Test
+	void fieldsResolveThroughAncestorsInRapifiedFile() throws Exception {
+		assertFieldsResolve(parseRapified(ConfigTestFiles.SAMPLE));
+	}
+
+	@Test
+	void embeddedClassesResolveThroughAncestorsInTextFile() throws Exception {
+		assertEmbeddedClassesResolve(parseText(ConfigTestFiles.SAMPLE));
+	}
+
+	@Test
+	void embeddedClassesResolveThroughAncestorsInRapifiedFile() throws Exception {
+		assertEmbeddedClassesResolve(parseRapified(ConfigTestFiles.SAMPLE));
+	}
+
+	@Test
+	void effectiveEntriesSkipOverriddenEntries() throws Exception {
+		ConfigClass tank = parseText(ConfigTestFiles.SAMPLE).getClass("CfgVehicles").getClass("Tank");
+		assertEquals(Arrays.asList("armor", "Turrets", "scope", "displayName", "maxSpeed", "offsets"), names(tank.getEffectiveEntries()));
+	}
+
+	@Test
+	void resolvedValuesAreMemoized() throws Exception {
+		ConfigClass tank = parseText(ConfigTestFiles.SAMPLE).getClass("CfgVehicles").getClass("Tank");
+		assertSame(tank.resolveFieldValue("maxSpeed"), tank.resolveFieldValue("maxSpeed"));
+	}
+
+	@Test
+	void cyclicAndMissingParentsEndTheChain() throws Exception {
+		ConfigClass root = parseText("class A : B {};\nclass B : A {};\nclass X : Missing {};\n");
+		ConfigClass a = root.getClass("A");
+		assertEquals(Arrays.asList("B"), names(a.getAncestors()));
+		assertNull(a.resolveFieldValue("anything"));
+
+		ConfigClass x = root.getClass("X");
+		assertEquals("Missing", x.getParentClassName());
+		assertNull(x.getParentClass());
+		assertTrue(x.getAncestors().isEmpty());
+	}
+
+	private static void assertFieldsResolve(@NotNull ConfigClass root) {
+		ConfigClass tank = root.getClass("CfgVehicles").getClass("Tank");
+		assertEquals("Car", tank.getParentClassName());
+		assertEquals(Arrays.asList("Car", "Base"), names(tank.getAncestors()));
+		assertEquals("500.0", ConfigAssert.describe(tank.resolveFieldValue("armor")));
+		assertEquals("2.0", ConfigAssert.describe(tank.resolveFieldValue("scope")));
+		assertEquals("120.25", ConfigAssert.describe(tank.resolveFieldValue("maxSpeed")));
+		assertNull(tank.getFieldValue("scope"));
+		assertNull(tank.resolveFieldValue("missing"));
+		assertNull(root.getClass("CfgVehicles").getClass("Base").getParentClassName());
+	}
+
+	private static void assertEmbeddedClassesResolve(@NotNull ConfigClass root) {
+		ConfigClass vehicles = root.getClass("CfgVehicles");
+		ConfigClass carTurrets = vehicles.getClass("Car").getClass("Turrets");
+		//class Turrets : Turrets doesn't inherit itself, it inherits the Turrets of Base
+		assertSame(vehicles.getClass("Base").getClass("Turrets"), carTurrets.getParentClass());
+
+		ConfigClass tankTurrets = vehicles.getClass("Tank").resolveClass("Turrets");
+		assertSame(carTurrets, tankTurrets);
+		ConfigClass mainTurret = tankTurrets.resolveClass("MainTurret");
+		assertNotNull(mainTurret);
+		assertEquals("\"Gunner\"", ConfigAssert.describe(mainTurret.resolveFieldValue("gunner")));
+	}
+
+	@NotNull
+	private ConfigClass parseText(@NotNull String text) throws Exception {
+		TextConfigFile file = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", text));
+		file.parse();
+		return file.getRoot();
+	}
+
+	@NotNull
+	private ConfigClass parseRapified(@NotNull String text) throws Exception {
+		File bin = directory.resolve("config.bin").toFile();
+		new RapifiedConfigWriter().write(parseText(text), bin);
+		MappedRapifiedConfigFile file = new MappedRapifiedConfigFile(bin);
+		file.parse();
+		return file.getRoot();
+	}
+
+	@NotNull
+	private static List<String> names(@NotNull List<? extends ConfigEntry> entries) {
+		List<String> names = new ArrayList<>(entries.size());
+		for (ConfigEntry entry : entries) {
+			names.add(entry.getName());
+		}
+		return names;
+	}
+}
@@ -0,0 +1,168 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import com.kaylerrenslow.rustyarmafiles.impl.rapified.MappedRapifiedConfigFile;
+import com.kaylerrenslow.rustyarmafiles.impl.rapified.RapifiedConfigWriter;
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class ConfigCursorTest {
+	private Path directory;
+	private TextConfigFile textFile;
+	private File bin;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		directory = ConfigTestFiles.createTempDirectory();
+		textFile = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE));
+		bin = directory.resolve("config.bin").toFile();
+		new RapifiedConfigWriter().write(textFile.newCursor(), bin);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void textCursorsFollowTheContract() throws Exception {
+		assertContract(textFile);
+		textFile.parse();
+		assertContract(textFile);
+	}
+
+	@Test
+	void rapifiedCursorsFollowTheContract() throws Exception {
+		MappedRapifiedConfigFile file = new MappedRapifiedConfigFile(bin);
+		assertContract(file);
+		file.parse();
+		assertContract(file);
+	}
+
+	@Test
+	void streamCursorFollowsTheContract() throws Exception {
+		ConfigCursor cursor = new ConfigStreamCursor(textFile.newStream());
+		assertEquals(walk(textFile.newCursor()), walk(cursor));
+	}
+
+	@Test
+	void cursorStreamGivesTheCursorEntries() throws Exception {
+		ConfigCursorStream stream = new ConfigCursorStream(textFile.newCursor());
+		List<String> items = new ArrayList<>();
+		ConfigStreamItem item;
+		while ((item = stream.next()).getType() != ConfigStreamItem.Type.EndStream) {
+			if (item instanceof ConfigStreamItem.FieldItem) {
+				items.add("field " + ((ConfigStreamItem.FieldItem) item).getKey() + " = " + ConfigAssert.describe(((ConfigStreamItem.FieldItem) item).getValue()));
+			} else if (item instanceof ConfigStreamItem.ClassItem) {
+				ConfigStreamItem.ClassItem classItem = (ConfigStreamItem.ClassItem) item;
+				items.add("class " + classItem.getClassName() + " : " + classItem.getParentClassName());
+			} else {
+				items.add(item.getType().toString());
+			}
+		}
+		assertFalse(stream.hasNext());
+		assertEquals(walk(textFile.newCursor()), items);
+	}
+
+	@Test
+	void skippedClassesStillEnd() throws Exception {
+		for (ConfigCursor cursor : new ConfigCursor[]{textFile.newCursor(), new MappedRapifiedConfigFile(bin).newCursor()}) {
+			List<String> names = new ArrayList<>();
+			ConfigStreamItem.Type type;
+			while ((type = cursor.advance()) != ConfigStreamItem.Type.EndStream) {
+				if (type == ConfigStreamItem.Type.Class) {
+					names.add(cursor.name().toString());
+					cursor.skipCurrentClass();
+				} else if (type == ConfigStreamItem.Type.EndClass) {
+					names.add("end");
+				}
+			}
+			assertEquals(List.of("CfgPatches", "end", "CfgVehicles", "end", "CfgWeapons", "end"), names);
+		}
+	}
+
+	private static void assertContract(@NotNull ConfigFile file) throws Exception {
+		ConfigCursor cursor = file.newCursor();
+		assertNull(cursor.type());
+		assertThrows(IllegalStateException.class, cursor::name);
+		List<String> entries = walk(cursor);
+		assertEquals(ConfigStreamItem.Type.EndStream, cursor.advance());
+		assertEquals(ConfigStreamItem.Type.EndStream, cursor.type());
+		assertEquals(walk(new ConfigStreamCursor(file.newStream())), entries);
+	}
+
+	/** Walks the cursor to the end and checks every accessor on the way. */
+	@NotNull
+	private static List<String> walk(@NotNull ConfigCursor cursor) throws ConfigStreamException {
+		List<String> entries = new ArrayList<>();
+		ConfigStreamItem.Type type;
+		while ((type = cursor.advance()) != ConfigStreamItem.Type.EndStream) {
+			assertEquals(type, cursor.type());
+			switch (type) {
+				case Class: {
+					assertName(cursor);
+					assertEquals(ConfigCursor.ValueType.None, cursor.valueType());
+					CharSequence parent = cursor.parentClassName();
+					entries.add("class " + cursor.name() + " : " + (parent == null ? null : parent.toString()));
+					break;
+				}
+				case Field: {
+					assertName(cursor);
+					assertThrows(IllegalStateException.class, cursor::parentClassName);
+					ConfigFieldValue value = cursor.value();
+					switch (cursor.valueType()) {
+						case Scalar: {
+							assertEquals(((ConfigFieldValue.Scalar) value).getValue(), cursor.scalarValue());
+							assertThrows(IllegalStateException.class, cursor::textValue);
+							break;
+						}
+						case Text: {
+							assertEquals(((ConfigFieldValue.Text) value).getText(), cursor.textValue().toString());
+							assertThrows(IllegalStateException.class, cursor::arrayLength);
+							break;
+						}
+						case Array: {
+							assertEquals(((ConfigFieldValue.Array) value).getLength(), cursor.arrayLength());
+							assertThrows(IllegalStateException.class, cursor::scalarValue);
+							break;
+						}
+						default: {
+							fail("field without a value type");
+						}
+					}
+					entries.add("field " + cursor.name() + " = " + ConfigAssert.describe(value));
+					break;
+				}
+				default: {
+					assertThrows(IllegalStateException.class, cursor::name);
+					assertEquals(ConfigCursor.ValueType.None, cursor.valueType());
+					entries.add(type.toString());
+					break;
+				}
+			}
+		}
+		return entries;
+	}
+
+	private static void assertName(@NotNull ConfigCursor cursor) {
+		ByteBuffer bytes = cursor.nameBytes();
+		byte[] copy = new byte[bytes.remaining()];
+		bytes.duplicate().get(copy);
+		assertEquals(cursor.name().toString(), new String(copy, StandardCharsets.UTF_8));
+	}
+}
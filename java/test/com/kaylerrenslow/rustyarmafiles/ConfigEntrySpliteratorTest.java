@@ -0,0 +1,116 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class ConfigEntrySpliteratorTest {
+	private Path directory;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = ConfigTestFiles.createTempDirectory();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void entriesAreReturnedInOrder() throws Exception {
+		ConfigClass vehicles = parse(ConfigTestFiles.SAMPLE).getClass("CfgVehicles");
+		assertNotNull(vehicles);
+
+		assertEquals(Arrays.asList("Base", "Car", "Tank"), names(ConfigEntrySpliterator.entries(vehicles, false, false).collect(Collectors.toList())));
+		assertEquals(
+				Arrays.asList("Base", "Turrets", "scope", "armor", "Car", "Turrets", "MainTurret", "gunner", "scope", "displayName", "maxSpeed", "offsets", "Tank", "armor"),
+				names(ConfigEntrySpliterator.entries(vehicles, true, false).collect(Collectors.toList()))
+		);
+		assertEquals(8, ConfigEntrySpliterator.fields(vehicles, true, false).count());
+	}
+
+	@Test
+	void splitHalvesCoverEveryEntryOnce() throws Exception {
+		ConfigClass root = parse(wideConfig(40));
+		List<String> expected = names(ConfigEntrySpliterator.entries(root, true, false).collect(Collectors.toList()));
+
+		ConfigEntrySpliterator suffix = new ConfigEntrySpliterator(root, true);
+		//start inside the first class, so the split has to hand over the rest of it with the prefix
+		List<ConfigEntry> read = new ArrayList<>();
+		suffix.tryAdvance(read::add);
+		suffix.tryAdvance(read::add);
+		Spliterator<ConfigEntry> prefix = suffix.trySplit();
+		assertNotNull(prefix);
+		prefix.forEachRemaining(read::add);
+		suffix.forEachRemaining(read::add);
+		assertEquals(expected, names(read));
+	}
+
+	@Test
+	void nonRecursiveSplitsAreSized() throws Exception {
+		ConfigClass root = parse(wideConfig(10));
+		ConfigEntrySpliterator suffix = new ConfigEntrySpliterator(root, false);
+		assertTrue(suffix.hasCharacteristics(Spliterator.SIZED));
+		assertEquals(10, suffix.estimateSize());
+		Spliterator<ConfigEntry> prefix = suffix.trySplit();
+		assertNotNull(prefix);
+		assertEquals(5, prefix.estimateSize());
+		assertEquals(5, suffix.estimateSize());
+	}
+
+	@Test
+	void parallelStreamSeesTheSameEntries() throws Exception {
+		ConfigClass root = parse(wideConfig(500));
+		List<String> sequential = names(ConfigEntrySpliterator.entries(root, true, false).collect(Collectors.toList()));
+		List<String> parallel = names(ConfigEntrySpliterator.entries(root, true, true).collect(Collectors.toList()));
+		assertEquals(sequential, parallel);
+		assertEquals(500 * 3, parallel.size());
+
+		double armor = ConfigEntrySpliterator.classes(root, false, true)
+				.mapToDouble(c -> ((ConfigFieldValue.Scalar) c.getFieldValue("armor")).getValue())
+				.sum();
+		assertEquals(500 * 499 / 2.0, armor);
+	}
+
+	/** @return count classes, each with an armor field and an embedded class */
+	@NotNull
+	private static String wideConfig(int count) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sb.append("class C").append(i).append(" {\n\tarmor = ").append(i).append(";\n\tclass Inner {};\n};\n");
+		}
+		return sb.toString();
+	}
+
+	@NotNull
+	private ConfigClass parse(@NotNull String text) throws Exception {
+		TextConfigFile file = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", text));
+		file.parse();
+		return file.getRoot();
+	}
+
+	@NotNull
+	private static List<String> names(@NotNull List<? extends ConfigEntry> entries) {
+		List<String> names = new ArrayList<>(entries.size());
+		for (ConfigEntry entry : entries) {
+			names.add(entry.getName());
+		}
+		return names;
+	}
+}
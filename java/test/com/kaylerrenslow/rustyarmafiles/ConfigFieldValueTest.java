@@ -0,0 +1,58 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class ConfigFieldValueTest {
+
+	@Test
+	void arraysAreSpecializedByElementType() {
+		assertTrue(ConfigFieldValue.Array.of(Arrays.asList(new ConfigFieldValue.Scalar(1), new ConfigFieldValue.Scalar(2))) instanceof ConfigFieldValue.ScalarArray);
+		assertTrue(ConfigFieldValue.Array.of(Arrays.asList(new ConfigFieldValue.Text("a"), new ConfigFieldValue.Text("b"))) instanceof ConfigFieldValue.TextArray);
+		ConfigFieldValue.Array mixed = ConfigFieldValue.Array.of(Arrays.asList(new ConfigFieldValue.Scalar(1), new ConfigFieldValue.Text("b")));
+		assertFalse(mixed instanceof ConfigFieldValue.ScalarArray || mixed instanceof ConfigFieldValue.TextArray);
+		assertTrue(mixed.isScalar(0));
+		assertEquals("b", mixed.getText(1));
+		assertThrows(IllegalStateException.class, () -> mixed.getScalar(1));
+		assertThrows(IndexOutOfBoundsException.class, () -> mixed.getValue(2));
+	}
+
+	@Test
+	void typedAccessorsOfEveryArrayAgree() {
+		List<ConfigFieldValue> values = Arrays.asList(new ConfigFieldValue.Scalar(1), new ConfigFieldValue.Scalar(0.1), new ConfigFieldValue.Scalar(-3));
+		for (ConfigFieldValue.Array array : Arrays.asList(new ConfigFieldValue.Array(values), ConfigFieldValue.Array.of(values))) {
+			assertArrayEquals(new double[]{1, 0.1, -3}, array.toDoubleArray());
+			assertArrayEquals(new float[]{1, 0.1f, -3}, array.toFloatArray());
+			List<Double> scalars = new ArrayList<>();
+			array.forEachScalar(scalars::add);
+			assertEquals(Arrays.asList(1.0, 0.1, -3.0), scalars);
+		}
+	}
+
+	@Test
+	void typedAccessorsRejectText() {
+		ConfigFieldValue.Array texts = new ConfigFieldValue.TextArray(new String[]{"a"});
+		assertThrows(IllegalStateException.class, texts::toDoubleArray);
+		assertThrows(IllegalStateException.class, texts::toFloatArray);
+		List<Double> scalars = new ArrayList<>();
+		texts.forEachScalar(scalars::add);
+		assertTrue(scalars.isEmpty());
+	}
+
+	@Test
+	void scalarArrayCopiesAreIndependent() {
+		double[] values = {1, 2};
+		ConfigFieldValue.ScalarArray array = new ConfigFieldValue.ScalarArray(values);
+		array.toDoubleArray()[0] = 5;
+		array.toFloatArray()[0] = 5;
+		assertEquals(1.0, array.getScalar(0));
+	}
+}
@@ -0,0 +1,155 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class ConfigFileSetTest {
+	private Path directory;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = ConfigTestFiles.createTempDirectory();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void filesAreLoadedAfterTheirRequiredAddons() throws Exception {
+		ConfigFile a = addon("a", "\"B_Addon\", \"A3_Data_F\"", "");
+		ConfigFile b = addon("b", "\"c_addon\"", "");
+		ConfigFile c = addon("c", "", "");
+		ConfigFile d = addon("d", "", "");
+		ConfigFileSet set = new ConfigFileSet(Arrays.asList(a, b, d, c));
+		set.load();
+		assertTrue(set.isLoaded());
+		//d doesn't depend on anything, so it keeps its place in front of c
+		assertEquals(Arrays.asList(d, c, b, a), set.getLoadOrder());
+	}
+
+	@Test
+	void cyclesKeepTheGivenOrder() throws Exception {
+		ConfigFile a = addon("a", "\"b_addon\"", "");
+		ConfigFile b = addon("b", "\"a_addon\"", "");
+		ConfigFile c = addon("c", "\"a_addon\"", "");
+		ConfigFileSet set = new ConfigFileSet(Arrays.asList(a, c, b));
+		set.load();
+		//the cycle is broken at a, after which c and b are both ready
+		assertEquals(Arrays.asList(a, c, b), set.getLoadOrder());
+	}
+
+	@Test
+	void laterFilesUpdateClasses() throws Exception {
+		ConfigFile base = addon("base", "", "class CfgVehicles { class Car { scope = 1; armor = 10; class Turrets { gunner = 1; }; }; };\nversion = 1;\n");
+		ConfigFile patch = addon("patch", "\"base_addon\"", "class CfgVehicles { class Car { scope = 2; class Turrets { commander = 1; }; crew = \"x\"; }; class Tank {}; };\nversion = 2;\n");
+		ConfigFileSet set = new ConfigFileSet(Arrays.asList(patch, base));
+		set.load();
+		ConfigClass root = set.getRoot();
+		assertEquals("2.0", ConfigAssert.describe(root.getFieldValue("version")));
+
+		ConfigClass car = root.getClass("CfgVehicles").getClass("Car");
+		assertEquals("scope = 2.0;\narmor = 10.0;\ncrew = \"x\";\nclass Turrets {\n\tgunner = 1.0;\n\tcommander = 1.0;\n};\n", ConfigAssert.describe(car));
+		assertSame(car, root.getClass("CfgVehicles").getClass("Car"));
+		assertSame(root.getClass("CfgVehicles"), car.getOuterClass());
+		assertEquals(Arrays.asList("Car", "Tank"), names(root.getClass("CfgVehicles").getEntries()));
+		assertNull(root.getClass("Car"));
+	}
+
+	@Test
+	void laterFieldsAndClassesReplaceEachOther() throws Exception {
+		ConfigFile base = addon("base", "", "class A { x = 1; };\nB = 1;\n");
+		ConfigFile patch = addon("patch", "\"base_addon\"", "A = 2;\nclass B { y = 1; };\n");
+		ConfigFileSet set = new ConfigFileSet(Arrays.asList(base, patch));
+		set.load();
+		ConfigClass root = set.getRoot();
+		assertNull(root.getClass("A"));
+		assertEquals("2.0", ConfigAssert.describe(root.getFieldValue("A")));
+		assertNull(root.getFieldValue("B"));
+		assertEquals("y = 1.0;\n", ConfigAssert.describe(root.getClass("B")));
+		assertTrue(root.getEntry("B").isClass());
+	}
+
+	@Test
+	void inheritanceResolvesAcrossFiles() throws Exception {
+		ConfigFile base = addon("base", "", "class CfgVehicles { class Base { armor = 20; maxSpeed = 100; }; };\n");
+		ConfigFile tank = addon("tank", "\"base_addon\"", "class CfgVehicles { class Tank : Base { armor = 500; }; };\n");
+		ConfigFile patch = addon("patch", "\"tank_addon\"", "class CfgVehicles { class Base { maxSpeed = 50; }; };\n");
+		ConfigFileSet set = new ConfigFileSet(Arrays.asList(base, tank, patch));
+		set.load();
+		ConfigClass vehicles = set.getRoot().getClass("CfgVehicles");
+		ConfigClass tankClass = vehicles.getClass("Tank");
+		assertEquals("Base", tankClass.getParentClassName());
+		assertSame(vehicles.getClass("Base"), tankClass.getParentClass());
+		assertEquals("500.0", ConfigAssert.describe(tankClass.resolveFieldValue("armor")));
+		assertEquals("50.0", ConfigAssert.describe(tankClass.resolveFieldValue("maxSpeed")));
+	}
+
+	@Test
+	void manyFilesAreLoadedInParallel() throws Exception {
+		List<ConfigFile> files = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			String required = i == 0 ? "" : "\"f" + (i - 1) + "_addon\"";
+			files.add(addon("f" + i, required, "class CfgVehicles { class V" + i + " { n = " + i + "; }; };\nlast = " + i + ";\n"));
+		}
+		List<ConfigFile> given = new ArrayList<>(files);
+		Collections.reverse(given);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ConfigFileSet set = new ConfigFileSet(given, pool);
+			set.load();
+			assertEquals(files, set.getLoadOrder());
+			assertEquals("39.0", ConfigAssert.describe(set.getRoot().getFieldValue("last")));
+			assertEquals(40, set.getRoot().getClass("CfgVehicles").getEntries().size());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	void everyFailureIsReported() throws Exception {
+		ConfigFile good = addon("good", "", "");
+		ConfigFile bad = new TextConfigFile(ConfigTestFiles.write(directory, "bad.cpp", "class A {\n"));
+		ConfigFile worse = new TextConfigFile(ConfigTestFiles.write(directory, "worse.cpp", "x = ;\n"));
+		ConfigFileSet set = new ConfigFileSet(Arrays.asList(good, bad, worse));
+		ParseException e = assertThrows(ParseException.class, set::load);
+		assertEquals(1, e.getSuppressed().length);
+		assertFalse(set.isLoaded());
+		assertThrows(IllegalStateException.class, set::getRoot);
+		assertThrows(IllegalStateException.class, set::getLoadOrder);
+	}
+
+	/** @return a parsed-on-load text file with a CfgPatches class named name_addon that requires the given addons */
+	@NotNull
+	private ConfigFile addon(@NotNull String name, @NotNull String requiredAddons, @NotNull String body) throws IOException {
+		String text = "class CfgPatches { class " + name + "_addon { requiredAddons[] = {" + requiredAddons + "}; }; };\n" + body;
+		return new TextConfigFile(ConfigTestFiles.write(directory, name + ".cpp", text));
+	}
+
+	@NotNull
+	private static List<String> names(@NotNull List<ConfigEntry> entries) {
+		List<String> names = new ArrayList<>();
+		for (ConfigEntry entry : entries) {
+			names.add(entry.getName());
+		}
+		return names;
+	}
+}
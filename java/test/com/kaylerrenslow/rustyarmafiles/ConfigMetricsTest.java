@@ -0,0 +1,119 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class ConfigMetricsTest {
+	private Path directory;
+	private File file;
+	private ConfigMetrics.Counters counters;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = ConfigTestFiles.createTempDirectory();
+		file = ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE);
+		counters = new ConfigMetrics.Counters();
+		ConfigMetrics.setListener(counters);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigMetrics.setListener(null);
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void queryReportsItemsAndSkippedClasses() throws Exception {
+		ConfigStream stream = new ConfigQuery(ConfigQuery.parseQuery("CfgPatches{*{units;}}")).query(new TextConfigFile(file).newStream());
+		int items = drain(stream);
+
+		//CfgPatches, my_addon, units and the ends of both classes
+		assertEquals(5, items);
+		//CfgVehicles and CfgWeapons
+		assertEquals(2, counters.get(ConfigMetrics.Counter.ClassesSkipped));
+		assertTrue(counters.get(ConfigMetrics.Counter.BytesRead) >= file.length());
+		//the query and the text stream it reads from both count their items
+		assertTrue(counters.get(ConfigMetrics.Counter.ItemsEmitted) > items);
+	}
+
+	@Test
+	void nothingIsCountedWithoutListener() throws Exception {
+		ConfigMetrics.setListener(null);
+		assertFalse(ConfigMetrics.isEnabled());
+		drain(new TextConfigFile(file).newStream());
+		assertEquals(0, counters.get(ConfigMetrics.Counter.ItemsEmitted));
+	}
+
+	@Test
+	void parseQueryAndSkipEventsAreRecorded() throws Exception {
+		List<RecordedEvent> events = new ArrayList<>();
+		try (Recording recording = new Recording()) {
+			recording.enable("com.kaylerrenslow.rustyarmafiles.Parse");
+			recording.enable("com.kaylerrenslow.rustyarmafiles.Query");
+			recording.enable("com.kaylerrenslow.rustyarmafiles.Skip").withThreshold(Duration.ZERO);
+			recording.start();
+
+			TextConfigFile textFile = new TextConfigFile(file);
+			textFile.parse();
+			drain(new ConfigQuery(ConfigQuery.parseQuery("CfgPatches{*{units;}}")).query(new TextConfigFile(file).newStream()));
+
+			recording.stop();
+			File dump = directory.resolve("recording.jfr").toFile();
+			recording.dump(dump.toPath());
+			events.addAll(RecordingFile.readAllEvents(dump.toPath()));
+		}
+
+		RecordedEvent parse = find(events, "com.kaylerrenslow.rustyarmafiles.Parse");
+		assertEquals("text", parse.getString("format"));
+		assertEquals(file.getPath(), parse.getString("file"));
+
+		RecordedEvent query = find(events, "com.kaylerrenslow.rustyarmafiles.Query");
+		assertEquals(2L, query.getLong("classesSkipped"));
+
+		List<String> skipped = new ArrayList<>();
+		for (RecordedEvent event : events) {
+			if (event.getEventType().getName().equals("com.kaylerrenslow.rustyarmafiles.Skip")) {
+				skipped.add(event.getString("className"));
+			}
+		}
+		assertTrue(skipped.contains("CfgVehicles"));
+		assertTrue(skipped.contains("CfgWeapons"));
+	}
+
+	/** @return the amount of items before the end */
+	private static int drain(@NotNull ConfigStream stream) throws ConfigStreamException {
+		int items = 0;
+		while (stream.next().getType() != ConfigStreamItem.Type.EndStream) {
+			items++;
+		}
+		return items;
+	}
+
+	@NotNull
+	private static RecordedEvent find(@NotNull List<RecordedEvent> events, @NotNull String name) {
+		for (RecordedEvent event : events) {
+			if (event.getEventType().getName().equals(name)) {
+				return event;
+			}
+		}
+		throw new AssertionError("no " + name + " event");
+	}
+}
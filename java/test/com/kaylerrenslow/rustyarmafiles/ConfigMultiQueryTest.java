@@ -0,0 +1,128 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import com.kaylerrenslow.rustyarmafiles.impl.rapified.MappedRapifiedConfigFile;
+import com.kaylerrenslow.rustyarmafiles.impl.rapified.RapifiedConfigWriter;
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ Checks that {@link ConfigMultiQuery} gives every query the same entries as running it alone with
+ {@link ConfigQuery#query(ConfigStream)}.
+
+ @author K
+ @since 02/08/2019 */
+class ConfigMultiQueryTest {
+	private Path directory;
+	private TextConfigFile textFile;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		directory = ConfigTestFiles.createTempDirectory();
+		textFile = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE));
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void matchesQueryOnTextFile() throws Exception {
+		assertSameAsQuery(textFile);
+	}
+
+	@Test
+	void matchesQueryOnRapifiedFile() throws Exception {
+		File bin = directory.resolve("config.bin").toFile();
+		new RapifiedConfigWriter().write(textFile.newCursor(), bin);
+		assertSameAsQuery(new MappedRapifiedConfigFile(bin));
+	}
+
+	@Test
+	void matchesQueryOnParsedFile() throws Exception {
+		textFile.parse();
+		assertSameAsQuery(textFile);
+	}
+
+	@Test
+	void sameQueryTwiceGivesBothSinksTheSameEntries() throws Exception {
+		ConfigQuery.CompiledQuery query = ConfigQuery.parseQuery("CfgVehicles{*{armor;}}");
+		List<String> first = new ArrayList<>();
+		List<String> second = new ArrayList<>();
+		ConfigMultiQuery multiQuery = new ConfigMultiQuery();
+		multiQuery.add(query, item -> first.add(describe(item)));
+		multiQuery.add(query, item -> second.add(describe(item)));
+		multiQuery.run(textFile.newCursor());
+
+		assertEquals(first, second);
+		assertEquals(run(query, textFile), first);
+	}
+
+	private static void assertSameAsQuery(@NotNull ConfigFile file) throws Exception {
+		List<ConfigQuery.CompiledQuery> queries = new ArrayList<>();
+		queries.add(ConfigQuery.parseQuery("CfgVehicles{*{scope;displayName;}}"));
+		queries.add(ConfigQuery.parseQuery("CfgPatches{*{*;}}"));
+		queries.add(ConfigQuery.parseQuery("*;"));
+		queries.add(ConfigQuery.parseQuery("CfgVehicles{Car{Turrets{*{*;}}}}"));
+		queries.add(ConfigQuery.parseQuery("CfgVehicles{Ta?{*;}}"));
+		queries.add(ConfigQuery.parseQuery("CfgWeapons{*;}"));
+		queries.add(ConfigQuery.parseArmaFormatQuery("CfgVehicles>>Base", false));
+
+		List<List<String>> actual = new ArrayList<>();
+		ConfigMultiQuery multiQuery = new ConfigMultiQuery();
+		for (ConfigQuery.CompiledQuery query : queries) {
+			List<String> items = new ArrayList<>();
+			actual.add(items);
+			multiQuery.add(query, item -> items.add(describe(item)));
+		}
+		multiQuery.run(file.newCursor());
+
+		for (int i = 0; i < queries.size(); i++) {
+			List<String> expected = run(queries.get(i), file);
+			assertTrue(expected.size() > 1, "query " + i + " should match something");
+			assertEquals(expected, actual.get(i), "query " + i);
+		}
+	}
+
+	/** @return the items the query matches when run alone, up to and including the end of the stream */
+	@NotNull
+	private static List<String> run(@NotNull ConfigQuery.CompiledQuery query, @NotNull ConfigFile file) throws ConfigStreamException {
+		List<String> items = new ArrayList<>();
+		ConfigStream stream = new ConfigQuery(query).query(file.newStream());
+		ConfigStreamItem item;
+		do {
+			item = stream.next();
+			items.add(describe(item));
+		} while (item.getType() != ConfigStreamItem.Type.EndStream);
+		return items;
+	}
+
+	@NotNull
+	private static String describe(@NotNull ConfigStreamItem item) {
+		switch (item.getType()) {
+			case Class: {
+				ConfigStreamItem.ClassItem classItem = (ConfigStreamItem.ClassItem) item;
+				return "class " + classItem.getClassName() + " : " + classItem.getParentClassName();
+			}
+			case Field: {
+				ConfigStreamItem.FieldItem fieldItem = (ConfigStreamItem.FieldItem) item;
+				return fieldItem.getKey() + " = " + ConfigAssert.describe(fieldItem.getValue());
+			}
+			default: {
+				return item.getType().toString();
+			}
+		}
+	}
+}
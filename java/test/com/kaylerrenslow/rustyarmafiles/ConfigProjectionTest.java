@@ -0,0 +1,200 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import com.kaylerrenslow.rustyarmafiles.impl.rapified.MappedRapifiedConfigFile;
+import com.kaylerrenslow.rustyarmafiles.impl.rapified.RapifiedConfigWriter;
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class ConfigProjectionTest {
+	private Path directory;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = ConfigTestFiles.createTempDirectory();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void declaredFieldsAreRead() throws Exception {
+		TextConfigFile file = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE));
+		file.parse();
+		ConfigProjection projection = new ConfigProjection("scope", "armor", "displayName", "offsets", "missing");
+		ConfigProjection.Result result = projection.project(file.getRoot().getClass("CfgVehicles"));
+		assertEquals("Base Car Tank", rows(result));
+		assertEquals(projection.getKeys(), keys(result));
+
+		ConfigProjection.Column scope = result.getColumn("scope");
+		assertEquals(0.0, scope.getNumber(0).doubleValue());
+		assertEquals(2.0, scope.getNumber(1).doubleValue());
+		//inherited values aren't resolved
+		assertNull(scope.getNumber(2));
+		assertTrue(scope.isNull(2));
+		assertArrayEquals(new double[]{0, 2, 0}, scope.getNumbers());
+		assertArrayEquals(new long[]{0b011}, scope.getNumberBitmap());
+
+		ConfigProjection.Column displayName = result.getColumn("displayName");
+		assertFalse(displayName.isText(0));
+		assertTrue(displayName.isText(1));
+		assertFalse(displayName.isNumber(1));
+		assertEquals("Véhicule \"quoted\"", displayName.getText(1));
+		assertArrayEquals(new int[]{-1, 0, -1}, displayName.getTextCodes());
+
+		//arrays are neither
+		ConfigProjection.Column offsets = result.getColumn("offsets");
+		assertTrue(offsets.isNull(1));
+		for (int row = 0; row < 3; row++) {
+			assertTrue(result.getColumn("missing").isNull(row));
+		}
+		assertNull(result.getColumn("Armor"));
+		assertEquals(500.0, result.getColumn("armor").getNumber(2).doubleValue());
+	}
+
+	@Test
+	void textsAreDictionaryEncoded() throws Exception {
+		StringBuilder text = new StringBuilder("class CfgVehicles {\n");
+		String[] sides = {"WEST", "EAST", "GUER"};
+		for (int i = 0; i < 200; i++) {
+			text.append("\tclass V").append(i).append(" { side = \"").append(sides[i % 3]).append("\"; cost = ").append(i).append("; };\n");
+		}
+		text.append("};\n");
+		TextConfigFile file = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", text.toString()));
+		file.parse();
+		ConfigProjection.Result result = new ConfigProjection("side", "cost").project(file.getRoot().getClass("CfgVehicles"));
+		assertEquals(200, result.getRowCount());
+		ConfigProjection.Column side = result.getColumn("side");
+		assertEquals(Arrays.asList(sides), side.getDictionary());
+		ConfigProjection.Column cost = result.getColumn("cost");
+		assertEquals(4, cost.getNumberBitmap().length);
+		for (int row = 0; row < 200; row++) {
+			assertEquals("V" + row, result.getRowName(row));
+			assertEquals(row % 3, side.getTextCodes()[row]);
+			assertEquals(sides[row % 3], side.getText(row));
+			assertEquals((double) row, cost.getNumbers()[row]);
+			assertTrue(cost.isNumber(row));
+		}
+	}
+
+	@Test
+	void theLastDeclarationOfAKeyIsUsed() throws Exception {
+		TextConfigFile file = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", "class A { x = 1; x = \"two\"; y = \"one\"; y = 2; z = 1; z[] = {}; };\n"));
+		file.parse();
+		ConfigProjection.Result result = new ConfigProjection("x", "y", "z").project(file.getRoot());
+		ConfigProjection.Column x = result.getColumn("x");
+		assertEquals("two", x.getText(0));
+		assertFalse(x.isNumber(0));
+		ConfigProjection.Column y = result.getColumn("y");
+		assertEquals(2.0, y.getNumber(0).doubleValue());
+		assertFalse(y.isText(0));
+		assertTrue(result.getColumn("z").isNull(0));
+
+		//the same value the parsed class has
+		assertEquals("two", ((ConfigFieldValue.Text) file.getRoot().getClass("A").getFieldValue("x")).getText());
+	}
+
+	@Test
+	void queriedCursorsAreProjectedAtTheRowDepth() throws Exception {
+		TextConfigFile file = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE));
+		ConfigQuery.CompiledQuery query = ConfigQuery.parseQuery("CfgVehicles{*{scope;armor;}}");
+		ConfigProjection projection = new ConfigProjection("scope", "armor", "maxSpeed");
+		ConfigProjection.Result result = projection.project(new ConfigQuery(query).query(file.newCursor()), 2);
+		assertEquals("Base Car Tank", rows(result));
+		assertEquals(20.0, result.getColumn("armor").getNumber(0).doubleValue());
+		//maxSpeed isn't matched by the query
+		assertTrue(result.getColumn("maxSpeed").isNull(1));
+
+		//classes deeper than the rows are skipped, fields outside the rows are ignored
+		ConfigProjection.Result top = new ConfigProjection("version", "units").project(file.newCursor(), 1);
+		assertEquals("CfgPatches CfgVehicles CfgWeapons", rows(top));
+		assertTrue(top.getColumn("version").isNull(0));
+		assertTrue(top.getColumn("units").isNull(0));
+
+		assertThrows(IllegalArgumentException.class, () -> projection.project(file.newCursor(), 0));
+		assertThrows(IllegalArgumentException.class, () -> new ConfigProjection("a", "b", "a"));
+	}
+
+	@Test
+	void parallelProjectionsHaveTheSameRows() throws Exception {
+		StringBuilder text = new StringBuilder("class CfgVehicles {\n");
+		for (int i = 0; i < 300; i++) {
+			text.append("\tclass V").append(i).append(" { armor = ").append(i * 10).append("; name = \"n").append(i % 7).append("\"; ");
+			if (i % 5 == 0) {
+				text.append("class Turrets { armor = -1; }; ");
+			}
+			text.append("};\n");
+		}
+		text.append("};\n");
+		TextConfigFile textFile = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", text.toString()));
+		File bin = directory.resolve("config.bin").toFile();
+		new RapifiedConfigWriter().write(textFile.newCursor(), bin);
+		textFile.parse();
+		MappedRapifiedConfigFile binFile = new MappedRapifiedConfigFile(bin);
+		binFile.parse();
+
+		ConfigProjection projection = new ConfigProjection("armor", "name");
+		String expected = describe(projection.project(textFile.getRoot().getClass("CfgVehicles")));
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (ConfigFile file : new ConfigFile[]{textFile, binFile}) {
+				ConfigClass vehicles = file.getRoot().getClass("CfgVehicles");
+				assertEquals(expected, describe(projection.project(vehicles)));
+				assertEquals(expected, describe(projection.project(vehicles, pool)));
+			}
+			ConfigProjection.Result empty = projection.project(textFile.getRoot().getClass("CfgVehicles").getClass("V0"), pool);
+			assertEquals(1, empty.getRowCount());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@NotNull
+	private static String rows(@NotNull ConfigProjection.Result result) {
+		List<String> rows = new ArrayList<>();
+		for (int row = 0; row < result.getRowCount(); row++) {
+			rows.add(result.getRowName(row));
+		}
+		return String.join(" ", rows);
+	}
+
+	@NotNull
+	private static List<String> keys(@NotNull ConfigProjection.Result result) {
+		List<String> keys = new ArrayList<>();
+		for (ConfigProjection.Column column : result.getColumns()) {
+			keys.add(column.getKey());
+		}
+		return keys;
+	}
+
+	/** @return every row with the number or text of each column */
+	@NotNull
+	private static String describe(@NotNull ConfigProjection.Result result) {
+		StringBuilder sb = new StringBuilder();
+		for (int row = 0; row < result.getRowCount(); row++) {
+			sb.append(result.getRowName(row));
+			for (ConfigProjection.Column column : result.getColumns()) {
+				sb.append(' ').append(column.isNumber(row) ? column.getNumber(row) : column.getText(row));
+			}
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,255 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import com.kaylerrenslow.rustyarmafiles.impl.rapified.MappedRapifiedConfigFile;
+import com.kaylerrenslow.rustyarmafiles.impl.rapified.RapifiedConfigWriter;
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class ConfigQueryCacheTest {
+	private static final String QUERY = "CfgVehicles{*{armor;offsets;displayName;}}";
+
+	private Path directory;
+	private File file;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = ConfigTestFiles.createTempDirectory();
+		file = ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void resultsAreTheQueriedEntries() throws Exception {
+		ConfigQueryCache cache = new ConfigQueryCache(1 << 20);
+		TextConfigFile textFile = new TextConfigFile(file);
+		File bin = directory.resolve("config.bin").toFile();
+		new RapifiedConfigWriter().write(textFile.newCursor(), bin);
+		List<String> expected = describe(new ConfigQuery(ConfigQuery.parseQuery(QUERY)).query(textFile.newStream()));
+		assertTrue(expected.contains("offsets = {-1.5, 0.0, {2.0, \"x\"}}"));
+
+		for (ConfigFile configFile : new ConfigFile[]{textFile, new MappedRapifiedConfigFile(bin)}) {
+			ConfigQueryCache.Result result = cache.get(configFile, ConfigQuery.parseQuery(QUERY));
+			assertEquals(expected, describe(result.newStream()));
+			assertEquals(expected.size(), result.getEntryCount());
+			assertTrue(result.getSizeInBytes() > 0);
+			//every cursor starts over
+			assertEquals(expected, describe(result.newStream()));
+		}
+		assertEquals(2, cache.getEntryCount());
+	}
+
+	@Test
+	void queriesCompiledAgainHit() throws Exception {
+		ConfigQueryCache cache = new ConfigQueryCache(1 << 20);
+		TextConfigFile textFile = new TextConfigFile(file);
+		ConfigQueryCache.Result first = cache.get(textFile, ConfigQuery.parseQuery(QUERY));
+		assertSame(first, cache.get(textFile, ConfigQuery.parseQuery(QUERY)));
+		assertSame(first, cache.get(new TextConfigFile(new File(directory.toFile(), "config.cpp")), ConfigQuery.parseQuery(QUERY)));
+		assertNotSame(first, cache.get(textFile, ConfigQuery.parseQuery("CfgPatches{*;}")));
+		assertEquals(2, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(0.5, cache.getHitRate(), 1e-9);
+		assertEquals(first.getSizeInBytes() + cache.get(textFile, ConfigQuery.parseQuery("CfgPatches{*;}")).getSizeInBytes(), cache.getSizeInBytes());
+	}
+
+	@Test
+	void changedFilesAreQueriedAgain() throws Exception {
+		ConfigQueryCache cache = new ConfigQueryCache(1 << 20);
+		TextConfigFile textFile = new TextConfigFile(file);
+		ConfigQueryCache.Result first = cache.get(textFile, ConfigQuery.parseQuery(QUERY));
+		List<String> before = describe(first.newStream());
+
+		ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE.replace("armor = 500", "armor = 5000"));
+		ConfigQueryCache.Result second = cache.get(textFile, ConfigQuery.parseQuery(QUERY));
+		assertNotSame(first, second);
+		assertTrue(describe(second.newStream()).contains("armor = 5000.0"));
+		assertEquals(1, cache.getInvalidationCount());
+		assertEquals(1, cache.getEntryCount());
+		//the old result doesn't read the file
+		assertEquals(before, describe(first.newStream()));
+
+		cache.invalidate(new File(directory.toFile(), "./config.cpp").getCanonicalFile());
+		assertEquals(0, cache.getEntryCount());
+		assertEquals(0, cache.getSizeInBytes());
+		assertEquals(2, cache.getInvalidationCount());
+
+		cache.get(textFile, ConfigQuery.parseQuery(QUERY));
+		cache.clear();
+		assertEquals(0, cache.getEntryCount());
+		assertEquals(0, cache.getSizeInBytes());
+		assertEquals(3, cache.getMissCount());
+	}
+
+	@Test
+	void leastRecentlyUsedResultsAreEvicted() throws Exception {
+		TextConfigFile textFile = new TextConfigFile(file);
+		long size = new ConfigQueryCache(1 << 20).get(textFile, ConfigQuery.parseQuery("CfgVehicles{*;}")).getSizeInBytes();
+		ConfigQueryCache cache = new ConfigQueryCache(size * 2 + size / 2);
+		assertEquals(size * 2 + size / 2, cache.getMaxBytes());
+		ConfigQueryCache.Result a = cache.get(textFile, ConfigQuery.parseQuery("CfgVehicles{*;}"));
+		ConfigQueryCache.Result b = cache.get(textFile, ConfigQuery.parseQuery("CfgVehicles{Car;Tank;Base;}"));
+		assertEquals(size, b.getSizeInBytes());
+		//a is used more recently than b now
+		assertSame(a, cache.get(textFile, ConfigQuery.parseQuery("CfgVehicles{*;}")));
+		cache.get(textFile, ConfigQuery.parseQuery("CfgVehicles{Base;Car;Tank;Turrets;}"));
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(2, cache.getEntryCount());
+		assertSame(a, cache.get(textFile, ConfigQuery.parseQuery("CfgVehicles{*;}")));
+		assertTrue(cache.getSizeInBytes() <= cache.getMaxBytes());
+
+		//results bigger than the whole cache aren't kept
+		ConfigQueryCache tiny = new ConfigQueryCache(1);
+		ConfigQueryCache.Result big = tiny.get(textFile, ConfigQuery.parseQuery("*"));
+		assertNotSame(big, tiny.get(textFile, ConfigQuery.parseQuery("*")));
+		assertEquals(0, tiny.getEntryCount());
+		assertEquals(0, tiny.getEvictionCount());
+		assertThrows(IllegalArgumentException.class, () -> new ConfigQueryCache(0));
+	}
+
+	@Test
+	void concurrentLookupsRunTheQueryOnce() throws Exception {
+		ConfigQueryCache cache = new ConfigQueryCache(1 << 20);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger cursors = new AtomicInteger();
+		ConfigFile blocking = new BlockingConfigFile(new TextConfigFile(file), release, cursors);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<ConfigQueryCache.Result>> results = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				results.add(executor.submit(() -> cache.get(blocking, ConfigQuery.parseQuery(QUERY))));
+			}
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (cache.getJoinCount() < 3 && System.nanoTime() < deadline) {
+				Thread.sleep(1);
+			}
+			release.countDown();
+			ConfigQueryCache.Result first = results.get(0).get(10, TimeUnit.SECONDS);
+			for (Future<ConfigQueryCache.Result> result : results) {
+				assertSame(first, result.get(10, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1, cursors.get());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(3, cache.getJoinCount());
+		assertEquals(0.75, cache.getHitRate(), 1e-9);
+	}
+
+	@Test
+	void failuresAreNotCached() throws Exception {
+		ConfigQueryCache cache = new ConfigQueryCache(1 << 20);
+		TextConfigFile bad = new TextConfigFile(ConfigTestFiles.write(directory, "bad.cpp", "class CfgVehicles { x = ; };\n"));
+		assertThrows(ConfigStreamException.class, () -> cache.get(bad, ConfigQuery.parseQuery(QUERY)));
+		assertThrows(ConfigStreamException.class, () -> cache.get(bad, ConfigQuery.parseQuery(QUERY)));
+		assertEquals(2, cache.getMissCount());
+		assertEquals(0, cache.getEntryCount());
+	}
+
+	@NotNull
+	private static List<String> describe(@NotNull ConfigStream stream) throws ConfigStreamException {
+		List<String> items = new ArrayList<>();
+		for (ConfigStreamItem item = stream.next(); item.getType() != ConfigStreamItem.Type.EndStream; item = stream.next()) {
+			switch (item.getType()) {
+				case Class: {
+					ConfigStreamItem.ClassItem classItem = (ConfigStreamItem.ClassItem) item;
+					items.add("class " + classItem.getClassName() + " : " + classItem.getParentClassName());
+					break;
+				}
+				case Field: {
+					ConfigStreamItem.FieldItem field = (ConfigStreamItem.FieldItem) item;
+					items.add(field.getKey() + " = " + ConfigAssert.describe(field.getValue()));
+					break;
+				}
+				default: {
+					items.add("end");
+					break;
+				}
+			}
+		}
+		return items;
+	}
+
+	/** A file whose cursors wait until they are released before they are created */
+	private static class BlockingConfigFile implements ConfigFile {
+		private final ConfigFile file;
+		private final CountDownLatch release;
+		private final AtomicInteger cursors;
+
+		BlockingConfigFile(@NotNull ConfigFile file, @NotNull CountDownLatch release, @NotNull AtomicInteger cursors) {
+			this.file = file;
+			this.release = release;
+			this.cursors = cursors;
+		}
+
+		@NotNull
+		@Override
+		public ConfigClass getRoot() {
+			return file.getRoot();
+		}
+
+		@NotNull
+		@Override
+		public File getFile() {
+			return file.getFile();
+		}
+
+		@Override
+		public void parse() throws IOException, ParseException {
+			file.parse();
+		}
+
+		@Override
+		public boolean isParsed() {
+			return file.isParsed();
+		}
+
+		@NotNull
+		@Override
+		public ConfigStream newStream() {
+			return file.newStream();
+		}
+
+		@NotNull
+		@Override
+		public ConfigCursor newCursor() {
+			cursors.incrementAndGet();
+			try {
+				assertTrue(release.await(10, TimeUnit.SECONDS));
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			return file.newCursor();
+		}
+
+		@Override
+		public boolean isRapified() {
+			return file.isRapified();
+		}
+	}
+}
@@ -0,0 +1,207 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class ConfigQueryTest {
+	private Path directory;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = ConfigTestFiles.createTempDirectory();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void exactNamesMatchWholeNames() throws Exception {
+		ConfigQuery.QueryNode root = node("scope; armor ;CfgVehicles{x;}");
+		assertTrue(root.containsFieldKey("scope"));
+		assertTrue(root.containsFieldKey("armor"));
+		assertFalse(root.containsFieldKey("scop"));
+		assertFalse(root.containsFieldKey("scopes"));
+		assertFalse(root.containsFieldKey("CfgVehicles"));
+
+		assertTrue(root.containsClassName("CfgVehicles"));
+		assertFalse(root.containsClassName("CfgVehicle"));
+		ConfigQuery.QueryNode vehicles = root.childQueryNode("CfgVehicles");
+		assertNotNull(vehicles);
+		assertTrue(vehicles.containsFieldKey("x"));
+		assertNull(root.childQueryNode("CfgWeapons"));
+	}
+
+	@Test
+	void wildcardsMatchEveryName() throws Exception {
+		ConfigQuery.QueryNode root = node("*{*;}");
+		assertTrue(root.isMatchAllClasses());
+		assertTrue(root.containsClassName("Anything"));
+		assertFalse(root.containsFieldKey("anything"));
+		ConfigQuery.QueryNode any = root.anyClassQueryNode();
+		assertNotNull(any);
+		assertTrue(any.containsFieldKey("anything"));
+		assertTrue(node("*").containsFieldKey("x"));
+	}
+
+	@Test
+	void incompleteNamesMatchNamesContainingThem() throws Exception {
+		ConfigQuery.QueryNode root = node("Thing?;Ta?{x;}");
+		assertTrue(root.containsFieldKey("Thing"));
+		assertTrue(root.containsFieldKey("Thing2"));
+		assertTrue(root.containsFieldKey("MyThing"));
+		assertFalse(root.containsFieldKey("Thin"));
+		assertTrue(root.containsClassName("Tank"));
+		assertTrue(root.containsClassName("MyTable"));
+		assertFalse(root.containsClassName("tank"));
+		assertNotNull(root.childQueryNode("MyTable"));
+
+		//once a class has an incomplete key, all of its keys are matched that way
+		ConfigQuery.QueryNode mixed = node("abc;Thing?;");
+		assertTrue(mixed.containsFieldKey("xabcx"));
+	}
+
+	@Test
+	void incompleteMatchingAgreesWithContains() throws Exception {
+		List<String> patterns = Arrays.asList("he", "she", "his", "hers", "s", "abab", "bab", "aab");
+		StringBuilder query = new StringBuilder();
+		for (String pattern : patterns) {
+			query.append(pattern).append("?;");
+		}
+		ConfigQuery.QueryNode root = node(query.toString());
+
+		Random random = new Random(12);
+		String alphabet = "abehirs";
+		for (int n = 0; n < 2000; n++) {
+			StringBuilder name = new StringBuilder();
+			int length = random.nextInt(10);
+			for (int i = 0; i < length; i++) {
+				name.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			}
+			boolean expected = false;
+			for (String pattern : patterns) {
+				expected |= name.indexOf(pattern) >= 0;
+			}
+			assertEquals(expected, root.containsFieldKey(name), name.toString());
+		}
+	}
+
+	@Test
+	void manyExactNamesAreAllFound() throws Exception {
+		StringBuilder query = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			query.append("Class").append(i).append("{f").append(i).append(";}");
+		}
+		ConfigQuery.QueryNode root = node(query.toString());
+		for (int i = 0; i < 500; i++) {
+			ConfigQuery.QueryNode child = root.childQueryNode("Class" + i);
+			assertNotNull(child);
+			assertTrue(child.containsFieldKey("f" + i));
+			assertFalse(child.containsFieldKey("f" + (i + 1)));
+		}
+		assertNull(root.childQueryNode("Class500"));
+		assertNull(root.childQueryNode("Class"));
+	}
+
+	@Test
+	void patternSyntaxErrors() {
+		for (String query : Arrays.asList("", "{", "a{", "a}", "a{b;}}", ";", "a b;", "a-b;", "a{b c{}}")) {
+			assertThrows(ParseException.class, () -> ConfigQuery.parseQuery(query), query);
+		}
+	}
+
+	@Test
+	void armaFormatQueriesMatchEntriesOfEitherKind() throws Exception {
+		ConfigQuery.QueryNode root = ConfigQuery.parseArmaFormatQuery("configFile >> \"CfgVehicles\" >> 'Car'", false).getNode();
+		assertTrue(root.containsFieldKey("CfgVehicles"));
+		ConfigQuery.QueryNode vehicles = root.childQueryNode("CfgVehicles");
+		assertNotNull(vehicles);
+		ConfigQuery.QueryNode car = vehicles.childQueryNode("Car");
+		assertNotNull(car);
+		//the last name selects the whole entry
+		assertTrue(car.containsFieldKey("anything"));
+		assertTrue(car.containsClassName("Turrets"));
+		assertSame(car, car.anyClassQueryNode());
+
+		ConfigQuery.QueryNode incomplete = ConfigQuery.parseArmaFormatQuery("CfgVehicles>>Ca?", true).getNode().childQueryNode("CfgVehicles");
+		assertNotNull(incomplete);
+		assertNotNull(incomplete.childQueryNode("MyCar"));
+	}
+
+	@Test
+	void armaFormatSyntaxErrors() {
+		for (String query : Arrays.asList("", "CfgVehicles >> configFile", "\"CfgVehicles", "a >> ", "a >> b-c", "'a\"", "Ca?")) {
+			assertThrows(ParseException.class, () -> ConfigQuery.parseArmaFormatQuery(query, false), query);
+		}
+	}
+
+	@Test
+	void queriesCompiledSeparatelyAreEqual() throws Exception {
+		assertEquals(ConfigQuery.parseQuery("a;b;C{d;}"), ConfigQuery.parseQuery("b; a; C{ d; }"));
+		assertEquals(ConfigQuery.parseQuery("a;b;C{d;}").hashCode(), ConfigQuery.parseQuery("b; a; C{ d; }").hashCode());
+		assertNotEquals(ConfigQuery.parseQuery("a;"), ConfigQuery.parseQuery("a?;"));
+		assertNotEquals(ConfigQuery.parseQuery("C{d;}"), ConfigQuery.parseQuery("C{e;}"));
+	}
+
+	@Test
+	void queryEntersMatchedAndWildcardClasses() throws Exception {
+		TextConfigFile file = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE));
+		assertEquals(
+				Arrays.asList("class CfgVehicles", "class Base", "armor", "end", "class Car", "end", "class Tank", "armor", "end", "end"),
+				run("CfgVehicles{*{armor;}}", file)
+		);
+		assertEquals(
+				Arrays.asList("class CfgVehicles", "class Car", "class Turrets", "class MainTurret", "gunner", "end", "end", "end", "end"),
+				run("CfgVehicles{Car{Turrets{*{*;}}}}", file)
+		);
+		assertEquals(Arrays.asList("version", "author"), run("*;", file));
+		file.parse();
+		assertEquals(Arrays.asList("class CfgVehicles", "class Car", "end", "class Tank", "end", "end"), run("CfgVehicles{Ca?{}Ta?{}}", file));
+	}
+
+	@NotNull
+	private static ConfigQuery.QueryNode node(@NotNull String query) throws ParseException {
+		return ConfigQuery.parseQuery(query).getNode();
+	}
+
+	/** @return the names of the items the query matches, with "end" for the end of a class */
+	@NotNull
+	private static List<String> run(@NotNull String query, @NotNull ConfigFile file) throws Exception {
+		List<String> items = new ArrayList<>();
+		ConfigStream stream = new ConfigQuery(ConfigQuery.parseQuery(query)).query(file.newStream());
+		for (ConfigStreamItem item = stream.next(); item.getType() != ConfigStreamItem.Type.EndStream; item = stream.next()) {
+			switch (item.getType()) {
+				case Class: {
+					items.add("class " + ((ConfigStreamItem.ClassItem) item).getClassName());
+					break;
+				}
+				case Field: {
+					items.add(((ConfigStreamItem.FieldItem) item).getKey());
+					break;
+				}
+				default: {
+					items.add("end");
+					break;
+				}
+			}
+		}
+		return items;
+	}
+}
@@ -0,0 +1,242 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class ConfigStreamPublisherTest {
+	private Path directory;
+	private ExecutorService executor;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = ConfigTestFiles.createTempDirectory();
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		executor.shutdownNow();
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void everyItemIsPublishedInOrder() throws Exception {
+		TextConfigFile file = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE));
+		List<String> expected = new ArrayList<>();
+		ConfigStream stream = file.newStream();
+		for (ConfigStreamItem item = stream.next(); item.getType() != ConfigStreamItem.Type.EndStream; item = stream.next()) {
+			expected.add(describe(item));
+		}
+
+		for (int readAhead : new int[]{1, 3, ConfigStreamPublisher.DEFAULT_READ_AHEAD}) {
+			Recorder recorder = new Recorder(1);
+			new ConfigStreamPublisher(file::newStream, null, executor, readAhead).subscribe(recorder);
+			recorder.await();
+			assertEquals(expected, recorder.items);
+			assertTrue(recorder.completed);
+			assertNull(recorder.error);
+		}
+	}
+
+	@Test
+	void onlyQueriedItemsArePublished() throws Exception {
+		TextConfigFile file = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE));
+		Recorder recorder = new Recorder(Long.MAX_VALUE);
+		new ConfigStreamPublisher(file::newStream, ConfigQuery.parseQuery("CfgVehicles{Tank{armor;}}"), executor, 4).subscribe(recorder);
+		recorder.await();
+		assertEquals(List.of("class CfgVehicles", "class Tank", "armor", "end", "end"), recorder.items);
+		assertTrue(recorder.completed);
+	}
+
+	@Test
+	void readingStopsAtTheReadAhead() {
+		CountingStream stream = new CountingStream(100, -1);
+		Recorder recorder = new Recorder(0);
+		//runs every task right away on the calling thread
+		new ConfigStreamPublisher(() -> stream, null, Runnable::run, 5).subscribe(recorder);
+		assertEquals(5, stream.read.get());
+		assertTrue(recorder.items.isEmpty());
+
+		recorder.subscription.request(2);
+		assertEquals(List.of("class C0", "class C1"), recorder.items);
+		assertEquals(7, stream.read.get());
+
+		recorder.subscription.request(Long.MAX_VALUE);
+		recorder.subscription.request(Long.MAX_VALUE);
+		assertEquals(100, recorder.items.size());
+		assertTrue(recorder.completed);
+	}
+
+	@Test
+	void streamFailuresFollowTheItemsReadBeforeThem() throws Exception {
+		CountingStream stream = new CountingStream(100, 3);
+		Recorder recorder = new Recorder(1);
+		new ConfigStreamPublisher(() -> stream, null, executor, 2).subscribe(recorder);
+		recorder.await();
+		assertEquals(List.of("class C0", "class C1", "class C2"), recorder.items);
+		assertTrue(recorder.error instanceof ConfigStreamException);
+		assertFalse(recorder.completed);
+	}
+
+	@Test
+	void invalidRequestsFail() {
+		Recorder recorder = new Recorder(0);
+		new ConfigStreamPublisher(() -> new CountingStream(100, -1), null, Runnable::run, 5).subscribe(recorder);
+		recorder.subscription.request(0);
+		assertTrue(recorder.error instanceof IllegalArgumentException);
+		assertTrue(recorder.items.isEmpty());
+
+		recorder.subscription.request(1);
+		assertTrue(recorder.items.isEmpty());
+		assertThrows(IllegalArgumentException.class, () -> new ConfigStreamPublisher(() -> new CountingStream(1, -1), null, executor, 0));
+	}
+
+	@Test
+	void cancellingStopsReading() {
+		CountingStream stream = new CountingStream(100, -1);
+		Recorder recorder = new Recorder(0);
+		new ConfigStreamPublisher(() -> stream, null, Runnable::run, 5).subscribe(recorder);
+		recorder.subscription.request(1);
+		recorder.subscription.cancel();
+		int read = stream.read.get();
+		recorder.subscription.request(10);
+		assertEquals(read, stream.read.get());
+		assertEquals(List.of("class C0"), recorder.items);
+		assertFalse(recorder.completed);
+		assertNull(recorder.error);
+	}
+
+	@Test
+	void everySubscriberGetsItsOwnStream() throws Exception {
+		AtomicInteger streams = new AtomicInteger();
+		ConfigStreamPublisher publisher = new ConfigStreamPublisher(() -> {
+			streams.incrementAndGet();
+			return new CountingStream(10, -1);
+		}, null, executor, 4);
+		Recorder a = new Recorder(Long.MAX_VALUE);
+		Recorder b = new Recorder(3);
+		publisher.subscribe(a);
+		publisher.subscribe(b);
+		a.await();
+		b.await();
+		assertEquals(2, streams.get());
+		assertEquals(a.items, b.items);
+		assertEquals(10, a.items.size());
+	}
+
+	@NotNull
+	private static String describe(@NotNull ConfigStreamItem item) {
+		switch (item.getType()) {
+			case Class: {
+				return "class " + ((ConfigStreamItem.ClassItem) item).getClassName();
+			}
+			case Field: {
+				return ((ConfigStreamItem.FieldItem) item).getKey();
+			}
+			default: {
+				return "end";
+			}
+		}
+	}
+
+	/** Subscriber that requests the given amount of items at the start and after each of them */
+	private static class Recorder implements Flow.Subscriber<ConfigStreamItem> {
+		private final long batch;
+		private final List<String> items = Collections.synchronizedList(new ArrayList<>());
+		private final CountDownLatch done = new CountDownLatch(1);
+		private Flow.Subscription subscription;
+		private volatile boolean completed;
+		private volatile Throwable error;
+
+		Recorder(long batch) {
+			this.batch = batch;
+		}
+
+		@Override
+		public void onSubscribe(Flow.Subscription subscription) {
+			this.subscription = subscription;
+			if (batch > 0) {
+				subscription.request(batch);
+			}
+		}
+
+		@Override
+		public void onNext(ConfigStreamItem item) {
+			items.add(describe(item));
+			if (batch > 0 && batch < Long.MAX_VALUE) {
+				subscription.request(1);
+			}
+		}
+
+		@Override
+		public void onError(Throwable throwable) {
+			error = throwable;
+			done.countDown();
+		}
+
+		@Override
+		public void onComplete() {
+			completed = true;
+			done.countDown();
+		}
+
+		void await() throws InterruptedException {
+			assertTrue(done.await(10, TimeUnit.SECONDS), "not done: " + items);
+		}
+	}
+
+	/** Stream of empty classes C0 to C(count - 1) that fails in front of the given index, if it isn't -1 */
+	private static class CountingStream implements ConfigStream {
+		private final int count;
+		private final int failAt;
+		private final AtomicInteger read = new AtomicInteger();
+
+		CountingStream(int count, int failAt) {
+			this.count = count;
+			this.failAt = failAt;
+		}
+
+		@NotNull
+		@Override
+		public ConfigStreamItem next() throws ConfigStreamException {
+			int i = read.get();
+			if (i == failAt) {
+				throw new ConfigStreamException("failed at " + i);
+			}
+			if (i == count) {
+				return ConfigStreamItem.EndStreamItem.INSTANCE;
+			}
+			read.incrementAndGet();
+			return new ConfigStreamItem.ClassItem("C" + i);
+		}
+
+		@Override
+		public boolean hasNext() {
+			return read.get() < count;
+		}
+
+		@Override
+		public void skipCurrentClass() {
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class ConfigStringPoolTest {
+	@Test
+	void equalCharsGiveTheSameString() {
+		ConfigStringPool pool = new ConfigStringPool(16, 64);
+		String first = pool.intern(new StringBuilder("displayName"));
+		assertSame(first, pool.intern(new StringBuilder("displayName")));
+		assertSame(first, pool.intern("displayName"));
+		assertSame(first, pool.intern(first));
+		assertEquals("", pool.intern(new StringBuilder()));
+		assertEquals(1, pool.getMissCount());
+		//interning the pooled string again isn't a hit
+		assertEquals(2, pool.getHitCount());
+		assertEquals(2.0 / 3, pool.getHitRate(), 1e-9);
+		assertEquals(2 * (24 + 16 + 16), pool.getBytesSaved());
+	}
+
+	@Test
+	void bytesAndCharsShareStrings() {
+		ConfigStringPool pool = new ConfigStringPool(16, 64);
+		for (String s : new String[]{"scope", "Véhicule", "€uro", "tank 🚀"}) {
+			String fromChars = pool.intern(new StringBuilder(s));
+			assertSame(fromChars, pool.intern(bytes("xx" + s + "yy"), 2, s.getBytes(StandardCharsets.UTF_8).length), s);
+			String other = s + "!";
+			String fromBytes = pool.intern(bytes(other), 0, other.getBytes(StandardCharsets.UTF_8).length);
+			assertEquals(other, fromBytes);
+			assertSame(fromBytes, pool.intern(new StringBuilder(other)), s);
+		}
+		assertEquals("", pool.intern(bytes("x"), 0, 0));
+	}
+
+	@Test
+	void longStringsAreNotPooled() {
+		ConfigStringPool pool = new ConfigStringPool(16, 4);
+		assertEquals(4, pool.getMaxLength());
+		String chars = pool.intern(new StringBuilder("abcde"));
+		assertEquals("abcde", chars);
+		assertNotSame(chars, pool.intern(new StringBuilder("abcde")));
+		String fromBytes = pool.intern(bytes("abcde"), 0, 5);
+		assertNotSame(fromBytes, pool.intern(bytes("abcde"), 0, 5));
+		//4 chars, but 8 bytes
+		String wide = pool.intern(bytes("éééé"), 0, 8);
+		assertSame(wide, pool.intern(new StringBuilder("éééé")));
+		assertEquals(1, pool.getHitCount());
+		assertEquals(1, pool.getMissCount());
+	}
+
+	@Test
+	void malformedBytesAreDecodedButNotPooled() {
+		ConfigStringPool pool = new ConfigStringPool(16, 64);
+		ByteBuffer malformed = ByteBuffer.wrap(new byte[]{'a', (byte) 0xC3, 'b'});
+		String decoded = pool.intern(malformed, 0, 3);
+		assertEquals(new String(malformed.array(), StandardCharsets.UTF_8), decoded);
+		assertNotSame(decoded, pool.intern(new StringBuilder(decoded)));
+	}
+
+	@Test
+	void thePoolNeverGrows() {
+		ConfigStringPool pool = new ConfigStringPool(4, 64);
+		List<String> first = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			first.add(pool.intern(new StringBuilder("name" + i)));
+		}
+		int kept = 0;
+		for (int i = 0; i < 1000; i++) {
+			if (pool.intern(new StringBuilder("name" + i)) == first.get(i)) {
+				kept++;
+			}
+		}
+		assertTrue(kept <= 4, "kept " + kept);
+
+		//the most recent string of a slot pair is kept
+		String recent = pool.intern(new StringBuilder("recent"));
+		assertSame(recent, pool.intern(new StringBuilder("recent")));
+	}
+
+	@Test
+	void clearForgetsEverything() {
+		ConfigStringPool pool = new ConfigStringPool(16, 64);
+		String s = pool.intern(new StringBuilder("scope"));
+		pool.intern(new StringBuilder("scope"));
+		pool.clear();
+		assertEquals(0, pool.getHitCount());
+		assertEquals(0, pool.getMissCount());
+		assertEquals(0, pool.getBytesSaved());
+		assertEquals(0, pool.getHitRate());
+		assertNotSame(s, pool.intern(new StringBuilder("scope")));
+	}
+
+	@Test
+	void concurrentLookupsGiveEqualStrings() throws Exception {
+		ConfigStringPool pool = new ConfigStringPool(64, 64);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				Callable<Boolean> task = () -> {
+					for (int i = 0; i < 20000; i++) {
+						String name = "name" + (i % 200);
+						String pooled = (i & 1) == 0 ? pool.intern(new StringBuilder(name)) : pool.intern(bytes(name), 0, name.length());
+						if (!pooled.equals(name)) {
+							return false;
+						}
+					}
+					return true;
+				};
+				results.add(executor.submit(task));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(80000, pool.getHitCount() + pool.getMissCount());
+	}
+
+	@NotNull
+	private static ByteBuffer bytes(@NotNull String s) {
+		return ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,77 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ Config files for the tests of the readers and writers, written to a temporary directory.
+
+ @author K
+ @since 02/08/2019 */
+public final class ConfigTestFiles {
+	/**
+	 A config.cpp with the kinds of entries rapified files can hold: ints, floats that are exact in a float, strings
+	 with escaped quotes and non ASCII chars, nested arrays, empty classes and inheritance.
+	 */
+	public static final String SAMPLE = "version = 12;\n" +
+			"author = \"K\";\n" +
+			"class CfgPatches {\n" +
+			"\tclass my_addon {\n" +
+			"\t\tunits[] = {\"Car\", \"Tank\"};\n" +
+			"\t\trequiredVersion = 1.5;\n" +
+			"\t\trequiredAddons[] = {};\n" +
+			"\t};\n" +
+			"};\n" +
+			"class CfgVehicles {\n" +
+			"\tclass Base {\n" +
+			"\t\tscope = 0;\n" +
+			"\t\tarmor = 20;\n" +
+			"\t\tclass Turrets {};\n" +
+			"\t};\n" +
+			"\tclass Car : Base {\n" +
+			"\t\tscope = 2;\n" +
+			"\t\tdisplayName = \"Véhicule \"\"quoted\"\"\";\n" +
+			"\t\tmaxSpeed = 120.25;\n" +
+			"\t\toffsets[] = {-1.5, 0, {2, \"x\"}};\n" +
+			"\t\tclass Turrets : Turrets {\n" +
+			"\t\t\tclass MainTurret {\n" +
+			"\t\t\t\tgunner = \"Gunner\";\n" +
+			"\t\t\t};\n" +
+			"\t\t};\n" +
+			"\t};\n" +
+			"\tclass Tank : Car {\n" +
+			"\t\tarmor = 500;\n" +
+			"\t};\n" +
+			"};\n" +
+			"class CfgWeapons {};\n";
+
+	private ConfigTestFiles() {
+	}
+
+	@NotNull
+	public static Path createTempDirectory() throws IOException {
+		return Files.createTempDirectory("rustyarmafiles");
+	}
+
+	/** Deletes the directory and everything in it */
+	public static void delete(@NotNull Path directory) throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	/** @return the file in the directory with the text as UTF-8 */
+	@NotNull
+	public static File write(@NotNull Path directory, @NotNull String name, @NotNull String text) throws IOException {
+		return Files.write(directory.resolve(name), text.getBytes(StandardCharsets.UTF_8)).toFile();
+	}
+}
@@ -0,0 +1,146 @@
+package com.kaylerrenslow.rustyarmafiles;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class Utf8Test {
+	private static final List<String> TEXTS = Arrays.asList("", "scope", "Véhicule \"x\"", "€uro", "漢字", "tank 🚀 go", "🚀");
+
+	/** bytes that {@link StandardCharsets#UTF_8} replaces: overlong, surrogate, truncated, lone continuation, 5 bytes */
+	private static final byte[][] MALFORMED = {
+			{'a', (byte) 0xC0, (byte) 0x80},
+			{(byte) 0xE0, (byte) 0x80, (byte) 0xAF},
+			{(byte) 0xED, (byte) 0xA0, (byte) 0x80},
+			{'a', (byte) 0xE2, (byte) 0x82},
+			{(byte) 0x80, 'b'},
+			{(byte) 0xF8, (byte) 0x88, (byte) 0x80, (byte) 0x80, (byte) 0x80},
+			{(byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80}
+	};
+
+	@Test
+	void scanAgreesWithString() {
+		for (String text : TEXTS) {
+			ByteBuffer bytes = padded(text.getBytes(StandardCharsets.UTF_8));
+			long scan = Utf8.scan(bytes, 3, bytes.capacity() - 3);
+			assertEquals(0L, scan & Utf8.MALFORMED, text);
+			assertEquals(text.hashCode(), Utf8.hash(scan), text);
+			assertEquals(text.length(), Utf8.charCount(scan), text);
+			assertEquals(text.chars().allMatch(c -> c < 0x80), (scan & Utf8.ASCII) != 0, text);
+			assertEquals(text, Utf8.decode(bytes, 3, bytes.capacity() - 6));
+			assertEquals("x" + text, Utf8.append(bytes, 3, bytes.capacity() - 3, new StringBuilder("x")).toString());
+		}
+	}
+
+	@Test
+	void malformedBytesAreDecodedLikeTheCharset() {
+		for (byte[] malformed : MALFORMED) {
+			String expected = new String(malformed, StandardCharsets.UTF_8);
+			ByteBuffer bytes = padded(malformed);
+			int end = bytes.capacity() - 3;
+			assertEquals(Utf8.MALFORMED, Utf8.scan(bytes, 3, end), expected);
+			assertEquals(expected, Utf8.decode(bytes, 3, malformed.length));
+			assertEquals("x" + expected, Utf8.append(bytes, 3, end, new StringBuilder("x")).toString());
+		}
+	}
+
+	@Test
+	void bytesAreComparedWithChars() {
+		ByteBuffer bytes = ByteBuffer.wrap("tank 🚀 go".getBytes(StandardCharsets.UTF_8));
+		int end = bytes.capacity();
+		assertTrue(Utf8.equals(bytes, 0, end, "tank 🚀 go", false));
+		assertFalse(Utf8.equals(bytes, 0, end, "tank 🚀 g", false));
+		assertFalse(Utf8.equals(bytes, 0, end, "tank 🚀 go!", false));
+		assertFalse(Utf8.equals(bytes, 0, end, "tank 🚁 go", false));
+		assertTrue(Utf8.equals(bytes, 0, end, "tank 🚀 g", true));
+		assertTrue(Utf8.equals(bytes, 0, end, "", true));
+		assertFalse(Utf8.equals(bytes, 0, end, "tank 🚀 go!", true));
+		//like String.startsWith, a prefix may end between the two chars of a surrogate pair
+		String highSurrogate = "tank " + "🚀".charAt(0);
+		assertTrue("tank 🚀 go".startsWith(highSurrogate));
+		assertTrue(Utf8.equals(bytes, 0, end, highSurrogate, true));
+		assertFalse(Utf8.equals(bytes, 0, end, highSurrogate, false));
+	}
+
+	@Test
+	void utf8TextReadsTheBytesInPlace() {
+		for (String text : TEXTS) {
+			ConfigFieldValue.Utf8Text utf8 = utf8Text(text);
+			ConfigFieldValue.Text plain = new ConfigFieldValue.Text(text);
+			assertEquals(text.hashCode(), utf8.hashCode(), text);
+			assertEquals(plain, utf8);
+			assertEquals(utf8, plain);
+			assertEquals(utf8, utf8Text(text));
+			assertNotEquals(utf8, utf8Text(text + "!"));
+			assertTrue(utf8.contentEquals(text));
+			assertFalse(utf8.contentEquals(text + "!"));
+			for (int i = 0; i <= text.length(); i++) {
+				assertEquals(true, utf8.startsWith(text.substring(0, i)), text);
+			}
+			assertFalse(utf8.startsWith(text + "!"));
+			assertEquals(text.getBytes(StandardCharsets.UTF_8).length, utf8.getByteLength());
+			assertEquals(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)), utf8.getBytes());
+			assertTrue(utf8.getBytes().isReadOnly());
+			assertEquals(text, utf8.getText());
+			assertEquals(text, utf8.getChars().toString());
+		}
+	}
+
+	@Test
+	void asciiTextIsAViewOfTheBytes() {
+		ConfigFieldValue.Utf8Text utf8 = utf8Text("displayName");
+		CharSequence chars = utf8.getChars();
+		assertFalse(chars instanceof String);
+		assertEquals(11, chars.length());
+		assertEquals('N', chars.charAt(7));
+		assertEquals("Name", chars.subSequence(7, 11).toString());
+		assertEquals("", chars.subSequence(3, 3).toString());
+		assertThrows(IndexOutOfBoundsException.class, () -> chars.charAt(11));
+		assertThrows(IndexOutOfBoundsException.class, () -> chars.subSequence(5, 12));
+		assertEquals("displayName", chars.toString());
+
+		//once the text is decoded, it is used instead
+		String text = utf8.getText();
+		assertSame(text, utf8.getChars());
+		assertTrue(utf8Text("Véhicule").getChars() instanceof String);
+	}
+
+	@Test
+	void malformedUtf8TextIsDecoded() {
+		for (byte[] malformed : MALFORMED) {
+			String expected = new String(malformed, StandardCharsets.UTF_8);
+			ConfigFieldValue.Utf8Text utf8 = new ConfigFieldValue.Utf8Text(padded(malformed), 3, malformed.length);
+			assertEquals(expected, utf8.getText());
+			assertEquals(expected.hashCode(), utf8.hashCode());
+			assertTrue(utf8.contentEquals(expected));
+			assertTrue(utf8.startsWith(expected.substring(0, 1)));
+			assertEquals(new ConfigFieldValue.Text(expected), utf8);
+			assertEquals(utf8, new ConfigFieldValue.Utf8Text(ByteBuffer.wrap(malformed), 0, malformed.length));
+		}
+	}
+
+	/** @return the bytes with 3 bytes before and after them, so offsets have to be respected */
+	@NotNull
+	private static ByteBuffer padded(@NotNull byte[] bytes) {
+		ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 6);
+		buffer.put(new byte[]{'<', '<', '<'}).put(bytes).put(new byte[]{'>', '>', '>'});
+		//the position is ignored
+		buffer.position(buffer.capacity() - 1);
+		return buffer;
+	}
+
+	@NotNull
+	private static ConfigFieldValue.Utf8Text utf8Text(@NotNull String text) {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		return new ConfigFieldValue.Utf8Text(padded(bytes), 3, bytes.length);
+	}
+}
@@ -0,0 +1,131 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigAssert;
+import com.kaylerrenslow.rustyarmafiles.ConfigClass;
+import com.kaylerrenslow.rustyarmafiles.ConfigFileStream;
+import com.kaylerrenslow.rustyarmafiles.ConfigStream;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamItem;
+import com.kaylerrenslow.rustyarmafiles.ConfigTestFiles;
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class MappedRapifiedConfigFileTest {
+	private Path directory;
+	private TextConfigFile source;
+	private File bin;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		directory = ConfigTestFiles.createTempDirectory();
+		source = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE));
+		source.parse();
+		bin = directory.resolve("config.bin").toFile();
+		new RapifiedConfigWriter().write(source.getRoot(), bin);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void rootIsOnlyAvailableAfterParse() throws Exception {
+		MappedRapifiedConfigFile file = new MappedRapifiedConfigFile(bin);
+		assertFalse(file.isParsed());
+		assertThrows(IllegalStateException.class, file::getRoot);
+		file.parse();
+		assertTrue(file.isParsed());
+		assertTrue(file.isRapified());
+		assertEquals(bin, file.getFile());
+	}
+
+	@Test
+	void unparsedAndParsedStreamsAreTheSame() throws Exception {
+		MappedRapifiedConfigFile file = new MappedRapifiedConfigFile(bin);
+		ConfigStream unparsed = file.newStream();
+		assertTrue(unparsed instanceof ConfigFileStream);
+		List<String> before = items(unparsed);
+		file.parse();
+		assertEquals(before, items(file.newStream()));
+		//rapified files list the fields of a class before its classes
+		assertEquals(Arrays.asList("version", "author", "class CfgPatches", "class my_addon"), before.subList(0, 4));
+	}
+
+	@Test
+	void contentCanBeGivenInsteadOfAFile() throws Exception {
+		byte[] bytes = Files.readAllBytes(bin.toPath());
+		ByteBuffer padded = ByteBuffer.allocate(bytes.length + 8);
+		padded.position(4);
+		padded.put(bytes);
+		padded.position(4).limit(4 + bytes.length);
+
+		MappedRapifiedConfigFile file = new MappedRapifiedConfigFile(directory.resolve("missing.bin").toFile(), padded);
+		file.parse();
+		ConfigAssert.assertTreeEquals(source.getRoot(), file.getRoot());
+		assertEquals(4, padded.position());
+	}
+
+	@Test
+	void lookupsDecodeValues() throws Exception {
+		MappedRapifiedConfigFile file = new MappedRapifiedConfigFile(bin);
+		file.parse();
+		ConfigClass car = file.getRoot().getClass("CfgVehicles").getClass("Car");
+		assertEquals("\"Véhicule \"\"quoted\"\"\"", ConfigAssert.describe(car.getFieldValue("displayName")));
+		assertEquals("120.25", ConfigAssert.describe(car.getFieldValue("maxSpeed")));
+		assertEquals("{-1.5, 0.0, {2.0, \"x\"}}", ConfigAssert.describe(car.getFieldValue("offsets")));
+		assertNull(car.getFieldValue("missing"));
+		assertNull(car.getClass("missing"));
+	}
+
+	@Test
+	void filesThatArentRapifiedAreRejected() throws Exception {
+		assertThrows(ParseException.class, () -> new MappedRapifiedConfigFile(ConfigTestFiles.write(directory, "text.bin", ConfigTestFiles.SAMPLE)).parse());
+		assertThrows(ParseException.class, () -> new MappedRapifiedConfigFile(ConfigTestFiles.write(directory, "tiny.bin", "\0raP")).parse());
+
+		byte[] header = Files.readAllBytes(bin.toPath());
+		header[4] = 1;
+		Files.write(bin.toPath(), header);
+		assertThrows(ParseException.class, () -> new MappedRapifiedConfigFile(bin).parse());
+		assertThrows(IllegalArgumentException.class, () -> new MappedRapifiedConfigFile(bin, 0));
+	}
+
+	@NotNull
+	private static List<String> items(@NotNull ConfigStream stream) throws Exception {
+		List<String> items = new ArrayList<>();
+		for (ConfigStreamItem item = stream.next(); item.getType() != ConfigStreamItem.Type.EndStream; item = stream.next()) {
+			switch (item.getType()) {
+				case Class: {
+					items.add("class " + ((ConfigStreamItem.ClassItem) item).getClassName());
+					break;
+				}
+				case Field: {
+					items.add(((ConfigStreamItem.FieldItem) item).getKey());
+					break;
+				}
+				default: {
+					items.add("end");
+					break;
+				}
+			}
+		}
+		return items;
+	}
+}
@@ -0,0 +1,101 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import com.kaylerrenslow.rustyarmafiles.ConfigFileStream;
+import com.kaylerrenslow.rustyarmafiles.ConfigMetrics;
+import com.kaylerrenslow.rustyarmafiles.ConfigStream;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamItem;
+import com.kaylerrenslow.rustyarmafiles.ConfigTestFiles;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class NativeCallCountingStreamTest {
+	private Path directory;
+	private ConfigMetrics.Counters counters;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = ConfigTestFiles.createTempDirectory();
+		counters = new ConfigMetrics.Counters();
+		ConfigMetrics.setListener(counters);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigMetrics.setListener(null);
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void unparsedFileStreamIsAFileStream() {
+		assertTrue(file().newStream() instanceof ConfigFileStream);
+	}
+
+	@Test
+	void callsAndItemsAreCounted() throws Exception {
+		NativeCallCountingStream stream = new NativeCallCountingStream(file(), new ItemStream(3));
+		stream.next();
+		stream.skipCurrentClass();
+		while (stream.hasNext()) {
+			stream.next();
+		}
+		//the 3 items and the end, the skip and the 3 hasNext before the end. Calls after the end are reported later.
+		assertEquals(3, counters.get(ConfigMetrics.Counter.ItemsEmitted));
+		assertEquals(4 + 1 + 3, counters.get(ConfigMetrics.Counter.NativeCalls));
+	}
+
+	@Test
+	void callsAreReportedBeforeTheStreamEnds() throws Exception {
+		NativeCallCountingStream stream = new NativeCallCountingStream(file(), new ItemStream(ConfigMetrics.REPORT_INTERVAL * 2));
+		for (int i = 0; i < ConfigMetrics.REPORT_INTERVAL; i++) {
+			stream.next();
+		}
+		assertEquals(ConfigMetrics.REPORT_INTERVAL, counters.get(ConfigMetrics.Counter.NativeCalls));
+		assertEquals(ConfigMetrics.REPORT_INTERVAL, counters.get(ConfigMetrics.Counter.ItemsEmitted));
+	}
+
+	@NotNull
+	private RapifiedConfigFile file() {
+		return new RapifiedConfigFile(directory.resolve("config.bin").toFile());
+	}
+
+	/** Stands in for a native stream: the given amount of fields, then the end */
+	private static class ItemStream implements ConfigStream {
+		private final int count;
+		private int returned;
+
+		ItemStream(int count) {
+			this.count = count;
+		}
+
+		@Override
+		@NotNull
+		public ConfigStreamItem next() {
+			if (returned == count) {
+				returned++;
+				return ConfigStreamItem.EndStreamItem.INSTANCE;
+			}
+			returned++;
+			return new ConfigStreamItem.FieldItem("field", new ConfigFieldValue.Scalar(returned));
+		}
+
+		@Override
+		public boolean hasNext() {
+			return returned <= count;
+		}
+
+		@Override
+		public void skipCurrentClass() {
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigClass;
+import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import com.kaylerrenslow.rustyarmafiles.ConfigTestFiles;
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class RapArrayValueTest {
+	private Path directory;
+	private ConfigClass root;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		directory = ConfigTestFiles.createTempDirectory();
+		TextConfigFile source = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", "numbers[] = {1, 2.5, -3, 0.1};\nmixed[] = {1, \"two\", {3}, 4};\n"));
+		source.parse();
+		File bin = directory.resolve("config.bin").toFile();
+		new RapifiedConfigWriter().write(source.getRoot(), bin);
+		MappedRapifiedConfigFile file = new MappedRapifiedConfigFile(bin);
+		file.parse();
+		root = file.getRoot();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void numbersAreReadStraightFromTheBuffer() {
+		ConfigFieldValue.Array numbers = array("numbers");
+		assertTrue(numbers instanceof RapArrayValue);
+		//whole numbers are written as ints and the rest as floats
+		assertArrayEquals(new float[]{1, 2.5f, -3, 0.1f}, numbers.toFloatArray());
+		assertArrayEquals(new double[]{1, 2.5, -3, 0.1f}, numbers.toDoubleArray());
+	}
+
+	@Test
+	void mixedArraysAreDecodedByIndex() {
+		ConfigFieldValue.Array mixed = array("mixed");
+		assertEquals(4, mixed.getLength());
+		assertTrue(mixed.isScalar(0));
+		assertEquals("two", mixed.getText(1));
+		assertEquals(3.0, ((ConfigFieldValue.Array) mixed.getValue(2)).getScalar(0));
+		assertEquals(4.0, mixed.getScalar(3));
+		assertThrows(IllegalStateException.class, mixed::toFloatArray);
+		assertThrows(IllegalStateException.class, mixed::toDoubleArray);
+
+		List<Double> scalars = new ArrayList<>();
+		mixed.forEachScalar(scalars::add);
+		assertEquals(Arrays.asList(1.0, 4.0), scalars);
+	}
+
+	@NotNull
+	private ConfigFieldValue.Array array(@NotNull String key) {
+		return (ConfigFieldValue.Array) root.getFieldValue(key);
+	}
+}
@@ -0,0 +1,66 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigCursor;
+import com.kaylerrenslow.rustyarmafiles.ConfigFileStream;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamException;
+import com.kaylerrenslow.rustyarmafiles.ConfigTestFiles;
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class RapBatchCursorTest {
+	private Path directory;
+	private File bin;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		directory = ConfigTestFiles.createTempDirectory();
+		TextConfigFile source = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE));
+		source.parse();
+		bin = directory.resolve("config.bin").toFile();
+		new RapifiedConfigWriter().write(source.getRoot(), bin);
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void batchingIsOffByDefault() {
+		RapifiedConfigFile file = new RapifiedConfigFile(bin);
+		assertEquals(0, file.getBatchSize());
+		assertFalse(file.newCursor() instanceof RapBatchCursor);
+	}
+
+	@Test
+	void onlyCursorsAreBatched() {
+		RapifiedConfigFile file = new RapifiedConfigFile(bin, 64);
+		assertTrue(file.newCursor() instanceof RapBatchCursor);
+		assertTrue(file.newStream() instanceof ConfigFileStream);
+	}
+
+	@Test
+	void missingNativeBatchSupportIsReported() {
+		ConfigCursor cursor = new RapifiedConfigFile(bin, 64).newCursor();
+		ConfigStreamException e = assertThrows(ConfigStreamException.class, cursor::advance);
+		assertTrue(e.getCause() instanceof UnsatisfiedLinkError);
+		assertTrue(e.getMessage().contains("batch size of 0"));
+	}
+
+	@Test
+	void batchSizeIsChecked() {
+		assertThrows(IllegalArgumentException.class, () -> new RapifiedConfigFile(bin, -1));
+		assertThrows(IllegalArgumentException.class, () -> new RapBatchCursor(new RapifiedConfigFile(bin), -1, 0));
+	}
+}
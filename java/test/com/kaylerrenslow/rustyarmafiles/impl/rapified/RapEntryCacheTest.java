@@ -0,0 +1,173 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigClass;
+import com.kaylerrenslow.rustyarmafiles.ConfigEntry;
+import com.kaylerrenslow.rustyarmafiles.ConfigMetrics;
+import com.kaylerrenslow.rustyarmafiles.ConfigTestFiles;
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class RapEntryCacheTest {
+	private static final int THREADS = 8;
+
+	@AfterEach
+	void tearDown() {
+		ConfigMetrics.setListener(null);
+	}
+
+	@Test
+	void sameOffsetGivesSameEntry() {
+		RapEntryCache cache = new RapEntryCache(16);
+		AtomicInteger created = new AtomicInteger();
+		ConfigMetrics.Counters counters = new ConfigMetrics.Counters();
+		ConfigMetrics.setListener(counters);
+
+		TestEntry first = cache.get(10, offset -> new TestEntry(offset, created));
+		TestEntry second = cache.get(10, offset -> new TestEntry(offset, created));
+		assertSame(first, second);
+		assertEquals(1, created.get());
+		assertEquals(1, counters.get(ConfigMetrics.Counter.CacheHits));
+		assertNotSame(first, cache.get(11, offset -> new TestEntry(offset, created)));
+	}
+
+	@Test
+	void leastRecentlyUsedOffsetIsEvicted() {
+		RapEntryCache cache = new RapEntryCache(2);
+		AtomicInteger created = new AtomicInteger();
+		TestEntry one = cache.get(1, offset -> new TestEntry(offset, created));
+		cache.get(2, offset -> new TestEntry(offset, created));
+		cache.get(1, offset -> new TestEntry(offset, created));
+		cache.get(3, offset -> new TestEntry(offset, created));
+		assertEquals(2, cache.size());
+		assertEquals(3, created.get());
+
+		assertSame(one, cache.get(1, offset -> new TestEntry(offset, created)));
+		cache.get(2, offset -> new TestEntry(offset, created));
+		assertEquals(4, created.get());
+	}
+
+	@Test
+	void sizeMustBePositive() {
+		assertThrows(IllegalArgumentException.class, () -> new RapEntryCache(0));
+	}
+
+	@Test
+	void concurrentReadersGetOneEntryPerOffset() throws Exception {
+		RapEntryCache cache = new RapEntryCache(RapEntryCache.DEFAULT_MAX_SIZE);
+		AtomicInteger created = new AtomicInteger();
+		List<List<TestEntry>> seen = runOnThreads(() -> {
+			List<TestEntry> entries = new ArrayList<>();
+			for (int offset = 0; offset < 200; offset++) {
+				entries.add(cache.get(offset, o -> new TestEntry(o, created)));
+			}
+			return entries;
+		});
+		assertEquals(200, created.get());
+		for (List<TestEntry> entries : seen) {
+			for (int offset = 0; offset < 200; offset++) {
+				assertSame(seen.get(0).get(offset), entries.get(offset));
+			}
+		}
+	}
+
+	@Test
+	void concurrentLookupsInMappedFileGiveSameClasses() throws Exception {
+		Path directory = ConfigTestFiles.createTempDirectory();
+		try {
+			TextConfigFile source = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE));
+			source.parse();
+			File bin = directory.resolve("config.bin").toFile();
+			new RapifiedConfigWriter().write(source.getRoot(), bin);
+			MappedRapifiedConfigFile rapified = new MappedRapifiedConfigFile(bin);
+			rapified.parse();
+
+			List<List<ConfigClass>> seen = runOnThreads(() -> {
+				List<ConfigClass> classes = new ArrayList<>();
+				for (int i = 0; i < 100; i++) {
+					ConfigClass vehicles = rapified.getRoot().getClass("CfgVehicles");
+					assertNotNull(vehicles);
+					ConfigClass turrets = vehicles.getClass("Car").getClass("Turrets");
+					assertNotNull(turrets);
+					assertNotNull(turrets.getClass("MainTurret"));
+					classes.add(turrets);
+				}
+				return classes;
+			});
+			ConfigClass turrets = seen.get(0).get(0);
+			for (List<ConfigClass> classes : seen) {
+				for (ConfigClass configClass : classes) {
+					assertSame(turrets, configClass);
+				}
+			}
+		} finally {
+			ConfigTestFiles.delete(directory);
+		}
+	}
+
+	/** @return the results of the task, run at the same time on {@link #THREADS} threads */
+	@NotNull
+	private static <T> List<T> runOnThreads(@NotNull Callable<T> task) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<T>> futures = new ArrayList<>();
+			for (int i = 0; i < THREADS; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					return task.call();
+				}));
+			}
+			start.countDown();
+			List<T> results = new ArrayList<>();
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private static class TestEntry implements ConfigEntry {
+		private final int offset;
+
+		TestEntry(int offset, @NotNull AtomicInteger created) {
+			this.offset = offset;
+			created.incrementAndGet();
+		}
+
+		@Override
+		public boolean isField() {
+			return true;
+		}
+
+		@Override
+		public boolean isClass() {
+			return false;
+		}
+
+		@Override
+		@NotNull
+		public String getName() {
+			return "entry" + offset;
+		}
+	}
+}
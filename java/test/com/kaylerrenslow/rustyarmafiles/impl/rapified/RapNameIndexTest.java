@@ -0,0 +1,127 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigAssert;
+import com.kaylerrenslow.rustyarmafiles.ConfigClass;
+import com.kaylerrenslow.rustyarmafiles.ConfigMetrics;
+import com.kaylerrenslow.rustyarmafiles.ConfigTestFiles;
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class RapNameIndexTest {
+	@AfterEach
+	void tearDown() {
+		ConfigMetrics.setListener(null);
+	}
+
+	@Test
+	void findReturnsTheFirstEntryInRange() {
+		RapNameIndex index = new RapNameIndex(new StringNames("a", "b", "a", "c"));
+		assertEquals(0, index.find("a", 0, 4));
+		assertEquals(2, index.find("a", 1, 4));
+		assertEquals(-1, index.find("b", 2, 4));
+		assertEquals(3, index.find("c", 0, 4));
+		assertEquals(-1, index.find("d", 0, 4));
+	}
+
+	@Test
+	void stringHashesMatchAsciizHashes() {
+		byte[] bytes = "Véhicule\0".getBytes(StandardCharsets.UTF_8);
+		RapBuffer buffer = new RapBuffer(ByteBuffer.wrap(bytes));
+		assertEquals(RapNameIndex.hash("Véhicule"), RapNameIndex.hash(buffer, 0));
+		assertTrue(RapNameIndex.asciizEquals(buffer, 0, "Véhicule"));
+		assertFalse(RapNameIndex.asciizEquals(buffer, 0, "Vehicule"));
+		assertFalse(RapNameIndex.asciizEquals(buffer, 0, "Véh"));
+		assertFalse(RapNameIndex.asciizEquals(buffer, 0, "Véhicules"));
+	}
+
+	@Test
+	void probesCountEverySlotRead() {
+		//one name in two slots, so the run from its home slot is the name, then the empty slot
+		RapNameIndex index = new RapNameIndex(new StringNames("a"));
+		String emptyHome = "b";
+		while ((RapNameIndex.hash(emptyHome) & 1) == (RapNameIndex.hash("a") & 1)) {
+			emptyHome += "b";
+		}
+		ConfigMetrics.Counters counters = new ConfigMetrics.Counters();
+		ConfigMetrics.setListener(counters);
+
+		assertEquals(0, index.find("a", 0, 1));
+		assertEquals(2, counters.get(ConfigMetrics.Counter.LookupProbes));
+
+		counters.reset();
+		assertEquals(-1, index.find(emptyHome, 0, 1));
+		assertEquals(1, counters.get(ConfigMetrics.Counter.LookupProbes));
+	}
+
+	@Test
+	void wideClassLookupsFindEveryEntry() throws Exception {
+		StringBuilder text = new StringBuilder("class Wide {\n");
+		for (int i = 0; i < 300; i++) {
+			text.append("\tfield").append(i).append(" = ").append(i).append(";\n");
+		}
+		for (int i = 0; i < 100; i++) {
+			text.append("\tclass Class").append(i).append(" {};\n");
+		}
+		text.append("};\n");
+		Path directory = ConfigTestFiles.createTempDirectory();
+		try {
+			TextConfigFile source = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", text.toString()));
+			source.parse();
+			File bin = directory.resolve("config.bin").toFile();
+			new RapifiedConfigWriter().write(source.getRoot(), bin);
+			MappedRapifiedConfigFile rapified = new MappedRapifiedConfigFile(bin);
+			rapified.parse();
+
+			ConfigClass wide = rapified.getRoot().getClass("Wide");
+			assertNotNull(wide);
+			for (int i = 0; i < 300; i++) {
+				assertEquals(Double.toString(i), ConfigAssert.describe(wide.getFieldValue("field" + i)));
+				assertNull(wide.getClass("field" + i));
+			}
+			for (int i = 0; i < 100; i++) {
+				ConfigClass embedded = wide.getClass("Class" + i);
+				assertNotNull(embedded);
+				assertEquals("Class" + i, embedded.getClassName());
+				assertNull(wide.getFieldValue("Class" + i));
+			}
+			assertNull(wide.getEntry("missing"));
+		} finally {
+			ConfigTestFiles.delete(directory);
+		}
+	}
+
+	private static class StringNames implements RapNameIndex.Names {
+		private final String[] names;
+
+		StringNames(@NotNull String... names) {
+			this.names = names;
+		}
+
+		@Override
+		public int size() {
+			return names.length;
+		}
+
+		@Override
+		public int hashName(int i) {
+			return RapNameIndex.hash(names[i]);
+		}
+
+		@Override
+		public boolean nameEquals(int i, @NotNull String name) {
+			return names[i].equals(name);
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package com.kaylerrenslow.rustyarmafiles.impl.rapified;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigFile;
+import com.kaylerrenslow.rustyarmafiles.ConfigTestFiles;
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static com.kaylerrenslow.rustyarmafiles.ConfigAssert.assertTreeEquals;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class RapifiedConfigWriterTest {
+	private Path directory;
+	private TextConfigFile source;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		directory = ConfigTestFiles.createTempDirectory();
+		source = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE));
+		source.parse();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void rapifiedFileReadsBackAsTheSameTree() throws Exception {
+		File bin = directory.resolve("config.bin").toFile();
+		new RapifiedConfigWriter().write(source.getRoot(), bin);
+
+		MappedRapifiedConfigFile rapified = new MappedRapifiedConfigFile(bin);
+		rapified.parse();
+		assertTreeEquals(source.getRoot(), rapified.getRoot());
+	}
+
+	@Test
+	void derapifiedFileReadsBackAsTheSameTree() throws Exception {
+		File bin = directory.resolve("config.bin").toFile();
+		new RapifiedConfigWriter().write(source.getRoot(), bin);
+
+		File cpp = directory.resolve("derapified.cpp").toFile();
+		try (Writer writer = Files.newBufferedWriter(cpp.toPath(), StandardCharsets.UTF_8)) {
+			new TextConfigWriter().write(new MappedRapifiedConfigFile(bin).newCursor(), writer);
+		}
+		TextConfigFile derapified = new TextConfigFile(cpp);
+		derapified.parse();
+		assertTreeEquals(source.getRoot(), derapified.getRoot());
+	}
+
+	@Test
+	void rewritingRapifiedFileIsByteForByte() throws Exception {
+		File first = directory.resolve("first.bin").toFile();
+		new RapifiedConfigWriter().write(source.getRoot(), first);
+
+		File fromCursor = directory.resolve("cursor.bin").toFile();
+		new RapifiedConfigWriter().write(new MappedRapifiedConfigFile(first).newCursor(), fromCursor);
+		assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(fromCursor.toPath()));
+
+		ConfigFile parsed = new MappedRapifiedConfigFile(first);
+		parsed.parse();
+		File fromTree = directory.resolve("tree.bin").toFile();
+		new RapifiedConfigWriter(64).write(parsed.getRoot(), fromTree);
+		assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(fromTree.toPath()));
+	}
+
+	@Test
+	void wholeNumbersAreWrittenAsInts() throws Exception {
+		File cpp = ConfigTestFiles.write(directory, "numbers.cpp", "whole = 1.0;\nhalf = 0.5;\n");
+		File bin = directory.resolve("numbers.bin").toFile();
+		new RapifiedConfigWriter().write(new TextConfigFile(cpp).newCursor(), bin);
+
+		byte[] bytes = Files.readAllBytes(bin.toPath());
+		//field entry: entry type 1, value type (1 float, 2 long), asciiz name
+		assertTrue(contains(bytes, new byte[]{1, RapBuffer.VALUE_LONG, 'w', 'h', 'o', 'l', 'e', 0}));
+		assertTrue(contains(bytes, new byte[]{1, RapBuffer.VALUE_FLOAT, 'h', 'a', 'l', 'f', 0}));
+	}
+
+	@Test
+	void existingFileIsReplacedWithoutLeavingTemporaryFiles() throws Exception {
+		File bin = ConfigTestFiles.write(directory, "config.bin", "not a rapified file");
+		new RapifiedConfigWriter().write(source.getRoot(), bin);
+
+		MappedRapifiedConfigFile rapified = new MappedRapifiedConfigFile(bin);
+		rapified.parse();
+		assertTreeEquals(source.getRoot(), rapified.getRoot());
+		try (Stream<Path> files = Files.list(directory)) {
+			assertEquals(2, files.count());
+		}
+	}
+
+	private static boolean contains(byte[] bytes, byte[] part) {
+		for (int i = 0; i + part.length <= bytes.length; i++) {
+			int k = 0;
+			while (k < part.length && bytes[i + k] == part[k]) {
+				k++;
+			}
+			if (k == part.length) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,158 @@
+package com.kaylerrenslow.rustyarmafiles.impl.snapshot;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigAssert;
+import com.kaylerrenslow.rustyarmafiles.ConfigFileStream;
+import com.kaylerrenslow.rustyarmafiles.ConfigStream;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamException;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamItem;
+import com.kaylerrenslow.rustyarmafiles.ConfigTestFiles;
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.kaylerrenslow.rustyarmafiles.ConfigAssert.assertTreeEquals;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class SnapshotConfigFileTest {
+	private Path directory;
+	private File sourceFile;
+	private List<File> sources;
+	private TextConfigFile source;
+	private int loads;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		directory = ConfigTestFiles.createTempDirectory();
+		sourceFile = ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE);
+		sources = Collections.singletonList(sourceFile);
+		source = new TextConfigFile(sourceFile);
+		source.parse();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void snapshotReadsBackAsTheSameTree() throws Exception {
+		File snapshot = directory.resolve("config.snap").toFile();
+		SnapshotConfigFile.write(source.getRoot(), sources, snapshot);
+
+		SnapshotConfigFile file = new SnapshotConfigFile(snapshot);
+		file.parse();
+		assertTreeEquals(source.getRoot(), file.getRoot());
+	}
+
+	@Test
+	void unparsedStreamIsAFileStreamWithTheSameItems() throws Exception {
+		File snapshot = directory.resolve("config.snap").toFile();
+		SnapshotConfigFile.write(source.getRoot(), sources, snapshot);
+
+		SnapshotConfigFile file = new SnapshotConfigFile(snapshot);
+		ConfigStream unparsed = file.newStream();
+		assertTrue(unparsed instanceof ConfigFileStream);
+		file.parse();
+		assertEquals(items(file.newStream()), items(unparsed));
+	}
+
+	@Test
+	void snapshotOfSnapshotIsByteForByte() throws Exception {
+		File first = directory.resolve("first.snap").toFile();
+		SnapshotConfigFile.write(source.getRoot(), sources, first);
+		SnapshotConfigFile file = new SnapshotConfigFile(first);
+		file.parse();
+
+		File second = directory.resolve("second.snap").toFile();
+		SnapshotConfigFile.write(file.getRoot(), sources, second);
+		assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath()));
+	}
+
+	@Test
+	void snapshotIsUpToDateUntilASourceChanges() throws Exception {
+		File snapshot = directory.resolve("config.snap").toFile();
+		SnapshotConfigFile.write(source.getRoot(), sources, snapshot);
+		SnapshotConfigFile file = new SnapshotConfigFile(snapshot);
+		file.parse();
+		assertTrue(file.isUpToDate());
+
+		ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE + "extra = 1;\n");
+		assertFalse(file.isUpToDate());
+	}
+
+	@Test
+	void openOrRebuildOnlyLoadsWhenASourceChanged() throws Exception {
+		File snapshot = directory.resolve("config.snap").toFile();
+		SnapshotConfigFile.Loader loader = () -> {
+			loads++;
+			TextConfigFile file = new TextConfigFile(sourceFile);
+			file.parse();
+			return file.getRoot();
+		};
+
+		SnapshotConfigFile file = SnapshotConfigFile.openOrRebuild(snapshot, sources, loader);
+		assertEquals(1, loads);
+		assertTreeEquals(source.getRoot(), file.getRoot());
+
+		SnapshotConfigFile.openOrRebuild(snapshot, sources, loader);
+		assertEquals(1, loads);
+
+		ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE + "extra = 1;\n");
+		file = SnapshotConfigFile.openOrRebuild(snapshot, sources, loader);
+		assertEquals(2, loads);
+		assertNotNull(file.getRoot().getFieldValue("extra"));
+	}
+
+	@Test
+	void sourceChangedWhileLoadingMakesSnapshotStale() throws Exception {
+		File snapshot = directory.resolve("config.snap").toFile();
+		SnapshotConfigFile.Loader loader = () -> {
+			loads++;
+			TextConfigFile file = new TextConfigFile(sourceFile);
+			file.parse();
+			if (loads == 1) {
+				//edited after it was read, before the snapshot is written
+				ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE + "extra = 1;\n");
+			}
+			return file.getRoot();
+		};
+
+		SnapshotConfigFile file = SnapshotConfigFile.openOrRebuild(snapshot, sources, loader);
+		assertNull(file.getRoot().getFieldValue("extra"));
+		assertFalse(file.isUpToDate());
+
+		file = SnapshotConfigFile.openOrRebuild(snapshot, sources, loader);
+		assertEquals(2, loads);
+		assertNotNull(file.getRoot().getFieldValue("extra"));
+	}
+
+	@NotNull
+	private static List<String> items(@NotNull ConfigStream stream) throws ConfigStreamException {
+		List<String> items = new ArrayList<>();
+		ConfigStreamItem item;
+		while ((item = stream.next()).getType() != ConfigStreamItem.Type.EndStream) {
+			if (item instanceof ConfigStreamItem.ClassItem) {
+				items.add("class " + ((ConfigStreamItem.ClassItem) item).getClassName());
+			} else if (item instanceof ConfigStreamItem.FieldItem) {
+				ConfigStreamItem.FieldItem field = (ConfigStreamItem.FieldItem) item;
+				items.add(field.getKey() + " = " + ConfigAssert.describe(field.getValue()));
+			} else {
+				items.add(item.getType().toString());
+			}
+		}
+		return items;
+	}
+}
@@ -0,0 +1,125 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigAssert;
+import com.kaylerrenslow.rustyarmafiles.ConfigTestFiles;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class ConfigPreprocessorTest {
+	private Path directory;
+	private PreprocessorContext context;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = ConfigTestFiles.createTempDirectory();
+		context = new PreprocessorContext(new MacroTable(), new IncludeCache(StandardCharsets.UTF_8), Collections.singletonList(directory.resolve("roots")));
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void objectAndFunctionLikeMacrosAreExpanded() throws Exception {
+		assertEquals(
+				"x = 5;\ny = 1 + 2;\nz = \"SIZE\";\nw = ADD;\n",
+				preprocess("#define SIZE 5\n#define ADD(a, b) a + b\nx = SIZE;\ny = ADD(1, 2);\nz = \"SIZE\";\nw = ADD;\n")
+		);
+	}
+
+	@Test
+	void argumentsMaySpanLines() throws Exception {
+		assertEquals("x = 1 + 2;\ny = 3;\n", preprocess("#define ADD(a, b) a + b\nx = ADD(1,\n\t2);\ny = 3;\n"));
+		assertParseError("#define ADD(a, b) a + b\nx = ADD(1,\n2;\n", 2);
+	}
+
+	@Test
+	void concatenationAndStringizing() throws Exception {
+		assertEquals(
+				"class Cfg_Tank {};\nname = \"Tank\";\nnested = Cfg_5;\n",
+				preprocess("#define SIZE 5\n#define CLASS(name) Cfg_##name\n#define QUOTE(x) #x\nclass CLASS(Tank) {};\nname = QUOTE(Tank);\nnested = CLASS(SIZE);\n")
+		);
+	}
+
+	@Test
+	void macrosAreUndefined() throws Exception {
+		assertEquals("x = A;\n", preprocess("#define A 1\n#undef A\nx = A;\n"));
+	}
+
+	@Test
+	void conditionalBlocks() throws Exception {
+		String text = "#define ON 1\n#define OFF 0\n" +
+				"#ifdef ON\na = 1;\n#else\na = 2;\n#endif\n" +
+				"#ifndef ON\nb = 1;\n#else\nb = 2;\n#endif\n" +
+				"#if OFF\nc = 1;\n#else\nc = 2;\n#endif\n" +
+				"#if 1\nd = 1;\n#endif\n" +
+				"#ifdef MISSING\n#if NOT_A_NUMBER\n#unknown\n#endif\n#endif\n";
+		assertEquals("a = 1;\nb = 2;\nc = 2;\nd = 1;\n", preprocess(text));
+	}
+
+	@Test
+	void includesAreResolvedAndCached() throws Exception {
+		ConfigTestFiles.write(directory, "macros.hpp", "#define ARMOR 500\n");
+		ConfigTestFiles.write(Files.createDirectories(directory.resolve("roots")), "shared.hpp", "shared = 1;\n");
+		String text = "#include \"macros.hpp\"\n#include \"\\shared.hpp\"\narmor = ARMOR;\n";
+		assertEquals("shared = 1;\narmor = 500;\n", preprocess(text));
+		assertEquals(2, context.getIncludeCache().size());
+		assertEquals("shared = 1;\narmor = 500;\n", preprocess(text));
+		assertEquals(2, context.getIncludeCache().size());
+
+		assertThrows(IOException.class, () -> preprocess("#include \"missing.hpp\"\n"));
+	}
+
+	@Test
+	void syntaxErrorsAreParseExceptions() {
+		assertParseError("x = 1;\n#pragma once\n", 2);
+		assertParseError("#if SOMETHING\n#endif\n", 1);
+		assertParseError("#else\n", 1);
+		assertParseError("#ifdef A\n", 0);
+	}
+
+	@Test
+	void textConfigFileReportsPreprocessorErrors() throws Exception {
+		TextConfigFile good = new TextConfigFile(ConfigTestFiles.write(directory, "good.cpp", "#define V 2\nclass A { v = V; };\n"), StandardCharsets.UTF_8, true, context);
+		good.parse();
+		assertEquals("2.0", ConfigAssert.describe(good.getRoot().getClass("A").getFieldValue("v")));
+
+		TextConfigFile bad = new TextConfigFile(ConfigTestFiles.write(directory, "bad.cpp", "#warning nope\nclass A {};\n"), StandardCharsets.UTF_8, true, context);
+		assertThrows(ParseException.class, bad::parse);
+	}
+
+	private void assertParseError(@NotNull String text, int line) {
+		ConfigPreprocessor.SyntaxException e = assertThrows(ConfigPreprocessor.SyntaxException.class, () -> preprocess(text));
+		assertEquals(line, e.getCause().getErrorOffset());
+	}
+
+	@NotNull
+	private String preprocess(@NotNull String text) throws IOException {
+		ConfigPreprocessor preprocessor = new ConfigPreprocessor(new StringReader(text), directory.resolve("config.cpp"), context);
+		StringBuilder out = new StringBuilder();
+		CharBuffer buffer = CharBuffer.allocate(16);
+		while (preprocessor.read(buffer) >= 0) {
+			buffer.flip();
+			out.append(buffer);
+			buffer.clear();
+		}
+		return out.toString();
+	}
+}
@@ -0,0 +1,206 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigAssert;
+import com.kaylerrenslow.rustyarmafiles.ConfigClass;
+import com.kaylerrenslow.rustyarmafiles.ConfigFieldValue;
+import com.kaylerrenslow.rustyarmafiles.ConfigTestFiles;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class IncrementalTextConfigFileTest {
+	private Path directory;
+	private File file;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = ConfigTestFiles.createTempDirectory();
+		file = ConfigTestFiles.write(directory, "config.cpp", "x = 1;\nclass A { a = 1; };\nclass B { b = 1; };\n");
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void unchangedClassesAreKept() throws Exception {
+		IncrementalTextConfigFile config = new IncrementalTextConfigFile(file);
+		config.parse();
+		ConfigClass a = config.getRoot().getClass("A");
+		ConfigClass b = config.getRoot().getClass("B");
+
+		ConfigTestFiles.write(directory, "config.cpp", "x = 1;\n\n\nclass A { a = 1; };\nclass B { b = 2; };\nclass C {};\n");
+		IncrementalTextConfigFile.Delta delta = config.reload();
+		assertNotNull(delta);
+		assertEquals(Collections.singletonList("C"), delta.getAddedClasses());
+		assertEquals(Collections.singletonList("B"), delta.getChangedClasses());
+		assertTrue(delta.getRemovedClasses().isEmpty());
+		assertTrue(delta.getChangedFields().isEmpty());
+
+		assertSame(a, config.getRoot().getClass("A"));
+		assertNotSame(b, config.getRoot().getClass("B"));
+		assertEquals("2.0", ConfigAssert.describe(config.getRoot().getClass("B").getFieldValue("b")));
+		assertNull(config.reload());
+	}
+
+	@Test
+	void removedEntriesAndFieldsAreReported() throws Exception {
+		IncrementalTextConfigFile config = new IncrementalTextConfigFile(file);
+		config.parse();
+
+		ConfigTestFiles.write(directory, "config.cpp", "x = 2;\ny = 1;\nclass A { a = 1; };\n");
+		IncrementalTextConfigFile.Delta delta = config.reload();
+		assertNotNull(delta);
+		assertEquals(Collections.singletonList("B"), delta.getRemovedClasses());
+		List<String> fields = new ArrayList<>(delta.getChangedFields());
+		Collections.sort(fields);
+		assertEquals(Arrays.asList("x", "y"), fields);
+		assertNull(config.getRoot().getClass("B"));
+		assertEquals("2.0", ConfigAssert.describe(config.getRoot().getFieldValue("x")));
+	}
+
+	@Test
+	void keptEntriesFollowTheCurrentText() throws Exception {
+		IncrementalTextConfigFile config = new IncrementalTextConfigFile(file);
+		config.parse();
+		ConfigFieldValue x = config.getRoot().getFieldValue("x");
+
+		//kept entries move around in every version (whitespace in front isn't part of them, comments would be), and still read the right text afterwards
+		for (int i = 0; i < 5; i++) {
+			StringBuilder padding = new StringBuilder();
+			for (int j = 0; j < i; j++) {
+				padding.append("\n\t");
+			}
+			ConfigTestFiles.write(directory, "config.cpp", padding + "class B { b = " + i + "; };\nx = 1;\n" + padding + "class A { a = 1; };\n");
+			IncrementalTextConfigFile.Delta delta = config.reload();
+			assertNotNull(delta);
+			assertEquals(Collections.singletonList("B"), delta.getChangedClasses());
+			assertTrue(delta.getChangedFields().isEmpty());
+			assertSame(x, config.getRoot().getFieldValue("x"));
+			assertEquals("1.0", ConfigAssert.describe(config.getRoot().getClass("A").getFieldValue("a")));
+		}
+	}
+
+	@Test
+	void classesOverOldTextAreReplacedOnceItOutgrowsTheCurrentText() throws Exception {
+		StringBuilder big = new StringBuilder("x = 1;\nclass A { a = 1; };\nclass Big {\n");
+		for (int i = 0; i < 200; i++) {
+			big.append("\tf").append(i).append(" = ").append(i).append(";\n");
+		}
+		big.append("};\n");
+		ConfigTestFiles.write(directory, "config.cpp", big.toString());
+		IncrementalTextConfigFile config = new IncrementalTextConfigFile(file);
+		config.parse();
+		ConfigClass a = config.getRoot().getClass("A");
+
+		ConfigTestFiles.write(directory, "config.cpp", "x = 1;\nclass A { a = 1; };\n");
+		IncrementalTextConfigFile.Delta delta = config.reload();
+		assertNotNull(delta);
+		assertEquals(Collections.singletonList("Big"), delta.getRemovedClasses());
+		assertEquals(Collections.singletonList("A"), delta.getReplacedClasses());
+		assertNotSame(a, config.getRoot().getClass("A"));
+		assertEquals("1.0", ConfigAssert.describe(config.getRoot().getClass("A").getFieldValue("a")));
+
+		//the kept field doesn't keep the big text alive, so nothing is left to replace
+		ConfigTestFiles.write(directory, "config.cpp", "x = 1;\nclass A { a = 1; };\nclass C {};\n");
+		delta = config.reload();
+		assertNotNull(delta);
+		assertTrue(delta.getReplacedClasses().isEmpty());
+	}
+
+	@Test
+	void listenersAreToldInReloadOrder() throws Exception {
+		IncrementalTextConfigFile config = new IncrementalTextConfigFile(file);
+		config.parse();
+		List<Double> seen = Collections.synchronizedList(new ArrayList<>());
+		config.addListener((changed, delta) -> {
+			if (delta.getChangedFields().contains("x")) {
+				seen.add(((ConfigFieldValue.Scalar) changed.getRoot().getFieldValue("x")).getValue());
+			}
+		});
+
+		AtomicBoolean writing = new AtomicBoolean(true);
+		List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+		Thread reloader = new Thread(() -> {
+			try {
+				while (writing.get()) {
+					config.reload();
+				}
+			} catch (Throwable e) {
+				failures.add(e);
+			}
+		});
+		reloader.start();
+		for (int i = 2; i <= 50; i++) {
+			replace("x = " + i + ";\nclass A { a = 1; };\n");
+			config.reload();
+		}
+		writing.set(false);
+		reloader.join();
+
+		assertTrue(failures.isEmpty(), failures.toString());
+		assertFalse(seen.isEmpty());
+		for (int i = 1; i < seen.size(); i++) {
+			assertTrue(seen.get(i - 1) < seen.get(i), "deltas out of order: " + seen);
+		}
+		assertEquals(50.0, seen.get(seen.size() - 1).doubleValue());
+	}
+
+	@Test
+	void topLevelEntriesDeclaredAgainAreApplied() throws Exception {
+		ConfigTestFiles.write(directory, "config.cpp", "x = 1;\nclass A { a = 1; };\narr[] = {1};\nx = 2;\nclass A { b = 2; };\narr[] += {2};\n");
+		IncrementalTextConfigFile config = new IncrementalTextConfigFile(file);
+		config.parse();
+		ConfigClass a = config.getRoot().getClass("A");
+		assertEquals("2.0", ConfigAssert.describe(config.getRoot().getFieldValue("x")));
+		assertEquals("{1.0, 2.0}", ConfigAssert.describe(config.getRoot().getFieldValue("arr")));
+		assertEquals("a = 1.0;\nb = 2.0;\n", ConfigAssert.describe(a));
+
+		ConfigTestFiles.write(directory, "config.cpp", "x = 1;\nclass A { a = 1; };\narr[] = {1};\nx = 2;\nclass A { b = 3; };\narr[] += {2};\n");
+		IncrementalTextConfigFile.Delta delta = config.reload();
+		assertNotNull(delta);
+		assertEquals(Collections.singletonList("A"), delta.getChangedClasses());
+		assertTrue(delta.getChangedFields().isEmpty());
+		assertEquals("a = 1.0;\nb = 3.0;\n", ConfigAssert.describe(config.getRoot().getClass("A")));
+	}
+
+	@Test
+	void listenersCanBeRemoved() throws Exception {
+		IncrementalTextConfigFile config = new IncrementalTextConfigFile(file);
+		List<IncrementalTextConfigFile.Delta> deltas = new ArrayList<>();
+		IncrementalTextConfigFile.Listener listener = (changed, delta) -> deltas.add(delta);
+		config.addListener(listener);
+		config.parse();
+		assertEquals(1, deltas.size());
+		assertEquals(Arrays.asList("A", "B"), deltas.get(0).getAddedClasses());
+
+		config.removeListener(listener);
+		ConfigTestFiles.write(directory, "config.cpp", "x = 3;\n");
+		assertNotNull(config.reload());
+		assertEquals(1, deltas.size());
+	}
+
+	/** Replaces the file in one step, so a concurrent reload never reads half of it */
+	private void replace(@NotNull String text) throws IOException {
+		File written = ConfigTestFiles.write(directory, "config.tmp", text);
+		Files.move(written.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,81 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigAssert;
+import com.kaylerrenslow.rustyarmafiles.ConfigClass;
+import com.kaylerrenslow.rustyarmafiles.ConfigStream;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamItem;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class TextConfigClassTest {
+
+	@Test
+	void laterFieldsReplaceEarlierOnes() {
+		ConfigClass sub = parse("class Base {}; class Sub : Base { x = 1; x = 2; };").getClass("Sub");
+		assertEquals("2.0", ConfigAssert.describe(sub.getFieldValue("x")));
+		assertEquals("2.0", ConfigAssert.describe(sub.resolveFieldValue("x")));
+		assertEquals(1, sub.getEntries().size());
+	}
+
+	@Test
+	void classesDeclaredAgainAreUpdated() {
+		ConfigClass root = parse("class Base {};\nclass Sub { x = 1; class Inner { a = 1; }; };\nclass Sub : Base { y = 3; x = 2; class Inner { b = 2; }; };\n");
+		assertEquals(
+				"class Base {\n" +
+						"};\n" +
+						"class Sub : Base {\n" +
+						"\tx = 2.0;\n" +
+						"\ty = 3.0;\n" +
+						"\tclass Inner {\n" +
+						"\t\ta = 1.0;\n" +
+						"\t\tb = 2.0;\n" +
+						"\t};\n" +
+						"};\n",
+				ConfigAssert.describe(root)
+		);
+		assertSame(root.getClass("Base"), root.getClass("Sub").getParentClass());
+	}
+
+	@Test
+	void appendedArraysKeepTheEarlierElements() {
+		ConfigClass root = parse("arr[] = {1, 2};\narr[] += {3, \"four\"};\nnums[] = {1};\nnums[] += {2};\nother[] += {5};\n");
+		assertEquals("{1.0, 2.0, 3.0, \"four\"}", ConfigAssert.describe(root.getFieldValue("arr")));
+		assertEquals("{1.0, 2.0}", ConfigAssert.describe(root.getFieldValue("nums")));
+		//nothing earlier to append to in this class
+		assertEquals("{5.0}", ConfigAssert.describe(root.getFieldValue("other")));
+	}
+
+	@Test
+	void laterEntriesReplaceEntriesOfTheOtherKind() {
+		ConfigClass root = parse("a = 1; class a { x = 1; }; class b {}; b = 2;");
+		assertTrue(root.getEntry("a").isClass());
+		assertNull(root.getFieldValue("a"));
+		assertFalse(root.getEntry("b").isClass());
+		assertNull(root.getClass("b"));
+		assertEquals(2, root.getEntries().size());
+	}
+
+	@Test
+	void streamsReturnEveryDeclaration() throws Exception {
+		ConfigClass sub = parse("class Sub { x = 1; }; class Sub { x = 2; };").getClass("Sub");
+		ConfigStream stream = sub.newStream();
+		int fields = 0;
+		for (ConfigStreamItem item = stream.next(); item.getType() != ConfigStreamItem.Type.EndStream; item = stream.next()) {
+			assertEquals(ConfigStreamItem.Type.Field, item.getType());
+			fields++;
+		}
+		assertEquals(2, fields);
+	}
+
+	@NotNull
+	private static ConfigClass parse(@NotNull String text) {
+		return new TextConfigClass(CharBuffer.wrap(text));
+	}
+}
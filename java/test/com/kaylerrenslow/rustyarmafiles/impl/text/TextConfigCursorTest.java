@@ -0,0 +1,84 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigAssert;
+import com.kaylerrenslow.rustyarmafiles.ConfigCursor;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamException;
+import com.kaylerrenslow.rustyarmafiles.ConfigStreamItem;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class TextConfigCursorTest {
+
+	@Test
+	void duplicateEntriesAreAllReturned() throws Exception {
+		TextConfigCursor cursor = cursor("x = 1; x = 2; class A {}; class A { y = 3; };");
+		assertEquals(Arrays.asList("x=1.0", "x=2.0", "class A", "end", "class A", "y=3.0", "end"), describe(cursor));
+	}
+
+	@Test
+	void appendedArraysAreMarked() throws Exception {
+		TextConfigCursor cursor = cursor("arr[] = {1, 2};\narr[] += {3};\nx = 1;");
+		assertEquals(ConfigStreamItem.Type.Field, cursor.advance());
+		assertFalse(cursor.isAppend());
+		assertEquals(ConfigStreamItem.Type.Field, cursor.advance());
+		assertTrue(cursor.isAppend());
+		assertEquals("{3.0}", ConfigAssert.describe(cursor.value()));
+		assertEquals(ConfigStreamItem.Type.Field, cursor.advance());
+		assertFalse(cursor.isAppend());
+	}
+
+	@Test
+	void everyDeclarationOfAClassIsReadAsOneBody() throws Exception {
+		String text = "class A { x = 1; class B {}; }; class A { y = 2; };";
+		int[] bodyStarts = {text.indexOf('{') + 1, text.lastIndexOf('{') + 1};
+		assertEquals(Arrays.asList("x=1.0", "class B", "end", "y=2.0"), describe(new TextConfigCursor(CharBuffer.wrap(text), bodyStarts)));
+
+		TextConfigCursor skipped = new TextConfigCursor(CharBuffer.wrap(text), bodyStarts);
+		assertEquals(ConfigStreamItem.Type.Field, skipped.advance());
+		skipped.skipCurrentClass();
+		assertEquals(ConfigStreamItem.Type.EndStream, skipped.advance());
+	}
+
+	@Test
+	void missingSemicolonIsReported() {
+		TextConfigCursor cursor = cursor("x = 1\ny = 2;");
+		assertThrows(ConfigStreamException.class, cursor::advance);
+	}
+
+	@NotNull
+	private static TextConfigCursor cursor(@NotNull String text) {
+		return new TextConfigCursor(new TextConfigLexer(CharBuffer.wrap(text), 0), false);
+	}
+
+	@NotNull
+	private static List<String> describe(@NotNull ConfigCursor cursor) throws Exception {
+		List<String> items = new ArrayList<>();
+		for (ConfigStreamItem.Type type = cursor.advance(); type != ConfigStreamItem.Type.EndStream; type = cursor.advance()) {
+			switch (type) {
+				case Class: {
+					items.add("class " + cursor.name());
+					break;
+				}
+				case Field: {
+					items.add(cursor.name() + "=" + ConfigAssert.describe(cursor.value()));
+					break;
+				}
+				default: {
+					items.add("end");
+					break;
+				}
+			}
+		}
+		return items;
+	}
+}
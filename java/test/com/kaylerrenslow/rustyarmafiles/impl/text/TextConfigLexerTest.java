@@ -0,0 +1,57 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class TextConfigLexerTest {
+
+	@Test
+	void appendAssignIsOneToken() throws Exception {
+		TextConfigLexer lexer = new TextConfigLexer(CharBuffer.wrap("arr[] += {5};\nx = 1;"), 0);
+		List<TextConfigLexer.Token> tokens = new ArrayList<>();
+		for (TextConfigLexer.Token token = lexer.next(); token != TextConfigLexer.Token.EOF; token = lexer.next()) {
+			tokens.add(token);
+		}
+		assertEquals(Arrays.asList(
+				TextConfigLexer.Token.Word, TextConfigLexer.Token.LBracket, TextConfigLexer.Token.RBracket, TextConfigLexer.Token.AppendAssign,
+				TextConfigLexer.Token.LBrace, TextConfigLexer.Token.Word, TextConfigLexer.Token.RBrace, TextConfigLexer.Token.Semicolon,
+				TextConfigLexer.Token.Word, TextConfigLexer.Token.Assign, TextConfigLexer.Token.Word, TextConfigLexer.Token.Semicolon
+		), tokens);
+	}
+
+	@Test
+	void wordsNumbersAndQuotedText() throws Exception {
+		TextConfigLexer lexer = new TextConfigLexer(new StringReader("// comment\nname = \"a \"\"quoted\"\" b\"; n = -1.5e2;"));
+		assertEquals(TextConfigLexer.Token.Word, lexer.next());
+		assertTrue(lexer.textEquals("name"));
+		assertEquals(TextConfigLexer.Token.Assign, lexer.next());
+		assertEquals(TextConfigLexer.Token.Text, lexer.nextValue(false));
+		assertEquals("a \"quoted\" b", lexer.text());
+		assertEquals(TextConfigLexer.Token.Semicolon, lexer.next());
+		assertEquals(TextConfigLexer.Token.Word, lexer.next());
+		assertEquals(TextConfigLexer.Token.Assign, lexer.next());
+		assertEquals(TextConfigLexer.Token.Word, lexer.nextValue(false));
+		assertEquals(-150.0, lexer.number());
+	}
+
+	@Test
+	void classBodiesAreSkipped() throws Exception {
+		String text = "class A { class B { x = \"}\"; }; y = 2; }; z = 3;";
+		TextConfigLexer lexer = new TextConfigLexer(CharBuffer.wrap(text), text.indexOf('{') + 1);
+		lexer.skipToClosingBrace();
+		assertEquals(TextConfigLexer.Token.RBrace, lexer.next());
+		assertEquals(TextConfigLexer.Token.Semicolon, lexer.next());
+		assertEquals(TextConfigLexer.Token.Word, lexer.next());
+		assertTrue(lexer.textEquals("z"));
+	}
+}
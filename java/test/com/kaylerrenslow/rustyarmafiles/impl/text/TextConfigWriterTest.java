@@ -0,0 +1,93 @@
+package com.kaylerrenslow.rustyarmafiles.impl.text;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigQuery;
+import com.kaylerrenslow.rustyarmafiles.ConfigTestFiles;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static com.kaylerrenslow.rustyarmafiles.ConfigAssert.assertTreeEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class TextConfigWriterTest {
+	private Path directory;
+	private TextConfigFile source;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		directory = ConfigTestFiles.createTempDirectory();
+		source = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE));
+		source.parse();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void writtenTextReadsBackAsTheSameTree() throws Exception {
+		TextConfigFile written = writeAndParse(new TextConfigWriter(), "written.cpp");
+		assertTreeEquals(source.getRoot(), written.getRoot());
+	}
+
+	@Test
+	void writingTheWrittenTextAgainGivesTheSameText() throws Exception {
+		StringWriter first = new StringWriter();
+		new TextConfigWriter().write(source.getRoot(), first);
+		File written = ConfigTestFiles.write(directory, "written.cpp", first.toString());
+
+		StringWriter second = new StringWriter();
+		new TextConfigWriter().write(new TextConfigFile(written).newCursor(), second);
+		assertEquals(first.toString(), second.toString());
+	}
+
+	@Test
+	void channelAndWriterGiveTheSameText() throws Exception {
+		StringWriter writer = new StringWriter();
+		new TextConfigWriter(null, "  ", 64).write(source.newCursor(), writer);
+
+		File file = directory.resolve("channel.cpp").toFile();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+			new TextConfigWriter(null, "  ", 64).write(source.newCursor(), channel);
+		}
+		assertEquals(writer.toString(), new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void onlyEntriesMatchedByTheQueryAreWritten() throws Exception {
+		TextConfigWriter writer = new TextConfigWriter(ConfigQuery.parseQuery("CfgVehicles{Car{*;}}"));
+		TextConfigFile written = writeAndParse(writer, "query.cpp");
+
+		TextConfigFile expected = new TextConfigFile(ConfigTestFiles.write(directory, "expected.cpp", "class CfgVehicles {\n" +
+				"\tclass Car : Base {\n" +
+				"\t\tscope = 2;\n" +
+				"\t\tdisplayName = \"Véhicule \"\"quoted\"\"\";\n" +
+				"\t\tmaxSpeed = 120.25;\n" +
+				"\t\toffsets[] = {-1.5, 0, {2, \"x\"}};\n" +
+				"\t};\n" +
+				"};\n"));
+		expected.parse();
+		assertTreeEquals(expected.getRoot(), written.getRoot());
+	}
+
+	private TextConfigFile writeAndParse(TextConfigWriter writer, String name) throws Exception {
+		StringWriter text = new StringWriter();
+		writer.write(source.newCursor(), text);
+		TextConfigFile written = new TextConfigFile(ConfigTestFiles.write(directory, name, text.toString()));
+		written.parse();
+		return written;
+	}
+}
@@ -0,0 +1,86 @@
+package com.kaylerrenslow.rustyarmafiles.pbo;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class LzssTest {
+	@Test
+	void literalsAndBackReferences() throws Exception {
+		//literals a, b, c, then 6 bytes from 3 back
+		byte[] compressed = {0b0111, 'a', 'b', 'c', 3, 3, 0, 0, 0, 0};
+		int sum = 3 * ('a' + 'b' + 'c');
+		compressed[6] = (byte) sum;
+		compressed[7] = (byte) (sum >> 8);
+		assertEquals("abcabcabc", decompress(compressed, 9));
+	}
+
+	@Test
+	void positionsBeforeTheOutputAreSpaces() throws Exception {
+		//4 bytes from 2 back, at the start of the output
+		byte[] compressed = {0b10, 2, 1, 'x', 0, 0, 0, 0};
+		int sum = 4 * ' ' + 'x';
+		compressed[4] = (byte) sum;
+		assertEquals("    x", decompress(compressed, 5));
+	}
+
+	@Test
+	void compressedDataIsRestored() throws Exception {
+		Random random = new Random(3);
+		byte[] data = new byte[20000];
+		for (int i = 0; i < data.length; i++) {
+			//few distinct bytes so there are long and far back references
+			data[i] = (byte) (random.nextInt(4) * 70);
+		}
+		byte[] compressed = PboBuilder.compress(data);
+		assertTrue(compressed.length < data.length);
+		ByteBuffer dst = ByteBuffer.allocate(data.length);
+		Lzss.decompress(ByteBuffer.wrap(compressed), dst, data.length);
+		assertArrayEquals(data, dst.array());
+	}
+
+	@Test
+	void theSourcePositionIsTheStart() throws Exception {
+		byte[] compressed = PboBuilder.compress("config".getBytes(StandardCharsets.US_ASCII));
+		ByteBuffer src = ByteBuffer.allocate(compressed.length + 3);
+		src.position(3);
+		src.put(compressed).position(3);
+		ByteBuffer dst = ByteBuffer.allocate(6);
+		Lzss.decompress(src, dst, 6);
+		assertEquals(3, src.position());
+		assertEquals(0, dst.position());
+		assertEquals("config", new String(dst.array(), StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	void corruptDataIsReported() {
+		byte[] compressed = PboBuilder.compress("some text, some text".getBytes(StandardCharsets.US_ASCII));
+
+		byte[] badChecksum = compressed.clone();
+		badChecksum[badChecksum.length - 4]++;
+		assertThrows(DataFormatException.class, () -> decompress(badChecksum, 20));
+
+		assertThrows(DataFormatException.class, () -> decompress(Arrays.copyOf(compressed, compressed.length - 2), 20));
+		assertThrows(DataFormatException.class, () -> decompress(Arrays.copyOf(compressed, 5), 20));
+
+		//18 bytes from 1 back when only 2 are left
+		assertThrows(DataFormatException.class, () -> decompress(new byte[]{0b1, 'x', 1, 0x0F, 0, 0, 0, 0}, 3));
+	}
+
+	@NotNull
+	private static String decompress(@NotNull byte[] compressed, int originalSize) throws DataFormatException {
+		ByteBuffer dst = ByteBuffer.allocate(originalSize);
+		Lzss.decompress(ByteBuffer.wrap(compressed), dst, originalSize);
+		return new String(dst.array(), StandardCharsets.US_ASCII);
+	}
+}
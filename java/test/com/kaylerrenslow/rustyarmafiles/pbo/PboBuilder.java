@@ -0,0 +1,157 @@
+package com.kaylerrenslow.rustyarmafiles.pbo;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ Writes PBO archives for the tests, in the layout {@link PboFile} documents.
+
+ @author K
+ @since 02/08/2019 */
+final class PboBuilder {
+	private final Map<String, String> properties = new LinkedHashMap<>();
+	private final List<Object[]> entries = new ArrayList<>();
+
+	@NotNull
+	PboBuilder property(@NotNull String key, @NotNull String value) {
+		properties.put(key, value);
+		return this;
+	}
+
+	@NotNull
+	PboBuilder entry(@NotNull String path, @NotNull byte[] data) {
+		entries.add(new Object[]{path, data, false});
+		return this;
+	}
+
+	@NotNull
+	PboBuilder entry(@NotNull String path, @NotNull String text) {
+		return entry(path, text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/** Adds an entry that is stored compressed with {@link #compress(byte[])}. */
+	@NotNull
+	PboBuilder compressedEntry(@NotNull String path, @NotNull byte[] data) {
+		entries.add(new Object[]{path, data, true});
+		return this;
+	}
+
+	@NotNull
+	byte[] toBytes() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		if (!properties.isEmpty()) {
+			writeAsciiz(out, "");
+			writeInt(out, PboFile.METHOD_PRODUCT);
+			for (int i = 0; i < 4; i++) {
+				writeInt(out, 0);
+			}
+			for (Map.Entry<String, String> property : properties.entrySet()) {
+				writeAsciiz(out, property.getKey());
+				writeAsciiz(out, property.getValue());
+			}
+			writeAsciiz(out, "");
+		}
+		List<byte[]> stored = new ArrayList<>();
+		for (Object[] entry : entries) {
+			byte[] data = (byte[]) entry[1];
+			boolean compressed = (Boolean) entry[2];
+			byte[] bytes = compressed ? compress(data) : data;
+			stored.add(bytes);
+			writeAsciiz(out, (String) entry[0]);
+			writeInt(out, compressed ? PboFile.METHOD_COMPRESSED : 0);
+			writeInt(out, compressed ? data.length : 0);
+			writeInt(out, 0);
+			writeInt(out, 1549584000);
+			writeInt(out, bytes.length);
+		}
+		writeAsciiz(out, "");
+		for (int i = 0; i < 5; i++) {
+			writeInt(out, 0);
+		}
+		for (byte[] bytes : stored) {
+			out.write(bytes, 0, bytes.length);
+		}
+		out.write(0);
+		out.write(new byte[20], 0, 20);
+		return out.toByteArray();
+	}
+
+	@NotNull
+	File write(@NotNull File file) throws IOException {
+		Files.write(file.toPath(), toBytes());
+		return file;
+	}
+
+	/** @return the data compressed the way {@link Lzss} reads it, with the longest back reference found at each position */
+	@NotNull
+	static byte[] compress(@NotNull byte[] data) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream block = new ByteArrayOutputStream();
+		int flags = 0;
+		int bit = 0;
+		int checksum = 0;
+		int in = 0;
+		while (in < data.length) {
+			int bestLength = 0;
+			int bestDistance = 0;
+			for (int distance = 1; distance <= Math.min(in, 0xFFF); distance++) {
+				int length = 0;
+				while (length < 18 && in + length < data.length && data[in + length] == data[in - distance + length]) {
+					length++;
+				}
+				if (length > bestLength) {
+					bestLength = length;
+					bestDistance = distance;
+				}
+			}
+			if (bestLength >= 3) {
+				block.write(bestDistance & 0xFF);
+				block.write((bestDistance >> 4) & 0xF0 | (bestLength - 3));
+				for (int i = 0; i < bestLength; i++) {
+					checksum += data[in + i] & 0xFF;
+				}
+				in += bestLength;
+			} else {
+				flags |= 1 << bit;
+				block.write(data[in]);
+				checksum += data[in] & 0xFF;
+				in++;
+			}
+			if (++bit == 8) {
+				out.write(flags);
+				out.write(block.toByteArray(), 0, block.size());
+				block.reset();
+				flags = 0;
+				bit = 0;
+			}
+		}
+		if (bit > 0) {
+			out.write(flags);
+			out.write(block.toByteArray(), 0, block.size());
+		}
+		writeInt(out, checksum);
+		return out.toByteArray();
+	}
+
+	private static void writeAsciiz(@NotNull ByteArrayOutputStream out, @NotNull String text) {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		out.write(bytes, 0, bytes.length);
+		out.write(0);
+	}
+
+	private static void writeInt(@NotNull ByteArrayOutputStream out, int value) {
+		out.write(value);
+		out.write(value >>> 8);
+		out.write(value >>> 16);
+		out.write(value >>> 24);
+	}
+}
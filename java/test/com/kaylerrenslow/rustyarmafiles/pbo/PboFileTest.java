@@ -0,0 +1,178 @@
+package com.kaylerrenslow.rustyarmafiles.pbo;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigAssert;
+import com.kaylerrenslow.rustyarmafiles.ConfigTestFiles;
+import com.kaylerrenslow.rustyarmafiles.impl.rapified.MappedRapifiedConfigFile;
+import com.kaylerrenslow.rustyarmafiles.impl.rapified.RapifiedConfigWriter;
+import com.kaylerrenslow.rustyarmafiles.impl.text.TextConfigFile;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class PboFileTest {
+	private static final String TEXT = "class CfgPatches { class a { units[] = {}; }; };\nsome text that repeats, some text that repeats\n";
+
+	private Path directory;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = ConfigTestFiles.createTempDirectory();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void headerIsRead() throws Exception {
+		PboFile pbo = PboFile.open(new PboBuilder().property("prefix", "x\\my_addon").property("version", "1").entry("config.cpp", TEXT).entry("data\\Image.paa", new byte[]{1, 2, 3}).write(file("a.pbo")));
+		assertEquals(Arrays.asList("prefix", "version"), Arrays.asList(pbo.getProperties().keySet().toArray()));
+		assertEquals("x\\my_addon", pbo.getPrefix());
+		assertEquals(2, pbo.getEntries().size());
+
+		PboEntry image = pbo.getEntries().get(1);
+		assertEquals("data\\Image.paa", image.getPath());
+		assertSame(pbo, image.getPboFile());
+		assertFalse(image.isCompressed());
+		assertEquals(3, image.getSize());
+		assertEquals(3, image.getDataSize());
+		assertEquals(1549584000, image.getTimestamp());
+		assertEquals("a.pbo:data\\Image.paa", image.toString());
+
+		assertSame(image, pbo.getEntry("DATA/image.paa"));
+		assertSame(image, pbo.getEntry("\\data\\image.paa"));
+		assertNull(pbo.getEntry("image.paa"));
+	}
+
+	@Test
+	void archivesWithoutProductEntryHaveNoPrefix() throws Exception {
+		PboFile pbo = PboFile.open(new PboBuilder().entry("config.cpp", TEXT).write(file("a.pbo")));
+		assertTrue(pbo.getProperties().isEmpty());
+		assertEquals("", pbo.getPrefix());
+		assertEquals(TEXT, text(pbo.getEntry("config.cpp").read()));
+	}
+
+	@Test
+	void storedEntriesAreReadInPlace() throws Exception {
+		PboFile pbo = PboFile.open(new PboBuilder().entry("config.cpp", TEXT).write(file("a.pbo")));
+		PboEntry entry = pbo.getEntry("config.cpp");
+		ByteBuffer content = entry.read();
+		assertTrue(content.isReadOnly());
+		assertTrue(content.isDirect());
+		assertEquals(TEXT, text(content));
+		try (PboEntry.Content opened = entry.open()) {
+			assertEquals(TEXT, text(opened.getBuffer()));
+		}
+	}
+
+	@Test
+	void compressedEntriesAreDecompressed() throws Exception {
+		byte[] data = TEXT.getBytes(StandardCharsets.UTF_8);
+		String other = TEXT.replace('s', 'z');
+		PboBufferPool pool = new PboBufferPool(2);
+		PboFile pbo = PboFile.open(new PboBuilder().compressedEntry("config.cpp", data).compressedEntry("other.cpp", other.getBytes(StandardCharsets.UTF_8)).write(file("a.pbo")), pool);
+		PboEntry entry = pbo.getEntry("config.cpp");
+		assertTrue(entry.isCompressed());
+		assertEquals(data.length, entry.getSize());
+		assertTrue(entry.getDataSize() < data.length);
+		assertEquals(entry.getDataSize(), entry.getRawData().remaining());
+		assertEquals(TEXT, text(entry.read()));
+
+		PboEntry.Content first = entry.open();
+		assertEquals(TEXT, text(first.getBuffer()));
+		first.close();
+		first.close();
+		assertThrows(IllegalStateException.class, first::getBuffer);
+
+		//closing twice released the buffer once, so contents that are open at the same time don't share it
+		try (PboEntry.Content second = entry.open(); PboEntry.Content third = pbo.getEntry("other.cpp").open()) {
+			assertEquals(other, text(third.getBuffer()));
+			assertEquals(TEXT, text(second.getBuffer()));
+		}
+	}
+
+	@Test
+	void corruptCompressedEntriesAreReported() throws Exception {
+		byte[] bytes = new PboBuilder().compressedEntry("config.cpp", TEXT.getBytes(StandardCharsets.UTF_8)).toBytes();
+		//the last byte of the checksum, in front of the trailer
+		bytes[bytes.length - 22]++;
+		Files.write(directory.resolve("a.pbo"), bytes);
+		PboEntry entry = PboFile.open(file("a.pbo")).getEntry("config.cpp");
+		IOException e = assertThrows(IOException.class, entry::read);
+		assertTrue(e.getMessage().contains("config.cpp"));
+		assertThrows(IOException.class, entry::open);
+	}
+
+	@Test
+	void invalidHeadersAreParseExceptions() throws Exception {
+		byte[] bytes = new PboBuilder().entry("config.cpp", TEXT).toBytes();
+		Files.write(directory.resolve("truncated.pbo"), Arrays.copyOf(bytes, 14));
+		assertThrows(ParseException.class, () -> PboFile.open(file("truncated.pbo")));
+
+		//the data ends in the middle of the entry
+		int headerSize = bytes.length - TEXT.length() - 21;
+		Files.write(directory.resolve("short.pbo"), Arrays.copyOf(bytes, headerSize + 5));
+		assertThrows(ParseException.class, () -> PboFile.open(file("short.pbo")));
+
+		Files.write(directory.resolve("empty.pbo"), new byte[0]);
+		assertThrows(ParseException.class, () -> PboFile.open(file("empty.pbo")));
+	}
+
+	@Test
+	void rapifiedConfigsAreReadFromTheArchive() throws Exception {
+		TextConfigFile source = new TextConfigFile(ConfigTestFiles.write(directory, "config.cpp", ConfigTestFiles.SAMPLE));
+		File bin = directory.resolve("config.bin").toFile();
+		new RapifiedConfigWriter().write(source.newCursor(), bin);
+		byte[] data = Files.readAllBytes(bin.toPath());
+		source.parse();
+
+		PboFile pbo = PboFile.open(new PboBuilder().entry("config.bin", data).compressedEntry("sub\\config.bin", data).write(file("a.pbo")));
+		for (PboEntry entry : pbo.getEntries()) {
+			MappedRapifiedConfigFile config = entry.newRapifiedConfigFile();
+			assertEquals(new File(pbo.getFile(), entry.getPath().replace('\\', File.separatorChar)), config.getFile());
+			config.parse();
+			ConfigAssert.assertTreeEquals(source.getRoot(), config.getRoot());
+		}
+	}
+
+	@Test
+	void poolKeepsAtMostMaxIdleBuffers() {
+		PboBufferPool pool = new PboBufferPool(1);
+		ByteBuffer a = pool.acquire(10);
+		assertEquals(10, a.limit());
+		assertEquals(1024, a.capacity());
+		ByteBuffer b = pool.acquire(3000);
+		assertEquals(4096, b.capacity());
+		pool.release(a);
+		pool.release(b);
+		assertSame(a, pool.acquire(500));
+		assertNotSame(b, pool.acquire(3000));
+		assertThrows(IllegalArgumentException.class, () -> new PboBufferPool(-1));
+	}
+
+	@NotNull
+	private File file(@NotNull String name) {
+		return directory.resolve(name).toFile();
+	}
+
+	@NotNull
+	private static String text(@NotNull ByteBuffer buffer) {
+		return StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+	}
+}
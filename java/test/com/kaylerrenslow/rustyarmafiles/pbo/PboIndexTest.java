@@ -0,0 +1,93 @@
+package com.kaylerrenslow.rustyarmafiles.pbo;
+
+import com.kaylerrenslow.rustyarmafiles.ConfigTestFiles;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ @author K
+ @since 02/08/2019 */
+class PboIndexTest {
+	private Path directory;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = ConfigTestFiles.createTempDirectory();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		ConfigTestFiles.delete(directory);
+	}
+
+	@Test
+	void entriesAreFoundByTheirFullPath() throws Exception {
+		File data = new PboBuilder().property("prefix", "a3\\data_f").entry("config.bin", "data").entry("images\\a.paa", "a").write(file("data.pbo"));
+		File root = new PboBuilder().entry("config.bin", "root").write(file("root.pbo"));
+		PboIndex index = PboIndex.open(Arrays.asList(data, root));
+		assertEquals(2, index.getPboFiles().size());
+
+		assertEquals("data", text(index.getEntry("a3\\data_f\\config.bin")));
+		assertEquals("data", text(index.getEntry("\\A3/Data_F/CONFIG.bin")));
+		assertEquals("a", text(index.getEntry("a3/data_f/images/a.paa")));
+		assertEquals("root", text(index.getEntry("config.bin")));
+		assertNull(index.getEntry("data_f\\config.bin"));
+		assertNull(index.getEntry("images\\a.paa"));
+	}
+
+	@Test
+	void theArchiveGivenLastWins() throws Exception {
+		File first = new PboBuilder().property("prefix", "mod").entry("config.bin", "first").entry("a.sqf", "a").write(file("first.pbo"));
+		File second = new PboBuilder().property("prefix", "mod\\").entry("b.sqf", "b").entry("CONFIG.bin", "second").write(file("second.pbo"));
+		File third = new PboBuilder().property("prefix", "other").entry("config.bin", "third").write(file("third.pbo"));
+		PboIndex index = PboIndex.open(Arrays.asList(first, second, third));
+		assertEquals("second", text(index.getEntry("mod\\config.bin")));
+
+		//the path that is in both archives is at the position of the second one
+		assertEquals(Arrays.asList("second", "third"), texts(index.findEntries("config.bin")));
+		assertEquals(Arrays.asList("b"), texts(index.findEntries("/B.sqf")));
+		//only whole file names match
+		assertTrue(index.findEntries("g.bin").isEmpty());
+	}
+
+	@Test
+	void invalidArchivesFailTheIndex() throws Exception {
+		File good = new PboBuilder().entry("config.bin", "x").write(file("good.pbo"));
+		Files.write(directory.resolve("bad.pbo"), new byte[]{'x'});
+		assertThrows(ParseException.class, () -> PboIndex.open(Arrays.asList(good, file("bad.pbo"))));
+		assertThrows(IOException.class, () -> PboIndex.open(Arrays.asList(good, file("missing.pbo"))));
+	}
+
+	@NotNull
+	private File file(@NotNull String name) {
+		return directory.resolve(name).toFile();
+	}
+
+	@NotNull
+	private static String text(@NotNull PboEntry entry) throws IOException {
+		return StandardCharsets.UTF_8.decode(entry.read()).toString();
+	}
+
+	@NotNull
+	private static List<String> texts(@NotNull List<PboEntry> entries) throws IOException {
+		List<String> texts = new ArrayList<>();
+		for (PboEntry entry : entries) {
+			texts.add(text(entry));
+		}
+		return texts;
+	}
+}